@@ -10,6 +10,7 @@ import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
@@ -19,6 +20,7 @@ import com.kircherelectronics.androidlinearacceleration.dialog.SensorSettingsDia
 import com.kircherelectronics.androidlinearacceleration.plot.PlotPrefCallback;
 import com.kircherelectronics.androidlinearacceleration.prefs.PrefUtils;
 import com.kircherelectronics.androidlinearacceleration.view.AccelerationVectorView;
+import com.kircherelectronics.androidlinearacceleration.view.RenderScheduler;
 
 /*
  * Low-Pass Linear Acceleration
@@ -47,6 +49,9 @@ import com.kircherelectronics.androidlinearacceleration.view.AccelerationVectorV
 public class AccelerationVectorActivity extends Activity implements
 		SensorEventListener, PlotPrefCallback
 {
+	private static final String tag = AccelerationVectorActivity.class
+			.getSimpleName();
+
 	private boolean invertAxisActive = false;
 
 	private float[] acceleration = new float[3];
@@ -97,6 +102,17 @@ public class AccelerationVectorActivity extends Activity implements
 		super.onPause();
 
 		sensorManager.unregisterListener(this);
+
+		RenderScheduler scheduler = RenderScheduler.getInstance();
+
+		Log.d(tag, "Sensor updates per frame: "
+				+ scheduler.getAverageFrameRequests(view) + " over "
+				+ scheduler.getFrameCount(view) + " frames");
+
+		Log.d(tag, "Pixels redrawn: " + scheduler.getDirtyFraction() * 100
+				+ "% of the redrawn views");
+
+		scheduler.resetStatistics();
 	}
 
 	@Override
@@ -27,30 +27,54 @@ import android.app.Activity;
 import android.app.Dialog;
 import android.content.Intent;
 import android.graphics.Color;
+import android.hardware.SensorManager;
 import android.media.MediaScannerConnection;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Environment;
 import android.os.Handler;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.View.OnTouchListener;
 import android.view.Window;
+import android.view.WindowManager;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import com.androidplot.xy.XYPlot;
+import com.kircherelectronics.androidlinearacceleration.calibration.AccelerationCalibration;
+import com.kircherelectronics.androidlinearacceleration.calibration.CalibrationCollector;
+import com.kircherelectronics.androidlinearacceleration.calibration.CalibrationObserver;
 import com.kircherelectronics.androidlinearacceleration.gauge.GaugeAcceleration;
 import com.kircherelectronics.androidlinearacceleration.gauge.GaugeRotation;
+import com.kircherelectronics.androidlinearacceleration.history.SummaryPyramid;
+import com.kircherelectronics.androidlinearacceleration.motion.AlignmentObserver;
+import com.kircherelectronics.androidlinearacceleration.motion.MotionDetector;
+import com.kircherelectronics.androidlinearacceleration.motion.MountingAlignment;
+import com.kircherelectronics.androidlinearacceleration.motion.VelocityIntegrator;
+import com.kircherelectronics.androidlinearacceleration.motion.VelocityObserver;
 import com.kircherelectronics.androidlinearacceleration.plot.DynamicPlot;
+import com.kircherelectronics.androidlinearacceleration.plot.MinMaxDecimator;
 import com.kircherelectronics.androidlinearacceleration.plot.PlotColor;
+import com.kircherelectronics.androidlinearacceleration.plot.PlotRenderer;
+import com.kircherelectronics.androidlinearacceleration.plot.SampleBuffer;
+import com.kircherelectronics.androidlinearacceleration.render.RenderSurfaceView;
 import com.kircherelectronics.androidlinearacceleration.sensor.AccelerationSensor;
 import com.kircherelectronics.androidlinearacceleration.sensor.LinearAccelerationSensor;
 import com.kircherelectronics.androidlinearacceleration.sensor.observer.AccelerationSensorObserver;
 import com.kircherelectronics.androidlinearacceleration.sensor.observer.LinearAccelerationSensorObserver;
+import com.kircherelectronics.androidlinearacceleration.spectrum.LagEstimator;
+import com.kircherelectronics.androidlinearacceleration.statistics.AccelerationStatistics;
+import com.kircherelectronics.androidlinearacceleration.statistics.LatencyHistogram;
+import com.kircherelectronics.androidlinearacceleration.statistics.Statistics;
+import com.kircherelectronics.androidlinearacceleration.trigger.BlackBoxRecorder;
+import com.kircherelectronics.androidlinearacceleration.trigger.ShockObserver;
+import com.kircherelectronics.androidlinearacceleration.trigger.ShockTrigger;
+import com.kircherelectronics.androidlinearacceleration.view.RenderScheduler;
 
 /**
  * Uses the standard Android TYPE_LINEAR_ACCELERATION sensor to provide the
@@ -61,18 +85,56 @@ import com.kircherelectronics.androidlinearacceleration.sensor.observer.LinearAc
  */
 public class AndroidLinearAccelerationActivity extends Activity implements
 		Runnable, OnTouchListener, LinearAccelerationSensorObserver,
-		AccelerationSensorObserver
+		AccelerationSensorObserver, VelocityObserver, ShockObserver,
+		CalibrationObserver, AlignmentObserver
 {
+	private static final String tag = AndroidLinearAccelerationActivity.class
+			.getSimpleName();
+
+	// The number of measurements in the sliding window of the noise
+	// statistics.
+	private static final int STATISTICS_WINDOW_SIZE = 200;
+
+	// The duration of the window drawn on the render thread in nanoseconds.
+	private static final long PLOT_WINDOW_LENGTH = 120000000000L;
+
+	// The time between two updates of the UI and the log in milliseconds.
+	private static final int UPDATE_PERIOD = 100;
+
+	// The linear acceleration that counts as a shock in m/s^2.
+	private static final float SHOCK_THRESHOLD = 2 * SensorManager.GRAVITY_EARTH;
 
 	// Indicate if the output should be logged to a .csv file
 	private boolean logData = false;
 
+	// Indicate if the plot should be drawn on its own render thread
+	private boolean renderThreadActive = false;
+
+	// Indicate if shocks should be saved by the black box
+	private boolean blackBoxActive = false;
+
+	// Indicate if the accelerometer is being measured for a calibration
+	private boolean calibrationActive = false;
+
+	// The vehicle mode before the calibration, restored when it ends
+	private boolean calibrationVehicleMode = false;
+
 	// Decimal formats for the UI outputs
 	private DecimalFormat df;
 
 	// Graph plot for the UI outputs
 	private DynamicPlot dynamicPlot;
 
+	// Graph plot drawn on a render thread and the samples it draws
+	private PlotRenderer plotRenderer;
+	private RenderSurfaceView plotSurface;
+	private SampleBuffer plotBuffer;
+	private MinMaxDecimator plotDecimator;
+	private float[] plotValues = new float[6];
+
+	// The graph plot that is currently visible
+	private XYPlot plot;
+
 	// Outputs for the acceleration and LPFs
 	private float[] acceleration = new float[3];
 	private float[] linearAcceleration = new float[3];
@@ -128,6 +190,37 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 	private AccelerationSensor accelerationSensor;
 	private LinearAccelerationSensor linearAccelerationSensor;
 
+	// Detects rest for the zero velocity updates of the integrator
+	private MotionDetector motionDetector;
+
+	// Integrates the linear acceleration into velocity and displacement
+	private VelocityIntegrator velocityIntegrator;
+
+	// Saves the window around every shock
+	private BlackBoxRecorder blackBox;
+
+	// Measures the accelerometer in many orientations for its calibration
+	private CalibrationCollector calibrationCollector;
+
+	// Estimates how the device is mounted in a vehicle
+	private MountingAlignment mountingAlignment;
+
+	// Estimates how far the linear acceleration lags the acceleration
+	private LagEstimator lagEstimator;
+
+	// The most recent speed and the length of the displacement from the
+	// integrator
+	private float speed = 0;
+	private float integratedDisplacement = 0;
+
+	// The length of the path over the corrected motion segments
+	private float pathLength = 0;
+
+	// Receive the corrected samples of a motion segment
+	private float[] segmentVelocity = new float[3];
+	private float[] segmentDisplacement = new float[3];
+	private float[] previousSegmentDisplacement = new float[3];
+
 	// Acceleration plot titles
 	private String plotAccelXAxisTitle = "AX";
 	private String plotAccelYAxisTitle = "AY";
@@ -141,11 +234,27 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 	// Output log
 	private String log;
 
+	// Summary of the output log at several resolutions for the history view
+	private SummaryPyramid logSummary;
+	private float[] logValues = new float[6];
+
 	// Acceleration UI outputs
 	private TextView xAxis;
 	private TextView yAxis;
 	private TextView zAxis;
 
+	// Noise statistics UI outputs
+	private TextView accelerationStatisticsView;
+	private TextView linearAccelerationStatisticsView;
+
+	// The delivery latencies of the sensors
+	private TextView accelerationLatencyView;
+	private TextView linearAccelerationLatencyView;
+
+	// Noise statistics of the most recent measurements
+	private AccelerationStatistics accelerationStatistics;
+	private AccelerationStatistics linearAccelerationStatistics;
+
 	private Handler handler;
 
 	@Override
@@ -166,7 +275,7 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 		lpfLable.setText("LinearAcceleration");
 
 		// Create the graph plot
-		XYPlot plot = (XYPlot) findViewById(R.id.plot_sensor);
+		plot = (XYPlot) findViewById(R.id.plot_sensor);
 		plot.setTitle("Acceleration");
 		dynamicPlot = new DynamicPlot(plot);
 		dynamicPlot.setMaxRange(11.2);
@@ -177,6 +286,18 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 		yAxis = (TextView) findViewById(R.id.value_y_axis);
 		zAxis = (TextView) findViewById(R.id.value_z_axis);
 
+		// Create the noise statistics UI outputs
+		accelerationStatisticsView = (TextView) findViewById(R.id.value_statistics_0);
+		linearAccelerationStatisticsView = (TextView) findViewById(R.id.value_statistics_1);
+
+		accelerationLatencyView = (TextView) findViewById(R.id.value_latency_0);
+		linearAccelerationLatencyView = (TextView) findViewById(R.id.value_latency_1);
+
+		accelerationStatistics = new AccelerationStatistics(
+				STATISTICS_WINDOW_SIZE);
+		linearAccelerationStatistics = new AccelerationStatistics(
+				STATISTICS_WINDOW_SIZE);
+
 		// Create the logger icon
 		iconLogger = (ImageView) findViewById(R.id.icon_logger);
 		iconLogger.setVisibility(View.INVISIBLE);
@@ -187,6 +308,25 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 		linearAccelerationSensor = new LinearAccelerationSensor(this);
 		accelerationSensor = new AccelerationSensor(this);
 
+		motionDetector = new MotionDetector();
+		velocityIntegrator = new VelocityIntegrator();
+
+		motionDetector.registerMotionObserver(velocityIntegrator);
+		velocityIntegrator.registerVelocityObserver(this);
+
+		blackBox = new BlackBoxRecorder(new ShockTrigger(
+				ShockTrigger.Source.MAGNITUDE, SHOCK_THRESHOLD, 0),
+				getLogDirectory());
+		blackBox.registerShockObserver(this);
+
+		lagEstimator = new LagEstimator();
+
+		calibrationCollector = new CalibrationCollector();
+		calibrationCollector.registerCalibrationObserver(this);
+
+		mountingAlignment = new MountingAlignment();
+		mountingAlignment.registerAlignmentObserver(this);
+
 		// Initialize the plots
 		initColor();
 		initPlot();
@@ -218,6 +358,46 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 			startDataLog();
 			return true;
 			
+		case R.id.action_render_thread:
+			item.setChecked(!item.isChecked());
+			setRenderThreadActive(item.isChecked());
+			return true;
+
+		case R.id.action_trail:
+			item.setChecked(!item.isChecked());
+			gaugeAcceleration.setTrailEnabled(item.isChecked());
+			gaugeLinearAcceleration.setTrailEnabled(item.isChecked());
+			return true;
+
+		case R.id.action_heatmap:
+			item.setChecked(!item.isChecked());
+			gaugeAcceleration.setHeatmapEnabled(item.isChecked());
+			gaugeLinearAcceleration.setHeatmapEnabled(item.isChecked());
+			return true;
+
+		case R.id.action_black_box:
+			item.setChecked(!item.isChecked());
+			setBlackBoxActive(item.isChecked());
+			return true;
+
+		case R.id.action_calibrate:
+			startCalibration();
+			return true;
+
+		case R.id.action_align:
+			startAlignment();
+			return true;
+
+		case R.id.action_history:
+			Intent historyIntent = new Intent(this, HistoryActivity.class);
+			startActivity(historyIntent);
+			return true;
+
+		case R.id.action_spectrum:
+			Intent spectrumIntent = new Intent(this, SpectrumActivity.class);
+			startActivity(spectrumIntent);
+			return true;
+
 		case R.id.action_vector_view:
 			Intent vectorIntent = new Intent(this,
 					AccelerationVectorActivity.class);
@@ -242,12 +422,57 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 		accelerationSensor.removeAccelerationObserver(this);
 		linearAccelerationSensor.removeAccelerationObserver(this);
 
+		accelerationSensor.removeAccelerationObserver(motionDetector);
+		linearAccelerationSensor.removeAccelerationObserver(velocityIntegrator);
+		linearAccelerationSensor.removeAccelerationObserver(blackBox);
+
+		// The black box is hosted by this activity, so capture stops while
+		// it is not visible. Save a shock that was still being captured.
+		blackBox.flush();
+
+		accelerationSensor.removeAccelerationObserver(lagEstimator);
+		linearAccelerationSensor.removeAccelerationObserver(lagEstimator);
+
+		// A calibration that is interrupted has to start over.
+		accelerationSensor.removeAccelerationObserver(calibrationCollector);
+		endCalibration();
+
+		accelerationSensor.removeAccelerationObserver(mountingAlignment);
+
 		if (logData)
 		{
 			writeLogToFile();
 		}
 
 		handler.removeCallbacks(this);
+
+		RenderScheduler scheduler = RenderScheduler.getInstance();
+
+		Log.d(tag, "Pixels redrawn: " + scheduler.getDirtyFraction() * 100
+				+ "% of the redrawn views over " + scheduler.getFrameCount()
+				+ " frames");
+
+		Log.d(tag, "Sensor updates per frame: "
+				+ scheduler.getAverageFrameRequests(gaugeLinearAcceleration)
+				+ " linear acceleration gauge, "
+				+ scheduler.getAverageFrameRequests(gaugeLinearAccelTilt)
+				+ " tilt gauge");
+
+		scheduler.resetStatistics();
+
+		// The surface only draws while the plot is on the render thread.
+		if (renderThreadActive)
+		{
+			Log.d(tag, "Plot frame time: " + plotSurface.getAverageFrameTime()
+					+ " ms average, " + plotSurface.getMaxFrameTime()
+					+ " ms longest");
+		}
+
+		Log.d(tag, "Tilt gauge draw time: "
+				+ gaugeLinearAccelTilt.getAverageDrawTime() + " ms average, "
+				+ gaugeLinearAccelTilt.getMaxDrawTime() + " ms longest");
+
+		Log.d(tag, getLagDescription());
 	}
 
 	@Override
@@ -259,6 +484,42 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 
 		accelerationSensor.registerAccelerationObserver(this);
 		linearAccelerationSensor.registerAccelerationObserver(this);
+
+		// Start the estimates at rest at the origin.
+		motionDetector.reset();
+		velocityIntegrator.reset();
+		pathLength = 0;
+
+		accelerationSensor.registerAccelerationObserver(motionDetector);
+		linearAccelerationSensor
+				.registerAccelerationObserver(velocityIntegrator);
+
+		// The lag is measured again each session, as the sensors may have
+		// been reconfigured in between.
+		lagEstimator.reset();
+
+		accelerationSensor.resetLatency();
+		linearAccelerationSensor.resetLatency();
+
+		accelerationSensor.registerAccelerationObserver(lagEstimator);
+		linearAccelerationSensor.registerAccelerationObserver(lagEstimator);
+
+		if (blackBoxActive)
+		{
+			blackBox.reset();
+			linearAccelerationSensor.registerAccelerationObserver(blackBox);
+		}
+	}
+
+	@Override
+	protected void onDestroy()
+	{
+		super.onDestroy();
+
+		// The writer and alignment threads hold on to this activity as their
+		// observer.
+		blackBox.shutdown();
+		mountingAlignment.shutdown();
 	}
 
 	/**
@@ -291,6 +552,9 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 				dynamicPlot.setMaxRange(zoom * Math.log(zoom));
 				dynamicPlot.setMinRange(-zoom * Math.log(zoom));
 
+				plotRenderer.setMaxRange((float) (zoom * Math.log(zoom)));
+				plotRenderer.setMinRange((float) (-zoom * Math.log(zoom)));
+
 				distance = newDist;
 			}
 		}
@@ -304,6 +568,8 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 		// Get a local copy of the sensor values
 		System.arraycopy(acceleration, 0, this.acceleration, 0,
 				acceleration.length);
+
+		accelerationStatistics.add(acceleration);
 	}
 
 	@Override
@@ -313,12 +579,154 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 		// Get a local copy of the sensor values
 		System.arraycopy(linearAcceleration, 0, this.linearAcceleration, 0,
 				linearAcceleration.length);
+
+		linearAccelerationStatistics.add(linearAcceleration);
+
+		if (renderThreadActive)
+		{
+			plotValues[plotAccelXAxisKey] = acceleration[0];
+			plotValues[plotAccelYAxisKey] = acceleration[1];
+			plotValues[plotAccelZAxisKey] = acceleration[2];
+
+			plotValues[plotLinearAccelXAxisKey] = linearAcceleration[0];
+			plotValues[plotLinearAccelYAxisKey] = linearAcceleration[1];
+			plotValues[plotLinearAccelZAxisKey] = linearAcceleration[2];
+
+			plotDecimator.add(plotValues, timeStamp);
+			plotSurface.requestRender();
+		}
+	}
+
+	@Override
+	public void onVelocityChanged(float[] velocity, float[] displacement,
+			long timeStamp)
+	{
+		speed = (float) Math.sqrt(velocity[0] * velocity[0] + velocity[1]
+				* velocity[1] + velocity[2] * velocity[2]);
+
+		integratedDisplacement = (float) Math.sqrt(displacement[0]
+				* displacement[0] + displacement[1] * displacement[1]
+				+ displacement[2] * displacement[2]);
+	}
+
+	@Override
+	public void onSegmentCorrected(long startTime, long endTime)
+	{
+		// The log keeps the estimates as they were at the time. The path
+		// only grows by the corrected segments, so drift does not add to it.
+		int size = velocityIntegrator.getSegmentSize();
+
+		float segmentPath = 0;
+		float peakSpeed = 0;
+
+		for (int i = 0; i < size; i++)
+		{
+			velocityIntegrator.getSegmentSample(i, segmentVelocity,
+					segmentDisplacement);
+
+			if (i > 0)
+			{
+				float dx = segmentDisplacement[0]
+						- previousSegmentDisplacement[0];
+				float dy = segmentDisplacement[1]
+						- previousSegmentDisplacement[1];
+				float dz = segmentDisplacement[2]
+						- previousSegmentDisplacement[2];
+
+				segmentPath += (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+			}
+
+			peakSpeed = Math.max(peakSpeed, (float) Math.sqrt(segmentVelocity[0]
+					* segmentVelocity[0] + segmentVelocity[1]
+					* segmentVelocity[1] + segmentVelocity[2]
+					* segmentVelocity[2]));
+
+			System.arraycopy(segmentDisplacement, 0,
+					previousSegmentDisplacement, 0, 3);
+		}
+
+		pathLength += segmentPath;
+
+		Log.d(tag, "Segment of " + (endTime - startTime) / 1000000 + " ms: "
+				+ segmentPath + " m path, " + peakSpeed + " m/s peak over "
+				+ size + " corrected samples");
+	}
+
+	@Override
+	public void onShockSaved(final File file, long timeStamp)
+	{
+		// Called on the thread of the black box.
+		runOnUiThread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				CharSequence text = (file != null) ? "Shock Saved"
+						: "Shock Not Saved";
+
+				Toast.makeText(AndroidLinearAccelerationActivity.this, text,
+						Toast.LENGTH_SHORT).show();
+			}
+		});
+	}
+
+	@Override
+	public void onOrientationCollected(int count, int target)
+	{
+		CharSequence text = "Orientation " + count + " of " + target;
+
+		Toast.makeText(this, text, Toast.LENGTH_SHORT).show();
+	}
+
+	@Override
+	public void onCalibrationFitted(AccelerationCalibration calibration,
+			double residual)
+	{
+		// The collector ignores measurements once it is complete. It is
+		// called from the sensor, so it is not removed here.
+		CharSequence text;
+
+		if (calibration != null)
+		{
+			// The collector was given corrected measurements, so the new
+			// correction is applied after the old one.
+			accelerationSensor.setCalibration(calibration
+					.after(accelerationSensor.getCalibration()));
+
+			text = "Calibration Saved, Error: " + df.format(residual)
+					+ " m/s^2";
+		}
+		else
+		{
+			text = "Calibration Failed";
+		}
+
+		endCalibration();
+
+		Toast.makeText(this, text, Toast.LENGTH_LONG).show();
+	}
+
+	@Override
+	public void onAlignmentEstimated(final float[] rotation)
+	{
+		// Called on the thread of the alignment.
+		runOnUiThread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				setVehicleRotation(rotation);
+
+				Toast.makeText(AndroidLinearAccelerationActivity.this,
+						"Aligned to Vehicle", Toast.LENGTH_SHORT).show();
+			}
+		});
 	}
 
 	@Override
 	public void run()
 	{
-		handler.postDelayed(this, 100);
+		handler.postDelayed(this, UPDATE_PERIOD);
 
 		plotData();
 		logData();
@@ -356,6 +764,180 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 				plotLinearAccelYAxisColor);
 		addPlot(plotLinearAccelZAxisTitle, plotLinearAccelZAxisKey,
 				plotLinearAccelZAxisColor);
+
+		// Every sample at the full sensor rate goes to the render thread
+		// plot, decimated to two points for each pixel of the display.
+		plotBuffer = new SampleBuffer(plotValues.length, 2 * getResources()
+				.getDisplayMetrics().widthPixels);
+
+		plotDecimator = new MinMaxDecimator(plotBuffer, PLOT_WINDOW_LENGTH);
+
+		plotRenderer = new PlotRenderer(plotBuffer, new int[]
+		{ plotAccelXAxisColor, plotAccelYAxisColor, plotAccelZAxisColor,
+				plotLinearAccelXAxisColor, plotLinearAccelYAxisColor,
+				plotLinearAccelZAxisColor });
+		plotRenderer.setMaxRange((float) dynamicPlot.getMaxRange());
+		plotRenderer.setMinRange((float) dynamicPlot.getMinRange());
+
+		plotSurface = (RenderSurfaceView) findViewById(R.id.plot_surface);
+		plotSurface.setRenderer(plotRenderer);
+	}
+
+	/**
+	 * Switch between drawing the plot on the UI thread and on its own render
+	 * thread.
+	 * 
+	 * @param active
+	 *            true to draw the plot on the render thread.
+	 */
+	private void setRenderThreadActive(boolean active)
+	{
+		renderThreadActive = active;
+
+		if (active)
+		{
+			plotDecimator.reset();
+
+			plot.setVisibility(View.GONE);
+			plotSurface.setVisibility(View.VISIBLE);
+		}
+		else
+		{
+			plotSurface.setVisibility(View.GONE);
+			plot.setVisibility(View.VISIBLE);
+		}
+	}
+
+	/**
+	 * Start or stop saving the window around every shock. The black box only
+	 * captures while this activity is visible: it is removed from the sensor
+	 * in onPause() and added again in onResume(). The screen is kept on while
+	 * it is active, so a mounted device does not stop capturing when the
+	 * screen times out, but leaving the activity or turning the screen off
+	 * still pauses it.
+	 * 
+	 * @param active
+	 *            true to save shocks.
+	 */
+	private void setBlackBoxActive(boolean active)
+	{
+		blackBoxActive = active;
+
+		if (active)
+		{
+			blackBox.reset();
+			linearAccelerationSensor.registerAccelerationObserver(blackBox);
+
+			getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+
+			Toast.makeText(this,
+					"Shocks are only saved while this screen is showing",
+					Toast.LENGTH_LONG).show();
+		}
+		else
+		{
+			linearAccelerationSensor.removeAccelerationObserver(blackBox);
+
+			blackBox.flush();
+
+			getWindow().clearFlags(
+					WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+		}
+	}
+
+	/**
+	 * Start measuring the accelerometer for a new calibration.
+	 */
+	private void startCalibration()
+	{
+		// The device leaves its mount to be turned in every orientation, and
+		// the calibration is fitted in the frame of the accelerometer.
+		if (!calibrationActive)
+		{
+			calibrationVehicleMode = accelerationSensor.isVehicleMode();
+			calibrationActive = true;
+		}
+
+		accelerationSensor.setVehicleMode(false);
+		linearAccelerationSensor.setVehicleMode(false);
+
+		calibrationCollector.reset();
+		accelerationSensor.registerAccelerationObserver(calibrationCollector);
+
+		CharSequence text = "Hold the device still in "
+				+ calibrationCollector.getTarget() + " different orientations";
+
+		Toast.makeText(this, text, Toast.LENGTH_LONG).show();
+	}
+
+	/**
+	 * Return the sensors to the vehicle mode they were in before the
+	 * calibration started. The vehicle rotation is kept while the mode is
+	 * off, so the device is assumed to be back in its mount.
+	 */
+	private void endCalibration()
+	{
+		if (calibrationActive)
+		{
+			accelerationSensor.setVehicleMode(calibrationVehicleMode);
+			linearAccelerationSensor.setVehicleMode(calibrationVehicleMode);
+
+			calibrationActive = false;
+		}
+	}
+
+	/**
+	 * Start estimating how the device is mounted in a vehicle.
+	 */
+	private void startAlignment()
+	{
+		mountingAlignment.reset();
+		accelerationSensor.registerAccelerationObserver(mountingAlignment);
+
+		CharSequence text = "Stop and start the vehicle a few times to align";
+
+		Toast.makeText(this, text, Toast.LENGTH_LONG).show();
+	}
+
+	/**
+	 * Rotate both sensors into the vehicle frame.
+	 * 
+	 * @param rotation
+	 *            the row major rotation from the frame the alignment was given
+	 *            into the vehicle frame.
+	 */
+	private void setVehicleRotation(float[] rotation)
+	{
+		accelerationSensor.removeAccelerationObserver(mountingAlignment);
+
+		// The alignment was given measurements that may already have been
+		// rotated, so the new rotation is applied after the old one.
+		float[] matrix = rotation;
+
+		if (accelerationSensor.isVehicleMode())
+		{
+			float[] current = accelerationSensor.getVehicleRotation();
+
+			matrix = new float[9];
+
+			for (int i = 0; i < 3; i++)
+			{
+				for (int j = 0; j < 3; j++)
+				{
+					for (int k = 0; k < 3; k++)
+					{
+						matrix[i * 3 + j] += rotation[i * 3 + k]
+								* current[k * 3 + j];
+					}
+				}
+			}
+		}
+
+		accelerationSensor.setVehicleRotation(matrix);
+		linearAccelerationSensor.setVehicleRotation(matrix);
+
+		accelerationSensor.setVehicleMode(true);
+		linearAccelerationSensor.setVehicleMode(true);
 	}
 
 	/**
@@ -428,8 +1010,17 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 
 			headers += this.plotLinearAccelZAxisTitle + ",";
 
+			headers += "Speed" + ",";
+
+			headers += "Displacement" + ",";
+
+			headers += "Path" + ",";
+
 			log = headers + "\n";
 
+			logSummary = new SummaryPyramid(logValues.length,
+					UPDATE_PERIOD / 1000f);
+
 			iconLogger.setVisibility(View.VISIBLE);
 
 			logData = true;
@@ -448,15 +1039,19 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 	 */
 	private void plotData()
 	{
-		dynamicPlot.setData(acceleration[0], plotAccelXAxisKey);
-		dynamicPlot.setData(acceleration[1], plotAccelYAxisKey);
-		dynamicPlot.setData(acceleration[2], plotAccelZAxisKey);
+		// The render thread plot is fed from the sensor callbacks.
+		if (!renderThreadActive)
+		{
+			dynamicPlot.setData(acceleration[0], plotAccelXAxisKey);
+			dynamicPlot.setData(acceleration[1], plotAccelYAxisKey);
+			dynamicPlot.setData(acceleration[2], plotAccelZAxisKey);
 
-		dynamicPlot.setData(linearAcceleration[0], plotLinearAccelXAxisKey);
-		dynamicPlot.setData(linearAcceleration[1], plotLinearAccelYAxisKey);
-		dynamicPlot.setData(linearAcceleration[2], plotLinearAccelZAxisKey);
+			dynamicPlot.setData(linearAcceleration[0], plotLinearAccelXAxisKey);
+			dynamicPlot.setData(linearAcceleration[1], plotLinearAccelYAxisKey);
+			dynamicPlot.setData(linearAcceleration[2], plotLinearAccelZAxisKey);
 
-		dynamicPlot.draw();
+			dynamicPlot.draw();
+		}
 
 		// Update the view with the new acceleration data
 		xAxis.setText(df.format(acceleration[0]));
@@ -471,6 +1066,65 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 
 		gaugeLinearAcceleration.updatePoint(linearAcceleration[0],
 				linearAcceleration[1], Color.parseColor("#33b5e5"));
+
+		updateStatistics(accelerationStatisticsView, accelerationStatistics);
+		updateStatistics(linearAccelerationStatisticsView,
+				linearAccelerationStatistics);
+
+		updateLatency(accelerationLatencyView,
+				accelerationSensor.getDeliveryLatency());
+		updateLatency(linearAccelerationLatencyView,
+				linearAccelerationSensor.getDeliveryLatency());
+	}
+
+	/**
+	 * Display the RMS and standard deviation of the magnitude of the most
+	 * recent measurements.
+	 * 
+	 * @param view
+	 *            the UI output.
+	 * @param statistics
+	 *            the statistics of the measurements.
+	 */
+	private void updateStatistics(TextView view,
+			AccelerationStatistics statistics)
+	{
+		Statistics magnitude = statistics.get(AccelerationStatistics.MAGNITUDE);
+
+		view.setText("RMS: " + df.format(magnitude.getRms()) + " SD: "
+				+ df.format(magnitude.getStandardDeviation()));
+	}
+
+	/**
+	 * Update the view with the delivery latency of a sensor.
+	 * 
+	 * @param view
+	 *            the view.
+	 * @param latency
+	 *            the latencies of the sensor.
+	 */
+	private void updateLatency(TextView view, LatencyHistogram latency)
+	{
+		if (latency.getCount() == 0)
+		{
+			return;
+		}
+
+		view.setText(describeLatency(latency));
+	}
+
+	/**
+	 * Describe the percentiles of a latency histogram.
+	 * 
+	 * @param latency
+	 *            the latencies.
+	 * @return the description in milliseconds.
+	 */
+	private String describeLatency(LatencyHistogram latency)
+	{
+		return "p50: " + df.format(latency.getValueAtPercentile(50) / 1e6)
+				+ " p99: " + df.format(latency.getValueAtPercentile(99) / 1e6)
+				+ " max: " + df.format(latency.getMax() / 1e6) + " ms";
 	}
 
 	/**
@@ -496,7 +1150,94 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 			log += linearAcceleration[0] + ",";
 			log += linearAcceleration[1] + ",";
 			log += linearAcceleration[2] + ",";
+
+			log += speed + ",";
+			log += integratedDisplacement + ",";
+			log += pathLength + ",";
+
+			logValues[plotAccelXAxisKey] = acceleration[0];
+			logValues[plotAccelYAxisKey] = acceleration[1];
+			logValues[plotAccelZAxisKey] = acceleration[2];
+
+			logValues[plotLinearAccelXAxisKey] = linearAcceleration[0];
+			logValues[plotLinearAccelYAxisKey] = linearAcceleration[1];
+			logValues[plotLinearAccelZAxisKey] = linearAcceleration[2];
+
+			logSummary.add(logValues);
+		}
+	}
+
+	/**
+	 * Get the comment lines at the top of the log that describe the session.
+	 * 
+	 * @return the header lines.
+	 */
+	private String getLogHeader()
+	{
+		// Comment lines are not numbers, so readers of the log skip them.
+		String header = "# " + getLagDescription() + "\n";
+
+		header += "# Acceleration latency: "
+				+ describeLatencies(accelerationSensor.getDeliveryLatency(),
+						accelerationSensor.getCompletionLatency()) + "\n";
+		header += "# Linear acceleration latency: "
+				+ describeLatencies(
+						linearAccelerationSensor.getDeliveryLatency(),
+						linearAccelerationSensor.getCompletionLatency())
+				+ "\n";
+
+		return header;
+	}
+
+	/**
+	 * Describe the delivery and completion latencies of a sensor.
+	 * 
+	 * @param deliveryLatency
+	 *            the latencies to the delivery of the events.
+	 * @param completionLatency
+	 *            the latencies to the return of the observers.
+	 * @return the description.
+	 */
+	private String describeLatencies(LatencyHistogram deliveryLatency,
+			LatencyHistogram completionLatency)
+	{
+		if (deliveryLatency.getCount() == 0)
+		{
+			return "unknown";
+		}
+
+		String description = "delivery " + describeLatency(deliveryLatency)
+				+ " completion " + describeLatency(completionLatency)
+				+ " over " + deliveryLatency.getCount() + " events";
+
+		if (deliveryLatency.getNegativeCount() > 0)
+		{
+			description += " (" + deliveryLatency.getNegativeCount()
+					+ " time stamps ahead of the clock)";
+		}
+
+		return description;
+	}
+
+	/**
+	 * Describe the estimated lag of the linear acceleration behind the
+	 * acceleration.
+	 * 
+	 * @return the description.
+	 */
+	private String getLagDescription()
+	{
+		if (lagEstimator.getEstimateCount() == 0)
+		{
+			return "Linear acceleration lag: unknown";
 		}
+
+		DecimalFormat format = new DecimalFormat("0.0");
+
+		return "Linear acceleration lag: "
+				+ format.format(lagEstimator.getLag() * 1000) + " ms +/- "
+				+ format.format(lagEstimator.getLagStandardDeviation() * 1000)
+				+ " ms over " + lagEstimator.getEstimateCount() + " windows";
 	}
 
 	/**
@@ -505,15 +1246,13 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 	private void writeLogToFile()
 	{
 		Calendar c = Calendar.getInstance();
-		String filename = "AndroidLinearAcceleration-" + c.get(Calendar.YEAR)
+		String name = "AndroidLinearAcceleration-" + c.get(Calendar.YEAR)
 				+ "-" + (c.get(Calendar.MONTH) + 1) + "-"
 				+ c.get(Calendar.DAY_OF_MONTH) + "-" + c.get(Calendar.HOUR)
-				+ "-" + c.get(Calendar.MINUTE) + "-" + c.get(Calendar.SECOND)
-				+ ".csv";
+				+ "-" + c.get(Calendar.MINUTE) + "-" + c.get(Calendar.SECOND);
+		String filename = name + ".csv";
 
-		File dir = new File(Environment.getExternalStorageDirectory()
-				+ File.separator + "AndroidLinearAcceleration" + File.separator
-				+ "Logs");
+		File dir = getLogDirectory();
 		if (!dir.exists())
 		{
 			dir.mkdirs();
@@ -522,7 +1261,7 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 		File file = new File(dir, filename);
 
 		FileOutputStream fos;
-		byte[] data = log.getBytes();
+		byte[] data = (getLogHeader() + log).getBytes();
 		try
 		{
 			fos = new FileOutputStream(file);
@@ -530,6 +1269,11 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 			fos.flush();
 			fos.close();
 
+			// Persist the summary next to the log so the history view does
+			// not have to scan the log.
+			logSummary.write(new File(dir, name
+					+ HistoryActivity.SUMMARY_EXTENSION));
+
 			CharSequence text = "Log Saved";
 			int duration = Toast.LENGTH_SHORT;
 
@@ -567,6 +1311,18 @@ public class AndroidLinearAccelerationActivity extends Activity implements
 		}
 	}
 
+	/**
+	 * Get the directory the logs are written to.
+	 * 
+	 * @return the log directory.
+	 */
+	static File getLogDirectory()
+	{
+		return new File(Environment.getExternalStorageDirectory()
+				+ File.separator + "AndroidLinearAcceleration" + File.separator
+				+ "Logs");
+	}
+
 	/**
 	 * Get the distance between fingers for the touch to zoom.
 	 * 
@@ -0,0 +1,329 @@
+package com.kircherelectronics.androidlinearacceleration;
+
+import java.io.File;
+import java.io.IOException;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.View.OnTouchListener;
+import android.widget.Scroller;
+import android.widget.Toast;
+
+import com.kircherelectronics.androidlinearacceleration.history.HistoryRenderer;
+import com.kircherelectronics.androidlinearacceleration.history.MappedSummary;
+import com.kircherelectronics.androidlinearacceleration.plot.PlotColor;
+import com.kircherelectronics.androidlinearacceleration.render.RenderSurfaceView;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Draws a recorded session from its summary file. Dragging and flinging
+ * scrolls through the session and pinching zooms the time axis, from the
+ * whole session down to the individual samples. The file is read in place
+ * through memory mapped regions, so the heap does not grow with the length
+ * of the session.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class HistoryActivity extends Activity implements OnTouchListener
+{
+	private static final String tag = HistoryActivity.class.getSimpleName();
+
+	// The path of the summary file to show. The newest one is shown if it is
+	// not given.
+	public static final String EXTRA_SUMMARY_FILE = "summary_file";
+
+	// The extension of summary files.
+	public static final String SUMMARY_EXTENSION = ".pyr";
+
+	// The fewest samples that can be zoomed to.
+	private static final double MIN_SPAN = 10;
+
+	// The time between two frames of a fling in milliseconds.
+	private static final int FLING_FRAME_PERIOD = 16;
+
+	private HistoryRenderer renderer;
+
+	private RenderSurfaceView surface;
+
+	private MappedSummary summary;
+
+	// Detects flings and animates them.
+	private GestureDetector gestureDetector;
+	private Scroller scroller;
+
+	// Moves the visible part while a fling is animated.
+	private Runnable flingRunnable = new Runnable()
+	{
+		@Override
+		public void run()
+		{
+			if (scroller.computeScrollOffset())
+			{
+				start = scroller.getCurrX() * span / surface.getWidth();
+
+				updateViewport();
+
+				surface.postDelayed(this, FLING_FRAME_PERIOD);
+			}
+		}
+	};
+
+	// The visible part of the session in samples.
+	private double start = 0;
+	private double span = 1;
+
+	// The previous touch position for scrolling.
+	private float lastX = 0;
+
+	// The previous distance between the fingers for zooming.
+	private float lastDistance = 0;
+
+	@Override
+	public void onCreate(Bundle savedInstanceState)
+	{
+		super.onCreate(savedInstanceState);
+
+		setContentView(R.layout.history_activity);
+
+		File file = getSummaryFile();
+
+		if (file == null)
+		{
+			Toast.makeText(this, "No recorded sessions", Toast.LENGTH_SHORT)
+					.show();
+			finish();
+			return;
+		}
+
+		try
+		{
+			summary = new MappedSummary(file);
+		}
+		catch (IOException e)
+		{
+			Log.e(tag, "Could not read " + file, e);
+
+			Toast.makeText(this, e.toString(), Toast.LENGTH_SHORT).show();
+			finish();
+			return;
+		}
+
+		PlotColor color = new PlotColor(this);
+
+		renderer = new HistoryRenderer(summary, new int[]
+		{ color.getDarkBlue(), color.getDarkGreen(), color.getDarkRed(),
+				color.getMidBlue(), color.getMidGreen(), color.getMidRed() });
+		renderer.setMaxRange(11.2f);
+		renderer.setMinRange(-11.2f);
+
+		// Start with the whole session.
+		span = Math.max(MIN_SPAN, getSampleCount());
+		renderer.setViewport(start, span);
+
+		surface = (RenderSurfaceView) findViewById(R.id.history_surface);
+		surface.setRenderer(renderer);
+		surface.setOnTouchListener(this);
+
+		scroller = new Scroller(this);
+		gestureDetector = new GestureDetector(this, new FlingListener());
+	}
+
+	@Override
+	public void onDestroy()
+	{
+		super.onDestroy();
+
+		if (surface != null)
+		{
+			surface.removeCallbacks(flingRunnable);
+		}
+
+		if (summary != null)
+		{
+			try
+			{
+				summary.close();
+			}
+			catch (IOException e)
+			{
+				Log.w(tag, "Could not close the summary file", e);
+			}
+		}
+	}
+
+	@Override
+	public boolean onTouch(View v, MotionEvent e)
+	{
+		int width = v.getWidth();
+
+		if (width == 0)
+		{
+			return false;
+		}
+
+		gestureDetector.onTouchEvent(e);
+
+		switch (e.getAction() & MotionEvent.ACTION_MASK)
+		{
+		case MotionEvent.ACTION_DOWN:
+			// Touching the plot stops a fling.
+			scroller.forceFinished(true);
+
+			lastX = e.getX();
+			break;
+
+		case MotionEvent.ACTION_POINTER_DOWN:
+			lastDistance = Math.abs(e.getX(0) - e.getX(1));
+			break;
+
+		case MotionEvent.ACTION_POINTER_UP:
+			// Continue scrolling with the finger that is left.
+			lastX = e.getX((e.getActionIndex() == 0) ? 1 : 0);
+			break;
+
+		case MotionEvent.ACTION_MOVE:
+
+			if (e.getPointerCount() == 1)
+			{
+				float x = e.getX();
+
+				start -= (x - lastX) * span / width;
+				lastX = x;
+			}
+			else
+			{
+				float distance = Math.abs(e.getX(0) - e.getX(1));
+
+				if (lastDistance > 0 && distance > 0)
+				{
+					// Zoom about the point between the fingers.
+					float focus = (e.getX(0) + e.getX(1)) / 2;
+					double focusSample = start + focus * span / width;
+
+					span = Math.min(Math.max(MIN_SPAN, getSampleCount()),
+							Math.max(MIN_SPAN, span * lastDistance / distance));
+					start = focusSample - focus * span / width;
+				}
+
+				lastDistance = distance;
+			}
+
+			updateViewport();
+			break;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Keep the visible part inside the session and draw it.
+	 */
+	private void updateViewport()
+	{
+		start = Math.max(0, Math.min(start, getSampleCount() - span));
+
+		renderer.setViewport(start, span);
+		surface.requestRender();
+	}
+
+	/**
+	 * Starts a fling when the plot is flung with one finger. The fling is
+	 * done in pixels, at the current zoom.
+	 */
+	private class FlingListener extends GestureDetector.SimpleOnGestureListener
+	{
+		@Override
+		public boolean onFling(MotionEvent e1, MotionEvent e2,
+				float velocityX, float velocityY)
+		{
+			int width = surface.getWidth();
+
+			if (e2.getPointerCount() > 1 || width == 0)
+			{
+				return false;
+			}
+
+			double pixelsPerSample = width / span;
+
+			int position = (int) Math.min(Integer.MAX_VALUE, start
+					* pixelsPerSample);
+			int range = (int) Math.min(Integer.MAX_VALUE, Math.max(0,
+					getSampleCount() - span)
+					* pixelsPerSample);
+
+			scroller.fling(position, 0, (int) -velocityX, 0, 0, range, 0, 0);
+
+			surface.removeCallbacks(flingRunnable);
+			surface.post(flingRunnable);
+
+			return true;
+		}
+	}
+
+	/**
+	 * Get the number of samples in the session.
+	 * 
+	 * @return the number of samples.
+	 */
+	private int getSampleCount()
+	{
+		return (summary.getLevelCount() > 0) ? summary.getSize(0) : 0;
+	}
+
+	/**
+	 * Get the summary file that was asked for, or the newest one.
+	 * 
+	 * @return the summary file, or null if there is none.
+	 */
+	private File getSummaryFile()
+	{
+		String path = getIntent().getStringExtra(EXTRA_SUMMARY_FILE);
+
+		if (path != null)
+		{
+			return new File(path);
+		}
+
+		File[] files = AndroidLinearAccelerationActivity.getLogDirectory()
+				.listFiles();
+
+		File newest = null;
+
+		if (files != null)
+		{
+			for (int i = 0; i < files.length; i++)
+			{
+				if (files[i].getName().endsWith(SUMMARY_EXTENSION)
+						&& (newest == null || files[i].lastModified() > newest
+								.lastModified()))
+				{
+					newest = files[i];
+				}
+			}
+		}
+
+		return newest;
+	}
+}
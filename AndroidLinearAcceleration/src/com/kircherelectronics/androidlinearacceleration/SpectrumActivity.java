@@ -0,0 +1,239 @@
+package com.kircherelectronics.androidlinearacceleration;
+
+import android.app.Activity;
+import android.os.Bundle;
+
+import com.kircherelectronics.androidlinearacceleration.plot.PlotColor;
+import com.kircherelectronics.androidlinearacceleration.render.RenderSurfaceView;
+import com.kircherelectronics.androidlinearacceleration.sensor.LinearAccelerationSensor;
+import com.kircherelectronics.androidlinearacceleration.sensor.observer.LinearAccelerationSensorObserver;
+import com.kircherelectronics.androidlinearacceleration.spectrum.SpectrogramRenderer;
+import com.kircherelectronics.androidlinearacceleration.spectrum.SpectrumAnalyzer;
+import com.kircherelectronics.androidlinearacceleration.spectrum.SpectrumRenderer;
+import com.kircherelectronics.androidlinearacceleration.spectrum.WindowFunction;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Shows the spectrum of each axis of linear acceleration as it is measured,
+ * and a waterfall of the spectra of its magnitude over the last minute. A
+ * new spectrum is computed every half window and drawn on a render thread,
+ * so vibrations can be found by their frequency while the device moves.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class SpectrumActivity extends Activity implements
+		LinearAccelerationSensorObserver
+{
+	// The number of samples in a window. At 100 Hz this is about five
+	// seconds of data with a resolution of 0.2 Hz.
+	private static final int FFT_SIZE = 512;
+
+	// The fraction of a window that is shared with the next window.
+	private static final float OVERLAP = 0.5f;
+
+	// How quickly the estimate of the sample period follows changes.
+	private static final float SAMPLE_PERIOD_ALPHA = 0.05f;
+
+	// The time shown by the waterfall in seconds.
+	private static final float SPECTROGRAM_LENGTH = 60;
+
+	// The sample rate the waterfall is sized for until it is measured.
+	private static final float DEFAULT_SAMPLE_RATE = 100;
+
+	// How far the number of columns of the waterfall may be off before it is
+	// resized, as a fraction.
+	private static final float COLUMN_COUNT_TOLERANCE = 0.1f;
+
+	private LinearAccelerationSensor linearAccelerationSensor;
+
+	// One analyzer for each axis.
+	private SpectrumAnalyzer[] analyzers;
+
+	// The analyzer of the magnitude of linear acceleration.
+	private SpectrumAnalyzer magnitudeAnalyzer;
+
+	private SpectrumRenderer renderer;
+	private SpectrogramRenderer spectrogramRenderer;
+
+	private RenderSurfaceView surface;
+	private RenderSurfaceView spectrogramSurface;
+
+	// The estimated time between samples in seconds.
+	private float samplePeriod = 0;
+
+	private long lastTimeStamp = 0;
+
+	@Override
+	public void onCreate(Bundle savedInstanceState)
+	{
+		super.onCreate(savedInstanceState);
+
+		setContentView(R.layout.spectrum_activity);
+
+		analyzers = new SpectrumAnalyzer[3];
+
+		for (int i = 0; i < analyzers.length; i++)
+		{
+			analyzers[i] = new SpectrumAnalyzer(FFT_SIZE, OVERLAP,
+					WindowFunction.HANN);
+		}
+
+		PlotColor color = new PlotColor(this);
+
+		renderer = new SpectrumRenderer(analyzers[0].getBinCount(), new int[]
+		{ color.getMidBlue(), color.getMidGreen(), color.getMidRed() });
+
+		surface = (RenderSurfaceView) findViewById(R.id.spectrum_surface);
+		surface.setRenderer(renderer);
+
+		magnitudeAnalyzer = new SpectrumAnalyzer(FFT_SIZE, OVERLAP,
+				WindowFunction.HANN);
+
+		spectrogramRenderer = new SpectrogramRenderer(
+				magnitudeAnalyzer.getBinCount(),
+				getSpectrogramColumnCount(1 / DEFAULT_SAMPLE_RATE));
+
+		spectrogramSurface = (RenderSurfaceView) findViewById(R.id.spectrogram_surface);
+		spectrogramSurface.setRenderer(spectrogramRenderer);
+
+		linearAccelerationSensor = new LinearAccelerationSensor(this);
+	}
+
+	@Override
+	public void onPause()
+	{
+		super.onPause();
+
+		linearAccelerationSensor.removeAccelerationObserver(this);
+	}
+
+	@Override
+	public void onResume()
+	{
+		super.onResume();
+
+		for (int i = 0; i < analyzers.length; i++)
+		{
+			analyzers[i].reset();
+		}
+
+		magnitudeAnalyzer.reset();
+
+		samplePeriod = 0;
+		lastTimeStamp = 0;
+
+		linearAccelerationSensor.registerAccelerationObserver(this);
+	}
+
+	@Override
+	public void onLinearAccelerationSensorChanged(float[] linearAcceleration,
+			long timeStamp)
+	{
+		updateSamplePeriod(timeStamp);
+
+		boolean updated = false;
+
+		for (int i = 0; i < analyzers.length; i++)
+		{
+			if (analyzers[i].add(linearAcceleration[i]))
+			{
+				renderer.setSpectrum(i, analyzers[i].getSpectrum());
+				updated = true;
+			}
+		}
+
+		if (updated && samplePeriod > 0)
+		{
+			renderer.setSampleRate(1 / samplePeriod);
+			surface.requestRender();
+		}
+
+		float magnitude = (float) Math.sqrt(linearAcceleration[0]
+				* linearAcceleration[0] + linearAcceleration[1]
+				* linearAcceleration[1] + linearAcceleration[2]
+				* linearAcceleration[2]);
+
+		if (magnitudeAnalyzer.add(magnitude))
+		{
+			if (samplePeriod > 0)
+			{
+				updateSpectrogramColumnCount();
+			}
+
+			spectrogramRenderer.addSpectrum(magnitudeAnalyzer.getSpectrum());
+			spectrogramSurface.requestRender();
+		}
+	}
+
+	/**
+	 * Resize the waterfall when the measured sample rate no longer fits it,
+	 * so it keeps showing the same length of time.
+	 */
+	private void updateSpectrogramColumnCount()
+	{
+		int columns = getSpectrogramColumnCount(samplePeriod);
+		int current = spectrogramRenderer.getColumnCount();
+
+		if (Math.abs(columns - current) > current * COLUMN_COUNT_TOLERANCE)
+		{
+			spectrogramRenderer.setColumnCount(columns);
+		}
+	}
+
+	/**
+	 * Get the number of spectra in the length of the waterfall.
+	 * 
+	 * @param samplePeriod
+	 *            the time between samples in seconds.
+	 * @return the number of spectra.
+	 */
+	private int getSpectrogramColumnCount(float samplePeriod)
+	{
+		return Math.max(1, Math.round(SPECTROGRAM_LENGTH
+				/ (magnitudeAnalyzer.getHop() * samplePeriod)));
+	}
+
+	/**
+	 * Smooth the time between sensor events, which sets the frequency of
+	 * each bin.
+	 * 
+	 * @param timeStamp
+	 *            the time stamp of the sensor event in nanoseconds.
+	 */
+	private void updateSamplePeriod(long timeStamp)
+	{
+		if (lastTimeStamp != 0 && timeStamp > lastTimeStamp)
+		{
+			float period = (timeStamp - lastTimeStamp) / 1000000000.0f;
+
+			if (samplePeriod == 0)
+			{
+				samplePeriod = period;
+			}
+			else
+			{
+				samplePeriod += SAMPLE_PERIOD_ALPHA * (period - samplePeriod);
+			}
+		}
+
+		lastTimeStamp = timeStamp;
+	}
+}
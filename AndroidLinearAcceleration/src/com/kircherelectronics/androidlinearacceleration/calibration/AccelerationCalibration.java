@@ -0,0 +1,138 @@
+package com.kircherelectronics.androidlinearacceleration.calibration;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * An affine correction of the acceleration, a matrix for scale and
+ * cross-axis errors followed by an offset for the bias. The correction is
+ * kept in primitive fields so applying it takes nine multiply-adds and does
+ * not allocate. A correction never changes once it is made.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class AccelerationCalibration
+{
+	// The correction that leaves the acceleration as it is.
+	public static final AccelerationCalibration IDENTITY = new AccelerationCalibration(
+			new float[]
+			{ 1, 0, 0, 0, 1, 0, 0, 0, 1 }, new float[]
+			{ 0, 0, 0 });
+
+	// The matrix, by row.
+	private final float m00, m01, m02;
+	private final float m10, m11, m12;
+	private final float m20, m21, m22;
+
+	// The offset that is added after the matrix.
+	private final float b0, b1, b2;
+
+	/**
+	 * Initialize a new AccelerationCalibration object.
+	 * 
+	 * @param matrix
+	 *            the nine elements of the matrix, by row.
+	 * @param offset
+	 *            the three elements of the offset that is added after the
+	 *            matrix.
+	 */
+	public AccelerationCalibration(float[] matrix, float[] offset)
+	{
+		m00 = matrix[0];
+		m01 = matrix[1];
+		m02 = matrix[2];
+		m10 = matrix[3];
+		m11 = matrix[4];
+		m12 = matrix[5];
+		m20 = matrix[6];
+		m21 = matrix[7];
+		m22 = matrix[8];
+
+		b0 = offset[0];
+		b1 = offset[1];
+		b2 = offset[2];
+	}
+
+	/**
+	 * Correct an acceleration in place.
+	 * 
+	 * @param acceleration
+	 *            the acceleration (x, y, z) in m/s^2.
+	 */
+	public void apply(float[] acceleration)
+	{
+		float x = acceleration[0];
+		float y = acceleration[1];
+		float z = acceleration[2];
+
+		acceleration[0] = m00 * x + m01 * y + m02 * z + b0;
+		acceleration[1] = m10 * x + m11 * y + m12 * z + b1;
+		acceleration[2] = m20 * x + m21 * y + m22 * z + b2;
+	}
+
+	/**
+	 * Get the correction that applies the given correction first and this
+	 * one after it.
+	 * 
+	 * @param first
+	 *            the correction that is applied first.
+	 * @return the combined correction.
+	 */
+	public AccelerationCalibration after(AccelerationCalibration first)
+	{
+		float[] matrix = new float[]
+		{
+				m00 * first.m00 + m01 * first.m10 + m02 * first.m20,
+				m00 * first.m01 + m01 * first.m11 + m02 * first.m21,
+				m00 * first.m02 + m01 * first.m12 + m02 * first.m22,
+				m10 * first.m00 + m11 * first.m10 + m12 * first.m20,
+				m10 * first.m01 + m11 * first.m11 + m12 * first.m21,
+				m10 * first.m02 + m11 * first.m12 + m12 * first.m22,
+				m20 * first.m00 + m21 * first.m10 + m22 * first.m20,
+				m20 * first.m01 + m21 * first.m11 + m22 * first.m21,
+				m20 * first.m02 + m21 * first.m12 + m22 * first.m22 };
+
+		float[] offset = new float[]
+		{ first.b0, first.b1, first.b2 };
+
+		apply(offset);
+
+		return new AccelerationCalibration(matrix, offset);
+	}
+
+	/**
+	 * Get the matrix.
+	 * 
+	 * @return the nine elements of the matrix, by row.
+	 */
+	public float[] getMatrix()
+	{
+		return new float[]
+		{ m00, m01, m02, m10, m11, m12, m20, m21, m22 };
+	}
+
+	/**
+	 * Get the offset that is added after the matrix.
+	 * 
+	 * @return the three elements of the offset.
+	 */
+	public float[] getOffset()
+	{
+		return new float[]
+		{ b0, b1, b2 };
+	}
+}
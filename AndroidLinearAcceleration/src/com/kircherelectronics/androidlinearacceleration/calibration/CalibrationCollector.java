@@ -0,0 +1,321 @@
+package com.kircherelectronics.androidlinearacceleration.calibration;
+
+import java.util.ArrayList;
+
+import android.hardware.SensorManager;
+
+import com.kircherelectronics.androidlinearacceleration.motion.MotionDetector;
+import com.kircherelectronics.androidlinearacceleration.motion.MotionObserver;
+import com.kircherelectronics.androidlinearacceleration.sensor.observer.AccelerationSensorObserver;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Collects the measurements at rest for an EllipsoidFit. The user holds the
+ * device still in one orientation after another. Each time the device comes
+ * to rest in an orientation that differs enough from the ones already
+ * measured, the mean of the following samples is added to the fit. Once
+ * enough orientations are measured the calibration is fitted and the
+ * collector stops.
+ * 
+ * Developer Note: The calibration is fitted to the measurements the
+ * collector is given. If those are already corrected, the new correction
+ * should be applied after the old one with AccelerationCalibration.after().
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class CalibrationCollector implements AccelerationSensorObserver,
+		MotionObserver
+{
+	// The number of orientations that are measured. With fewer, the noise of
+	// the measurements is amplified several times in the directions between
+	// the orientations.
+	public static final int DEFAULT_TARGET = 15;
+
+	// The number of samples averaged in each orientation.
+	private static final int SAMPLES_PER_ORIENTATION = 100;
+
+	// The smallest angle between two orientations in degrees.
+	private static final double MIN_ANGLE = 30;
+
+	// The largest difference between the magnitude and gravity at rest in
+	// m/s^2, loose enough for an accelerometer that needs calibration.
+	private static final float MAGNITUDE_THRESHOLD = 1.5f;
+
+	// The largest sum of the variances of the axes at rest in (m/s^2)^2.
+	private static final float VARIANCE_THRESHOLD = 0.005f;
+
+	private ArrayList<CalibrationObserver> observers;
+
+	private MotionDetector motionDetector;
+
+	private EllipsoidFit fit;
+
+	private int target;
+
+	// The cosine of the smallest angle between two orientations.
+	private double minCosine;
+
+	// The directions of the measured orientations.
+	private ArrayList<float[]> directions;
+
+	// The sums of the samples of the current orientation.
+	private double[] sum = new double[3];
+	private int sampleCount = 0;
+
+	// True while the device is at rest in an orientation that has not been
+	// measured yet.
+	private boolean collecting = false;
+
+	private boolean complete = false;
+
+	/**
+	 * Initialize a new CalibrationCollector object.
+	 */
+	public CalibrationCollector()
+	{
+		this(DEFAULT_TARGET);
+	}
+
+	/**
+	 * Initialize a new CalibrationCollector object.
+	 * 
+	 * @param target
+	 *            the number of orientations that are measured, at least
+	 *            EllipsoidFit.MIN_ORIENTATIONS.
+	 */
+	public CalibrationCollector(int target)
+	{
+		this.target = Math.max(target, EllipsoidFit.MIN_ORIENTATIONS);
+
+		minCosine = Math.cos(Math.toRadians(MIN_ANGLE));
+
+		observers = new ArrayList<CalibrationObserver>();
+		directions = new ArrayList<float[]>();
+
+		fit = new EllipsoidFit(SensorManager.GRAVITY_EARTH);
+
+		motionDetector = new MotionDetector();
+		motionDetector.setThresholds(VARIANCE_THRESHOLD, MAGNITUDE_THRESHOLD);
+		motionDetector.registerMotionObserver(this);
+	}
+
+	/**
+	 * Register for the progress and result of the calibration.
+	 * 
+	 * @param observer
+	 *            The observer to be registered.
+	 */
+	public void registerCalibrationObserver(CalibrationObserver observer)
+	{
+		// Only register the observer if it is not already registered.
+		int i = observers.indexOf(observer);
+		if (i == -1)
+		{
+			observers.add(observer);
+		}
+	}
+
+	/**
+	 * Remove an observer of the calibration.
+	 * 
+	 * @param observer
+	 *            The observer to be removed.
+	 */
+	public void removeCalibrationObserver(CalibrationObserver observer)
+	{
+		int i = observers.indexOf(observer);
+		if (i >= 0)
+		{
+			observers.remove(i);
+		}
+	}
+
+	/**
+	 * Get the number of orientations measured so far.
+	 * 
+	 * @return the number of orientations.
+	 */
+	public int getCount()
+	{
+		return fit.getCount();
+	}
+
+	/**
+	 * Get the number of orientations the calibration needs.
+	 * 
+	 * @return the number of orientations.
+	 */
+	public int getTarget()
+	{
+		return target;
+	}
+
+	/**
+	 * Indicate if the calibration has been fitted.
+	 * 
+	 * @return true if the calibration has been fitted.
+	 */
+	public boolean isComplete()
+	{
+		return complete;
+	}
+
+	@Override
+	public void onAccelerationSensorChanged(float[] acceleration,
+			long timeStamp)
+	{
+		add(acceleration[0], acceleration[1], acceleration[2], timeStamp);
+	}
+
+	/**
+	 * Add a measurement.
+	 * 
+	 * @param x
+	 *            the acceleration of the x-axis in m/s^2.
+	 * @param y
+	 *            the acceleration of the y-axis in m/s^2.
+	 * @param z
+	 *            the acceleration of the z-axis in m/s^2.
+	 * @param timeStamp
+	 *            the time of the measurement in nanoseconds.
+	 */
+	public void add(float x, float y, float z, long timeStamp)
+	{
+		if (complete)
+		{
+			return;
+		}
+
+		motionDetector.add(x, y, z, timeStamp);
+
+		if (!collecting)
+		{
+			return;
+		}
+
+		sum[0] += x;
+		sum[1] += y;
+		sum[2] += z;
+
+		if (++sampleCount < SAMPLES_PER_ORIENTATION)
+		{
+			return;
+		}
+
+		collecting = false;
+
+		float[] mean = new float[]
+		{ (float) (sum[0] / sampleCount), (float) (sum[1] / sampleCount),
+				(float) (sum[2] / sampleCount) };
+
+		if (!isNewOrientation(mean))
+		{
+			return;
+		}
+
+		fit.add(mean);
+
+		notifyOrientationCollected();
+
+		if (fit.getCount() >= target)
+		{
+			complete = true;
+
+			AccelerationCalibration calibration = fit.fit();
+
+			notifyCalibrationFitted(calibration, fit.getResidual());
+		}
+	}
+
+	@Override
+	public void onMotionChanged(boolean stationary, long timeStamp)
+	{
+		collecting = stationary;
+
+		sum[0] = 0;
+		sum[1] = 0;
+		sum[2] = 0;
+		sampleCount = 0;
+	}
+
+	/**
+	 * Forget all orientations and start again.
+	 */
+	public void reset()
+	{
+		motionDetector.reset();
+		fit.reset();
+		directions.clear();
+
+		collecting = false;
+		complete = false;
+	}
+
+	/**
+	 * Check that an orientation differs enough from the ones already
+	 * measured, and remember its direction if it does.
+	 */
+	private boolean isNewOrientation(float[] mean)
+	{
+		double norm = Math.sqrt(mean[0] * mean[0] + mean[1] * mean[1]
+				+ mean[2] * mean[2]);
+
+		float[] direction = new float[]
+		{ (float) (mean[0] / norm), (float) (mean[1] / norm),
+				(float) (mean[2] / norm) };
+
+		for (int i = 0; i < directions.size(); i++)
+		{
+			float[] other = directions.get(i);
+
+			if (direction[0] * other[0] + direction[1] * other[1]
+					+ direction[2] * other[2] > minCosine)
+			{
+				return false;
+			}
+		}
+
+		directions.add(direction);
+
+		return true;
+	}
+
+	/**
+	 * Notify observers of a new orientation.
+	 */
+	private void notifyOrientationCollected()
+	{
+		for (int i = 0; i < observers.size(); i++)
+		{
+			observers.get(i).onOrientationCollected(fit.getCount(), target);
+		}
+	}
+
+	/**
+	 * Notify observers of the result of the fit.
+	 */
+	private void notifyCalibrationFitted(AccelerationCalibration calibration,
+			double residual)
+	{
+		for (int i = 0; i < observers.size(); i++)
+		{
+			observers.get(i).onCalibrationFitted(calibration, residual);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.kircherelectronics.androidlinearacceleration.calibration;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * An observer of a CalibrationCollector. Classes that guide the user through
+ * a calibration or apply its result should do so with this interface.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface CalibrationObserver
+{
+	/**
+	 * Notify observers when a new orientation has been measured.
+	 * 
+	 * @param count
+	 *            the number of orientations measured so far.
+	 * @param target
+	 *            the number of orientations the calibration needs.
+	 */
+	public void onOrientationCollected(int count, int target);
+
+	/**
+	 * Notify observers when the calibration has been fitted.
+	 * 
+	 * @param calibration
+	 *            the correction of the measurements the collector was given,
+	 *            or null if the fit failed.
+	 * @param residual
+	 *            the root mean square error of the magnitudes of the
+	 *            corrected orientations in m/s^2.
+	 */
+	public void onCalibrationFitted(AccelerationCalibration calibration,
+			double residual);
+}
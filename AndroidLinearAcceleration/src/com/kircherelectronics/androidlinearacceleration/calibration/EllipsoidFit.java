@@ -0,0 +1,371 @@
+package com.kircherelectronics.androidlinearacceleration.calibration;
+
+import java.util.ArrayList;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.EigenDecomposition;
+import org.apache.commons.math3.linear.QRDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.linear.SingularMatrixException;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Fits the correction of an accelerometer from its measurements at rest in
+ * many orientations. At rest every measurement should have the magnitude of
+ * gravity, so an ideal accelerometer measures points on a sphere. Bias moves
+ * the center of the sphere and scale and cross-axis errors stretch it into
+ * an ellipsoid. The ellipsoid
+ * 
+ * Ax^2 + By^2 + Cz^2 + 2Dxy + 2Exz + 2Fyz + 2Gx + 2Hy + 2Iz = 1
+ * 
+ * is fitted to the measurements by least squares, and the correction is the
+ * affine transform that maps it back onto the sphere.
+ * 
+ * Developer Note: The ellipsoid has nine parameters, so nine orientations
+ * fit any measurements exactly, however noisy, and the residual says nothing
+ * about the correction. Every orientation is therefore also corrected by a
+ * fit of the others, and the fit is rejected if that validation is no better
+ * than leaving the measurements uncorrected. The matrix of the correction is
+ * the symmetric square root of the ellipsoid, so it corrects the shape of the
+ * ellipsoid without rotating the axes. The fit does not depend on Android and
+ * can be run on the JVM.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class EllipsoidFit
+{
+	// The number of parameters of the ellipsoid.
+	private static final int PARAMETERS = 9;
+
+	// The fewest orientations, one more than the parameters so every
+	// orientation can be validated against a fit of the others.
+	public static final int MIN_ORIENTATIONS = PARAMETERS + 1;
+
+	// The relative size of the eigenvalues that are treated as zero.
+	private static final double SPLIT_TOLERANCE = 1e-12;
+
+	// The magnitude of the measurements after correction.
+	private double radius;
+
+	private ArrayList<float[]> measurements;
+
+	// The root mean square difference between the magnitude of the corrected
+	// measurements and the radius after the last fit.
+	private double residual = Double.NaN;
+
+	// The root mean square difference between the magnitude of each
+	// measurement corrected by a fit of the others and the radius.
+	private double validationError = Double.NaN;
+
+	/**
+	 * Initialize a new EllipsoidFit object.
+	 * 
+	 * @param radius
+	 *            the magnitude of the measurements after correction, usually
+	 *            gravity in m/s^2.
+	 */
+	public EllipsoidFit(double radius)
+	{
+		this.radius = radius;
+
+		measurements = new ArrayList<float[]>();
+	}
+
+	/**
+	 * Add a measurement at rest. Each measurement should be the mean of many
+	 * samples in one orientation.
+	 * 
+	 * @param measurement
+	 *            the acceleration (x, y, z) in m/s^2.
+	 */
+	public void add(float[] measurement)
+	{
+		measurements.add(new float[]
+		{ measurement[0], measurement[1], measurement[2] });
+	}
+
+	/**
+	 * Get the number of measurements.
+	 * 
+	 * @return the number of measurements.
+	 */
+	public int getCount()
+	{
+		return measurements.size();
+	}
+
+	/**
+	 * Get the root mean square difference between the magnitude of the
+	 * corrected measurements and the radius after the last fit.
+	 * 
+	 * @return the residual in m/s^2, or NaN if there was no fit.
+	 */
+	public double getResidual()
+	{
+		return residual;
+	}
+
+	/**
+	 * Get the root mean square difference between the magnitude of each
+	 * measurement, corrected by a fit of the other measurements, and the
+	 * radius after the last fit. This estimates the error of the correction
+	 * in orientations that were not measured.
+	 * 
+	 * @return the validation error in m/s^2, or NaN if there was no fit.
+	 */
+	public double getValidationError()
+	{
+		return validationError;
+	}
+
+	/**
+	 * Forget all measurements.
+	 */
+	public void reset()
+	{
+		measurements.clear();
+
+		residual = Double.NaN;
+		validationError = Double.NaN;
+	}
+
+	/**
+	 * Fit the correction to the measurements.
+	 * 
+	 * @return the correction, or null if there are too few measurements, the
+	 *         orientations do not describe an ellipsoid or the correction is
+	 *         not expected to improve the measurements.
+	 */
+	public AccelerationCalibration fit()
+	{
+		residual = Double.NaN;
+		validationError = Double.NaN;
+
+		int count = measurements.size();
+
+		if (count < MIN_ORIENTATIONS)
+		{
+			return null;
+		}
+
+		AccelerationCalibration calibration = fit(measurements);
+
+		if (calibration == null)
+		{
+			return null;
+		}
+
+		residual = getResidual(calibration);
+
+		ArrayList<float[]> others = new ArrayList<float[]>(measurements);
+
+		double sum = 0;
+		double uncorrectedSum = 0;
+
+		for (int i = 0; i < count; i++)
+		{
+			float[] measurement = others.remove(i);
+
+			AccelerationCalibration validation = fit(others);
+
+			others.add(i, measurement);
+
+			if (validation == null)
+			{
+				return null;
+			}
+
+			double error = getError(measurement, validation);
+			double uncorrected = getError(measurement,
+					AccelerationCalibration.IDENTITY);
+
+			sum += error * error;
+			uncorrectedSum += uncorrected * uncorrected;
+		}
+
+		validationError = Math.sqrt(sum / count);
+
+		if (sum >= uncorrectedSum)
+		{
+			return null;
+		}
+
+		return calibration;
+	}
+
+	/**
+	 * Fit the correction to some of the measurements.
+	 * 
+	 * @param orientations
+	 *            the measurements.
+	 * @return the correction, or null if the measurements do not describe an
+	 *         ellipsoid.
+	 */
+	private AccelerationCalibration fit(ArrayList<float[]> orientations)
+	{
+		int count = orientations.size();
+
+		RealMatrix design = new Array2DRowRealMatrix(count, PARAMETERS);
+		RealVector ones = new ArrayRealVector(count, 1.0);
+
+		for (int i = 0; i < count; i++)
+		{
+			float[] m = orientations.get(i);
+
+			double x = m[0];
+			double y = m[1];
+			double z = m[2];
+
+			int column = 0;
+
+			design.setEntry(i, column++, x * x);
+			design.setEntry(i, column++, y * y);
+			design.setEntry(i, column++, z * z);
+			design.setEntry(i, column++, 2 * x * y);
+			design.setEntry(i, column++, 2 * x * z);
+			design.setEntry(i, column++, 2 * y * z);
+
+			design.setEntry(i, column++, 2 * x);
+			design.setEntry(i, column++, 2 * y);
+			design.setEntry(i, column++, 2 * z);
+		}
+
+		RealVector p;
+
+		try
+		{
+			p = new QRDecomposition(design).getSolver().solve(ones);
+		}
+		catch (SingularMatrixException e)
+		{
+			return null;
+		}
+
+		double a = p.getEntry(0);
+		double b = p.getEntry(1);
+		double c = p.getEntry(2);
+		double d = p.getEntry(3);
+		double e = p.getEntry(4);
+		double f = p.getEntry(5);
+
+		RealVector g = new ArrayRealVector(new double[]
+		{ p.getEntry(6), p.getEntry(7), p.getEntry(8) });
+
+		RealMatrix shape = new Array2DRowRealMatrix(new double[][]
+		{
+		{ a, d, e },
+		{ d, b, f },
+		{ e, f, c } });
+
+		RealVector center;
+
+		try
+		{
+			center = new QRDecomposition(shape).getSolver().solve(g)
+					.mapMultiply(-1);
+		}
+		catch (SingularMatrixException ex)
+		{
+			return null;
+		}
+
+		// Move the ellipsoid to the origin, where it is
+		// (v - center)' shape (v - center) = scale.
+		double scale = 1 + shape.operate(center).dotProduct(center);
+
+		if (scale <= 0)
+		{
+			return null;
+		}
+
+		EigenDecomposition eigen = new EigenDecomposition(
+				shape.scalarMultiply(1 / scale), SPLIT_TOLERANCE);
+
+		double[] values = eigen.getRealEigenvalues();
+
+		// The square root of the shape, scaled to the radius.
+		RealMatrix root = new Array2DRowRealMatrix(3, 3);
+
+		for (int i = 0; i < 3; i++)
+		{
+			if (values[i] <= 0)
+			{
+				return null;
+			}
+
+			RealVector v = eigen.getEigenvector(i);
+
+			root = root.add(v.outerProduct(v).scalarMultiply(
+					Math.sqrt(values[i]) * radius));
+		}
+
+		RealVector offset = root.operate(center).mapMultiply(-1);
+
+		float[] matrix = new float[9];
+
+		for (int i = 0; i < 3; i++)
+		{
+			for (int j = 0; j < 3; j++)
+			{
+				matrix[i * 3 + j] = (float) root.getEntry(i, j);
+			}
+		}
+
+		return new AccelerationCalibration(matrix, new float[]
+		{ (float) offset.getEntry(0), (float) offset.getEntry(1),
+				(float) offset.getEntry(2) });
+	}
+
+	/**
+	 * Get the root mean square difference between the magnitude of the
+	 * corrected measurements and the radius.
+	 */
+	private double getResidual(AccelerationCalibration calibration)
+	{
+		double sum = 0;
+
+		for (int i = 0; i < measurements.size(); i++)
+		{
+			double error = getError(measurements.get(i), calibration);
+
+			sum += error * error;
+		}
+
+		return Math.sqrt(sum / measurements.size());
+	}
+
+	/**
+	 * Get the difference between the magnitude of a corrected measurement and
+	 * the radius.
+	 */
+	private double getError(float[] measurement,
+			AccelerationCalibration calibration)
+	{
+		float[] corrected = new float[]
+		{ measurement[0], measurement[1], measurement[2] };
+
+		calibration.apply(corrected);
+
+		return Math.sqrt(corrected[0] * corrected[0] + corrected[1]
+				* corrected[1] + corrected[2] * corrected[2])
+				- radius;
+	}
+}
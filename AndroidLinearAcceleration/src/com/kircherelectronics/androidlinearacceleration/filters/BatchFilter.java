@@ -0,0 +1,72 @@
+package com.kircherelectronics.androidlinearacceleration.filters;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A filter that can filter whole columns of recorded measurements at once.
+ * Filtering a column at a time keeps the state of the filter in registers
+ * and walks memory sequentially, which is much faster than calling
+ * filterFloat() for each measurement when post-processing logs.
+ * 
+ * The batch methods continue from the state left by previous measurements, so
+ * a session can be filtered in several consecutive batches.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface BatchFilter
+{
+	/**
+	 * Filter a single column of measurements in place.
+	 * 
+	 * @param channel
+	 *            the channel (axis) of the column.
+	 * @param data
+	 *            the column, which is overwritten with the filtered output.
+	 * @param offset
+	 *            the index of the first measurement to filter.
+	 * @param length
+	 *            the number of measurements to filter.
+	 */
+	public void filterColumn(int channel, float[] data, int offset, int length);
+
+	/**
+	 * Filter three axis measurements in place.
+	 * 
+	 * @param x
+	 *            the x-axis column.
+	 * @param y
+	 *            the y-axis column.
+	 * @param z
+	 *            the z-axis column.
+	 * @param offset
+	 *            the index of the first measurement to filter.
+	 * @param length
+	 *            the number of measurements to filter.
+	 */
+	public void filterBatch(float[] x, float[] y, float[] z, int offset,
+			int length);
+
+	/**
+	 * Get the number of measurements the filter needs to see before its
+	 * output no longer depends on its initial state. This is used to overlap
+	 * the batches when a session is split and filtered in parallel.
+	 * 
+	 * @return the number of measurements.
+	 */
+	public int getWarmUpLength();
+}
@@ -0,0 +1,272 @@
+package com.kircherelectronics.androidlinearacceleration.filters;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Implements a second order (biquad) Butterworth filter parameterized by a
+ * frequency in Hz. The coefficients are derived with the bilinear transform
+ * from the measured sample period, so the response of the filter does not
+ * change with the sensor delivery rate.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ * @see http://www.musicdsp.org/files/Audio-EQ-Cookbook.txt
+ */
+public class BiquadFilter extends IirFilter
+{
+	/*
+	 * Developer Note: The filter is implemented in the transposed direct form
+	 * II, which only needs two state variables per channel and behaves well
+	 * with single precision floats.
+	 */
+
+	/**
+	 * The response of the filter.
+	 */
+	public enum Type
+	{
+		LOW_PASS, HIGH_PASS, BAND_PASS
+	}
+
+	// The quality factor of a second order Butterworth filter.
+	public static final float BUTTERWORTH_Q = (float) (1 / Math.sqrt(2));
+
+	private Type type;
+
+	// The cutoff frequency, or center frequency of a band-pass, in Hz.
+	private float frequency;
+
+	// The quality factor of the filter.
+	private float q;
+
+	// The normalized coefficients.
+	private float b0;
+	private float b1;
+	private float b2;
+	private float a1;
+	private float a2;
+
+	// The gain of the filter for a constant input.
+	private float dcGain;
+
+	// The state of each channel.
+	private float[] s1;
+	private float[] s2;
+
+	/**
+	 * Initialize a new Butterworth BiquadFilter object.
+	 * 
+	 * @param type
+	 *            the response of the filter.
+	 * @param frequency
+	 *            the cutoff frequency, or center frequency of a band-pass, in
+	 *            Hz.
+	 */
+	public BiquadFilter(Type type, float frequency)
+	{
+		this(type, frequency, BUTTERWORTH_Q);
+	}
+
+	/**
+	 * Initialize a new BiquadFilter object.
+	 * 
+	 * @param type
+	 *            the response of the filter.
+	 * @param frequency
+	 *            the cutoff frequency, or center frequency of a band-pass, in
+	 *            Hz.
+	 * @param q
+	 *            the quality factor of the filter.
+	 */
+	public BiquadFilter(Type type, float frequency, float q)
+	{
+		this.type = type;
+		this.frequency = frequency;
+		this.q = q;
+	}
+
+	/**
+	 * Create a band-pass filter from the edges of the pass band.
+	 * 
+	 * @param lowFrequency
+	 *            the lower -3dB frequency in Hz.
+	 * @param highFrequency
+	 *            the upper -3dB frequency in Hz.
+	 * @return the band-pass filter.
+	 */
+	public static BiquadFilter createBandPass(float lowFrequency,
+			float highFrequency)
+	{
+		float center = (float) Math.sqrt(lowFrequency * highFrequency);
+
+		return new BiquadFilter(Type.BAND_PASS, center, center
+				/ (highFrequency - lowFrequency));
+	}
+
+	/**
+	 * Get the cutoff frequency, or center frequency of a band-pass.
+	 * 
+	 * @return the frequency in Hz.
+	 */
+	public float getFrequency()
+	{
+		return frequency;
+	}
+
+	/**
+	 * Set the cutoff frequency, or center frequency of a band-pass.
+	 * 
+	 * @param frequency
+	 *            the frequency in Hz.
+	 */
+	public void setFrequency(float frequency)
+	{
+		this.frequency = frequency;
+		invalidateCoefficients();
+	}
+
+	/**
+	 * Set the cutoff frequency from a time constant.
+	 * 
+	 * @param timeConstant
+	 *            the time constant in seconds.
+	 */
+	public void setTimeConstant(float timeConstant)
+	{
+		setFrequency((float) (1 / (2 * Math.PI * timeConstant)));
+	}
+
+	/**
+	 * Set the quality factor of the filter.
+	 * 
+	 * @param q
+	 *            the quality factor.
+	 */
+	public void setQ(float q)
+	{
+		this.q = q;
+		invalidateCoefficients();
+	}
+
+	@Override
+	protected float getSettlingTime()
+	{
+		// The envelope of the impulse response decays with a time constant of
+		// 2Q / w0.
+		return (float) (SETTLING_TIME_CONSTANTS * q / (Math.PI * frequency));
+	}
+
+	@Override
+	protected void initState(int channels)
+	{
+		s1 = copyState(s1, channels);
+		s2 = copyState(s2, channels);
+	}
+
+	@Override
+	protected void primeState(int channel, float sample)
+	{
+		// Solve for the state that produces a constant output for a constant
+		// input.
+		float y = dcGain * sample;
+
+		s2[channel] = b2 * sample - a2 * y;
+		s1[channel] = b1 * sample - a1 * y + s2[channel];
+	}
+
+	@Override
+	protected void updateCoefficients(float dt)
+	{
+		double w0 = 2 * Math.PI * limitFrequency(frequency, dt) * dt;
+		double cos = Math.cos(w0);
+		double alpha = Math.sin(w0) / (2 * q);
+
+		double nb0;
+		double nb1;
+		double nb2;
+
+		switch (type)
+		{
+		case HIGH_PASS:
+			nb0 = (1 + cos) / 2;
+			nb1 = -(1 + cos);
+			nb2 = (1 + cos) / 2;
+			break;
+		case BAND_PASS:
+			nb0 = alpha;
+			nb1 = 0;
+			nb2 = -alpha;
+			break;
+		default:
+			nb0 = (1 - cos) / 2;
+			nb1 = 1 - cos;
+			nb2 = (1 - cos) / 2;
+			break;
+		}
+
+		double a0 = 1 + alpha;
+
+		b0 = (float) (nb0 / a0);
+		b1 = (float) (nb1 / a0);
+		b2 = (float) (nb2 / a0);
+		a1 = (float) (-2 * cos / a0);
+		a2 = (float) ((1 - alpha) / a0);
+
+		dcGain = (b0 + b1 + b2) / (1 + a1 + a2);
+	}
+
+	@Override
+	protected float filterSample(int channel, float sample)
+	{
+		float y = b0 * sample + s1[channel];
+
+		s1[channel] = b1 * sample - a1 * y + s2[channel];
+		s2[channel] = b2 * sample - a2 * y;
+
+		return y;
+	}
+
+	@Override
+	protected void filterSamples(int channel, float[] data, int offset,
+			int length)
+	{
+		float c0 = b0;
+		float c1 = b1;
+		float c2 = b2;
+		float d1 = a1;
+		float d2 = a2;
+
+		float z1 = s1[channel];
+		float z2 = s2[channel];
+
+		int end = offset + length;
+
+		for (int i = offset; i < end; i++)
+		{
+			float x = data[i];
+			float y = c0 * x + z1;
+
+			z1 = c1 * x - d1 * y + z2;
+			z2 = c2 * x - d2 * y;
+
+			data[i] = y;
+		}
+
+		s1[channel] = z1;
+		s2[channel] = z2;
+	}
+}
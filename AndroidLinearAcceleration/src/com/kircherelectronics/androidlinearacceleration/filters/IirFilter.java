@@ -0,0 +1,423 @@
+package com.kircherelectronics.androidlinearacceleration.filters;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Base class for infinite impulse response filters that are parameterized in
+ * seconds or Hz instead of a number of samples. The sample period is measured
+ * from the sensor time stamps so the cutoff of the filter stays the same when
+ * the sensor delivery rate changes. The coefficients are only recomputed when
+ * the measured sample period drifts from the period they were computed for.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public abstract class IirFilter implements SensorFilter, BatchFilter
+{
+	/*
+	 * Developer Note: The sensor time stamps jitter by a relatively large
+	 * amount from update to update, so the sample period is smoothed before it
+	 * is compared against the period the coefficients were computed for.
+	 * Otherwise the coefficients would be recomputed on every update. No memory
+	 * is allocated once the filter has seen the first measurement.
+	 * 
+	 * A gap in the time stamps, for instance while the activity was paused,
+	 * is not a sample period and is skipped. Only if the intervals stay long
+	 * has the sensor really slowed down, and the sample period starts over
+	 * from the new interval.
+	 */
+
+	// The relative change in the sample period before the coefficients are
+	// recomputed.
+	private static final float DT_TOLERANCE = 0.02f;
+
+	// The weight of the newest sample period in the smoothed sample period.
+	private static final float DT_SMOOTHING = 0.05f;
+
+	// The longest interval that counts as a sample period, in multiples of
+	// the smoothed sample period.
+	private static final float MAX_INTERVAL_PERIODS = 4;
+
+	// The number of consecutive long intervals before they are taken as the
+	// new sample period.
+	private static final int MAX_SKIPPED_INTERVALS = 3;
+
+	// The number of time constants for the initial state of the filter to
+	// decay to about one millionth of its value.
+	protected static final float SETTLING_TIME_CONSTANTS = 14;
+
+	// Nanoseconds to seconds.
+	private static final float NS2S = 1.0f / 1000000000.0f;
+
+	private boolean dataInit = false;
+	private boolean coefficientsInit = false;
+	private boolean dtInit = false;
+
+	// The nominal sample period in seconds, used until time stamps are
+	// provided.
+	private float nominalDt = 0.02f;
+
+	// The smoothed sample period in seconds.
+	private float dt = nominalDt;
+
+	// The sample period the current coefficients were computed for.
+	private float coefficientDt = 0;
+
+	// The number of consecutive intervals that were too long.
+	private int skippedIntervals = 0;
+
+	// The time stamp of the previous measurement.
+	private long timeStamp = 0;
+
+	// The filtered output, reused for every measurement.
+	private float[] filteredData;
+
+	// Indicates which channels have been primed with a measurement.
+	private boolean[] primed;
+
+	/**
+	 * Filter the data with the most recently measured sample period, or the
+	 * nominal sample period if no time stamps have been provided.
+	 * 
+	 * @param data
+	 *            contains the input data.
+	 * @return the filtered output data. The array is owned by the filter and
+	 *         is overwritten by the next measurement.
+	 */
+	@Override
+	public float[] filterFloat(float[] data)
+	{
+		if (!dataInit || filteredData.length != data.length)
+		{
+			init(data.length);
+		}
+
+		checkCoefficients();
+
+		for (int i = 0; i < data.length; i++)
+		{
+			if (!primed[i])
+			{
+				primeState(i, data[i]);
+				primed[i] = true;
+			}
+
+			filteredData[i] = filterSample(i, data[i]);
+		}
+
+		return filteredData;
+	}
+
+	/**
+	 * Filter the data using the time stamp of the measurement to determine
+	 * the sample period.
+	 * 
+	 * @param data
+	 *            contains the input data.
+	 * @param timeStamp
+	 *            the time stamp of the measurement in nanoseconds.
+	 * @return the filtered output data. The array is owned by the filter and
+	 *         is overwritten by the next measurement.
+	 */
+	@Override
+	public float[] filterFloat(float[] data, long timeStamp)
+	{
+		if (this.timeStamp != 0 && timeStamp > this.timeStamp)
+		{
+			float sampleDt = (timeStamp - this.timeStamp) * NS2S;
+
+			if (!dtInit)
+			{
+				dt = sampleDt;
+				dtInit = true;
+			}
+			else if (sampleDt <= MAX_INTERVAL_PERIODS * dt)
+			{
+				dt += DT_SMOOTHING * (sampleDt - dt);
+				skippedIntervals = 0;
+			}
+			else if (++skippedIntervals >= MAX_SKIPPED_INTERVALS)
+			{
+				dt = sampleDt;
+				skippedIntervals = 0;
+			}
+		}
+
+		this.timeStamp = timeStamp;
+
+		return filterFloat(data);
+	}
+
+	@Override
+	public void filterBatch(float[] x, float[] y, float[] z, int offset,
+			int length)
+	{
+		filterColumn(0, x, offset, length);
+		filterColumn(1, y, offset, length);
+		filterColumn(2, z, offset, length);
+	}
+
+	/**
+	 * Filter a single column of measurements in place. The measurements are
+	 * assumed to be evenly spaced at the current sample period, so recorded
+	 * sessions should be resampled first or have the sample period set with
+	 * setSamplePeriod().
+	 */
+	@Override
+	public void filterColumn(int channel, float[] data, int offset, int length)
+	{
+		if (length <= 0)
+		{
+			return;
+		}
+
+		if (!dataInit)
+		{
+			init(Math.max(3, channel + 1));
+		}
+		else if (filteredData.length <= channel)
+		{
+			grow(channel + 1);
+		}
+
+		checkCoefficients();
+
+		if (!primed[channel])
+		{
+			primeState(channel, data[offset]);
+			primed[channel] = true;
+		}
+
+		filterSamples(channel, data, offset, length);
+
+		filteredData[channel] = data[offset + length - 1];
+	}
+
+	/**
+	 * The initial state of the filter decays exponentially, so the warm-up is
+	 * the settling time of the filter at the current sample period.
+	 */
+	@Override
+	public int getWarmUpLength()
+	{
+		return (int) Math.ceil(getSettlingTime() / dt);
+	}
+
+	/**
+	 * Reset the filter to its initial state. The next measurement will prime
+	 * the filter and the sample period returns to the nominal sample period.
+	 */
+	@Override
+	public void reset()
+	{
+		dataInit = false;
+		dtInit = false;
+		dt = nominalDt;
+		timeStamp = 0;
+		skippedIntervals = 0;
+	}
+
+	/**
+	 * Get the sample period the filter is currently using.
+	 * 
+	 * @return the sample period in seconds.
+	 */
+	public float getSamplePeriod()
+	{
+		return dt;
+	}
+
+	/**
+	 * Set the nominal sample period. This is used until time stamps are
+	 * provided with the measurements.
+	 * 
+	 * @param dt
+	 *            the sample period in seconds.
+	 */
+	public void setSamplePeriod(float dt)
+	{
+		this.nominalDt = dt;
+		this.dt = dt;
+	}
+
+	/**
+	 * Indicate that the filter parameters have changed and the coefficients
+	 * must be recomputed before the next measurement.
+	 */
+	protected void invalidateCoefficients()
+	{
+		coefficientsInit = false;
+	}
+
+	/**
+	 * Allocate the output and the filter state.
+	 * 
+	 * @param channels
+	 *            the number of channels in the data.
+	 */
+	private void init(int channels)
+	{
+		filteredData = new float[channels];
+		primed = new boolean[channels];
+
+		initState(channels);
+
+		dataInit = true;
+	}
+
+	/**
+	 * Add channels to the output and the filter state, keeping the state of
+	 * the existing channels.
+	 * 
+	 * @param channels
+	 *            the new number of channels in the data.
+	 */
+	private void grow(int channels)
+	{
+		boolean[] grownPrimed = new boolean[channels];
+		System.arraycopy(primed, 0, grownPrimed, 0, primed.length);
+
+		filteredData = copyState(filteredData, channels);
+		primed = grownPrimed;
+
+		initState(channels);
+	}
+
+	/**
+	 * Copy the state of a filter into an array with room for more channels.
+	 * Arrays.copyOf() is not available on the Android versions we support.
+	 * 
+	 * @param state
+	 *            the state of each channel, or null if there is none yet.
+	 * @param channels
+	 *            the number of channels.
+	 * @return the state, with the new channels set to zero.
+	 */
+	protected static float[] copyState(float[] state, int channels)
+	{
+		float[] copy = new float[channels];
+
+		if (state != null)
+		{
+			System.arraycopy(state, 0, copy, 0,
+					Math.min(state.length, channels));
+		}
+
+		return copy;
+	}
+
+	/**
+	 * Recompute the coefficients if the sample period has drifted from the
+	 * period they were computed for.
+	 */
+	private void checkCoefficients()
+	{
+		if (!coefficientsInit
+				|| Math.abs(dt - coefficientDt) > DT_TOLERANCE * coefficientDt)
+		{
+			coefficientDt = dt;
+			updateCoefficients(coefficientDt);
+			coefficientsInit = true;
+		}
+	}
+
+	/**
+	 * Filter a run of measurements of a channel in place. Subclasses should
+	 * override this with a loop that keeps the filter state in local
+	 * variables.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @param data
+	 *            the measurements, which are overwritten with the output.
+	 * @param offset
+	 *            the index of the first measurement.
+	 * @param length
+	 *            the number of measurements.
+	 */
+	protected void filterSamples(int channel, float[] data, int offset,
+			int length)
+	{
+		int end = offset + length;
+
+		for (int i = offset; i < end; i++)
+		{
+			data[i] = filterSample(channel, data[i]);
+		}
+	}
+
+	/**
+	 * Limit a cutoff frequency so it stays below the Nyquist frequency of the
+	 * sample period.
+	 * 
+	 * @param frequency
+	 *            the cutoff frequency in Hz.
+	 * @param dt
+	 *            the sample period in seconds.
+	 * @return the limited cutoff frequency in Hz.
+	 */
+	protected static double limitFrequency(double frequency, double dt)
+	{
+		return Math.min(frequency, 0.45 / dt);
+	}
+
+	/**
+	 * Get the time it takes the initial state of the filter to decay.
+	 * 
+	 * @return the settling time in seconds.
+	 */
+	protected abstract float getSettlingTime();
+
+	/**
+	 * Allocate the filter state. The state of the channels that already have
+	 * one must be kept, since channels are added as a batch reaches them.
+	 * 
+	 * @param channels
+	 *            the number of channels in the data.
+	 */
+	protected abstract void initState(int channels);
+
+	/**
+	 * Initialize the state of a channel so the filter starts in steady state
+	 * with the first measurement instead of ringing up from zero.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @param sample
+	 *            the first measurement of the channel.
+	 */
+	protected abstract void primeState(int channel, float sample);
+
+	/**
+	 * Compute the filter coefficients for a sample period.
+	 * 
+	 * @param dt
+	 *            the sample period in seconds.
+	 */
+	protected abstract void updateCoefficients(float dt);
+
+	/**
+	 * Filter a single measurement of a channel.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @param sample
+	 *            the measurement.
+	 * @return the filtered measurement.
+	 */
+	protected abstract float filterSample(int channel, float sample);
+}
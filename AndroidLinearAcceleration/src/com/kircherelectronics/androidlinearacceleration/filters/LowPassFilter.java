@@ -0,0 +1,131 @@
+package com.kircherelectronics.androidlinearacceleration.filters;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Implements a first order low-pass filter parameterized by a time constant.
+ * The smoothing factor is derived from the measured sample period, so the
+ * cutoff frequency does not change with the sensor delivery rate.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class LowPassFilter extends IirFilter
+{
+	// The time constant of the filter in seconds.
+	private float timeConstant;
+
+	// The smoothing factor for the current sample period.
+	private float alpha;
+
+	// The previous output of each channel.
+	private float[] output;
+
+	/**
+	 * Initialize a new LowPassFilter object.
+	 * 
+	 * @param timeConstant
+	 *            the time constant of the filter in seconds.
+	 */
+	public LowPassFilter(float timeConstant)
+	{
+		this.timeConstant = timeConstant;
+	}
+
+	/**
+	 * Get the time constant of the filter.
+	 * 
+	 * @return the time constant in seconds.
+	 */
+	public float getTimeConstant()
+	{
+		return timeConstant;
+	}
+
+	/**
+	 * Set the time constant of the filter.
+	 * 
+	 * @param timeConstant
+	 *            the time constant in seconds.
+	 */
+	public void setTimeConstant(float timeConstant)
+	{
+		this.timeConstant = timeConstant;
+		invalidateCoefficients();
+	}
+
+	/**
+	 * Set the cutoff frequency of the filter.
+	 * 
+	 * @param frequency
+	 *            the -3dB cutoff frequency in Hz.
+	 */
+	public void setCutoffFrequency(float frequency)
+	{
+		setTimeConstant((float) (1 / (2 * Math.PI * frequency)));
+	}
+
+	@Override
+	protected float getSettlingTime()
+	{
+		return SETTLING_TIME_CONSTANTS * timeConstant;
+	}
+
+	@Override
+	protected void initState(int channels)
+	{
+		output = copyState(output, channels);
+	}
+
+	@Override
+	protected void primeState(int channel, float sample)
+	{
+		output[channel] = sample;
+	}
+
+	@Override
+	protected void updateCoefficients(float dt)
+	{
+		alpha = dt / (timeConstant + dt);
+	}
+
+	@Override
+	protected float filterSample(int channel, float sample)
+	{
+		output[channel] += alpha * (sample - output[channel]);
+
+		return output[channel];
+	}
+
+	@Override
+	protected void filterSamples(int channel, float[] data, int offset,
+			int length)
+	{
+		float a = alpha;
+		float y = output[channel];
+
+		int end = offset + length;
+
+		for (int i = offset; i < end; i++)
+		{
+			y += a * (data[i] - y);
+			data[i] = y;
+		}
+
+		output[channel] = y;
+	}
+}
@@ -1,9 +1,5 @@
 package com.kircherelectronics.androidlinearacceleration.filters;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-
 /*
  * Copyright 2013, Kircher Electronics
  *
@@ -27,89 +23,277 @@ import java.util.List;
  * @version %I%, %G%
  * 
  */
-public class MeanFilter
+public class MeanFilter implements SensorFilter, BatchFilter
 {
+	/*
+	 * Developer Note: Each channel keeps its window in a primitive ring buffer
+	 * along with a running sum, so the mean is updated in constant time and no
+	 * memory is allocated per measurement. The running sums are kept in double
+	 * precision so they do not drift over long sessions.
+	 */
+
 	// The size of the mean filters rolling window.
 	private int filterWindow = 30;
 
 	private boolean dataInit;
 
-	private ArrayList<LinkedList<Number>> dataLists;
+	// The number of measurements in the window of each channel.
+	private int[] counts;
+
+	// The index of the oldest measurement in the window of each channel.
+	private int[] heads;
+
+	// The rolling window of each channel.
+	private float[][] windows;
+
+	// The sum of the rolling window of each channel.
+	private double[] sums;
+
+	// The filtered output, reused for every measurement.
+	private float[] means;
 
 	/**
 	 * Initialize a new MeanFilter object.
 	 */
 	public MeanFilter()
 	{
-		dataLists = new ArrayList<LinkedList<Number>>();
 		dataInit = false;
 	}
 
 	/**
 	 * Filter the data.
 	 * 
-	 * @param iterator
+	 * @param data
 	 *            contains input the data.
-	 * @return the filtered output data.
+	 * @return the filtered output data. The array is owned by the filter and
+	 *         is overwritten by the next measurement.
 	 */
+	@Override
 	public float[] filterFloat(float[] data)
 	{
+		// Initialize the data structures for the data set.
+		if (!dataInit || means.length != data.length)
+		{
+			init(data.length);
+		}
+
 		for (int i = 0; i < data.length; i++)
 		{
-			// Initialize the data structures for the data set.
-			if (!dataInit)
-			{
-				dataLists.add(new LinkedList<Number>());
-			}
+			means[i] = filterSample(i, data[i]);
+		}
+
+		return means;
+	}
+
+	/**
+	 * Filter the data. The mean filter is parameterized by the number of
+	 * samples, so the time stamp is not used.
+	 * 
+	 * @param data
+	 *            contains input the data.
+	 * @param timeStamp
+	 *            the time stamp of the measurement in nanoseconds.
+	 * @return the filtered output data.
+	 */
+	@Override
+	public float[] filterFloat(float[] data, long timeStamp)
+	{
+		return filterFloat(data);
+	}
+
+	@Override
+	public void filterBatch(float[] x, float[] y, float[] z, int offset,
+			int length)
+	{
+		filterColumn(0, x, offset, length);
+		filterColumn(1, y, offset, length);
+		filterColumn(2, z, offset, length);
+	}
+
+	@Override
+	public void filterColumn(int channel, float[] data, int offset, int length)
+	{
+		if (!dataInit)
+		{
+			init(Math.max(3, channel + 1));
+		}
+		else if (means.length <= channel)
+		{
+			grow(channel + 1);
+		}
 
-			dataLists.get(i).addLast(data[i]);
+		float[] window = windows[channel];
+		double sum = sums[channel];
 
-			if (dataLists.get(i).size() > filterWindow)
+		int size = filterWindow;
+		int n = counts[channel];
+		int h = heads[channel];
+
+		int end = offset + length;
+
+		for (int i = offset; i < end; i++)
+		{
+			float value = data[i];
+
+			if (n == size)
 			{
-				dataLists.get(i).removeFirst();
+				sum += value - window[h];
+				window[h] = value;
+
+				h++;
+				if (h == size)
+				{
+					h = 0;
+				}
 			}
-		}
+			else
+			{
+				int tail = h + n;
+				if (tail >= size)
+				{
+					tail -= size;
+				}
 
-		dataInit = true;
+				window[tail] = value;
+				sum += value;
+				n++;
+			}
 
-		float[] means = new float[dataLists.size()];
+			data[i] = (float) (sum / n);
+		}
+
+		sums[channel] = sum;
+		counts[channel] = n;
+		heads[channel] = h;
 
-		for (int i = 0; i < dataLists.size(); i++)
+		if (length > 0)
 		{
-			means[i] = (float) getMean(dataLists.get(i));
+			means[channel] = data[end - 1];
 		}
+	}
 
-		return means;
+	/**
+	 * The output only depends on the measurements in the rolling window.
+	 */
+	@Override
+	public int getWarmUpLength()
+	{
+		return filterWindow;
+	}
+
+	/**
+	 * Reset the filter to its initial state.
+	 */
+	@Override
+	public void reset()
+	{
+		dataInit = false;
 	}
 
 	/**
-	 * Get the mean of the data set.
+	 * Set the size of the rolling window. This resets the filter.
 	 * 
-	 * @param data
-	 *            the data set.
-	 * @return the mean of the data set.
+	 * @param size
+	 *            the number of measurements in the window.
+	 */
+	public void setWindowSize(int size)
+	{
+		this.filterWindow = size;
+
+		reset();
+	}
+
+	/**
+	 * Get the size of the rolling window.
+	 * 
+	 * @return the number of measurements in the window.
+	 */
+	public int getWindowSize()
+	{
+		return filterWindow;
+	}
+
+	/**
+	 * Add a measurement to the rolling window of a channel.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @param value
+	 *            the measurement.
+	 * @return the mean of the rolling window.
 	 */
-	private float getMean(List<Number> data)
+	private float filterSample(int channel, float value)
 	{
-		float m = 0;
-		float count = 0;
+		float[] window = windows[channel];
 
-		for (int i = 0; i < data.size(); i++)
+		if (counts[channel] == filterWindow)
 		{
-			m += data.get(i).floatValue();
-			count++;
-		}
+			int h = heads[channel];
 
-		if (count != 0)
+			sums[channel] += value - window[h];
+			window[h] = value;
+
+			heads[channel] = (h + 1) % filterWindow;
+		}
+		else
 		{
-			m = m / count;
+			window[(heads[channel] + counts[channel]) % filterWindow] = value;
+			sums[channel] += value;
+			counts[channel]++;
 		}
 
-		return m;
+		return (float) (sums[channel] / counts[channel]);
 	}
 
-	public void setWindowSize(int size)
+	/**
+	 * Allocate the rolling windows.
+	 * 
+	 * @param channels
+	 *            the number of channels in the data.
+	 */
+	private void init(int channels)
 	{
-		this.filterWindow = size;
+		windows = new float[channels][filterWindow];
+		sums = new double[channels];
+		means = new float[channels];
+		counts = new int[channels];
+		heads = new int[channels];
+
+		dataInit = true;
+	}
+
+	/**
+	 * Add rolling windows for more channels, keeping the windows of the
+	 * existing channels.
+	 * 
+	 * @param channels
+	 *            the new number of channels in the data.
+	 */
+	private void grow(int channels)
+	{
+		int existing = means.length;
+
+		float[][] grownWindows = new float[channels][];
+		double[] grownSums = new double[channels];
+		float[] grownMeans = new float[channels];
+		int[] grownCounts = new int[channels];
+		int[] grownHeads = new int[channels];
+
+		System.arraycopy(windows, 0, grownWindows, 0, existing);
+		System.arraycopy(sums, 0, grownSums, 0, existing);
+		System.arraycopy(means, 0, grownMeans, 0, existing);
+		System.arraycopy(counts, 0, grownCounts, 0, existing);
+		System.arraycopy(heads, 0, grownHeads, 0, existing);
+
+		for (int i = existing; i < channels; i++)
+		{
+			grownWindows[i] = new float[filterWindow];
+		}
+
+		windows = grownWindows;
+		sums = grownSums;
+		means = grownMeans;
+		counts = grownCounts;
+		heads = grownHeads;
 	}
 }
@@ -0,0 +1,314 @@
+package com.kircherelectronics.androidlinearacceleration.filters;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Implements a median filter designed to remove spikes from the data points
+ * while preserving edges better than a mean.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class MedianFilter implements SensorFilter, BatchFilter
+{
+	/*
+	 * Developer Note: Each channel keeps its window twice, once in arrival
+	 * order in a ring buffer so the oldest measurement is known, and once in
+	 * sorted order so the median can be read directly. Updating the sorted
+	 * window is a binary search and an array copy, so no memory is allocated
+	 * per measurement.
+	 */
+
+	// The size of the median filters rolling window.
+	private int filterWindow = 5;
+
+	private boolean dataInit;
+
+	// The number of measurements in the window of each channel.
+	private int[] counts;
+
+	// The index of the oldest measurement in the window of each channel.
+	private int[] heads;
+
+	// The rolling window of each channel in arrival order.
+	private float[][] windows;
+
+	// The rolling window of each channel in sorted order.
+	private float[][] sorted;
+
+	// The filtered output, reused for every measurement.
+	private float[] medians;
+
+	/**
+	 * Initialize a new MedianFilter object.
+	 */
+	public MedianFilter()
+	{
+		dataInit = false;
+	}
+
+	/**
+	 * Filter the data.
+	 * 
+	 * @param data
+	 *            contains input the data.
+	 * @return the filtered output data. The array is owned by the filter and
+	 *         is overwritten by the next measurement.
+	 */
+	@Override
+	public float[] filterFloat(float[] data)
+	{
+		if (!dataInit || medians.length != data.length)
+		{
+			init(data.length);
+		}
+
+		for (int i = 0; i < data.length; i++)
+		{
+			medians[i] = filterSample(i, data[i]);
+		}
+
+		return medians;
+	}
+
+	/**
+	 * Filter the data. The median filter is parameterized by the number of
+	 * samples, so the time stamp is not used.
+	 * 
+	 * @param data
+	 *            contains input the data.
+	 * @param timeStamp
+	 *            the time stamp of the measurement in nanoseconds.
+	 * @return the filtered output data.
+	 */
+	@Override
+	public float[] filterFloat(float[] data, long timeStamp)
+	{
+		return filterFloat(data);
+	}
+
+	@Override
+	public void filterBatch(float[] x, float[] y, float[] z, int offset,
+			int length)
+	{
+		filterColumn(0, x, offset, length);
+		filterColumn(1, y, offset, length);
+		filterColumn(2, z, offset, length);
+	}
+
+	@Override
+	public void filterColumn(int channel, float[] data, int offset, int length)
+	{
+		if (!dataInit)
+		{
+			init(Math.max(3, channel + 1));
+		}
+		else if (medians.length <= channel)
+		{
+			grow(channel + 1);
+		}
+
+		int end = offset + length;
+
+		for (int i = offset; i < end; i++)
+		{
+			data[i] = filterSample(channel, data[i]);
+		}
+
+		if (length > 0)
+		{
+			medians[channel] = data[end - 1];
+		}
+	}
+
+	/**
+	 * The output only depends on the measurements in the rolling window.
+	 */
+	@Override
+	public int getWarmUpLength()
+	{
+		return filterWindow;
+	}
+
+	/**
+	 * Reset the filter to its initial state.
+	 */
+	@Override
+	public void reset()
+	{
+		dataInit = false;
+	}
+
+	/**
+	 * Set the size of the rolling window. This resets the filter.
+	 * 
+	 * @param size
+	 *            the number of measurements in the window.
+	 */
+	public void setWindowSize(int size)
+	{
+		this.filterWindow = size;
+
+		reset();
+	}
+
+	/**
+	 * Get the size of the rolling window.
+	 * 
+	 * @return the number of measurements in the window.
+	 */
+	public int getWindowSize()
+	{
+		return filterWindow;
+	}
+
+	/**
+	 * Add a measurement to the rolling window of a channel.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @param value
+	 *            the measurement.
+	 * @return the median of the rolling window.
+	 */
+	private float filterSample(int channel, float value)
+	{
+		float[] window = windows[channel];
+		float[] order = sorted[channel];
+
+		int n = counts[channel];
+
+		if (n == filterWindow)
+		{
+			int h = heads[channel];
+
+			// Remove the oldest measurement from the sorted window.
+			int i = search(order, n, window[h]);
+			System.arraycopy(order, i + 1, order, i, n - i - 1);
+			n--;
+
+			window[h] = value;
+			heads[channel] = (h + 1) % filterWindow;
+		}
+		else
+		{
+			window[(heads[channel] + n) % filterWindow] = value;
+		}
+
+		// Insert the newest measurement into the sorted window.
+		int i = search(order, n, value);
+		System.arraycopy(order, i, order, i + 1, n - i);
+		order[i] = value;
+		n++;
+
+		counts[channel] = n;
+
+		if ((n & 1) == 1)
+		{
+			return order[n >> 1];
+		}
+
+		return (order[(n >> 1) - 1] + order[n >> 1]) * 0.5f;
+	}
+
+	/**
+	 * Find the index of a value in a sorted window, or the index it should be
+	 * inserted at.
+	 * 
+	 * @param order
+	 *            the sorted window.
+	 * @param n
+	 *            the number of measurements in the window.
+	 * @param value
+	 *            the value.
+	 * @return the index.
+	 */
+	private static int search(float[] order, int n, float value)
+	{
+		int low = 0;
+		int high = n;
+
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+
+			if (order[mid] < value)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Allocate the rolling windows.
+	 * 
+	 * @param channels
+	 *            the number of channels in the data.
+	 */
+	private void init(int channels)
+	{
+		windows = new float[channels][filterWindow];
+		sorted = new float[channels][filterWindow];
+		medians = new float[channels];
+		counts = new int[channels];
+		heads = new int[channels];
+
+		dataInit = true;
+	}
+
+	/**
+	 * Add rolling windows for more channels, keeping the windows of the
+	 * existing channels.
+	 * 
+	 * @param channels
+	 *            the new number of channels in the data.
+	 */
+	private void grow(int channels)
+	{
+		int existing = medians.length;
+
+		float[][] grownWindows = new float[channels][];
+		float[][] grownSorted = new float[channels][];
+		float[] grownMedians = new float[channels];
+		int[] grownCounts = new int[channels];
+		int[] grownHeads = new int[channels];
+
+		System.arraycopy(windows, 0, grownWindows, 0, existing);
+		System.arraycopy(sorted, 0, grownSorted, 0, existing);
+		System.arraycopy(medians, 0, grownMedians, 0, existing);
+		System.arraycopy(counts, 0, grownCounts, 0, existing);
+		System.arraycopy(heads, 0, grownHeads, 0, existing);
+
+		for (int i = existing; i < channels; i++)
+		{
+			grownWindows[i] = new float[filterWindow];
+			grownSorted[i] = new float[filterWindow];
+		}
+
+		windows = grownWindows;
+		sorted = grownSorted;
+		medians = grownMedians;
+		counts = grownCounts;
+		heads = grownHeads;
+	}
+}
@@ -0,0 +1,54 @@
+package com.kircherelectronics.androidlinearacceleration.filters;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A filter interface for smoothing sensor measurements. Classes that filter
+ * the sensor outputs should do so with this interface so they can be used
+ * interchangeably.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface SensorFilter
+{
+	/**
+	 * Filter the data.
+	 * 
+	 * @param data
+	 *            contains the input data.
+	 * @return the filtered output data.
+	 */
+	public float[] filterFloat(float[] data);
+
+	/**
+	 * Filter the data using the time stamp of the measurement to determine
+	 * the sample period.
+	 * 
+	 * @param data
+	 *            contains the input data.
+	 * @param timeStamp
+	 *            the time stamp of the measurement in nanoseconds.
+	 * @return the filtered output data.
+	 */
+	public float[] filterFloat(float[] data, long timeStamp);
+
+	/**
+	 * Reset the filter to its initial state.
+	 */
+	public void reset();
+}
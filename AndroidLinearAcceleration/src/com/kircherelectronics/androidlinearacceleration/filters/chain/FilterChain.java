@@ -0,0 +1,439 @@
+package com.kircherelectronics.androidlinearacceleration.filters.chain;
+
+import java.util.ArrayList;
+
+import com.kircherelectronics.androidlinearacceleration.filters.BatchFilter;
+import com.kircherelectronics.androidlinearacceleration.filters.SensorFilter;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * An ordered list of FilterStages that are applied to every measurement, for
+ * instance resample, reject outliers, low-pass, rotate and remove gravity. The
+ * buffers between the stages are allocated when the chain is configured, so
+ * each stage writes directly into the input of the next stage. The time spent
+ * in each stage is accumulated so the cost of the chain can be examined.
+ * 
+ * The chain can be fed from the sensor observers or from recorded
+ * measurements, it only depends on the values and time stamps. Recorded
+ * three axis sessions can also be filtered a batch at a time, for instance by
+ * the ParallelFilterProcessor.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class FilterChain implements SensorFilter, BatchFilter
+{
+	// The nominal sample period of measurements without a time stamp in
+	// nanoseconds.
+	private static final long DEFAULT_SAMPLE_PERIOD = 20000000;
+
+	// The number of channels in each measurement.
+	private int channels;
+
+	// The time stamp of the most recent output.
+	private long timeStamp = 0;
+
+	// The time stamp of the most recent measurement.
+	private long inputTimeStamp = 0;
+
+	// The sample period of measurements without a time stamp in nanoseconds.
+	private long samplePeriod = DEFAULT_SAMPLE_PERIOD;
+
+	// A measurement of a batch.
+	private float[] row;
+
+	private ArrayList<FilterStage> stages;
+
+	// buffers[i] is the output of stage i. The last buffer is the output of
+	// the chain.
+	private float[][] buffers;
+
+	// The output of the chain when it has no stages.
+	private float[] output;
+
+	// The accumulated time spent in each stage in nanoseconds.
+	private long[] stageTime;
+
+	// The number of measurements processed by each stage.
+	private long[] stageCount;
+
+	/**
+	 * Initialize a new FilterChain object for three axis measurements.
+	 */
+	public FilterChain()
+	{
+		this(3);
+	}
+
+	/**
+	 * Initialize a new FilterChain object.
+	 * 
+	 * @param channels
+	 *            the number of channels in each measurement.
+	 */
+	public FilterChain(int channels)
+	{
+		this.channels = channels;
+
+		stages = new ArrayList<FilterStage>();
+		output = new float[channels];
+		row = new float[channels];
+
+		allocateBuffers();
+	}
+
+	/**
+	 * Add a stage to the end of the chain.
+	 * 
+	 * @param stage
+	 *            the stage.
+	 */
+	public void addStage(FilterStage stage)
+	{
+		stages.add(stage);
+		allocateBuffers();
+	}
+
+	/**
+	 * Insert a stage into the chain.
+	 * 
+	 * @param index
+	 *            the position of the stage.
+	 * @param stage
+	 *            the stage.
+	 */
+	public void addStage(int index, FilterStage stage)
+	{
+		stages.add(index, stage);
+		allocateBuffers();
+	}
+
+	/**
+	 * Remove a stage from the chain.
+	 * 
+	 * @param stage
+	 *            the stage.
+	 */
+	public void removeStage(FilterStage stage)
+	{
+		int i = stages.indexOf(stage);
+		if (i >= 0)
+		{
+			stages.remove(i);
+			allocateBuffers();
+		}
+	}
+
+	/**
+	 * Remove all of the stages from the chain.
+	 */
+	public void clearStages()
+	{
+		stages.clear();
+		allocateBuffers();
+	}
+
+	/**
+	 * Get the number of stages in the chain.
+	 * 
+	 * @return the number of stages.
+	 */
+	public int getStageCount()
+	{
+		return stages.size();
+	}
+
+	/**
+	 * Get a stage of the chain.
+	 * 
+	 * @param index
+	 *            the position of the stage.
+	 * @return the stage.
+	 */
+	public FilterStage getStage(int index)
+	{
+		return stages.get(index);
+	}
+
+	/**
+	 * Process a measurement through all of the stages.
+	 * 
+	 * @param data
+	 *            the measurement.
+	 * @param timeStamp
+	 *            the time stamp of the measurement in nanoseconds.
+	 * @return true if the chain produced an output for the measurement.
+	 */
+	public boolean process(float[] data, long timeStamp)
+	{
+		inputTimeStamp = timeStamp;
+
+		if (stages.isEmpty())
+		{
+			System.arraycopy(data, 0, output, 0, channels);
+			this.timeStamp = timeStamp;
+
+			return true;
+		}
+
+		float[] input = data;
+
+		for (int i = 0; i < stages.size(); i++)
+		{
+			long start = System.nanoTime();
+
+			timeStamp = stages.get(i).process(input, buffers[i], timeStamp);
+
+			stageTime[i] += System.nanoTime() - start;
+			stageCount[i]++;
+
+			if (timeStamp == FilterStage.NO_OUTPUT)
+			{
+				return false;
+			}
+
+			input = buffers[i];
+		}
+
+		this.timeStamp = timeStamp;
+
+		return true;
+	}
+
+	/**
+	 * Filter the data. If a stage does not produce an output for the
+	 * measurement, the previous output of the chain is returned. The
+	 * measurement is assumed to follow the previous one by the sample period,
+	 * so measurements with a time stamp, such as sensor events, should use
+	 * filterFloat(float[], long) instead.
+	 * 
+	 * @param data
+	 *            contains the input data.
+	 * @return the filtered output data. The array is owned by the chain and is
+	 *         overwritten by the next measurement.
+	 */
+	@Override
+	public float[] filterFloat(float[] data)
+	{
+		return filterFloat(data, inputTimeStamp + samplePeriod);
+	}
+
+	/**
+	 * Filter the data. If a stage does not produce an output for the
+	 * measurement, the previous output of the chain is returned.
+	 * 
+	 * @param data
+	 *            contains the input data.
+	 * @param timeStamp
+	 *            the time stamp of the measurement in nanoseconds.
+	 * @return the filtered output data. The array is owned by the chain and is
+	 *         overwritten by the next measurement.
+	 */
+	@Override
+	public float[] filterFloat(float[] data, long timeStamp)
+	{
+		process(data, timeStamp);
+
+		return getOutput();
+	}
+
+	/**
+	 * The stages mix the channels of a measurement, for instance when it is
+	 * rotated, so a single column can not be filtered on its own.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always, use filterBatch() instead.
+	 */
+	@Override
+	public void filterColumn(int channel, float[] data, int offset, int length)
+	{
+		throw new UnsupportedOperationException(
+				"The stages of a chain need every channel, use filterBatch()");
+	}
+
+	/**
+	 * Filter three axis measurements in place, one measurement at a time.
+	 * Batches have no time stamps, so the measurements are assumed to be
+	 * evenly spaced at the sample period. If a stage does not produce an
+	 * output for a measurement, such as a ResampleStage, the previous output
+	 * of the chain is held.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the chain does not have three channels.
+	 */
+	@Override
+	public void filterBatch(float[] x, float[] y, float[] z, int offset,
+			int length)
+	{
+		if (channels != 3)
+		{
+			throw new IllegalStateException("A batch has three channels, "
+					+ "the chain has " + channels);
+		}
+
+		int end = offset + length;
+
+		for (int i = offset; i < end; i++)
+		{
+			row[0] = x[i];
+			row[1] = y[i];
+			row[2] = z[i];
+
+			float[] filtered = filterFloat(row);
+
+			x[i] = filtered[0];
+			y[i] = filtered[1];
+			z[i] = filtered[2];
+		}
+	}
+
+	/**
+	 * The stages are applied in series, so the warm-up of the chain is the sum
+	 * of the warm-up of its stages.
+	 */
+	@Override
+	public int getWarmUpLength()
+	{
+		int warmUp = 0;
+
+		for (int i = 0; i < stages.size(); i++)
+		{
+			warmUp += stages.get(i).getWarmUpLength();
+		}
+
+		return warmUp;
+	}
+
+	/**
+	 * Set the sample period of the measurements of a batch and of other
+	 * measurements without a time stamp.
+	 * 
+	 * @param dt
+	 *            the sample period in seconds.
+	 */
+	public void setSamplePeriod(float dt)
+	{
+		samplePeriod = (long) (dt * 1000000000.0);
+	}
+
+	/**
+	 * Get the most recent output of the chain.
+	 * 
+	 * @return the output. The array is owned by the chain.
+	 */
+	public float[] getOutput()
+	{
+		if (stages.isEmpty())
+		{
+			return output;
+		}
+
+		return buffers[stages.size() - 1];
+	}
+
+	/**
+	 * Get the time stamp of the most recent output of the chain.
+	 * 
+	 * @return the time stamp in nanoseconds.
+	 */
+	public long getTimeStamp()
+	{
+		return timeStamp;
+	}
+
+	/**
+	 * Reset all of the stages and the timing counters.
+	 */
+	@Override
+	public void reset()
+	{
+		for (int i = 0; i < stages.size(); i++)
+		{
+			stages.get(i).reset();
+		}
+
+		timeStamp = 0;
+		inputTimeStamp = 0;
+
+		resetTimers();
+	}
+
+	/**
+	 * Get the total time spent in a stage.
+	 * 
+	 * @param index
+	 *            the position of the stage.
+	 * @return the time in nanoseconds.
+	 */
+	public long getStageTime(int index)
+	{
+		return stageTime[index];
+	}
+
+	/**
+	 * Get the average time spent in a stage per measurement.
+	 * 
+	 * @param index
+	 *            the position of the stage.
+	 * @return the time in nanoseconds.
+	 */
+	public float getAverageStageTime(int index)
+	{
+		if (stageCount[index] == 0)
+		{
+			return 0;
+		}
+
+		return (float) stageTime[index] / stageCount[index];
+	}
+
+	/**
+	 * Get the number of measurements a stage has processed.
+	 * 
+	 * @param index
+	 *            the position of the stage.
+	 * @return the number of measurements.
+	 */
+	public long getStageSampleCount(int index)
+	{
+		return stageCount[index];
+	}
+
+	/**
+	 * Reset the timing counters of all of the stages.
+	 */
+	public void resetTimers()
+	{
+		for (int i = 0; i < stageTime.length; i++)
+		{
+			stageTime[i] = 0;
+			stageCount[i] = 0;
+		}
+	}
+
+	/**
+	 * Allocate the buffers between the stages. This should only be called
+	 * when the chain is configured.
+	 */
+	private void allocateBuffers()
+	{
+		buffers = new float[stages.size()][channels];
+		stageTime = new long[stages.size()];
+		stageCount = new long[stages.size()];
+	}
+}
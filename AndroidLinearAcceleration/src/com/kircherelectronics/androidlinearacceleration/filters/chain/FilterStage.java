@@ -0,0 +1,60 @@
+package com.kircherelectronics.androidlinearacceleration.filters.chain;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A stage in a FilterChain. Each stage reads the output of the previous stage
+ * and writes into a buffer that was allocated by the chain, so no memory is
+ * allocated while measurements are being filtered.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface FilterStage
+{
+	/**
+	 * Returned by a stage that did not produce an output for the measurement.
+	 */
+	public static final long NO_OUTPUT = -1;
+
+	/**
+	 * Process a measurement.
+	 * 
+	 * @param input
+	 *            the output of the previous stage.
+	 * @param output
+	 *            the buffer to write the output of the stage into.
+	 * @param timeStamp
+	 *            the time stamp of the measurement in nanoseconds.
+	 * @return the time stamp of the output, or NO_OUTPUT if the measurement
+	 *         should not be passed to the next stage.
+	 */
+	public long process(float[] input, float[] output, long timeStamp);
+
+	/**
+	 * Get the number of measurements the stage needs to see before its output
+	 * no longer depends on its initial state.
+	 * 
+	 * @return the number of measurements.
+	 */
+	public int getWarmUpLength();
+
+	/**
+	 * Reset the stage to its initial state.
+	 */
+	public void reset();
+}
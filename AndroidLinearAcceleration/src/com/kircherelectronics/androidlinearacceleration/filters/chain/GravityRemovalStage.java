@@ -0,0 +1,90 @@
+package com.kircherelectronics.androidlinearacceleration.filters.chain;
+
+import com.kircherelectronics.androidlinearacceleration.filters.LowPassFilter;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Estimates gravity with a low-pass filter and subtracts it from the
+ * acceleration to estimate the linear acceleration. This is the software
+ * equivalent of what many devices do to implement
+ * Sensor.TYPE_LINEAR_ACCELERATION and shares the same shortcomings under
+ * sustained linear acceleration.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class GravityRemovalStage implements FilterStage
+{
+	private LowPassFilter gravityFilter;
+
+	// The most recent gravity estimation, sized to the measurements.
+	private float[] gravity = new float[3];
+
+	/**
+	 * Initialize a new GravityRemovalStage object.
+	 * 
+	 * @param timeConstant
+	 *            the time constant of the gravity estimation in seconds.
+	 */
+	public GravityRemovalStage(float timeConstant)
+	{
+		gravityFilter = new LowPassFilter(timeConstant);
+	}
+
+	/**
+	 * Get the most recent gravity estimation.
+	 * 
+	 * @return the gravity estimation of each channel. The array is owned by
+	 *         the stage.
+	 */
+	public float[] getGravity()
+	{
+		return gravity;
+	}
+
+	@Override
+	public long process(float[] input, float[] output, long timeStamp)
+	{
+		float[] filtered = gravityFilter.filterFloat(input, timeStamp);
+
+		if (gravity.length != output.length)
+		{
+			gravity = new float[output.length];
+		}
+
+		for (int i = 0; i < output.length; i++)
+		{
+			gravity[i] = filtered[i];
+			output[i] = input[i] - filtered[i];
+		}
+
+		return timeStamp;
+	}
+
+	@Override
+	public int getWarmUpLength()
+	{
+		return gravityFilter.getWarmUpLength();
+	}
+
+	@Override
+	public void reset()
+	{
+		gravityFilter.reset();
+	}
+}
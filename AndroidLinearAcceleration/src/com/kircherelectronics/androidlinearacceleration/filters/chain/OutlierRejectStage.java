@@ -0,0 +1,125 @@
+package com.kircherelectronics.androidlinearacceleration.filters.chain;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Rejects measurements that jump further from the previous accepted
+ * measurement than is physically plausible and holds the previous accepted
+ * measurement instead. If too many consecutive measurements are rejected the
+ * signal is assumed to have really changed and the measurement is accepted.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class OutlierRejectStage implements FilterStage
+{
+	private boolean dataInit = false;
+
+	// The largest change between measurements on any axis.
+	private float threshold;
+
+	// The number of consecutive rejections before a measurement is accepted
+	// anyway.
+	private int maxRejections;
+
+	private int rejections = 0;
+	private long rejectedCount = 0;
+
+	// The previous accepted measurement.
+	private float[] accepted;
+
+	/**
+	 * Initialize a new OutlierRejectStage object.
+	 * 
+	 * @param threshold
+	 *            the largest change between measurements on any axis.
+	 * @param maxRejections
+	 *            the number of consecutive rejections before a measurement is
+	 *            accepted anyway.
+	 */
+	public OutlierRejectStage(float threshold, int maxRejections)
+	{
+		this.threshold = threshold;
+		this.maxRejections = maxRejections;
+	}
+
+	/**
+	 * Get the total number of rejected measurements.
+	 * 
+	 * @return the number of rejected measurements.
+	 */
+	public long getRejectedCount()
+	{
+		return rejectedCount;
+	}
+
+	@Override
+	public long process(float[] input, float[] output, long timeStamp)
+	{
+		if (!dataInit || accepted.length != input.length)
+		{
+			accepted = new float[input.length];
+			System.arraycopy(input, 0, accepted, 0, input.length);
+
+			dataInit = true;
+		}
+
+		boolean outlier = false;
+
+		for (int i = 0; i < input.length; i++)
+		{
+			if (Math.abs(input[i] - accepted[i]) > threshold)
+			{
+				outlier = true;
+				break;
+			}
+		}
+
+		if (outlier && rejections < maxRejections)
+		{
+			rejections++;
+			rejectedCount++;
+		}
+		else
+		{
+			rejections = 0;
+			System.arraycopy(input, 0, accepted, 0, input.length);
+		}
+
+		System.arraycopy(accepted, 0, output, 0, output.length);
+
+		return timeStamp;
+	}
+
+	/**
+	 * An outlier as the first measurement is held until the next accepted
+	 * measurement, which is at most the maximum number of rejections later.
+	 */
+	@Override
+	public int getWarmUpLength()
+	{
+		return maxRejections + 1;
+	}
+
+	@Override
+	public void reset()
+	{
+		dataInit = false;
+		rejections = 0;
+		rejectedCount = 0;
+	}
+}
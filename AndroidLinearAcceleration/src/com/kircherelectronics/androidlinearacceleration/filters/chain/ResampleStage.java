@@ -0,0 +1,133 @@
+package com.kircherelectronics.androidlinearacceleration.filters.chain;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Resamples the measurements to a fixed rate by linear interpolation between
+ * the measurements on either side of each output time. The sensor delivery
+ * rate jitters and varies from device to device, so resampling first gives the
+ * following stages evenly spaced measurements.
+ * 
+ * Since each stage produces at most one output per measurement, the output
+ * rate should not be higher than the sensor delivery rate. Output times that
+ * are skipped because the sensor fell behind are dropped.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class ResampleStage implements FilterStage
+{
+	private boolean dataInit = false;
+
+	// The output period in nanoseconds.
+	private long period;
+
+	// The time of the next output in nanoseconds.
+	private long nextTimeStamp;
+
+	// The previous measurement.
+	private long lastTimeStamp;
+	private float[] last;
+
+	/**
+	 * Initialize a new ResampleStage object.
+	 * 
+	 * @param frequency
+	 *            the output rate in Hz.
+	 */
+	public ResampleStage(float frequency)
+	{
+		setFrequency(frequency);
+	}
+
+	/**
+	 * Set the output rate.
+	 * 
+	 * @param frequency
+	 *            the output rate in Hz.
+	 */
+	public void setFrequency(float frequency)
+	{
+		this.period = (long) (1000000000.0 / frequency);
+	}
+
+	@Override
+	public long process(float[] input, float[] output, long timeStamp)
+	{
+		if (!dataInit || last.length != input.length)
+		{
+			last = new float[input.length];
+		}
+
+		if (!dataInit)
+		{
+			System.arraycopy(input, 0, last, 0, input.length);
+			System.arraycopy(input, 0, output, 0, output.length);
+
+			lastTimeStamp = timeStamp;
+			nextTimeStamp = timeStamp + period;
+
+			dataInit = true;
+
+			return timeStamp;
+		}
+
+		long outputTimeStamp = NO_OUTPUT;
+
+		if (timeStamp >= nextTimeStamp && timeStamp > lastTimeStamp)
+		{
+			float t = (float) (nextTimeStamp - lastTimeStamp)
+					/ (timeStamp - lastTimeStamp);
+
+			for (int i = 0; i < output.length; i++)
+			{
+				output[i] = last[i] + t * (input[i] - last[i]);
+			}
+
+			outputTimeStamp = nextTimeStamp;
+
+			// Skip any output times the sensor did not deliver measurements
+			// for.
+			nextTimeStamp += period;
+			if (nextTimeStamp <= timeStamp)
+			{
+				nextTimeStamp += ((timeStamp - nextTimeStamp) / period + 1)
+						* period;
+			}
+		}
+
+		System.arraycopy(input, 0, last, 0, input.length);
+		lastTimeStamp = timeStamp;
+
+		return outputTimeStamp;
+	}
+
+	/**
+	 * Only the previous measurement is interpolated from.
+	 */
+	@Override
+	public int getWarmUpLength()
+	{
+		return 1;
+	}
+
+	@Override
+	public void reset()
+	{
+		dataInit = false;
+	}
+}
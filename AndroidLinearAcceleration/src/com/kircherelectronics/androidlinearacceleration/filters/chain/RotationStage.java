@@ -0,0 +1,108 @@
+package com.kircherelectronics.androidlinearacceleration.filters.chain;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Rotates three axis measurements with a rotation matrix, for instance from
+ * the absolute Android orientation into a vehicle frame. The matrix is stored
+ * as primitives so the rotation is only a few multiply-adds per measurement.
+ * 
+ * Developer Note: The matrix is replaced rather than changed, so it can be
+ * set from any thread while measurements are being rotated.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class RotationStage implements FilterStage
+{
+	// The row major rotation matrix.
+	private volatile float[] matrix = new float[]
+	{ 1, 0, 0, 0, 1, 0, 0, 0, 1 };
+
+	/**
+	 * Initialize a new RotationStage object with the identity rotation.
+	 */
+	public RotationStage()
+	{
+		super();
+	}
+
+	/**
+	 * Initialize a new RotationStage object.
+	 * 
+	 * @param matrix
+	 *            the row major 3x3 rotation matrix.
+	 */
+	public RotationStage(float[] matrix)
+	{
+		setRotationMatrix(matrix);
+	}
+
+	/**
+	 * Set the rotation matrix.
+	 * 
+	 * @param matrix
+	 *            the row major 3x3 rotation matrix.
+	 */
+	public void setRotationMatrix(float[] matrix)
+	{
+		float[] rotation = new float[9];
+
+		System.arraycopy(matrix, 0, rotation, 0, 9);
+
+		this.matrix = rotation;
+	}
+
+	/**
+	 * Get the rotation matrix.
+	 * 
+	 * @return a copy of the row major 3x3 rotation matrix.
+	 */
+	public float[] getRotationMatrix()
+	{
+		return matrix.clone();
+	}
+
+	@Override
+	public long process(float[] input, float[] output, long timeStamp)
+	{
+		// Read the matrix once, in case it is replaced meanwhile.
+		float[] matrix = this.matrix;
+
+		float x = input[0];
+		float y = input[1];
+		float z = input[2];
+
+		output[0] = matrix[0] * x + matrix[1] * y + matrix[2] * z;
+		output[1] = matrix[3] * x + matrix[4] * y + matrix[5] * z;
+		output[2] = matrix[6] * x + matrix[7] * y + matrix[8] * z;
+
+		return timeStamp;
+	}
+
+	@Override
+	public int getWarmUpLength()
+	{
+		return 0;
+	}
+
+	@Override
+	public void reset()
+	{
+		// Nothing to reset.
+	}
+}
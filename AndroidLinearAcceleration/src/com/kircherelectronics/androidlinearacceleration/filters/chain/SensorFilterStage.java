@@ -0,0 +1,83 @@
+package com.kircherelectronics.androidlinearacceleration.filters.chain;
+
+import com.kircherelectronics.androidlinearacceleration.filters.BatchFilter;
+import com.kircherelectronics.androidlinearacceleration.filters.SensorFilter;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Adapts a SensorFilter, such as a MeanFilter or an IirFilter, so it can be
+ * used as a stage of a FilterChain.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class SensorFilterStage implements FilterStage
+{
+	private SensorFilter filter;
+
+	/**
+	 * Initialize a new SensorFilterStage object.
+	 * 
+	 * @param filter
+	 *            the filter.
+	 */
+	public SensorFilterStage(SensorFilter filter)
+	{
+		this.filter = filter;
+	}
+
+	/**
+	 * Get the filter of the stage.
+	 * 
+	 * @return the filter.
+	 */
+	public SensorFilter getFilter()
+	{
+		return filter;
+	}
+
+	@Override
+	public long process(float[] input, float[] output, long timeStamp)
+	{
+		float[] filtered = filter.filterFloat(input, timeStamp);
+
+		System.arraycopy(filtered, 0, output, 0, output.length);
+
+		return timeStamp;
+	}
+
+	/**
+	 * Filters without a known warm-up are assumed to have none.
+	 */
+	@Override
+	public int getWarmUpLength()
+	{
+		if (filter instanceof BatchFilter)
+		{
+			return ((BatchFilter) filter).getWarmUpLength();
+		}
+
+		return 0;
+	}
+
+	@Override
+	public void reset()
+	{
+		filter.reset();
+	}
+}
@@ -0,0 +1,220 @@
+package com.kircherelectronics.androidlinearacceleration.gauge;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * The recent path of a two dimensional measurement, drawn as a trail that
+ * fades with age. The positions are kept in a primitive ring buffer, and the
+ * trail is drawn in a few bands of equal age so a frame is a handful of
+ * drawLines calls no matter how many positions the trail holds.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class AccelerationTrail
+{
+	// The number of age bands the trail is drawn in.
+	private static final int BANDS = 8;
+
+	// The opacity of the newest band.
+	private static final int MAX_ALPHA = 255;
+
+	private int capacity;
+
+	// How long a position stays on the trail in milliseconds.
+	private long duration;
+
+	// The positions and the times they were added, oldest at head.
+	private float[] xs;
+	private float[] ys;
+	private long[] times;
+	private int head = 0;
+	private int count = 0;
+
+	// The line segments of each band, four coordinates per segment.
+	private float[][] bandPoints;
+	private int[] bandLengths;
+
+	/**
+	 * Initialize a new AccelerationTrail object.
+	 * 
+	 * @param capacity
+	 *            the most positions the trail holds.
+	 * @param duration
+	 *            how long a position stays on the trail in milliseconds.
+	 */
+	public AccelerationTrail(int capacity, long duration)
+	{
+		this.capacity = capacity;
+		this.duration = duration;
+
+		xs = new float[capacity];
+		ys = new float[capacity];
+		times = new long[capacity];
+
+		bandPoints = new float[BANDS][capacity * 4];
+		bandLengths = new int[BANDS];
+	}
+
+	/**
+	 * Add a position to the trail. The oldest position is dropped when the
+	 * trail is full.
+	 * 
+	 * @param x
+	 *            the x-axis of the position.
+	 * @param y
+	 *            the y-axis of the position.
+	 * @param time
+	 *            the time of the position in milliseconds.
+	 */
+	public void add(float x, float y, long time)
+	{
+		int tail = (head + count) % capacity;
+
+		xs[tail] = x;
+		ys[tail] = y;
+		times[tail] = time;
+
+		if (count == capacity)
+		{
+			head = (head + 1) % capacity;
+		}
+		else
+		{
+			count++;
+		}
+	}
+
+	/**
+	 * Remove all of the positions.
+	 */
+	public void clear()
+	{
+		head = 0;
+		count = 0;
+	}
+
+	/**
+	 * Get the bounds of the positions that are on the trail at a time.
+	 * 
+	 * @param bounds
+	 *            receives the bounds.
+	 * @param now
+	 *            the current time in milliseconds.
+	 * @return false if there are no positions on the trail.
+	 */
+	public boolean getBounds(RectF bounds, long now)
+	{
+		int first = getFirstVisible(now);
+
+		if (first == count)
+		{
+			return false;
+		}
+
+		int index = (head + first) % capacity;
+
+		bounds.set(xs[index], ys[index], xs[index], ys[index]);
+
+		for (int i = first + 1; i < count; i++)
+		{
+			index = (head + i) % capacity;
+
+			bounds.union(xs[index], ys[index]);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Draw the trail.
+	 * 
+	 * @param canvas
+	 *            the canvas.
+	 * @param paint
+	 *            the paint of the trail. Its alpha is changed for each band.
+	 * @param now
+	 *            the current time in milliseconds.
+	 */
+	public void draw(Canvas canvas, Paint paint, long now)
+	{
+		for (int b = 0; b < BANDS; b++)
+		{
+			bandLengths[b] = 0;
+		}
+
+		int first = getFirstVisible(now);
+
+		for (int i = first + 1; i < count; i++)
+		{
+			int previous = (head + i - 1) % capacity;
+			int index = (head + i) % capacity;
+
+			// Segments are banded by the age of their newer end.
+			int band = (int) ((now - times[index]) * BANDS / duration);
+			band = Math.max(0, Math.min(BANDS - 1, band));
+
+			float[] points = bandPoints[band];
+			int p = bandLengths[band];
+
+			points[p++] = xs[previous];
+			points[p++] = ys[previous];
+			points[p++] = xs[index];
+			points[p++] = ys[index];
+
+			bandLengths[band] = p;
+		}
+
+		for (int b = 0; b < BANDS; b++)
+		{
+			if (bandLengths[b] > 0)
+			{
+				paint.setAlpha(MAX_ALPHA * (BANDS - b) / BANDS);
+				canvas.drawLines(bandPoints[b], 0, bandLengths[b], paint);
+			}
+		}
+	}
+
+	/**
+	 * Get the oldest position that is still on the trail.
+	 * 
+	 * @param now
+	 *            the current time in milliseconds.
+	 * @return the position counted from the oldest one in the buffer, or the
+	 *         number of positions if none are on the trail.
+	 */
+	private int getFirstVisible(long now)
+	{
+		int first = count;
+
+		// The positions are in order of time, so search back from the
+		// newest.
+		while (first > 0
+				&& now - times[(head + first - 1) % capacity] <= duration)
+		{
+			first--;
+		}
+
+		return first;
+	}
+}
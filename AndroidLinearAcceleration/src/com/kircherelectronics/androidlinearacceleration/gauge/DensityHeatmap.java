@@ -0,0 +1,225 @@
+package com.kircherelectronics.androidlinearacceleration.gauge;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * A cumulative density map of where a two dimensional measurement has been,
+ * such as the g-g diagram of a vehicle. The area is divided into a fixed grid
+ * of cells that count the measurements falling into them, and the counts are
+ * drawn through a small bitmap with one pixel per cell.
+ * 
+ * Developer Note: The color of a cell only depends on its own count, on a
+ * logarithmic scale, so a new measurement changes at most one pixel of the
+ * bitmap and only when the count of its cell crosses a power of two. The
+ * bitmap is never redrawn as a whole, so the cost of a measurement and of a
+ * frame stays the same however long the session runs.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class DensityHeatmap
+{
+	// The number of colors in the palette, the first is for empty cells.
+	private static final int PALETTE_SIZE = 16;
+
+	// The opacity of the densest cells.
+	private static final int MAX_ALPHA = 200;
+
+	private int gridSize;
+
+	// The number of measurements in each cell, row by row.
+	private int[] counts;
+
+	// The total number of measurements.
+	private long total = 0;
+
+	// The color of a cell by the base two logarithm of its count.
+	private int[] palette;
+
+	// One pixel for each cell.
+	private Bitmap bitmap;
+
+	/**
+	 * Initialize a new DensityHeatmap object.
+	 * 
+	 * @param gridSize
+	 *            the number of cells along each axis.
+	 */
+	public DensityHeatmap(int gridSize)
+	{
+		this.gridSize = gridSize;
+
+		counts = new int[gridSize * gridSize];
+
+		palette = createPalette();
+
+		bitmap = Bitmap.createBitmap(gridSize, gridSize,
+				Bitmap.Config.ARGB_8888);
+		bitmap.eraseColor(Color.TRANSPARENT);
+	}
+
+	/**
+	 * Add a measurement. Measurements outside of the area are counted in the
+	 * nearest cell on the edge.
+	 * 
+	 * @param x
+	 *            the x-axis of the measurement.
+	 * @param y
+	 *            the y-axis of the measurement.
+	 * @param area
+	 *            the area the grid covers, in the same units as the
+	 *            measurement.
+	 */
+	public void add(float x, float y, RectF area)
+	{
+		int column = getCell(x, area.left, area.right);
+		int row = getCell(y, area.top, area.bottom);
+
+		int index = row * gridSize + column;
+		int count = ++counts[index];
+
+		total++;
+
+		// The color only changes when the count reaches a power of two.
+		if ((count & (count - 1)) == 0)
+		{
+			bitmap.setPixel(column, row, palette[getPaletteIndex(count)]);
+		}
+	}
+
+	/**
+	 * Remove all of the measurements.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < counts.length; i++)
+		{
+			counts[i] = 0;
+		}
+
+		total = 0;
+
+		bitmap.eraseColor(Color.TRANSPARENT);
+	}
+
+	/**
+	 * Get the total number of measurements.
+	 * 
+	 * @return the number of measurements.
+	 */
+	public long getTotal()
+	{
+		return total;
+	}
+
+	/**
+	 * Draw the map.
+	 * 
+	 * @param canvas
+	 *            the canvas.
+	 * @param area
+	 *            the area the grid covers on the canvas.
+	 * @param paint
+	 *            the paint, which should filter the bitmap so the cells
+	 *            blend.
+	 */
+	public void draw(Canvas canvas, RectF area, Paint paint)
+	{
+		canvas.drawBitmap(bitmap, null, area, paint);
+	}
+
+	/**
+	 * Get the cell of a measurement along one axis.
+	 * 
+	 * @param value
+	 *            the measurement.
+	 * @param min
+	 *            the start of the area.
+	 * @param max
+	 *            the end of the area.
+	 * @return the cell.
+	 */
+	private int getCell(float value, float min, float max)
+	{
+		int cell = (int) ((value - min) / (max - min) * gridSize);
+
+		if (cell < 0)
+		{
+			return 0;
+		}
+
+		if (cell >= gridSize)
+		{
+			return gridSize - 1;
+		}
+
+		return cell;
+	}
+
+	/**
+	 * Get the palette index of a count.
+	 * 
+	 * @param count
+	 *            the count of a cell.
+	 * @return the index, one more than the base two logarithm of the count.
+	 */
+	private int getPaletteIndex(int count)
+	{
+		int index = 32 - Integer.numberOfLeadingZeros(count);
+
+		return Math.min(index, PALETTE_SIZE - 1);
+	}
+
+	/**
+	 * Create the colors of the cells, from a faint blue for a single
+	 * measurement through green and yellow to an opaque red.
+	 * 
+	 * @return the palette.
+	 */
+	private static int[] createPalette()
+	{
+		int[] palette = new int[PALETTE_SIZE];
+
+		palette[0] = Color.TRANSPARENT;
+
+		for (int i = 1; i < PALETTE_SIZE; i++)
+		{
+			float t = (float) (i - 1) / (PALETTE_SIZE - 2);
+
+			// Blue to green over the first half, then green to red through
+			// yellow.
+			int red = (int) (255 * Math.max(0, Math.min(1, 2 * t - 0.5f)));
+			int green = (int) (255 * Math.min(1, 2 * t) * Math.min(1,
+					2.5f - 2 * t));
+			int blue = (int) (255 * Math.max(0, 1 - 2 * t));
+
+			int alpha = (int) (MAX_ALPHA * (0.3f + 0.7f * t));
+
+			palette[i] = Color.argb(alpha, red, green, Math.min(255, blue));
+		}
+
+		return palette;
+	}
+}
@@ -11,11 +11,13 @@ import android.graphics.Paint;
 import android.graphics.RectF;
 import android.graphics.Shader;
 import android.hardware.SensorManager;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.view.TextureView;
 import android.view.View;
 
+import com.kircherelectronics.androidlinearacceleration.view.RenderScheduler;
+
 /*
  * Low-Pass Linear Acceleration
  * Copyright (C) 2013, Kaleb Kircher - Boki Software, Kircher Engineering, LLC
@@ -96,11 +98,31 @@ public final class GaugeAcceleration extends View
 
 	private static final String tag = GaugeAcceleration.class.getSimpleName();
 
+	// The radius of the measurement point relative to the width of the view.
+	private static final float POINT_RADIUS = 0.025f;
+
+	// The space the shadow and anti-aliasing of the point can cover outside
+	// its radius, relative to the width of the view.
+	private static final float POINT_MARGIN = 0.02f;
+
+	// The most positions on the trail and how long they stay on it in
+	// milliseconds.
+	private static final int TRAIL_CAPACITY = 512;
+	private static final long TRAIL_DURATION = 5000;
+
+	// The width of the trail relative to the width of the view.
+	private static final float TRAIL_WIDTH = 0.008f;
+
+	// The number of cells along each axis of the density heatmap.
+	private static final int HEATMAP_GRID_SIZE = 64;
+
 	// holds the cached static part
 	private Bitmap background;
 
 	private Paint backgroundPaint;
 	private Paint pointPaint;
+	private Paint trailPaint;
+	private Paint heatmapPaint;
 	private Paint rimPaint;
 	private Paint rimShadowPaint;
 
@@ -125,6 +147,22 @@ public final class GaugeAcceleration extends View
 
 	private int color = 0;
 
+	// The recent positions of the point.
+	private AccelerationTrail trail;
+	private boolean trailEnabled = false;
+
+	// The bounds of the trail when it was last drawn.
+	private RectF trailBounds;
+	private RectF newTrailBounds;
+	private boolean trailVisible = false;
+
+	// The density of all the positions of the point.
+	private DensityHeatmap heatmap;
+	private boolean heatmapEnabled = false;
+
+	// The time of the most recent position in milliseconds.
+	private long updateTime = 0;
+
 	/**
 	 * Create a new instance.
 	 * 
@@ -173,14 +211,100 @@ public final class GaugeAcceleration extends View
 	 */
 	public void updatePoint(float x, float y, int color)
 	{
+		float oldX = this.x;
+		float oldY = this.y;
+
+		updateTime = SystemClock.uptimeMillis();
+
 		this.x = ((faceRect.right - faceRect.left) / (SensorManager.GRAVITY_EARTH * 2))
 				* x + faceRect.centerX();
 		this.y = ((faceRect.bottom - faceRect.top) / (SensorManager.GRAVITY_EARTH * 2))
 				* y + faceRect.centerY();
 
 		this.color = color;
-		
-		this.invalidate();
+
+		// Only redraw where the point was and where it is now. The cell of
+		// the heatmap that can change is under the point.
+		float scale = (float) getWidth();
+		float extent = POINT_RADIUS + POINT_MARGIN;
+
+		float left = Math.min(oldX, this.x) - extent;
+		float top = Math.min(oldY, this.y) - extent;
+		float right = Math.max(oldX, this.x) + extent;
+		float bottom = Math.max(oldY, this.y) + extent;
+
+		if (heatmapEnabled)
+		{
+			heatmap.add(this.x, this.y, faceRect);
+		}
+
+		if (trailEnabled)
+		{
+			trail.add(this.x, this.y, updateTime);
+
+			// The trail has to be redrawn where it was, to fade and drop old
+			// positions, and where it is now.
+			if (trailVisible)
+			{
+				left = Math.min(left, trailBounds.left - TRAIL_WIDTH);
+				top = Math.min(top, trailBounds.top - TRAIL_WIDTH);
+				right = Math.max(right, trailBounds.right + TRAIL_WIDTH);
+				bottom = Math.max(bottom, trailBounds.bottom + TRAIL_WIDTH);
+			}
+
+			trailVisible = trail.getBounds(newTrailBounds, updateTime);
+
+			if (trailVisible)
+			{
+				left = Math.min(left, newTrailBounds.left - TRAIL_WIDTH);
+				top = Math.min(top, newTrailBounds.top - TRAIL_WIDTH);
+				right = Math.max(right, newTrailBounds.right + TRAIL_WIDTH);
+				bottom = Math.max(bottom, newTrailBounds.bottom
+						+ TRAIL_WIDTH);
+
+				trailBounds.set(newTrailBounds);
+			}
+		}
+
+		RenderScheduler.getInstance().requestRender(this,
+				(int) (left * scale), (int) (top * scale),
+				(int) Math.ceil(right * scale),
+				(int) Math.ceil(bottom * scale));
+	}
+
+	/**
+	 * Show the recent positions of the point as a fading trail.
+	 * 
+	 * @param enabled
+	 *            true to show the trail.
+	 */
+	public void setTrailEnabled(boolean enabled)
+	{
+		trailEnabled = enabled;
+
+		trail.clear();
+		trailVisible = false;
+
+		RenderScheduler.getInstance().requestRender(this);
+	}
+
+	/**
+	 * Show the density of all the positions of the point since the heatmap
+	 * was enabled.
+	 * 
+	 * @param enabled
+	 *            true to show the heatmap.
+	 */
+	public void setHeatmapEnabled(boolean enabled)
+	{
+		heatmapEnabled = enabled;
+
+		if (enabled)
+		{
+			heatmap.clear();
+		}
+
+		RenderScheduler.getInstance().requestRender(this);
 	}
 
 	/**
@@ -263,6 +387,21 @@ public final class GaugeAcceleration extends View
 
 		backgroundPaint = new Paint();
 		backgroundPaint.setFilterBitmap(true);
+
+		trailPaint = new Paint();
+		trailPaint.setAntiAlias(true);
+		trailPaint.setStyle(Paint.Style.STROKE);
+		trailPaint.setStrokeWidth(TRAIL_WIDTH);
+
+		// Filter the heatmap so the cells blend into each other.
+		heatmapPaint = new Paint();
+		heatmapPaint.setFilterBitmap(true);
+
+		trail = new AccelerationTrail(TRAIL_CAPACITY, TRAIL_DURATION);
+		trailBounds = new RectF();
+		newTrailBounds = new RectF();
+
+		heatmap = new DensityHeatmap(HEATMAP_GRID_SIZE);
 	}
 
 	/**
@@ -366,7 +505,7 @@ public final class GaugeAcceleration extends View
 	{
 		canvas.save(Canvas.MATRIX_SAVE_FLAG);
 		pointPaint.setColor(this.color);
-		canvas.drawCircle(this.x, this.y, 0.025f, pointPaint);
+		canvas.drawCircle(this.x, this.y, POINT_RADIUS, pointPaint);
 		canvas.restore();
 	}
 
@@ -396,11 +535,32 @@ public final class GaugeAcceleration extends View
 		canvas.save(Canvas.MATRIX_SAVE_FLAG);
 		canvas.scale(scale, scale);
 
+		if (heatmapEnabled)
+		{
+			heatmap.draw(canvas, faceRect, heatmapPaint);
+		}
+
+		if (trailEnabled)
+		{
+			drawTrail(canvas);
+		}
+
 		drawPoint(canvas);
 
 		canvas.restore();
 	}
 
+	/**
+	 * Draw the trail of the measurement point.
+	 * 
+	 * @param canvas
+	 */
+	private void drawTrail(Canvas canvas)
+	{
+		trailPaint.setColor(this.color);
+		trail.draw(canvas, trailPaint, updateTime);
+	}
+
 	/**
 	 * Indicate the desired size of the canvas has changed.
 	 */
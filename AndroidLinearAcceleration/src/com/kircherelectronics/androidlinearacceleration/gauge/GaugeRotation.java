@@ -16,6 +16,9 @@ import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
 
+import com.kircherelectronics.androidlinearacceleration.statistics.WindowedStatistics;
+import com.kircherelectronics.androidlinearacceleration.view.RenderScheduler;
+
 /*
  * Low-Pass Linear Acceleration
  * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
@@ -102,6 +105,9 @@ public final class GaugeRotation extends View
 
 	private static final String tag = GaugeRotation.class.getSimpleName();
 
+	// The number of frames in the draw time statistics.
+	private static final int DRAW_STATISTICS_SIZE = 120;
+
 	// drawing tools
 	private RectF rimOuterRect;
 	private RectF rimTopRect;
@@ -113,12 +119,14 @@ public final class GaugeRotation extends View
 	// Keep static bitmaps of the gauge so we only have to redraw if we have to
 	// Static bitmap for the bezel of the gauge
 	private Bitmap bezelBitmap;
-	// Static bitmap for the face of the gauge
-	private Bitmap faceBitmap;
 
 	// Keep track of the rotation of the device
 	private float[] rotation = new float[3];
 
+	// The time onDraw() takes in milliseconds, over the most recent frames.
+	private WindowedStatistics drawStatistics = new WindowedStatistics(
+			DRAW_STATISTICS_SIZE);
+
 	// Rectangle to draw the earth section of the gauge face
 	private RectF earthRect;
 	// Rectangle to draw the face of the gauge
@@ -207,7 +215,28 @@ public final class GaugeRotation extends View
 		this.rotation[1] = this.rotation[1]/SensorManager.GRAVITY_EARTH;
 		this.rotation[2] = this.rotation[2]/SensorManager.GRAVITY_EARTH;
 
-		this.invalidate();
+		RenderScheduler.getInstance().requestRender(this);
+	}
+
+	/**
+	 * Get the average time onDraw() took over the most recent frames. This
+	 * only covers recording the drawing commands, not rendering them.
+	 * 
+	 * @return the average draw time in milliseconds.
+	 */
+	public float getAverageDrawTime()
+	{
+		return (float) drawStatistics.getMean();
+	}
+
+	/**
+	 * Get the longest time onDraw() took over the most recent frames.
+	 * 
+	 * @return the longest draw time in milliseconds.
+	 */
+	public float getMaxDrawTime()
+	{
+		return (float) drawStatistics.getMax();
 	}
 
 	private void initDrawingTools()
@@ -275,9 +304,11 @@ public final class GaugeRotation extends View
 		skyRect.set(rimRect.left + rimSize, rimRect.top + rimSize,
 				rimRect.right - rimSize, rimRect.bottom - rimSize);
 
+		// The face is drawn over the whole rim so the rim only shows above
+		// the horizon.
 		skyBackgroundRect = new RectF();
-		skyBackgroundRect.set(rimRect.left + rimSize, rimRect.top + rimSize,
-				rimRect.right - rimSize, rimRect.bottom - rimSize);
+		skyBackgroundRect.set(rimRect.left, rimRect.top, rimRect.right,
+				rimRect.bottom);
 
 		// now set to black
 		skyPaint = new Paint();
@@ -403,51 +434,17 @@ public final class GaugeRotation extends View
 	}
 
 	/**
-	 * Draw the gauge face.
+	 * Draw the gauge face. The face below the horizon is a circular segment,
+	 * so it is drawn directly as an arc closed by its chord and rotated with
+	 * the canvas. Nothing is allocated, the canvas must already be scaled to
+	 * the width of the view.
 	 * 
 	 * @param canvas
 	 */
 	private void drawFace(Canvas canvas)
 	{
-		// free the old bitmap
-		if (faceBitmap != null)
-		{
-			faceBitmap.recycle();
-		}
-
-		faceBitmap = Bitmap.createBitmap(getWidth(), getHeight(),
-				Bitmap.Config.ARGB_8888);
-
-		Canvas faceCanvas = new Canvas(faceBitmap);
-		float scale = (float) getWidth();
-		faceCanvas.scale(scale, scale);
-
-		skyBackgroundRect.set(rimRect.left, rimRect.top, rimRect.right,
-				rimRect.bottom);
-
-		faceCanvas.drawArc(skyBackgroundRect, 0, 360, true, skyPaint);
-
-		int[] allpixels = new int[faceBitmap.getHeight()
-				* faceBitmap.getWidth()];
-
-		faceBitmap.getPixels(allpixels, 0, faceBitmap.getWidth(), 0, 0,
-				faceBitmap.getWidth(), faceBitmap.getHeight());
-
-		for (int i = 0; i < faceBitmap.getHeight() * faceBitmap.getWidth(); i++)
-		{
-			allpixels[i] = Color.TRANSPARENT;
-		}
-
-		int height = (int) ((faceBitmap.getHeight() / 2) - ((faceBitmap
-				.getHeight() / 2.5) * -rotation[1]));
-
-		if (height > faceBitmap.getHeight())
-		{
-			height = faceBitmap.getHeight();
-		}
-
-		faceBitmap.setPixels(allpixels, 0, faceBitmap.getWidth(), 0, 0,
-				faceBitmap.getWidth(), height);
+		// The height of the horizon across the face, normalized to the view.
+		float horizon = 0.5f + 0.4f * rotation[1];
 
 		float x = rotation[0];
 
@@ -465,11 +462,29 @@ public final class GaugeRotation extends View
 		// http://www.st.com/web/en/resource/technical/document/application_note/CD00268887.pdf
 		float angle = (float) (Math.asin(x) * 57.2957795);
 
+		float radius = skyBackgroundRect.width() / 2f;
+
+		// The distance of the horizon below the center of the face.
+		float distance = horizon - skyBackgroundRect.centerY();
+
 		canvas.save(Canvas.MATRIX_SAVE_FLAG);
-		canvas.rotate(-angle, faceBitmap.getWidth() / 2f,
-				faceBitmap.getHeight() / 2f);
+		canvas.rotate(-angle, 0.5f, 0.5f);
+
+		if (distance <= -radius)
+		{
+			// The horizon is above the face.
+			canvas.drawOval(skyBackgroundRect, skyPaint);
+		}
+		else if (distance < radius)
+		{
+			// Half of the angle the segment below the horizon spans, centered
+			// on the bottom of the face at 90 degrees.
+			float sweep = (float) (Math.acos(distance / radius) * 57.2957795);
+
+			canvas.drawArc(skyBackgroundRect, 90 - sweep, 2 * sweep, false,
+					skyPaint);
+		}
 
-		canvas.drawBitmap(faceBitmap, 0, 0, backgroundPaint);
 		canvas.restore();
 	}
 
@@ -523,14 +538,19 @@ public final class GaugeRotation extends View
 	@Override
 	protected void onDraw(Canvas canvas)
 	{
+		long start = System.nanoTime();
+
 		drawBezel(canvas);
-		drawFace(canvas);
 
 		float scale = (float) getWidth();
 		canvas.save(Canvas.MATRIX_SAVE_FLAG);
 		canvas.scale(scale, scale);
 
+		drawFace(canvas);
+
 		canvas.restore();
+
+		drawStatistics.add((System.nanoTime() - start) / 1000000.0);
 	}
 
 }
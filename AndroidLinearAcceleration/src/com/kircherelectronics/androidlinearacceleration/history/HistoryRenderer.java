@@ -0,0 +1,281 @@
+package com.kircherelectronics.androidlinearacceleration.history;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.kircherelectronics.androidlinearacceleration.render.SurfaceRenderer;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Draws part of a recorded session from its summary. The level is chosen so
+ * there are between one and two entries for each pixel of the plot, and each
+ * entry is drawn as a bar from its minimum to its maximum with a line through
+ * the means. The cost of a frame only depends on the width of the plot, no
+ * matter how long the session is or how far it is zoomed out.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class HistoryRenderer implements SurfaceRenderer
+{
+	private static final int LINE_WIDTH = 2;
+
+	// The space between the plot and the edges of the surface in pixels.
+	private static final int PADDING = 15;
+
+	private SummarySource source;
+
+	private Paint[] seriesPaints;
+	private Paint[] rangePaints;
+	private Paint axisPaint;
+
+	// The entries of a channel that are visible.
+	private float[] min = new float[0];
+	private float[] max = new float[0];
+	private float[] mean = new float[0];
+
+	// The line segments of a channel, four coordinates per segment.
+	private float[] points = new float[0];
+
+	private final Object viewportLock = new Object();
+
+	// The visible part of the session in samples, guarded by viewportLock.
+	private double start = 0;
+	private double span = 1;
+
+	// The range of the plot, written by the UI thread.
+	private volatile float maxRange = 10;
+	private volatile float minRange = -10;
+
+	private int width;
+	private int height;
+
+	/**
+	 * Initialize a new HistoryRenderer object.
+	 * 
+	 * @param source
+	 *            the summary of the session.
+	 * @param colors
+	 *            the color of each channel.
+	 */
+	public HistoryRenderer(SummarySource source, int[] colors)
+	{
+		this.source = source;
+
+		seriesPaints = new Paint[source.getChannelCount()];
+		rangePaints = new Paint[source.getChannelCount()];
+
+		for (int i = 0; i < seriesPaints.length; i++)
+		{
+			seriesPaints[i] = new Paint();
+			seriesPaints[i].setAntiAlias(true);
+			seriesPaints[i].setStyle(Paint.Style.STROKE);
+			seriesPaints[i].setColor(colors[i]);
+			seriesPaints[i].setStrokeWidth(LINE_WIDTH);
+
+			// The range of an entry is drawn fainter than its mean.
+			rangePaints[i] = new Paint();
+			rangePaints[i].setStyle(Paint.Style.STROKE);
+			rangePaints[i].setColor(colors[i]);
+			rangePaints[i].setAlpha(96);
+			rangePaints[i].setStrokeWidth(1);
+		}
+
+		axisPaint = new Paint();
+		axisPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+		axisPaint.setColor(Color.rgb(119, 119, 119));
+		axisPaint.setStrokeWidth(2);
+	}
+
+	/**
+	 * Set the part of the session that is visible.
+	 * 
+	 * @param start
+	 *            the first visible sample.
+	 * @param span
+	 *            the number of visible samples.
+	 */
+	public void setViewport(double start, double span)
+	{
+		synchronized (viewportLock)
+		{
+			this.start = start;
+			this.span = Math.max(1, span);
+		}
+	}
+
+	/**
+	 * Set the max range of the plot.
+	 * 
+	 * @param maxRange
+	 *            The maximum range of the plot.
+	 */
+	public void setMaxRange(float maxRange)
+	{
+		this.maxRange = maxRange;
+	}
+
+	/**
+	 * Set the min range of the plot.
+	 * 
+	 * @param minRange
+	 *            The minimum range of the plot.
+	 */
+	public void setMinRange(float minRange)
+	{
+		this.minRange = minRange;
+	}
+
+	@Override
+	public void onSurfaceChanged(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+
+		// At most two entries for each pixel, plus the partial entries at
+		// both edges.
+		int capacity = 2 * Math.max(1, width) + 4;
+
+		min = new float[capacity];
+		max = new float[capacity];
+		mean = new float[capacity];
+
+		points = new float[capacity * 4];
+	}
+
+	@Override
+	public void onDrawFrame(Canvas canvas)
+	{
+		double start;
+		double span;
+
+		synchronized (viewportLock)
+		{
+			start = this.start;
+			span = this.span;
+		}
+
+		canvas.drawColor(Color.BLACK);
+
+		float left = PADDING;
+		float top = PADDING;
+		float plotWidth = width - 2 * PADDING;
+		float plotHeight = height - 2 * PADDING;
+
+		float maxValue = maxRange;
+		float minValue = minRange;
+
+		float yScale = plotHeight / (maxValue - minValue);
+
+		canvas.clipRect(left, top, left + plotWidth, top + plotHeight);
+
+		// Draw the origin of the range.
+		float origin = top + maxValue * yScale;
+		canvas.drawLine(left, origin, left + plotWidth, origin, axisPaint);
+
+		if (source.getLevelCount() == 0 || plotWidth < 1)
+		{
+			return;
+		}
+
+		int level = getLevel(span / plotWidth);
+		int entrySpan = 1 << level;
+
+		int first = Math.max(0, (int) Math.floor(start / entrySpan));
+		int last = Math.min(source.getSize(level),
+				(int) Math.ceil((start + span) / entrySpan) + 1);
+
+		int count = Math.min(last - first, min.length);
+
+		if (count < 1)
+		{
+			return;
+		}
+
+		float xScale = (float) (plotWidth / span);
+
+		// The x coordinate of the center of the first entry.
+		float x0 = left
+				+ (float) (first * (double) entrySpan + entrySpan * 0.5 - start)
+				* xScale;
+		float dx = entrySpan * xScale;
+
+		for (int c = 0; c < seriesPaints.length; c++)
+		{
+			source.read(level, c, first, count, min, max, mean);
+
+			int p = 0;
+
+			if (level > 0)
+			{
+				for (int i = 0; i < count; i++)
+				{
+					float x = x0 + i * dx;
+
+					points[p++] = x;
+					points[p++] = top + (maxValue - max[i]) * yScale;
+					points[p++] = x;
+					points[p++] = top + (maxValue - min[i]) * yScale;
+				}
+
+				canvas.drawLines(points, 0, p, rangePaints[c]);
+
+				p = 0;
+			}
+
+			float y = top + (maxValue - mean[0]) * yScale;
+
+			for (int i = 1; i < count; i++)
+			{
+				float y1 = top + (maxValue - mean[i]) * yScale;
+
+				points[p++] = x0 + (i - 1) * dx;
+				points[p++] = y;
+				points[p++] = x0 + i * dx;
+				points[p++] = y1;
+
+				y = y1;
+			}
+
+			canvas.drawLines(points, 0, p, seriesPaints[c]);
+		}
+	}
+
+	/**
+	 * Get the level with between one and two entries for each pixel.
+	 * 
+	 * @param samplesPerPixel
+	 *            the number of samples covered by a pixel.
+	 * @return the level.
+	 */
+	private int getLevel(double samplesPerPixel)
+	{
+		int level = 0;
+
+		while (level < source.getLevelCount() - 1
+				&& (2 << level) <= samplesPerPixel)
+		{
+			level++;
+		}
+
+		return level;
+	}
+}
@@ -0,0 +1,314 @@
+package com.kircherelectronics.androidlinearacceleration.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Reads a summary file in place through memory mapped regions, so sessions
+ * of any length can be scrolled without loading them onto the Java heap.
+ * 
+ * Developer Note: The file is mapped in regions of REGION_SIZE bytes and at
+ * most MAX_REGIONS of them are mapped at once, least recently used first out.
+ * The memory a session can pin is therefore bounded no matter how long the
+ * session is, and the pages themselves belong to the page cache, which the
+ * system can reclaim. A frame only reads about one entry per pixel from
+ * contiguous entries of a single level, so it usually touches one region.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class MappedSummary implements SummarySource
+{
+	// The size of a mapped region in bytes, a multiple of the size of a
+	// float so no value straddles two regions.
+	private static final int REGION_SIZE = 1024 * 1024;
+
+	// The most regions that are mapped at once.
+	private static final int MAX_REGIONS = 8;
+
+	private RandomAccessFile file;
+	private FileChannel channel;
+
+	private long fileSize;
+
+	private int channelCount;
+	private float samplePeriod;
+	private int sampleCount;
+	private int levelCount;
+
+	// The position of each level in the file in bytes.
+	private long[] levelOffsets;
+
+	// The mapped regions, their index in the file and when they were last
+	// used.
+	private FloatBuffer[] regions = new FloatBuffer[MAX_REGIONS];
+	private long[] regionIndices = new long[MAX_REGIONS];
+	private long[] regionUses = new long[MAX_REGIONS];
+	private long uses = 0;
+
+	// The region read most recently.
+	private FloatBuffer lastRegion;
+	private long lastRegionIndex = -1;
+
+	/**
+	 * Open a summary file.
+	 * 
+	 * @param path
+	 *            the file.
+	 * @throws IOException
+	 *             if the file can not be read or is not a summary file.
+	 */
+	public MappedSummary(File path) throws IOException
+	{
+		file = new RandomAccessFile(path, "r");
+
+		try
+		{
+			channel = file.getChannel();
+			fileSize = channel.size();
+
+			readHeader(path);
+		}
+		catch (IOException e)
+		{
+			file.close();
+			throw e;
+		}
+
+		for (int i = 0; i < MAX_REGIONS; i++)
+		{
+			regionIndices[i] = -1;
+		}
+	}
+
+	/**
+	 * Close the file. The regions are unmapped when they are collected.
+	 * 
+	 * @throws IOException
+	 *             if the file can not be closed.
+	 */
+	public synchronized void close() throws IOException
+	{
+		for (int i = 0; i < MAX_REGIONS; i++)
+		{
+			regions[i] = null;
+			regionIndices[i] = -1;
+		}
+
+		lastRegion = null;
+		lastRegionIndex = -1;
+
+		file.close();
+	}
+
+	@Override
+	public int getChannelCount()
+	{
+		return channelCount;
+	}
+
+	@Override
+	public float getSamplePeriod()
+	{
+		return samplePeriod;
+	}
+
+	@Override
+	public int getLevelCount()
+	{
+		return levelCount;
+	}
+
+	@Override
+	public int getSize(int level)
+	{
+		return sampleCount >> level;
+	}
+
+	@Override
+	public synchronized void read(int level, int channel, int offset,
+			int count, float[] min, float[] max, float[] mean)
+	{
+		int stride = SummaryPyramid.getStride(channelCount, level);
+
+		if (level == 0)
+		{
+			long position = levelOffsets[0] + 4L
+					* ((long) offset * stride + channel);
+
+			for (int i = 0; i < count; i++)
+			{
+				float value = getFloat(position);
+
+				min[i] = value;
+				max[i] = value;
+				mean[i] = value;
+
+				position += 4L * stride;
+			}
+		}
+		else
+		{
+			long position = levelOffsets[level] + 4L
+					* ((long) offset * stride + channel
+							* SummaryPyramid.STATISTICS);
+
+			for (int i = 0; i < count; i++)
+			{
+				min[i] = getFloat(position);
+				max[i] = getFloat(position + 4);
+				mean[i] = getFloat(position + 8);
+
+				position += 4L * stride;
+			}
+		}
+	}
+
+	/**
+	 * Read a value from the file.
+	 * 
+	 * @param position
+	 *            the position of the value in bytes.
+	 * @return the value.
+	 */
+	private float getFloat(long position)
+	{
+		long index = position / REGION_SIZE;
+
+		if (index != lastRegionIndex)
+		{
+			lastRegion = getRegion(index);
+			lastRegionIndex = index;
+		}
+
+		return lastRegion.get((int) (position % REGION_SIZE) >> 2);
+	}
+
+	/**
+	 * Get a mapped region, mapping it in place of the least recently used
+	 * one if it is not mapped.
+	 * 
+	 * @param index
+	 *            the index of the region in the file.
+	 * @return the values of the region.
+	 */
+	private FloatBuffer getRegion(long index)
+	{
+		int oldest = 0;
+
+		for (int i = 0; i < MAX_REGIONS; i++)
+		{
+			if (regionIndices[i] == index)
+			{
+				regionUses[i] = ++uses;
+				return regions[i];
+			}
+
+			if (regionUses[i] < regionUses[oldest])
+			{
+				oldest = i;
+			}
+		}
+
+		long start = index * REGION_SIZE;
+		long size = Math.min(REGION_SIZE, fileSize - start);
+
+		try
+		{
+			ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+					start, size);
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+			regions[oldest] = mapped.asFloatBuffer();
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException("Could not map the summary file",
+					e);
+		}
+
+		regionIndices[oldest] = index;
+		regionUses[oldest] = ++uses;
+
+		return regions[oldest];
+	}
+
+	/**
+	 * Read and check the header of the file.
+	 * 
+	 * @param path
+	 *            the file.
+	 * @throws IOException
+	 *             if the file is not a summary file.
+	 */
+	private void readHeader(File path) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(SummaryPyramid.HEADER_SIZE);
+		header.order(ByteOrder.LITTLE_ENDIAN);
+
+		while (header.hasRemaining())
+		{
+			if (channel.read(header) < 0)
+			{
+				throw new IOException("Not a summary file: " + path);
+			}
+		}
+
+		header.flip();
+
+		if (header.getInt() != SummaryPyramid.MAGIC
+				|| header.getInt() != SummaryPyramid.VERSION)
+		{
+			throw new IOException("Not a summary file: " + path);
+		}
+
+		channelCount = header.getInt();
+		samplePeriod = header.getFloat();
+		long samples = header.getLong();
+
+		if (channelCount <= 0 || samples < 0 || samples > Integer.MAX_VALUE)
+		{
+			throw new IOException("Corrupt summary file: " + path);
+		}
+
+		sampleCount = (int) samples;
+		levelCount = SummaryPyramid.getLevelCount(sampleCount);
+
+		levelOffsets = new long[levelCount + 1];
+
+		for (int i = 0; i <= levelCount; i++)
+		{
+			levelOffsets[i] = SummaryPyramid.getLevelOffset(channelCount,
+					sampleCount, i);
+		}
+
+		// The end of the last level must be inside the file.
+		if (levelOffsets[levelCount] > fileSize)
+		{
+			throw new IOException("Unexpected end of summary file: " + path);
+		}
+	}
+}
@@ -0,0 +1,517 @@
+package com.kircherelectronics.androidlinearacceleration.history;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Builds the summary levels of a session incrementally as the samples are
+ * captured, and persists them next to the log so that reopening a session
+ * does not require scanning it again.
+ * 
+ * Developer Note: Adding a sample appends it to level 0, and every time a
+ * level gets an even number of entries the last two are combined into a new
+ * entry of the level above. Each sample therefore costs O(1) amortized work,
+ * and the levels together hold about three times as many values as level 0.
+ * The file format is a small header followed by each level in order, so the
+ * position of any entry can be computed from the header alone.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class SummaryPyramid implements SummarySource
+{
+	// Identifies a summary file, "LAPY".
+	static final int MAGIC = 0x4C415059;
+
+	// The version of the file format.
+	static final int VERSION = 1;
+
+	// The magic number, version, channel count, sample period and sample
+	// count.
+	static final int HEADER_SIZE = 24;
+
+	// The number of values stored for an entry of a level above level 0.
+	static final int STATISTICS = 3;
+
+	// Levels can not have more entries than an int can count.
+	private static final int MAX_LEVELS = 32;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// The size of the buffer used to read and write files.
+	private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+	private int channelCount;
+
+	private float samplePeriod;
+
+	private int levelCount = 0;
+
+	// The values of each level. Level 0 has one value per channel for each
+	// entry, the other levels have the minimum, maximum and mean.
+	private float[][] levels = new float[MAX_LEVELS][];
+
+	// The number of entries in each level.
+	private int[] sizes = new int[MAX_LEVELS];
+
+	/**
+	 * Initialize a new SummaryPyramid object.
+	 * 
+	 * @param channelCount
+	 *            the number of channels.
+	 * @param samplePeriod
+	 *            the time between two samples in seconds.
+	 */
+	public SummaryPyramid(int channelCount, float samplePeriod)
+	{
+		this.channelCount = channelCount;
+		this.samplePeriod = samplePeriod;
+	}
+
+	/**
+	 * Get the number of values stored for each entry of a level.
+	 * 
+	 * @param channelCount
+	 *            the number of channels.
+	 * @param level
+	 *            the level.
+	 * @return the number of values in an entry.
+	 */
+	static int getStride(int channelCount, int level)
+	{
+		return (level == 0) ? channelCount : channelCount * STATISTICS;
+	}
+
+	/**
+	 * Get the number of levels of a session.
+	 * 
+	 * @param sampleCount
+	 *            the number of samples.
+	 * @return the number of levels.
+	 */
+	static int getLevelCount(int sampleCount)
+	{
+		int levels = 0;
+
+		while ((sampleCount >> levels) > 0)
+		{
+			levels++;
+		}
+
+		return levels;
+	}
+
+	/**
+	 * Get the position of a level in a summary file.
+	 * 
+	 * @param channelCount
+	 *            the number of channels.
+	 * @param sampleCount
+	 *            the number of samples.
+	 * @param level
+	 *            the level.
+	 * @return the offset of the first value of the level in bytes.
+	 */
+	static long getLevelOffset(int channelCount, int sampleCount, int level)
+	{
+		long offset = HEADER_SIZE;
+
+		for (int i = 0; i < level; i++)
+		{
+			offset += 4L * (sampleCount >> i) * getStride(channelCount, i);
+		}
+
+		return offset;
+	}
+
+	/**
+	 * Read a summary file into memory.
+	 * 
+	 * @param file
+	 *            the file.
+	 * @return the summary.
+	 * @throws IOException
+	 *             if the file can not be read or is not a summary file.
+	 */
+	public static SummaryPyramid read(File file) throws IOException
+	{
+		FileInputStream stream = new FileInputStream(file);
+
+		try
+		{
+			FileChannel channel = stream.getChannel();
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+
+			readFully(channel, header, HEADER_SIZE);
+
+			if (header.getInt() != MAGIC || header.getInt() != VERSION)
+			{
+				throw new IOException("Not a summary file: " + file);
+			}
+
+			int channelCount = header.getInt();
+			float samplePeriod = header.getFloat();
+			long sampleCount = header.getLong();
+
+			if (channelCount <= 0 || sampleCount < 0
+					|| sampleCount > Integer.MAX_VALUE)
+			{
+				throw new IOException("Corrupt summary file: " + file);
+			}
+
+			SummaryPyramid pyramid = new SummaryPyramid(channelCount,
+					samplePeriod);
+
+			pyramid.levelCount = getLevelCount((int) sampleCount);
+
+			ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.flip();
+
+			for (int level = 0; level < pyramid.levelCount; level++)
+			{
+				int size = (int) (sampleCount >> level);
+				float[] values = new float[size
+						* getStride(channelCount, level)];
+
+				for (int i = 0; i < values.length; i++)
+				{
+					if (buffer.remaining() < 4)
+					{
+						buffer.compact();
+						readFully(channel, buffer, 4);
+					}
+
+					values[i] = buffer.getFloat();
+				}
+
+				pyramid.levels[level] = values;
+				pyramid.sizes[level] = size;
+			}
+
+			return pyramid;
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+	/**
+	 * Write the summary to a file.
+	 * 
+	 * @param file
+	 *            the file.
+	 * @throws IOException
+	 *             if the file can not be written.
+	 */
+	public void write(File file) throws IOException
+	{
+		FileOutputStream stream = new FileOutputStream(file);
+
+		try
+		{
+			FileChannel channel = stream.getChannel();
+
+			ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(channelCount);
+			buffer.putFloat(samplePeriod);
+			buffer.putLong(sizes[0]);
+
+			for (int level = 0; level < levelCount; level++)
+			{
+				float[] values = levels[level];
+				int length = sizes[level] * getStride(channelCount, level);
+
+				for (int i = 0; i < length; i++)
+				{
+					if (!buffer.hasRemaining())
+					{
+						writeFully(channel, buffer);
+					}
+
+					buffer.putFloat(values[i]);
+				}
+			}
+
+			writeFully(channel, buffer);
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+	/**
+	 * Add a sample to every channel.
+	 * 
+	 * @param values
+	 *            one value for each channel.
+	 */
+	public void add(float[] values)
+	{
+		if (levelCount == 0)
+		{
+			levelCount = 1;
+		}
+
+		float[] level0 = ensureCapacity(0);
+
+		System.arraycopy(values, 0, level0, sizes[0] * channelCount,
+				channelCount);
+
+		sizes[0]++;
+
+		int level = 0;
+
+		// Combine the last two entries of a level whenever it has an even
+		// number of them.
+		while ((sizes[level] & 1) == 0)
+		{
+			combine(level);
+			level++;
+		}
+	}
+
+	/**
+	 * Remove all of the samples.
+	 */
+	public void clear()
+	{
+		for (int i = 0; i < MAX_LEVELS; i++)
+		{
+			sizes[i] = 0;
+		}
+
+		levelCount = 0;
+	}
+
+	@Override
+	public int getChannelCount()
+	{
+		return channelCount;
+	}
+
+	@Override
+	public float getSamplePeriod()
+	{
+		return samplePeriod;
+	}
+
+	@Override
+	public int getLevelCount()
+	{
+		return levelCount;
+	}
+
+	@Override
+	public int getSize(int level)
+	{
+		return sizes[level];
+	}
+
+	@Override
+	public void read(int level, int channel, int offset, int count,
+			float[] min, float[] max, float[] mean)
+	{
+		float[] values = levels[level];
+
+		if (level == 0)
+		{
+			int index = offset * channelCount + channel;
+
+			for (int i = 0; i < count; i++)
+			{
+				float value = values[index];
+
+				min[i] = value;
+				max[i] = value;
+				mean[i] = value;
+
+				index += channelCount;
+			}
+		}
+		else
+		{
+			int stride = channelCount * STATISTICS;
+			int index = offset * stride + channel * STATISTICS;
+
+			for (int i = 0; i < count; i++)
+			{
+				min[i] = values[index];
+				max[i] = values[index + 1];
+				mean[i] = values[index + 2];
+
+				index += stride;
+			}
+		}
+	}
+
+	/**
+	 * Combine the last two entries of a level into a new entry of the level
+	 * above.
+	 * 
+	 * @param level
+	 *            the level.
+	 */
+	private void combine(int level)
+	{
+		int parent = level + 1;
+
+		if (parent == levelCount)
+		{
+			levelCount++;
+		}
+
+		float[] source = levels[level];
+		float[] target = ensureCapacity(parent);
+
+		int t = sizes[parent] * channelCount * STATISTICS;
+
+		if (level == 0)
+		{
+			int a = (sizes[0] - 2) * channelCount;
+			int b = a + channelCount;
+
+			for (int c = 0; c < channelCount; c++)
+			{
+				float first = source[a + c];
+				float second = source[b + c];
+
+				target[t++] = Math.min(first, second);
+				target[t++] = Math.max(first, second);
+				target[t++] = (first + second) * 0.5f;
+			}
+		}
+		else
+		{
+			int stride = channelCount * STATISTICS;
+			int a = (sizes[level] - 2) * stride;
+			int b = a + stride;
+
+			for (int c = 0; c < stride; c += STATISTICS)
+			{
+				target[t++] = Math.min(source[a + c], source[b + c]);
+				target[t++] = Math.max(source[a + c + 1], source[b + c + 1]);
+
+				// Both entries cover the same number of samples.
+				target[t++] = (source[a + c + 2] + source[b + c + 2]) * 0.5f;
+			}
+		}
+
+		sizes[parent]++;
+	}
+
+	/**
+	 * Make sure a level has room for one more entry.
+	 * 
+	 * @param level
+	 *            the level.
+	 * @return the values of the level.
+	 */
+	private float[] ensureCapacity(int level)
+	{
+		int stride = getStride(channelCount, level);
+		float[] values = levels[level];
+
+		if (values == null)
+		{
+			values = new float[Math.max(1, INITIAL_CAPACITY >> level) * stride];
+			levels[level] = values;
+		}
+		else if ((sizes[level] + 1) * stride > values.length)
+		{
+			float[] grown = new float[values.length * 2];
+			System.arraycopy(values, 0, grown, 0, sizes[level] * stride);
+
+			values = grown;
+			levels[level] = values;
+		}
+
+		return values;
+	}
+
+	/**
+	 * Fill a buffer from a channel.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @param buffer
+	 *            the buffer, which is flipped for reading when it is full or
+	 *            the end of the channel is reached.
+	 * @param minimum
+	 *            the number of bytes that must be available.
+	 * @throws IOException
+	 *             if the channel ends before the minimum could be read.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer,
+			int minimum) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer) < 0)
+			{
+				break;
+			}
+		}
+
+		buffer.flip();
+
+		if (buffer.remaining() < minimum)
+		{
+			throw new IOException("Unexpected end of summary file");
+		}
+	}
+
+	/**
+	 * Write the contents of a buffer to a channel and clear it.
+	 * 
+	 * @param channel
+	 *            the channel.
+	 * @param buffer
+	 *            the buffer.
+	 * @throws IOException
+	 *             if the buffer can not be written.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException
+	{
+		buffer.flip();
+
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+
+		buffer.clear();
+	}
+}
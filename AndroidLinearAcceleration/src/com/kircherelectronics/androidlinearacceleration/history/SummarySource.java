@@ -0,0 +1,85 @@
+package com.kircherelectronics.androidlinearacceleration.history;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * A summary of a recorded session at several resolutions. Level 0 holds the
+ * samples themselves and each level above it holds the minimum, maximum and
+ * mean of two entries of the level below, so it has half the resolution. Any
+ * part of the session can then be drawn at any zoom by reading the level
+ * with about one entry per pixel.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface SummarySource
+{
+	/**
+	 * Get the number of channels.
+	 * 
+	 * @return the number of channels.
+	 */
+	public int getChannelCount();
+
+	/**
+	 * Get the time between two samples of level 0.
+	 * 
+	 * @return the sample period in seconds.
+	 */
+	public float getSamplePeriod();
+
+	/**
+	 * Get the number of levels.
+	 * 
+	 * @return the number of levels.
+	 */
+	public int getLevelCount();
+
+	/**
+	 * Get the number of entries in a level. An entry of level k covers 2^k
+	 * samples.
+	 * 
+	 * @param level
+	 *            the level.
+	 * @return the number of entries.
+	 */
+	public int getSize(int level);
+
+	/**
+	 * Read a range of entries of one channel. For level 0 the minimum,
+	 * maximum and mean are all the sample itself.
+	 * 
+	 * @param level
+	 *            the level.
+	 * @param channel
+	 *            the channel.
+	 * @param offset
+	 *            the first entry.
+	 * @param count
+	 *            the number of entries.
+	 * @param min
+	 *            receives the minimum of each entry.
+	 * @param max
+	 *            receives the maximum of each entry.
+	 * @param mean
+	 *            receives the mean of each entry.
+	 */
+	public void read(int level, int channel, int offset, int count,
+			float[] min, float[] max, float[] mean);
+}
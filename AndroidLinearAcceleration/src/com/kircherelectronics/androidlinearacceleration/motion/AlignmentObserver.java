@@ -0,0 +1,38 @@
+package com.kircherelectronics.androidlinearacceleration.motion;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * An observer of a MountingAlignment. Classes that rotate measurements into
+ * the vehicle frame should do so with this interface.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface AlignmentObserver
+{
+	/**
+	 * Notify observers when the mounting of the device has been estimated.
+	 * This is called on the thread of the alignment.
+	 * 
+	 * @param rotation
+	 *            the row major 3x3 matrix that rotates the measurements the
+	 *            alignment was given into the vehicle frame, with x to the
+	 *            right, y forward and z up.
+	 */
+	public void onAlignmentEstimated(float[] rotation);
+}
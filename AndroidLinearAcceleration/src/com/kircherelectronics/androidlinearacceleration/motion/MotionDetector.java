@@ -0,0 +1,265 @@
+package com.kircherelectronics.androidlinearacceleration.motion;
+
+import java.util.ArrayList;
+
+import android.hardware.SensorManager;
+
+import com.kircherelectronics.androidlinearacceleration.sensor.observer.AccelerationSensorObserver;
+import com.kircherelectronics.androidlinearacceleration.statistics.WindowedStatistics;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Detects when the device is at rest from its acceleration, including
+ * gravity. The device is at rest when the mean magnitude of its acceleration
+ * is close to gravity and the acceleration of each axis barely varies over a
+ * short window. Observers are told of every transition between rest and
+ * motion.
+ * 
+ * Developer Note: The tests use hysteresis so noise near a threshold does not
+ * make the state flicker. Leaving rest takes a single window that fails the
+ * looser thresholds, while coming to rest takes windows that pass the
+ * stricter thresholds for the whole hold time. The windows are kept by
+ * WindowedStatistics, so each measurement costs constant time and allocates
+ * nothing.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class MotionDetector implements AccelerationSensorObserver
+{
+	// The number of measurements in a window.
+	private static final int DEFAULT_WINDOW_SIZE = 32;
+
+	// The largest sum of the variances of the axes at rest in (m/s^2)^2.
+	private static final float DEFAULT_VARIANCE_THRESHOLD = 0.005f;
+
+	// The largest difference between the mean magnitude and gravity at rest
+	// in m/s^2.
+	private static final float DEFAULT_MAGNITUDE_THRESHOLD = 0.3f;
+
+	// The ratio of the thresholds for leaving rest to the thresholds for
+	// coming to rest.
+	private static final float HYSTERESIS = 4;
+
+	// How long the device must be still to come to rest in nanoseconds.
+	private static final long DEFAULT_HOLD_TIME = 250000000L;
+
+	private ArrayList<MotionObserver> observers;
+
+	private WindowedStatistics xStatistics;
+	private WindowedStatistics yStatistics;
+	private WindowedStatistics zStatistics;
+	private WindowedStatistics magnitudeStatistics;
+
+	private float varianceThreshold = DEFAULT_VARIANCE_THRESHOLD;
+	private float magnitudeThreshold = DEFAULT_MAGNITUDE_THRESHOLD;
+
+	private long holdTime = DEFAULT_HOLD_TIME;
+
+	private boolean stationary = false;
+
+	// The time the device was first still since it last moved, or -1 if it
+	// is not still.
+	private long stillSince = -1;
+
+	/**
+	 * Initialize a new MotionDetector object.
+	 */
+	public MotionDetector()
+	{
+		this(DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Initialize a new MotionDetector object.
+	 * 
+	 * @param windowSize
+	 *            the number of measurements in a window.
+	 */
+	public MotionDetector(int windowSize)
+	{
+		observers = new ArrayList<MotionObserver>();
+
+		xStatistics = new WindowedStatistics(windowSize);
+		yStatistics = new WindowedStatistics(windowSize);
+		zStatistics = new WindowedStatistics(windowSize);
+		magnitudeStatistics = new WindowedStatistics(windowSize);
+	}
+
+	/**
+	 * Register for transitions between rest and motion.
+	 * 
+	 * @param observer
+	 *            The observer to be registered.
+	 */
+	public void registerMotionObserver(MotionObserver observer)
+	{
+		// Only register the observer if it is not already registered.
+		int i = observers.indexOf(observer);
+		if (i == -1)
+		{
+			observers.add(observer);
+		}
+	}
+
+	/**
+	 * Remove an observer of transitions between rest and motion.
+	 * 
+	 * @param observer
+	 *            The observer to be removed.
+	 */
+	public void removeMotionObserver(MotionObserver observer)
+	{
+		int i = observers.indexOf(observer);
+		if (i >= 0)
+		{
+			observers.remove(i);
+		}
+	}
+
+	/**
+	 * Set the thresholds for coming to rest. The thresholds for leaving rest
+	 * are a fixed multiple of them.
+	 * 
+	 * @param varianceThreshold
+	 *            the largest sum of the variances of the axes in (m/s^2)^2.
+	 * @param magnitudeThreshold
+	 *            the largest difference between the mean magnitude and
+	 *            gravity in m/s^2.
+	 */
+	public void setThresholds(float varianceThreshold, float magnitudeThreshold)
+	{
+		this.varianceThreshold = varianceThreshold;
+		this.magnitudeThreshold = magnitudeThreshold;
+	}
+
+	/**
+	 * Set how long the device must be still to come to rest.
+	 * 
+	 * @param holdTime
+	 *            the hold time in nanoseconds.
+	 */
+	public void setHoldTime(long holdTime)
+	{
+		this.holdTime = holdTime;
+	}
+
+	/**
+	 * Indicate if the device is at rest.
+	 * 
+	 * @return true if the device is at rest.
+	 */
+	public boolean isStationary()
+	{
+		return stationary;
+	}
+
+	@Override
+	public void onAccelerationSensorChanged(float[] acceleration,
+			long timeStamp)
+	{
+		add(acceleration[0], acceleration[1], acceleration[2], timeStamp);
+	}
+
+	/**
+	 * Add a measurement.
+	 * 
+	 * @param x
+	 *            the acceleration of the x-axis in m/s^2.
+	 * @param y
+	 *            the acceleration of the y-axis in m/s^2.
+	 * @param z
+	 *            the acceleration of the z-axis in m/s^2.
+	 * @param timeStamp
+	 *            the time of the measurement in nanoseconds.
+	 */
+	public void add(float x, float y, float z, long timeStamp)
+	{
+		xStatistics.add(x);
+		yStatistics.add(y);
+		zStatistics.add(z);
+		magnitudeStatistics.add(Math.sqrt(x * x + y * y + z * z));
+
+		// Wait for a full window.
+		if (magnitudeStatistics.getCount() < magnitudeStatistics
+				.getWindowSize())
+		{
+			return;
+		}
+
+		double variance = xStatistics.getVariance()
+				+ yStatistics.getVariance() + zStatistics.getVariance();
+		double magnitudeError = Math.abs(magnitudeStatistics.getMean()
+				- SensorManager.GRAVITY_EARTH);
+
+		if (stationary)
+		{
+			if (variance > varianceThreshold * HYSTERESIS
+					|| magnitudeError > magnitudeThreshold * HYSTERESIS)
+			{
+				stationary = false;
+				stillSince = -1;
+
+				notifyMotionObservers(false, timeStamp);
+			}
+		}
+		else if (variance < varianceThreshold
+				&& magnitudeError < magnitudeThreshold)
+		{
+			if (stillSince < 0)
+			{
+				stillSince = timeStamp;
+			}
+			else if (timeStamp - stillSince >= holdTime)
+			{
+				stationary = true;
+
+				notifyMotionObservers(true, stillSince);
+			}
+		}
+		else
+		{
+			stillSince = -1;
+		}
+	}
+
+	/**
+	 * Forget all measurements and start in motion.
+	 */
+	public void reset()
+	{
+		xStatistics.reset();
+		yStatistics.reset();
+		zStatistics.reset();
+		magnitudeStatistics.reset();
+
+		stationary = false;
+		stillSince = -1;
+	}
+
+	/**
+	 * Notify observers of a transition.
+	 */
+	private void notifyMotionObservers(boolean stationary, long timeStamp)
+	{
+		for (int i = 0; i < observers.size(); i++)
+		{
+			observers.get(i).onMotionChanged(stationary, timeStamp);
+		}
+	}
+}
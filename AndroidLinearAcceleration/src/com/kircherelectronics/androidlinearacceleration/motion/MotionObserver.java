@@ -0,0 +1,41 @@
+package com.kircherelectronics.androidlinearacceleration.motion;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * An observer of a MotionDetector. Classes that need to know when the device
+ * comes to rest or starts moving should do so with this interface.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface MotionObserver
+{
+	/**
+	 * Notify observers when the device comes to rest or starts moving.
+	 * 
+	 * @param stationary
+	 *            true if the device has come to rest.
+	 * @param timeStamp
+	 *            the time of the transition in nanoseconds. The device is
+	 *            only known to be at rest once it has been still for a while,
+	 *            so a transition to rest carries the time the device became
+	 *            still, which is earlier than the measurement that confirmed
+	 *            it.
+	 */
+	public void onMotionChanged(boolean stationary, long timeStamp);
+}
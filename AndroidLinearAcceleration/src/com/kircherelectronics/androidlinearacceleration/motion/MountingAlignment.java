@@ -0,0 +1,534 @@
+package com.kircherelectronics.androidlinearacceleration.motion;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.kircherelectronics.androidlinearacceleration.sensor.observer.AccelerationSensorObserver;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Estimates how a device is mounted in a vehicle from its acceleration. Up
+ * is the direction of gravity while the vehicle is at rest. Forward is the
+ * horizontal direction the vehicle accelerates in when it launches from rest,
+ * and the opposite of the one it decelerates in when it brakes to a stop.
+ * Once both are known well enough the rotation into the vehicle frame is
+ * published and the alignment stops.
+ * 
+ * Developer Note: Measurements are copied into batches on the sensor thread
+ * and the estimate is updated from the batches on a thread of its own, so
+ * delivering a measurement only costs a copy. The batches are reused; if the
+ * alignment falls behind, new measurements are dropped rather than stalling
+ * the sensor. Cornering accelerates the vehicle horizontally as much as
+ * launching and braking do, so only the acceleration just after leaving
+ * rest and just before coming to rest is used, and the launches and stops
+ * have to agree on the direction before it is accepted.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class MountingAlignment implements AccelerationSensorObserver,
+		MotionObserver
+{
+	// The number of measurements in a batch.
+	private static final int BATCH_SIZE = 64;
+
+	// The number of batches that can be queued for the alignment.
+	private static final int BATCH_COUNT = 8;
+
+	// The largest sum of the variances of the axes at rest in (m/s^2)^2,
+	// loose enough for the vibration of an idling engine.
+	private static final float VARIANCE_THRESHOLD = 0.02f;
+
+	// The largest difference between the mean magnitude and gravity at rest
+	// in m/s^2.
+	private static final float MAGNITUDE_THRESHOLD = 0.3f;
+
+	// The fewest measurements at rest for the direction of gravity.
+	private static final int MIN_REST_COUNT = 100;
+
+	// The fewest launches and stops for the forward direction.
+	private static final int MIN_EVENT_COUNT = 3;
+
+	// The smallest mean horizontal acceleration of the launches and stops
+	// along the forward direction in m/s^2.
+	private static final double MIN_FORWARD_ACCELERATION = 0.3;
+
+	// The smallest ratio of the horizontal evidence to the sum of the
+	// horizontal accelerations of the launches and stops, 1 if they all
+	// point the same way.
+	private static final double MIN_COHERENCE = 0.7;
+
+	// How long after leaving rest the acceleration counts as a launch, and
+	// the time constant of the acceleration that counts as braking when the
+	// vehicle stops, in nanoseconds.
+	private static final long LAUNCH_TIME = 3000000000L;
+	private static final long BRAKING_TIME = 1000000000L;
+
+	private ArrayList<AlignmentObserver> observers;
+
+	// The batches that are free to be filled.
+	private ArrayBlockingQueue<Batch> freeBatches;
+
+	// The batch that is being filled on the sensor thread.
+	private Batch batch;
+
+	private ExecutorService worker;
+
+	private volatile boolean complete = false;
+
+	// The number of measurements that were dropped.
+	private volatile long droppedCount = 0;
+
+	// Everything from here on is only used on the thread of the alignment.
+
+	private MotionDetector motionDetector;
+
+	private boolean stationary = false;
+
+	// The sum of the measurements at rest.
+	private double[] restSum = new double[3];
+	private long restCount = 0;
+
+	// The evidence for the forward direction, launches minus stops.
+	private double[] evidence = new double[3];
+	private int eventCount = 0;
+
+	// The sum of the magnitudes of the horizontal accelerations of the
+	// launches and stops.
+	private double magnitudeSum = 0;
+
+	// The time the vehicle left rest, or -1 if it is not launching.
+	private long launchTime = -1;
+	private double[] launchSum = new double[3];
+	private long launchCount = 0;
+
+	// The recent mean acceleration in motion, which is braking when the
+	// vehicle comes to rest.
+	private double[] recent = new double[3];
+
+	// The acceleration of the vehicle in the current measurement.
+	private double[] difference = new double[3];
+
+	private long lastTime = -1;
+
+	/**
+	 * Initialize a new MountingAlignment object.
+	 */
+	public MountingAlignment()
+	{
+		observers = new ArrayList<AlignmentObserver>();
+
+		freeBatches = new ArrayBlockingQueue<Batch>(BATCH_COUNT);
+
+		for (int i = 0; i < BATCH_COUNT; i++)
+		{
+			freeBatches.add(new Batch());
+		}
+
+		motionDetector = new MotionDetector();
+		motionDetector.setThresholds(VARIANCE_THRESHOLD, MAGNITUDE_THRESHOLD);
+		motionDetector.registerMotionObserver(this);
+
+		worker = Executors.newSingleThreadExecutor();
+	}
+
+	/**
+	 * Register for the estimated mounting.
+	 * 
+	 * @param observer
+	 *            The observer to be registered.
+	 */
+	public void registerAlignmentObserver(AlignmentObserver observer)
+	{
+		// Only register the observer if it is not already registered.
+		int i = observers.indexOf(observer);
+		if (i == -1)
+		{
+			observers.add(observer);
+		}
+	}
+
+	/**
+	 * Remove an observer of the estimated mounting.
+	 * 
+	 * @param observer
+	 *            The observer to be removed.
+	 */
+	public void removeAlignmentObserver(AlignmentObserver observer)
+	{
+		int i = observers.indexOf(observer);
+		if (i >= 0)
+		{
+			observers.remove(i);
+		}
+	}
+
+	/**
+	 * Indicate if the mounting has been estimated.
+	 * 
+	 * @return true if the mounting has been estimated.
+	 */
+	public boolean isComplete()
+	{
+		return complete;
+	}
+
+	/**
+	 * Get the number of measurements that were dropped because the alignment
+	 * fell behind.
+	 * 
+	 * @return the number of measurements.
+	 */
+	public long getDroppedCount()
+	{
+		return droppedCount;
+	}
+
+	@Override
+	public void onAccelerationSensorChanged(float[] acceleration,
+			long timeStamp)
+	{
+		if (complete)
+		{
+			return;
+		}
+
+		if (batch == null)
+		{
+			batch = freeBatches.poll();
+
+			if (batch == null)
+			{
+				droppedCount++;
+
+				return;
+			}
+
+			batch.size = 0;
+		}
+
+		batch.times[batch.size] = timeStamp;
+		System.arraycopy(acceleration, 0, batch.values, batch.size * 3, 3);
+
+		if (++batch.size == BATCH_SIZE)
+		{
+			worker.execute(batch);
+
+			batch = null;
+		}
+	}
+
+	@Override
+	public void onMotionChanged(boolean stationary, long timeStamp)
+	{
+		this.stationary = stationary;
+
+		if (restCount < MIN_REST_COUNT)
+		{
+			return;
+		}
+
+		if (stationary)
+		{
+			// The vehicle braked to a stop. A launch that was too short to
+			// complete does not count.
+			if (launchTime < 0)
+			{
+				addEvent(recent, -1);
+			}
+
+			launchTime = -1;
+		}
+		else
+		{
+			launchTime = timeStamp;
+			launchCount = 0;
+
+			for (int i = 0; i < 3; i++)
+			{
+				launchSum[i] = 0;
+				recent[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Forget all measurements and start a new alignment. This is called on
+	 * the sensor thread.
+	 */
+	public void reset()
+	{
+		if (batch != null)
+		{
+			freeBatches.offer(batch);
+
+			batch = null;
+		}
+
+		// Batches that are still queued must not publish the old estimate,
+		// and new measurements wait for the reset.
+		complete = true;
+		droppedCount = 0;
+
+		worker.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				resetEstimate();
+			}
+		});
+	}
+
+	/**
+	 * Stop the thread of the alignment.
+	 */
+	public void shutdown()
+	{
+		worker.shutdown();
+	}
+
+	/**
+	 * Add a measurement on the thread of the alignment.
+	 */
+	private void add(float x, float y, float z, long timeStamp)
+	{
+		motionDetector.add(x, y, z, timeStamp);
+
+		double dt = (lastTime < 0) ? 0 : timeStamp - lastTime;
+
+		lastTime = timeStamp;
+
+		if (stationary)
+		{
+			restSum[0] += x;
+			restSum[1] += y;
+			restSum[2] += z;
+			restCount++;
+
+			return;
+		}
+
+		if (restCount < MIN_REST_COUNT)
+		{
+			return;
+		}
+
+		// The acceleration of the vehicle is what is left of gravity.
+		difference[0] = x - restSum[0] / restCount;
+		difference[1] = y - restSum[1] / restCount;
+		difference[2] = z - restSum[2] / restCount;
+
+		double alpha = Math.min(1, dt / BRAKING_TIME);
+
+		for (int i = 0; i < 3; i++)
+		{
+			recent[i] += alpha * (difference[i] - recent[i]);
+		}
+
+		if (launchTime >= 0)
+		{
+			if (timeStamp - launchTime <= LAUNCH_TIME)
+			{
+				for (int i = 0; i < 3; i++)
+				{
+					launchSum[i] += difference[i];
+				}
+
+				launchCount++;
+			}
+			else
+			{
+				if (launchCount > 0)
+				{
+					for (int i = 0; i < 3; i++)
+					{
+						launchSum[i] /= launchCount;
+					}
+
+					addEvent(launchSum, 1);
+				}
+
+				launchTime = -1;
+			}
+		}
+	}
+
+	/**
+	 * Add the mean acceleration of a launch or a stop to the evidence for the
+	 * forward direction.
+	 * 
+	 * @param acceleration
+	 *            the mean acceleration of the vehicle.
+	 * @param sign
+	 *            1 for a launch, -1 for a stop.
+	 */
+	private void addEvent(double[] acceleration, int sign)
+	{
+		double[] up = normalize(restSum);
+
+		double vertical = acceleration[0] * up[0] + acceleration[1] * up[1]
+				+ acceleration[2] * up[2];
+
+		double horizontal = 0;
+
+		for (int i = 0; i < 3; i++)
+		{
+			double a = acceleration[i] - vertical * up[i];
+
+			evidence[i] += sign * a;
+
+			horizontal += a * a;
+		}
+
+		magnitudeSum += Math.sqrt(horizontal);
+
+		eventCount++;
+	}
+
+	/**
+	 * Estimate the rotation into the vehicle frame on the thread of the
+	 * alignment.
+	 * 
+	 * @return the row major rotation matrix, or null if the mounting is not
+	 *         known well enough yet.
+	 */
+	private float[] estimate()
+	{
+		if (restCount < MIN_REST_COUNT || eventCount < MIN_EVENT_COUNT)
+		{
+			return null;
+		}
+
+		double[] up = normalize(restSum);
+
+		// Gravity may have been refined since the first events, so the
+		// evidence is made horizontal again.
+		double vertical = evidence[0] * up[0] + evidence[1] * up[1]
+				+ evidence[2] * up[2];
+
+		double[] forward = new double[3];
+
+		for (int i = 0; i < 3; i++)
+		{
+			forward[i] = evidence[i] - vertical * up[i];
+		}
+
+		double magnitude = Math.sqrt(forward[0] * forward[0] + forward[1]
+				* forward[1] + forward[2] * forward[2]);
+
+		if (magnitude / eventCount < MIN_FORWARD_ACCELERATION
+				|| magnitude < MIN_COHERENCE * magnitudeSum)
+		{
+			return null;
+		}
+
+		forward = normalize(forward);
+
+		double[] right = cross(forward, up);
+
+		return new float[]
+		{ (float) right[0], (float) right[1], (float) right[2],
+				(float) forward[0], (float) forward[1], (float) forward[2],
+				(float) up[0], (float) up[1], (float) up[2] };
+	}
+
+	/**
+	 * Forget the estimate on the thread of the alignment.
+	 */
+	private void resetEstimate()
+	{
+		motionDetector.reset();
+
+		complete = false;
+
+		stationary = false;
+
+		for (int i = 0; i < 3; i++)
+		{
+			restSum[i] = 0;
+			evidence[i] = 0;
+			launchSum[i] = 0;
+			recent[i] = 0;
+		}
+
+		restCount = 0;
+		eventCount = 0;
+		magnitudeSum = 0;
+		launchTime = -1;
+		launchCount = 0;
+		lastTime = -1;
+	}
+
+	private static double[] cross(double[] a, double[] b)
+	{
+		return new double[]
+		{ a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2],
+				a[0] * b[1] - a[1] * b[0] };
+	}
+
+	private static double[] normalize(double[] v)
+	{
+		double norm = Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+
+		return new double[]
+		{ v[0] / norm, v[1] / norm, v[2] / norm };
+	}
+
+	/**
+	 * A batch of measurements that is filled on the sensor thread and added
+	 * to the estimate on the thread of the alignment.
+	 */
+	private class Batch implements Runnable
+	{
+		private long[] times = new long[BATCH_SIZE];
+		private float[] values = new float[BATCH_SIZE * 3];
+		private int size = 0;
+
+		@Override
+		public void run()
+		{
+			for (int i = 0; i < size; i++)
+			{
+				add(values[i * 3], values[i * 3 + 1], values[i * 3 + 2],
+						times[i]);
+			}
+
+			freeBatches.offer(this);
+
+			if (complete)
+			{
+				return;
+			}
+
+			float[] rotation = estimate();
+
+			if (rotation != null)
+			{
+				complete = true;
+
+				for (int i = 0; i < observers.size(); i++)
+				{
+					observers.get(i).onAlignmentEstimated(rotation);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,346 @@
+package com.kircherelectronics.androidlinearacceleration.motion;
+
+import java.util.ArrayList;
+
+import com.kircherelectronics.androidlinearacceleration.sensor.observer.LinearAccelerationSensorObserver;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Integrates linear acceleration into velocity and displacement. Velocity is
+ * integrated with the trapezoidal rule and displacement with Simpson's rule
+ * over each interval between sensor events, using the time stamps of the
+ * events. The acceleration is integrated in the frame of the device, so the
+ * estimates are only meaningful while the device does not rotate, as with a
+ * device mounted in a vehicle.
+ * 
+ * Developer Note: Integration drifts, so the integrator is also a
+ * MotionObserver. While the device is at rest the velocity is held at zero.
+ * When a motion segment ends, the velocity left over is taken as drift that
+ * grew linearly over the segment, and it is removed from the whole segment:
+ * the velocity of each sample loses its share of the drift and the
+ * displacement loses the integral of that share. The most recent samples of
+ * the segment are kept in a bounded buffer and corrected in place; older
+ * samples are dropped, but the correction of the current state does not
+ * depend on them. The correction costs one pass over the buffer per segment,
+ * so every sample stays constant time.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class VelocityIntegrator implements LinearAccelerationSensorObserver,
+		MotionObserver
+{
+	// The number of samples of a segment that are kept for correction.
+	private static final int DEFAULT_SEGMENT_CAPACITY = 4096;
+
+	// The longest gap between events that is integrated in nanoseconds.
+	// Longer gaps mean events were lost, and are skipped.
+	private static final long MAX_INTERVAL = 500000000L;
+
+	private static final double NS_TO_S = 1.0 / 1000000000.0;
+
+	private ArrayList<VelocityObserver> observers;
+
+	// The current estimates.
+	private double[] velocity = new double[3];
+	private double[] displacement = new double[3];
+
+	// The estimates handed to observers.
+	private float[] velocityOutput = new float[3];
+	private float[] displacementOutput = new float[3];
+
+	// The acceleration and time of the previous event.
+	private double[] lastAcceleration = new double[3];
+	private long lastTimeStamp = 0;
+
+	private boolean stationary = false;
+
+	// The time the current motion segment started.
+	private long segmentStart = 0;
+
+	// The most recent samples of the segment, oldest at segmentHead.
+	private int segmentCapacity;
+	private long[] segmentTimes;
+	private float[] segmentVelocities;
+	private float[] segmentDisplacements;
+	private int segmentHead = 0;
+	private int segmentSize = 0;
+
+	/**
+	 * Initialize a new VelocityIntegrator object.
+	 */
+	public VelocityIntegrator()
+	{
+		this(DEFAULT_SEGMENT_CAPACITY);
+	}
+
+	/**
+	 * Initialize a new VelocityIntegrator object.
+	 * 
+	 * @param segmentCapacity
+	 *            the number of samples of a segment that are kept for
+	 *            correction.
+	 */
+	public VelocityIntegrator(int segmentCapacity)
+	{
+		this.segmentCapacity = segmentCapacity;
+
+		observers = new ArrayList<VelocityObserver>();
+
+		segmentTimes = new long[segmentCapacity];
+		segmentVelocities = new float[segmentCapacity * 3];
+		segmentDisplacements = new float[segmentCapacity * 3];
+	}
+
+	/**
+	 * Register for velocity and displacement estimates.
+	 * 
+	 * @param observer
+	 *            The observer to be registered.
+	 */
+	public void registerVelocityObserver(VelocityObserver observer)
+	{
+		// Only register the observer if it is not already registered.
+		int i = observers.indexOf(observer);
+		if (i == -1)
+		{
+			observers.add(observer);
+		}
+	}
+
+	/**
+	 * Remove an observer of velocity and displacement estimates.
+	 * 
+	 * @param observer
+	 *            The observer to be removed.
+	 */
+	public void removeVelocityObserver(VelocityObserver observer)
+	{
+		int i = observers.indexOf(observer);
+		if (i >= 0)
+		{
+			observers.remove(i);
+		}
+	}
+
+	@Override
+	public void onLinearAccelerationSensorChanged(float[] linearAcceleration,
+			long timeStamp)
+	{
+		// Without a transition, the first event starts a segment.
+		if (lastTimeStamp == 0 && !stationary)
+		{
+			segmentStart = timeStamp;
+		}
+
+		long interval = timeStamp - lastTimeStamp;
+
+		if (!stationary && lastTimeStamp != 0 && interval > 0
+				&& interval <= MAX_INTERVAL)
+		{
+			double dt = interval * NS_TO_S;
+
+			for (int i = 0; i < 3; i++)
+			{
+				double a0 = lastAcceleration[i];
+				double a1 = linearAcceleration[i];
+
+				// Simpson's rule over the interval, with the velocity at its
+				// middle from the linear acceleration.
+				displacement[i] += velocity[i] * dt + (2 * a0 + a1) * dt * dt
+						/ 6;
+
+				// The trapezoidal rule.
+				velocity[i] += (a0 + a1) * dt / 2;
+			}
+
+			addSegmentSample(timeStamp);
+		}
+
+		for (int i = 0; i < 3; i++)
+		{
+			lastAcceleration[i] = linearAcceleration[i];
+		}
+
+		lastTimeStamp = timeStamp;
+
+		notifyVelocityObservers(timeStamp);
+	}
+
+	@Override
+	public void onMotionChanged(boolean stationary, long timeStamp)
+	{
+		if (stationary == this.stationary)
+		{
+			return;
+		}
+
+		this.stationary = stationary;
+
+		if (stationary)
+		{
+			correctSegment();
+		}
+		else
+		{
+			// The velocity is zero at the start of a segment.
+			segmentStart = (lastTimeStamp != 0) ? lastTimeStamp : timeStamp;
+			segmentHead = 0;
+			segmentSize = 0;
+		}
+	}
+
+	/**
+	 * Get the number of samples of the most recent segment that are kept.
+	 * 
+	 * @return the number of samples.
+	 */
+	public int getSegmentSize()
+	{
+		return segmentSize;
+	}
+
+	/**
+	 * Get a sample of the most recent segment. Once the segment has ended
+	 * the sample is corrected for drift.
+	 * 
+	 * @param index
+	 *            the sample, 0 is the oldest that is kept.
+	 * @param velocity
+	 *            receives the velocity (x, y, z) in m/s.
+	 * @param displacement
+	 *            receives the displacement (x, y, z) in m.
+	 * @return the time of the sample in nanoseconds.
+	 */
+	public long getSegmentSample(int index, float[] velocity,
+			float[] displacement)
+	{
+		int slot = (segmentHead + index) % segmentCapacity;
+
+		System.arraycopy(segmentVelocities, slot * 3, velocity, 0, 3);
+		System.arraycopy(segmentDisplacements, slot * 3, displacement, 0, 3);
+
+		return segmentTimes[slot];
+	}
+
+	/**
+	 * Clear the estimates and start at rest at the origin.
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < 3; i++)
+		{
+			velocity[i] = 0;
+			displacement[i] = 0;
+			lastAcceleration[i] = 0;
+		}
+
+		lastTimeStamp = 0;
+		stationary = false;
+
+		segmentStart = 0;
+		segmentHead = 0;
+		segmentSize = 0;
+	}
+
+	/**
+	 * Keep the current estimates as the newest sample of the segment,
+	 * dropping the oldest if the buffer is full.
+	 */
+	private void addSegmentSample(long timeStamp)
+	{
+		if (segmentSize == segmentCapacity)
+		{
+			segmentHead = (segmentHead + 1) % segmentCapacity;
+			segmentSize--;
+		}
+
+		int slot = (segmentHead + segmentSize) % segmentCapacity;
+
+		segmentTimes[slot] = timeStamp;
+
+		for (int i = 0; i < 3; i++)
+		{
+			segmentVelocities[slot * 3 + i] = (float) velocity[i];
+			segmentDisplacements[slot * 3 + i] = (float) displacement[i];
+		}
+
+		segmentSize++;
+	}
+
+	/**
+	 * Remove the drift of the segment that just ended, assuming it grew
+	 * linearly from zero at the start of the segment, and stop.
+	 */
+	private void correctSegment()
+	{
+		double duration = (lastTimeStamp - segmentStart) * NS_TO_S;
+
+		if (segmentStart != 0 && duration > 0)
+		{
+			for (int j = 0; j < segmentSize; j++)
+			{
+				int slot = (segmentHead + j) % segmentCapacity;
+
+				double t = (segmentTimes[slot] - segmentStart) * NS_TO_S;
+
+				for (int i = 0; i < 3; i++)
+				{
+					double drift = velocity[i] / duration;
+
+					segmentVelocities[slot * 3 + i] -= drift * t;
+					segmentDisplacements[slot * 3 + i] -= drift * t * t / 2;
+				}
+			}
+
+			for (int i = 0; i < 3; i++)
+			{
+				displacement[i] -= velocity[i] * duration / 2;
+			}
+
+			for (int i = 0; i < observers.size(); i++)
+			{
+				observers.get(i).onSegmentCorrected(segmentStart,
+						lastTimeStamp);
+			}
+		}
+
+		for (int i = 0; i < 3; i++)
+		{
+			velocity[i] = 0;
+		}
+	}
+
+	/**
+	 * Notify observers with new estimates.
+	 */
+	private void notifyVelocityObservers(long timeStamp)
+	{
+		for (int i = 0; i < 3; i++)
+		{
+			velocityOutput[i] = (float) velocity[i];
+			displacementOutput[i] = (float) displacement[i];
+		}
+
+		for (int i = 0; i < observers.size(); i++)
+		{
+			observers.get(i).onVelocityChanged(velocityOutput,
+					displacementOutput, timeStamp);
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package com.kircherelectronics.androidlinearacceleration.motion;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * An observer of a VelocityIntegrator. Classes that need the velocity and
+ * displacement of the device should do so with this interface.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface VelocityObserver
+{
+	/**
+	 * Notify observers when new estimates are available.
+	 * 
+	 * @param velocity
+	 *            the velocity (x, y, z) in m/s.
+	 * @param displacement
+	 *            the displacement (x, y, z) since the integrator was reset in
+	 *            m.
+	 * @param timeStamp
+	 *            the time of the estimates in nanoseconds.
+	 */
+	public void onVelocityChanged(float[] velocity, float[] displacement,
+			long timeStamp);
+
+	/**
+	 * Notify observers when the drift of a motion segment has been removed.
+	 * The corrected samples of the segment can then be read back from the
+	 * integrator.
+	 * 
+	 * @param startTime
+	 *            the start of the segment in nanoseconds.
+	 * @param endTime
+	 *            the end of the segment in nanoseconds.
+	 */
+	public void onSegmentCorrected(long startTime, long endTime);
+}
@@ -0,0 +1,195 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * The Allan deviation of one channel of a session and the noise terms read
+ * from it. For an accelerometer in m/s^2 the velocity random walk is in
+ * m/s/sqrt(s) and the bias instability is in m/s^2.
+ * 
+ * Developer Note: The deviation at a cluster time is estimated from about
+ * as many independent clusters as fit into the session, so its relative
+ * error grows with the square root of the cluster time. The noise terms are
+ * therefore read where the clusters are many: the velocity random walk is
+ * fitted over the falling part of the curve with weights that follow the
+ * cluster count, and the floor is only searched for up to a tenth of the
+ * session, beyond which the curve is mostly noise of the estimate itself.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class AllanDeviation
+{
+	// The slope of the Allan deviation over log-log axes where white noise
+	// dominates.
+	private static final double RANDOM_WALK_SLOPE = -0.5;
+
+	// The ratio of the flat floor of the Allan deviation to the bias
+	// instability, sqrt(2 ln 2 / pi).
+	private static final double BIAS_INSTABILITY_FACTOR = Math.sqrt(2
+			* Math.log(2) / Math.PI);
+
+	// The longest cluster time the floor is searched for, as a fraction of
+	// the session.
+	private static final double MAX_FLOOR_FRACTION = 0.1;
+
+	private double[] tau;
+	private double[] deviation;
+
+	// The length of the session in seconds.
+	private double duration;
+
+	/**
+	 * Initialize a new AllanDeviation object.
+	 * 
+	 * @param tau
+	 *            the cluster times in seconds, in increasing order.
+	 * @param deviation
+	 *            the Allan deviation at each cluster time.
+	 * @param duration
+	 *            the length of the session in seconds.
+	 */
+	public AllanDeviation(double[] tau, double[] deviation, double duration)
+	{
+		this.tau = tau;
+		this.deviation = deviation;
+		this.duration = duration;
+	}
+
+	/**
+	 * Get the cluster times.
+	 * 
+	 * @return the cluster times in seconds.
+	 */
+	public double[] getTau()
+	{
+		return tau;
+	}
+
+	/**
+	 * Get the Allan deviation.
+	 * 
+	 * @return the Allan deviation at each cluster time.
+	 */
+	public double[] getDeviation()
+	{
+		return deviation;
+	}
+
+	/**
+	 * Get the velocity random walk, the white noise of the channel. A line
+	 * with a slope of -1/2 is fitted by least squares to the Allan deviation
+	 * over log-log axes, from the shortest cluster time down to the floor,
+	 * and the velocity random walk is the deviation of that line at a
+	 * cluster time of one second. Each point is weighted by the number of
+	 * clusters in the session, in proportion to the inverse variance of its
+	 * logarithm.
+	 * 
+	 * @return the velocity random walk, or NaN if there are no cluster
+	 *         times.
+	 */
+	public double getVelocityRandomWalk()
+	{
+		int floor = getFloorIndex();
+
+		if (floor < 0)
+		{
+			return Double.NaN;
+		}
+
+		double weightedSum = 0;
+		double totalWeight = 0;
+
+		for (int i = 0; i <= floor; i++)
+		{
+			// The intercept of the line through this point at one second.
+			double intercept = Math.log(deviation[i]) - RANDOM_WALK_SLOPE
+					* Math.log(tau[i]);
+
+			double weight = duration / tau[i];
+
+			weightedSum += weight * intercept;
+			totalWeight += weight;
+		}
+
+		return Math.exp(weightedSum / totalWeight);
+	}
+
+	/**
+	 * Get the bias instability, from the floor of the Allan deviation. If
+	 * the session is too short for the deviation to turn up again, this is
+	 * an upper bound.
+	 * 
+	 * @return the bias instability, or NaN if there are no cluster times.
+	 */
+	public double getBiasInstability()
+	{
+		int floor = getFloorIndex();
+
+		if (floor < 0)
+		{
+			return Double.NaN;
+		}
+
+		return deviation[floor] / BIAS_INSTABILITY_FACTOR;
+	}
+
+	/**
+	 * Get the cluster time of the floor of the Allan deviation.
+	 * 
+	 * @return the cluster time in seconds, or NaN if there are no cluster
+	 *         times.
+	 */
+	public double getBiasInstabilityTau()
+	{
+		int floor = getFloorIndex();
+
+		if (floor < 0)
+		{
+			return Double.NaN;
+		}
+
+		return tau[floor];
+	}
+
+	/**
+	 * Get the index of the floor of the Allan deviation, the smallest
+	 * deviation up to a tenth of the session. The shortest cluster time is
+	 * always searched.
+	 * 
+	 * @return the index, or -1 if there are no cluster times.
+	 */
+	private int getFloorIndex()
+	{
+		int floor = -1;
+
+		for (int i = 0; i < deviation.length; i++)
+		{
+			if (i > 0 && tau[i] > MAX_FLOOR_FRACTION * duration)
+			{
+				break;
+			}
+
+			if (floor < 0 || deviation[i] < deviation[floor])
+			{
+				floor = i;
+			}
+		}
+
+		return floor;
+	}
+}
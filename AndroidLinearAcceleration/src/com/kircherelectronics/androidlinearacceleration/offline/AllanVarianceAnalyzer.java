@@ -0,0 +1,390 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Computes the overlapping Allan deviation of every channel of a recorded
+ * session, for cluster times from one sample period up to half the session,
+ * spaced evenly over a logarithmic axis.
+ * 
+ * Developer Note: The session is streamed once into a running sum for each
+ * channel, which is written to a temporary file and mapped back, so the
+ * heap does not grow with the session. The sum of any cluster is then the
+ * difference of two entries, and each cluster size costs one pass over the
+ * sums. Cluster sizes are independent and run in parallel on a thread pool.
+ * The first sample of each channel is subtracted before summing so the
+ * sums stay small enough for double precision over sessions of hours.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class AllanVarianceAnalyzer
+{
+	// The number of cluster sizes in each decade of cluster time.
+	private static final int POINTS_PER_DECADE = 10;
+
+	// The number of sums written to the temporary files at a time.
+	private static final int BLOCK_SIZE = 8192;
+
+	// The most samples a single mapping can hold.
+	private static final long MAX_SAMPLES = Integer.MAX_VALUE / 8 - 1;
+
+	private File directory;
+
+	private ExecutorService executor;
+
+	/**
+	 * Initialize a new AllanVarianceAnalyzer object with one thread per
+	 * processor.
+	 * 
+	 * @param directory
+	 *            the directory for the temporary files.
+	 */
+	public AllanVarianceAnalyzer(File directory)
+	{
+		this(directory, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initialize a new AllanVarianceAnalyzer object.
+	 * 
+	 * @param directory
+	 *            the directory for the temporary files.
+	 * @param threads
+	 *            the number of threads.
+	 */
+	public AllanVarianceAnalyzer(File directory, int threads)
+	{
+		this.directory = directory;
+
+		executor = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Compute the Allan deviation of every channel of a session. The reader
+	 * is read to the end but not closed.
+	 * 
+	 * @param reader
+	 *            the session.
+	 * @return the Allan deviation of each channel.
+	 * @throws IOException
+	 *             if the session could not be read, is shorter than three
+	 *             samples or the temporary files could not be written.
+	 * @throws InterruptedException
+	 *             if the analysis was interrupted.
+	 * @throws ExecutionException
+	 *             if a cluster size failed.
+	 */
+	public AllanDeviation[] analyze(SessionReader reader) throws IOException,
+			InterruptedException, ExecutionException
+	{
+		int channelCount = reader.getChannelCount();
+
+		File[] files = new File[channelCount];
+		RandomAccessFile[] sumFiles = new RandomAccessFile[channelCount];
+
+		try
+		{
+			for (int i = 0; i < channelCount; i++)
+			{
+				files[i] = File.createTempFile("allan", ".sum", directory);
+				sumFiles[i] = new RandomAccessFile(files[i], "rw");
+			}
+
+			long sampleCount = writeSums(reader, sumFiles);
+
+			if (sampleCount < 3)
+			{
+				throw new IOException("The session is too short");
+			}
+
+			DoubleBuffer[] sums = new DoubleBuffer[channelCount];
+
+			for (int i = 0; i < channelCount; i++)
+			{
+				FileChannel channel = sumFiles[i].getChannel();
+
+				sums[i] = channel
+						.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+						.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+			}
+
+			return analyze(sums, (int) sampleCount, reader.getSamplePeriod());
+		}
+		finally
+		{
+			for (int i = 0; i < channelCount; i++)
+			{
+				if (sumFiles[i] != null)
+				{
+					sumFiles[i].close();
+				}
+
+				if (files[i] != null)
+				{
+					files[i].delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stop the threads. The analyzer can not be used afterwards.
+	 */
+	public void shutdown()
+	{
+		executor.shutdown();
+	}
+
+	/**
+	 * Get the cluster sizes that are evaluated for a session.
+	 * 
+	 * @param sampleCount
+	 *            the number of samples of the session.
+	 * @return the cluster sizes in samples, in increasing order.
+	 */
+	static int[] getClusterSizes(int sampleCount)
+	{
+		int maxSize = (sampleCount - 1) / 2;
+
+		int count = 0;
+		int[] sizes = new int[(int) (Math.log10(Math.max(1, maxSize))
+				* POINTS_PER_DECADE) + 2];
+
+		for (int i = 0; i < sizes.length; i++)
+		{
+			int size = (int) Math.round(Math.pow(10, (double) i
+					/ POINTS_PER_DECADE));
+
+			if (size > maxSize)
+			{
+				break;
+			}
+
+			// Small sizes repeat after rounding.
+			if (count == 0 || size != sizes[count - 1])
+			{
+				sizes[count++] = size;
+			}
+		}
+
+		int[] result = new int[count];
+		System.arraycopy(sizes, 0, result, 0, count);
+
+		return result;
+	}
+
+	/**
+	 * Stream a session into the running sum of each channel. Entry k of a
+	 * channel is the sum of its first k samples, less k times the first
+	 * sample.
+	 * 
+	 * @param reader
+	 *            the session.
+	 * @param sumFiles
+	 *            receive the running sums.
+	 * @return the number of samples.
+	 * @throws IOException
+	 *             if the session could not be read or the sums written.
+	 */
+	private static long writeSums(SessionReader reader,
+			RandomAccessFile[] sumFiles) throws IOException
+	{
+		int channelCount = sumFiles.length;
+
+		float[] values = new float[channelCount];
+		float[] offsets = new float[channelCount];
+		double[] sums = new double[channelCount];
+
+		ByteBuffer[] buffers = new ByteBuffer[channelCount];
+
+		for (int i = 0; i < channelCount; i++)
+		{
+			buffers[i] = ByteBuffer.allocate(BLOCK_SIZE * 8).order(
+					ByteOrder.nativeOrder());
+
+			buffers[i].putDouble(0);
+		}
+
+		long sampleCount = 0;
+
+		while (reader.read(values))
+		{
+			if (sampleCount == 0)
+			{
+				System.arraycopy(values, 0, offsets, 0, channelCount);
+			}
+
+			if (++sampleCount > MAX_SAMPLES)
+			{
+				throw new IOException("The session is too long");
+			}
+
+			for (int i = 0; i < channelCount; i++)
+			{
+				sums[i] += values[i] - offsets[i];
+
+				buffers[i].putDouble(sums[i]);
+
+				if (!buffers[i].hasRemaining())
+				{
+					flush(buffers[i], sumFiles[i]);
+				}
+			}
+		}
+
+		for (int i = 0; i < channelCount; i++)
+		{
+			flush(buffers[i], sumFiles[i]);
+		}
+
+		return sampleCount;
+	}
+
+	private static void flush(ByteBuffer buffer, RandomAccessFile file)
+			throws IOException
+	{
+		buffer.flip();
+
+		FileChannel channel = file.getChannel();
+
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+
+		buffer.clear();
+	}
+
+	/**
+	 * Compute the Allan deviation of every channel from its running sums.
+	 * 
+	 * @param sums
+	 *            the running sums of each channel.
+	 * @param sampleCount
+	 *            the number of samples.
+	 * @param samplePeriod
+	 *            the time between samples in seconds.
+	 * @return the Allan deviation of each channel.
+	 * @throws InterruptedException
+	 *             if the analysis was interrupted.
+	 * @throws ExecutionException
+	 *             if a cluster size failed.
+	 */
+	private AllanDeviation[] analyze(DoubleBuffer[] sums, int sampleCount,
+			float samplePeriod) throws InterruptedException,
+			ExecutionException
+	{
+		int[] sizes = getClusterSizes(sampleCount);
+
+		ArrayList<Future<double[]>> futures = new ArrayList<Future<double[]>>();
+
+		for (int i = 0; i < sizes.length; i++)
+		{
+			futures.add(executor.submit(new ClusterTask(sums, sampleCount,
+					sizes[i])));
+		}
+
+		double[] tau = new double[sizes.length];
+		double[][] deviation = new double[sums.length][sizes.length];
+
+		for (int i = 0; i < sizes.length; i++)
+		{
+			double[] variance = futures.get(i).get();
+
+			tau[i] = sizes[i] * (double) samplePeriod;
+
+			for (int j = 0; j < sums.length; j++)
+			{
+				deviation[j][i] = Math.sqrt(variance[j]);
+			}
+		}
+
+		AllanDeviation[] result = new AllanDeviation[sums.length];
+
+		for (int i = 0; i < sums.length; i++)
+		{
+			result[i] = new AllanDeviation(tau, deviation[i], sampleCount
+					* (double) samplePeriod);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Computes the overlapping Allan variance of every channel for a single
+	 * cluster size.
+	 */
+	private static class ClusterTask implements Callable<double[]>
+	{
+		private DoubleBuffer[] sums;
+
+		private int sampleCount;
+		private int size;
+
+		public ClusterTask(DoubleBuffer[] sums, int sampleCount, int size)
+		{
+			this.sums = sums;
+			this.sampleCount = sampleCount;
+			this.size = size;
+		}
+
+		@Override
+		public double[] call() throws Exception
+		{
+			double[] variance = new double[sums.length];
+
+			// Every start of two adjacent clusters.
+			int count = sampleCount - 2 * size + 1;
+
+			for (int i = 0; i < sums.length; i++)
+			{
+				// Each task reads through its own view of the mapping.
+				DoubleBuffer sum = sums[i].duplicate();
+
+				double total = 0;
+
+				for (int k = 0; k < count; k++)
+				{
+					double difference = sum.get(k + 2 * size) - 2
+							* sum.get(k + size) + sum.get(k);
+
+					total += difference * difference;
+				}
+
+				variance[i] = total
+						/ (2.0 * size * (double) size * count);
+			}
+
+			return variance;
+		}
+	}
+}
@@ -0,0 +1,244 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Reads a session from a log written by the application. Each line holds the
+ * generation, the time since the start of the log in milliseconds and then
+ * one value per channel. Lines that are not samples, like the header, are
+ * skipped. The file is read a line at a time.
+ * 
+ * Developer Note: The time is parsed as an integer on its own. A float only
+ * holds whole milliseconds exactly up to 2^24 ms, about four and a half
+ * hours, and rounds the time stamps of longer sessions.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class CsvSessionReader implements SessionReader
+{
+	// The columns before the first channel.
+	private static final int TIME_COLUMN = 1;
+	private static final int FIRST_CHANNEL_COLUMN = 2;
+
+	private BufferedReader reader;
+
+	private int channelCount;
+
+	// The first line with samples, read ahead to count the channels.
+	private String nextLine;
+
+	// The times of the first and last samples in milliseconds.
+	private long firstTime = 0;
+	private long lastTime = 0;
+
+	private long sampleCount = 0;
+
+	// The fields of the current line. The time column is not kept here.
+	private float[] fields;
+
+	// The time of the current line in milliseconds.
+	private long fieldTime;
+
+	/**
+	 * Initialize a new CsvSessionReader object.
+	 * 
+	 * @param file
+	 *            the log.
+	 * @throws IOException
+	 *             if the log could not be opened or holds no samples.
+	 */
+	public CsvSessionReader(File file) throws IOException
+	{
+		reader = new BufferedReader(new FileReader(file));
+
+		// Skip to the first sample and count its channels.
+		while ((nextLine = reader.readLine()) != null)
+		{
+			int columns = countColumns(nextLine);
+
+			if (columns > FIRST_CHANNEL_COLUMN)
+			{
+				fields = new float[columns];
+
+				if (parse(nextLine, fields))
+				{
+					channelCount = columns - FIRST_CHANNEL_COLUMN;
+					return;
+				}
+			}
+		}
+
+		reader.close();
+
+		throw new IOException("No samples in " + file);
+	}
+
+	@Override
+	public int getChannelCount()
+	{
+		return channelCount;
+	}
+
+	@Override
+	public float getSamplePeriod()
+	{
+		if (sampleCount < 2)
+		{
+			return 0;
+		}
+
+		return (lastTime - firstTime) / 1000f / (sampleCount - 1);
+	}
+
+	/**
+	 * Get the time of the most recently read frame.
+	 * 
+	 * @return the time since the start of the log in nanoseconds.
+	 */
+	public long getTimeStamp()
+	{
+		return lastTime * 1000000L;
+	}
+
+	@Override
+	public boolean read(float[] values) throws IOException
+	{
+		while (nextLine != null)
+		{
+			String line = nextLine;
+			nextLine = reader.readLine();
+
+			if (countColumns(line) == fields.length && parse(line, fields))
+			{
+				long time = fieldTime;
+
+				if (sampleCount == 0)
+				{
+					firstTime = time;
+				}
+
+				lastTime = time;
+				sampleCount++;
+
+				System.arraycopy(fields, FIRST_CHANNEL_COLUMN, values, 0,
+						channelCount);
+
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		reader.close();
+	}
+
+	/**
+	 * Count the non-empty columns of a line. The log ends every line with a
+	 * separator.
+	 * 
+	 * @param line
+	 *            the line.
+	 * @return the number of columns.
+	 */
+	private static int countColumns(String line)
+	{
+		int columns = 0;
+		int start = 0;
+
+		while (start < line.length())
+		{
+			int end = line.indexOf(',', start);
+
+			if (end < 0)
+			{
+				end = line.length();
+			}
+
+			if (end > start)
+			{
+				columns++;
+			}
+
+			start = end + 1;
+		}
+
+		return columns;
+	}
+
+	/**
+	 * Parse the non-empty columns of a line. The time column is parsed into
+	 * fieldTime instead.
+	 * 
+	 * @param line
+	 *            the line.
+	 * @param values
+	 *            receives the columns.
+	 * @return false if a column is not a number.
+	 */
+	private boolean parse(String line, float[] values)
+	{
+		int column = 0;
+		int start = 0;
+
+		while (start < line.length() && column < values.length)
+		{
+			int end = line.indexOf(',', start);
+
+			if (end < 0)
+			{
+				end = line.length();
+			}
+
+			if (end > start)
+			{
+				try
+				{
+					String field = line.substring(start, end);
+
+					if (column == TIME_COLUMN)
+					{
+						fieldTime = Long.parseLong(field.trim());
+					}
+					else
+					{
+						values[column] = Float.parseFloat(field);
+					}
+
+					column++;
+				}
+				catch (NumberFormatException e)
+				{
+					return false;
+				}
+			}
+
+			start = end + 1;
+		}
+
+		return true;
+	}
+}
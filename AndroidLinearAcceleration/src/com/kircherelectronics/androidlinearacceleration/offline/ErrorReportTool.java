@@ -0,0 +1,351 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Compares the linear acceleration of a device against a reference estimate
+ * for every log in a directory and summarizes the results in a table. Logs
+ * are processed in parallel, one per thread, and each is streamed a line at
+ * a time so memory does not grow with the logs.
+ * 
+ * The logs are written at the rate of the display updates rather than the
+ * sensor rate, so the lag is only resolved to about one log period. Lags
+ * shorter than that are shown as below the period, and the others to the
+ * nearest millisecond.
+ * 
+ * The tool can be run from a desktop with the logs pulled off the devices:
+ * 
+ * <pre>
+ * java ErrorReportTool &lt;directory&gt; [time constant]
+ * </pre>
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class ErrorReportTool
+{
+	// The channels of the acceleration and linear acceleration in a log.
+	private static final int ACCELERATION_CHANNEL = 0;
+	private static final int LINEAR_ACCELERATION_CHANNEL = 3;
+
+	private static final String LOG_EXTENSION = ".csv";
+
+	private float timeConstant;
+
+	private ExecutorService executor;
+
+	/**
+	 * The comparison of a single log.
+	 */
+	public static class Result
+	{
+		private String name;
+		private ReferenceComparison comparison;
+		private String error;
+
+		private Result(String name, ReferenceComparison comparison,
+				String error)
+		{
+			this.name = name;
+			this.comparison = comparison;
+			this.error = error;
+		}
+
+		/**
+		 * Get the name of the log.
+		 * 
+		 * @return the file name.
+		 */
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * Get the comparison of the log.
+		 * 
+		 * @return the comparison, or null if the log could not be read.
+		 */
+		public ReferenceComparison getComparison()
+		{
+			return comparison;
+		}
+
+		/**
+		 * Get the reason the log could not be read.
+		 * 
+		 * @return the reason, or null if it was read.
+		 */
+		public String getError()
+		{
+			return error;
+		}
+	}
+
+	/**
+	 * Initialize a new ErrorReportTool object with one thread per processor.
+	 * 
+	 * @param timeConstant
+	 *            the time constant of the gravity estimation of the
+	 *            reference in seconds.
+	 */
+	public ErrorReportTool(float timeConstant)
+	{
+		this(timeConstant, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initialize a new ErrorReportTool object.
+	 * 
+	 * @param timeConstant
+	 *            the time constant of the gravity estimation of the
+	 *            reference in seconds.
+	 * @param threads
+	 *            the number of threads.
+	 */
+	public ErrorReportTool(float timeConstant, int threads)
+	{
+		this.timeConstant = timeConstant;
+
+		executor = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Compare every log in a directory.
+	 * 
+	 * @param directory
+	 *            the directory of the logs.
+	 * @return the result of each log, in the order of their names.
+	 * @throws InterruptedException
+	 *             if the comparison was interrupted.
+	 * @throws ExecutionException
+	 *             if a comparison failed.
+	 */
+	public ArrayList<Result> process(File directory)
+			throws InterruptedException, ExecutionException
+	{
+		File[] files = directory.listFiles(new FileFilter()
+		{
+			@Override
+			public boolean accept(File file)
+			{
+				return file.isFile()
+						&& file.getName().endsWith(LOG_EXTENSION);
+			}
+		});
+
+		ArrayList<Result> results = new ArrayList<Result>();
+
+		if (files == null)
+		{
+			return results;
+		}
+
+		Arrays.sort(files);
+
+		ArrayList<Future<Result>> futures = new ArrayList<Future<Result>>();
+
+		for (int i = 0; i < files.length; i++)
+		{
+			futures.add(executor.submit(new LogTask(files[i], timeConstant)));
+		}
+
+		for (int i = 0; i < futures.size(); i++)
+		{
+			results.add(futures.get(i).get());
+		}
+
+		return results;
+	}
+
+	/**
+	 * Stop the threads. The tool can not be used afterwards.
+	 */
+	public void shutdown()
+	{
+		executor.shutdown();
+	}
+
+	/**
+	 * Format a lag to the precision the log period allows.
+	 * 
+	 * @param comparison
+	 *            the comparison of the log.
+	 * @return the lag in milliseconds.
+	 */
+	private static String formatLag(ReferenceComparison comparison)
+	{
+		double lag = comparison.getLag() * 1000;
+		double period = comparison.getSamplePeriod() * 1000;
+
+		if (Math.abs(lag) < period)
+		{
+			return String.format(Locale.US, "<%.0f", period);
+		}
+
+		return String.format(Locale.US, "%.0f", lag);
+	}
+
+	/**
+	 * Format the results as a table with one row per log.
+	 * 
+	 * @param results
+	 *            the results.
+	 * @return the table.
+	 */
+	public static String formatTable(ArrayList<Result> results)
+	{
+		StringBuilder table = new StringBuilder();
+
+		table.append(String.format(Locale.US,
+				"%-40s %8s %8s %8s %8s %8s %9s %8s %10s %6s%n", "Session",
+				"Samples", "RMSE", "Bias X", "Bias Y", "Bias Z", "Period ms",
+				"Lag ms", "Sust. RMSE", "Sust.%"));
+
+		for (int i = 0; i < results.size(); i++)
+		{
+			Result result = results.get(i);
+			ReferenceComparison c = result.getComparison();
+
+			if (c == null)
+			{
+				table.append(String.format(Locale.US, "%-40s %s%n",
+						result.getName(), result.getError()));
+				continue;
+			}
+
+			table.append(String.format(Locale.US,
+					"%-40s %8d %8.4f %8.4f %8.4f %8.4f %9.0f %8s %10.4f %6.1f%n",
+					result.getName(), c.getCount(), c.getRmse(),
+					c.getBias(0), c.getBias(1), c.getBias(2),
+					c.getSamplePeriod() * 1000, formatLag(c),
+					c.getSustainedRmse(), c.getSustainedFraction() * 100));
+		}
+
+		table.append(String.format(Locale.US, "Lags shorter than the log "
+				+ "period can not be resolved and are shown as <period.%n"));
+
+		return table.toString();
+	}
+
+	/**
+	 * Print the table of a directory of logs.
+	 * 
+	 * @param args
+	 *            the directory and optionally the time constant of the
+	 *            reference in seconds.
+	 * @throws Exception
+	 *             if the logs could not be compared.
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 1)
+		{
+			System.err.println("Usage: ErrorReportTool <directory> "
+					+ "[time constant]");
+			return;
+		}
+
+		float timeConstant = (args.length > 1) ? Float.parseFloat(args[1])
+				: 1;
+
+		ErrorReportTool tool = new ErrorReportTool(timeConstant);
+
+		try
+		{
+			System.out.print(formatTable(tool.process(new File(args[0]))));
+		}
+		finally
+		{
+			tool.shutdown();
+		}
+	}
+
+	/**
+	 * Compares a single log.
+	 */
+	private static class LogTask implements Callable<Result>
+	{
+		private File file;
+		private float timeConstant;
+
+		public LogTask(File file, float timeConstant)
+		{
+			this.file = file;
+			this.timeConstant = timeConstant;
+		}
+
+		@Override
+		public Result call()
+		{
+			ReferenceComparison comparison = new ReferenceComparison(
+					timeConstant);
+
+			float[] acceleration = new float[3];
+			float[] linearAcceleration = new float[3];
+
+			try
+			{
+				CsvSessionReader reader = new CsvSessionReader(file);
+
+				try
+				{
+					if (reader.getChannelCount() < LINEAR_ACCELERATION_CHANNEL + 3)
+					{
+						return new Result(file.getName(), null,
+								"Not a linear acceleration log");
+					}
+
+					float[] values = new float[reader.getChannelCount()];
+
+					while (reader.read(values))
+					{
+						System.arraycopy(values, ACCELERATION_CHANNEL,
+								acceleration, 0, 3);
+						System.arraycopy(values, LINEAR_ACCELERATION_CHANNEL,
+								linearAcceleration, 0, 3);
+
+						comparison.add(acceleration, linearAcceleration,
+								reader.getTimeStamp());
+					}
+				}
+				finally
+				{
+					reader.close();
+				}
+			}
+			catch (IOException e)
+			{
+				return new Result(file.getName(), null, e.toString());
+			}
+
+			return new Result(file.getName(), comparison, null);
+		}
+	}
+}
@@ -0,0 +1,244 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+import java.util.Locale;
+import java.util.Random;
+
+import com.kircherelectronics.androidlinearacceleration.spectrum.RealFft;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Measures the time RealFft takes to compute a power spectrum for the sizes
+ * the spectrum analyzer can be configured with, and checks each size against
+ * a direct discrete Fourier transform in double precision.
+ * 
+ * The benchmark can be run from a desktop:
+ * 
+ * <pre>
+ * java FftBenchmark [milliseconds per size]
+ * </pre>
+ * 
+ * Developer Note: Each size is run until the JIT has compiled the transform
+ * before it is timed, and the spectra are summed into a result that is
+ * printed so the transforms can not be optimized away.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class FftBenchmark
+{
+	// The smallest and largest number of points.
+	private static final int MIN_SIZE = 256;
+	private static final int MAX_SIZE = 8192;
+
+	// The time each size is run before it is timed in milliseconds.
+	private static final long WARM_UP_TIME = 500;
+
+	// The time each size is timed for by default in milliseconds.
+	private static final long DEFAULT_MEASURE_TIME = 1000;
+
+	// The number of transforms between reads of the clock.
+	private static final int BATCH = 16;
+
+	private static final double MS_TO_NS = 1000000.0;
+
+	private long measureTime;
+
+	// Accumulates the spectra so they are not optimized away.
+	private double sink = 0;
+
+	/**
+	 * Initialize a new FftBenchmark object.
+	 * 
+	 * @param measureTime
+	 *            the time each size is timed for in milliseconds.
+	 */
+	public FftBenchmark(long measureTime)
+	{
+		this.measureTime = measureTime;
+	}
+
+	/**
+	 * Time the power spectrum of a size.
+	 * 
+	 * @param size
+	 *            the number of points.
+	 * @return the mean time of a power spectrum in nanoseconds.
+	 */
+	public double time(int size)
+	{
+		RealFft fft = new RealFft(size);
+
+		float[] input = createInput(size);
+		float[] power = new float[fft.getBinCount()];
+
+		run(fft, input, power, (long) (WARM_UP_TIME * MS_TO_NS));
+
+		long start = System.nanoTime();
+		long count = run(fft, input, power, (long) (measureTime * MS_TO_NS));
+
+		return (double) (System.nanoTime() - start) / count;
+	}
+
+	/**
+	 * Get the largest difference between the transform of a size and a
+	 * direct discrete Fourier transform, relative to the largest bin.
+	 * 
+	 * @param size
+	 *            the number of points.
+	 * @return the relative error.
+	 */
+	public static double error(int size)
+	{
+		RealFft fft = new RealFft(size);
+
+		float[] input = createInput(size);
+		float[] re = new float[fft.getBinCount()];
+		float[] im = new float[fft.getBinCount()];
+
+		fft.transform(input, re, im);
+
+		double[] cos = new double[size];
+		double[] sin = new double[size];
+
+		for (int n = 0; n < size; n++)
+		{
+			cos[n] = Math.cos(2 * Math.PI * n / size);
+			sin[n] = -Math.sin(2 * Math.PI * n / size);
+		}
+
+		double maxError = 0;
+		double maxMagnitude = 0;
+
+		for (int k = 0; k < re.length; k++)
+		{
+			double sumRe = 0;
+			double sumIm = 0;
+
+			for (int n = 0; n < size; n++)
+			{
+				int i = (int) (((long) k * n) % size);
+
+				sumRe += input[n] * cos[i];
+				sumIm += input[n] * sin[i];
+			}
+
+			maxError = Math.max(maxError, Math.hypot(re[k] - sumRe, im[k]
+					- sumIm));
+			maxMagnitude = Math.max(maxMagnitude, Math.hypot(sumRe, sumIm));
+		}
+
+		return maxError / maxMagnitude;
+	}
+
+	/**
+	 * Get the sum of the spectra that were computed.
+	 * 
+	 * @return the sum.
+	 */
+	public double getSink()
+	{
+		return sink;
+	}
+
+	/**
+	 * Compute power spectra for a period of time.
+	 * 
+	 * @param fft
+	 *            the transform.
+	 * @param input
+	 *            the samples.
+	 * @param power
+	 *            receives the spectrum.
+	 * @param duration
+	 *            the period in nanoseconds.
+	 * @return the number of spectra computed.
+	 */
+	private long run(RealFft fft, float[] input, float[] power, long duration)
+	{
+		long end = System.nanoTime() + duration;
+		long count = 0;
+
+		do
+		{
+			for (int i = 0; i < BATCH; i++)
+			{
+				fft.powerSpectrum(input, power);
+				sink += power[i];
+			}
+
+			count += BATCH;
+		}
+		while (System.nanoTime() < end);
+
+		return count;
+	}
+
+	/**
+	 * Create a signal of a few tones in noise.
+	 * 
+	 * @param size
+	 *            the number of samples.
+	 * @return the samples.
+	 */
+	private static float[] createInput(int size)
+	{
+		Random random = new Random(size);
+
+		float[] input = new float[size];
+
+		for (int i = 0; i < size; i++)
+		{
+			input[i] = (float) (Math.sin(2 * Math.PI * 12.5 * i / size) + 0.5
+					* Math.sin(2 * Math.PI * 97 * i / size) + 0.1 * random
+					.nextGaussian());
+		}
+
+		return input;
+	}
+
+	/**
+	 * Print the time and the error of every size.
+	 * 
+	 * @param args
+	 *            optionally the time each size is timed for in milliseconds.
+	 */
+	public static void main(String[] args)
+	{
+		long measureTime = (args.length > 0) ? Long.parseLong(args[0])
+				: DEFAULT_MEASURE_TIME;
+
+		FftBenchmark benchmark = new FftBenchmark(measureTime);
+
+		System.out.println(System.getProperty("java.vm.name") + " "
+				+ System.getProperty("java.version") + ", "
+				+ System.getProperty("os.arch"));
+		System.out.println(String.format(Locale.US, "%6s %12s %12s %12s",
+				"Points", "us/spectrum", "ns/point", "Rel. error"));
+
+		for (int size = MIN_SIZE; size <= MAX_SIZE; size *= 2)
+		{
+			double time = benchmark.time(size);
+
+			System.out.println(String.format(Locale.US,
+					"%6d %12.1f %12.2f %12.1e", size, time / 1000, time
+							/ size, error(size)));
+		}
+
+		System.out.println("Checksum: " + benchmark.getSink());
+	}
+}
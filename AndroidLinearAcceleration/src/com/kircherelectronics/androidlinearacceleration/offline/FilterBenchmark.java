@@ -0,0 +1,382 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import com.kircherelectronics.androidlinearacceleration.filters.BatchFilter;
+import com.kircherelectronics.androidlinearacceleration.filters.LowPassFilter;
+import com.kircherelectronics.androidlinearacceleration.filters.MeanFilter;
+import com.kircherelectronics.androidlinearacceleration.filters.MedianFilter;
+import com.kircherelectronics.androidlinearacceleration.filters.SensorFilter;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Measures the throughput of the mean, IIR and median filters over a long
+ * recording, both one measurement at a time as the sensors deliver them and
+ * in batches as recorded sessions are filtered. The three filters in series
+ * are then run through the ParallelFilterProcessor with an increasing number
+ * of threads, and the output is compared with the sequential output.
+ * 
+ * The benchmark can be run from a desktop:
+ * 
+ * <pre>
+ * java FilterBenchmark [measurements]
+ * </pre>
+ * 
+ * Developer Note: Every filter is run over the whole recording once before it
+ * is timed so the JIT has compiled it, and the output is summed into a result
+ * that is printed so the filtering can not be optimized away.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class FilterBenchmark
+{
+	// The number of measurements by default.
+	private static final int DEFAULT_LENGTH = 4000000;
+
+	// The number of times each filter is timed, the fastest is reported.
+	private static final int RUNS = 3;
+
+	// The sample period of the recording in nanoseconds.
+	private static final long SAMPLE_PERIOD = 10000000;
+
+	// The time constant of the IIR low-pass filter in seconds.
+	private static final float TIME_CONSTANT = 0.18f;
+
+	// The most threads the parallel filter is timed with.
+	private static final int MAX_THREADS = 8;
+
+	private static final double NS_TO_S = 1.0 / 1000000000.0;
+
+	// The recording, one array per axis.
+	private float[] x;
+	private float[] y;
+	private float[] z;
+
+	// The copy of the recording that is filtered in place.
+	private float[] outX;
+	private float[] outY;
+	private float[] outZ;
+
+	// Accumulates the outputs so they are not optimized away.
+	private double sink = 0;
+
+	/**
+	 * Initialize a new FilterBenchmark object.
+	 * 
+	 * @param length
+	 *            the number of measurements in the recording.
+	 */
+	public FilterBenchmark(int length)
+	{
+		Random random = new Random(length);
+
+		x = new float[length];
+		y = new float[length];
+		z = new float[length];
+
+		for (int i = 0; i < length; i++)
+		{
+			double t = i * SAMPLE_PERIOD * NS_TO_S;
+
+			x[i] = (float) (Math.sin(2 * Math.PI * 0.5 * t) + 0.05 * random
+					.nextGaussian());
+			y[i] = (float) (0.5 * Math.cos(2 * Math.PI * 0.2 * t) + 0.05 * random
+					.nextGaussian());
+			z[i] = (float) (0.05 * random.nextGaussian());
+		}
+
+		outX = new float[length];
+		outY = new float[length];
+		outZ = new float[length];
+	}
+
+	/**
+	 * Time a filter one measurement at a time.
+	 * 
+	 * @param filter
+	 *            the filter.
+	 * @return the throughput in measurements per second.
+	 */
+	public double timeSamples(SensorFilter filter)
+	{
+		double best = 0;
+
+		for (int run = 0; run <= RUNS; run++)
+		{
+			filter.reset();
+
+			float[] measurement = new float[3];
+
+			long start = System.nanoTime();
+
+			for (int i = 0; i < x.length; i++)
+			{
+				measurement[0] = x[i];
+				measurement[1] = y[i];
+				measurement[2] = z[i];
+
+				float[] output = filter.filterFloat(measurement, i
+						* SAMPLE_PERIOD);
+
+				sink += output[0];
+			}
+
+			long time = System.nanoTime() - start;
+
+			// The first run warms the JIT up.
+			if (run > 0)
+			{
+				best = Math.max(best, x.length / (time * NS_TO_S));
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Time a filter in one batch over the whole recording.
+	 * 
+	 * @param filter
+	 *            the filter, which must also be a BatchFilter.
+	 * @return the throughput in measurements per second.
+	 */
+	public double timeBatch(SensorFilter filter)
+	{
+		BatchFilter batch = (BatchFilter) filter;
+
+		double best = 0;
+
+		for (int run = 0; run <= RUNS; run++)
+		{
+			filter.reset();
+
+			System.arraycopy(x, 0, outX, 0, x.length);
+			System.arraycopy(y, 0, outY, 0, y.length);
+			System.arraycopy(z, 0, outZ, 0, z.length);
+
+			long start = System.nanoTime();
+
+			batch.filterBatch(outX, outY, outZ, 0, x.length);
+
+			long time = System.nanoTime() - start;
+
+			sink += outX[x.length - 1];
+
+			if (run > 0)
+			{
+				best = Math.max(best, x.length / (time * NS_TO_S));
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Time filters in series with the ParallelFilterProcessor. The output is
+	 * left in the output arrays.
+	 * 
+	 * @param threads
+	 *            the number of threads.
+	 * @param factory
+	 *            creates the filters.
+	 * @return the throughput in measurements per second.
+	 * @throws InterruptedException
+	 *             if the filtering was interrupted.
+	 * @throws ExecutionException
+	 *             if a filter failed.
+	 */
+	public double timeParallel(int threads,
+			ParallelFilterProcessor.FilterFactory factory)
+			throws InterruptedException, ExecutionException
+	{
+		ParallelFilterProcessor processor = new ParallelFilterProcessor(
+				threads);
+
+		double best = 0;
+
+		try
+		{
+			for (int run = 0; run <= RUNS; run++)
+			{
+				long start = System.nanoTime();
+
+				processor.process(x, y, z, outX, outY, outZ, x.length,
+						factory);
+
+				long time = System.nanoTime() - start;
+
+				sink += outX[x.length - 1];
+
+				if (run > 0)
+				{
+					best = Math.max(best, x.length / (time * NS_TO_S));
+				}
+			}
+		}
+		finally
+		{
+			processor.shutdown();
+		}
+
+		return best;
+	}
+
+	/**
+	 * Filter the recording sequentially with filters in series.
+	 * 
+	 * @param factory
+	 *            creates the filters.
+	 * @return the filtered x, y and z axes.
+	 */
+	public float[][] filterSequential(
+			ParallelFilterProcessor.FilterFactory factory)
+	{
+		float[][] output = new float[][]
+		{ x.clone(), y.clone(), z.clone() };
+
+		BatchFilter[] filters = factory.createFilters();
+
+		for (int i = 0; i < filters.length; i++)
+		{
+			filters[i].filterBatch(output[0], output[1], output[2], 0,
+					x.length);
+		}
+
+		return output;
+	}
+
+	/**
+	 * Get the largest difference between the output arrays and a sequential
+	 * output.
+	 * 
+	 * @param sequential
+	 *            the filtered x, y and z axes.
+	 * @return the difference.
+	 */
+	public double getDifference(float[][] sequential)
+	{
+		float[][] output = new float[][]
+		{ outX, outY, outZ };
+
+		double difference = 0;
+
+		for (int axis = 0; axis < 3; axis++)
+		{
+			for (int i = 0; i < x.length; i++)
+			{
+				difference = Math.max(difference,
+						Math.abs(output[axis][i] - sequential[axis][i]));
+			}
+		}
+
+		return difference;
+	}
+
+	/**
+	 * Get the sum of the outputs that were computed.
+	 * 
+	 * @return the sum.
+	 */
+	public double getSink()
+	{
+		return sink;
+	}
+
+	/**
+	 * Print the throughput of every filter.
+	 * 
+	 * @param args
+	 *            optionally the number of measurements in the recording.
+	 * @throws Exception
+	 *             if the parallel filtering failed.
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int length = (args.length > 0) ? Integer.parseInt(args[0])
+				: DEFAULT_LENGTH;
+
+		FilterBenchmark benchmark = new FilterBenchmark(length);
+
+		String[] names = new String[]
+		{ "Mean (30)", "IIR low-pass", "Median (5)" };
+
+		LowPassFilter lowPass = new LowPassFilter(TIME_CONSTANT);
+		lowPass.setSamplePeriod(SAMPLE_PERIOD * (float) NS_TO_S);
+
+		SensorFilter[] filters = new SensorFilter[]
+		{ new MeanFilter(), lowPass, new MedianFilter() };
+
+		System.out.println(System.getProperty("java.vm.name") + " "
+				+ System.getProperty("java.version") + ", "
+				+ System.getProperty("os.arch") + ", " + length
+				+ " measurements of 3 axes");
+		System.out.println(String.format(Locale.US, "%-14s %14s %14s",
+				"Filter", "Per sample/s", "Batch/s"));
+
+		for (int i = 0; i < filters.length; i++)
+		{
+			double samples = benchmark.timeSamples(filters[i]);
+			double batch = benchmark.timeBatch(filters[i]);
+
+			System.out.println(String.format(Locale.US, "%-14s %14.3e %14.3e",
+					names[i], samples, batch));
+		}
+
+		ParallelFilterProcessor.FilterFactory factory = new ParallelFilterProcessor.FilterFactory()
+		{
+			@Override
+			public BatchFilter[] createFilters()
+			{
+				LowPassFilter lowPass = new LowPassFilter(TIME_CONSTANT);
+				lowPass.setSamplePeriod(SAMPLE_PERIOD * (float) NS_TO_S);
+
+				return new BatchFilter[]
+				{ new MedianFilter(), new MeanFilter(), lowPass };
+			}
+		};
+
+		float[][] sequential = benchmark.filterSequential(factory);
+
+		System.out.println();
+		System.out.println("Median, mean and low-pass in series, "
+				+ Runtime.getRuntime().availableProcessors() + " processors");
+		System.out.println(String.format(Locale.US, "%-7s %14s %8s %12s",
+				"Threads", "Measurements/s", "Speedup", "Max. diff."));
+
+		double single = 0;
+
+		for (int threads = 1; threads <= MAX_THREADS; threads *= 2)
+		{
+			double throughput = benchmark.timeParallel(threads, factory);
+
+			if (threads == 1)
+			{
+				single = throughput;
+			}
+
+			System.out.println(String.format(Locale.US,
+					"%-7d %14.3e %8.2f %12.1e", threads, throughput,
+					throughput / single, benchmark.getDifference(sequential)));
+		}
+
+		System.out.println("Checksum: " + benchmark.getSink());
+	}
+}
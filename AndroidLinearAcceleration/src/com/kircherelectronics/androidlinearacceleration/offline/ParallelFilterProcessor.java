@@ -0,0 +1,241 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.kircherelectronics.androidlinearacceleration.filters.BatchFilter;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Filters recorded sessions in parallel. The session is split into chunks
+ * that are filtered on a thread pool, each with its own filter instances.
+ * Every chunk starts early by the warm-up length of its filters so the
+ * filters have settled by the time the chunk's own measurements are reached.
+ * 
+ * Filters with a finite memory (mean, median) produce the same output as
+ * filtering the whole session sequentially, apart from floating point
+ * rounding of running sums. Filters with an infinite memory (IIR) differ by
+ * at most the residue of their initial state after the warm-up, which is
+ * about one millionth of the signal.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class ParallelFilterProcessor
+{
+	/*
+	 * Developer Note: java.util.concurrent.ForkJoinPool is not available on
+	 * the Android versions we support, but the chunks are independent once
+	 * they have their warm-up overlap, so a fixed thread pool splits the work
+	 * just as well.
+	 */
+
+	/**
+	 * Creates the filters for a chunk. Filters carry state, so every chunk
+	 * needs its own instances.
+	 */
+	public interface FilterFactory
+	{
+		/**
+		 * Create the filters for a chunk.
+		 * 
+		 * @return the filters, applied in order.
+		 */
+		public BatchFilter[] createFilters();
+	}
+
+	// The smallest number of measurements worth giving to a thread.
+	private static final int MIN_CHUNK_SIZE = 65536;
+
+	// The number of chunks per thread, so threads that finish early can pick
+	// up more work.
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private int threads;
+
+	private ExecutorService executor;
+
+	/**
+	 * Initialize a new ParallelFilterProcessor object with one thread per
+	 * processor.
+	 */
+	public ParallelFilterProcessor()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Initialize a new ParallelFilterProcessor object.
+	 * 
+	 * @param threads
+	 *            the number of threads.
+	 */
+	public ParallelFilterProcessor(int threads)
+	{
+		this.threads = threads;
+
+		executor = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Filter a three axis session.
+	 * 
+	 * @param x
+	 *            the x-axis measurements.
+	 * @param y
+	 *            the y-axis measurements.
+	 * @param z
+	 *            the z-axis measurements.
+	 * @param outX
+	 *            the filtered x-axis measurements.
+	 * @param outY
+	 *            the filtered y-axis measurements.
+	 * @param outZ
+	 *            the filtered z-axis measurements.
+	 * @param length
+	 *            the number of measurements.
+	 * @param factory
+	 *            creates the filters for each chunk.
+	 * @throws InterruptedException
+	 *             if the processing was interrupted.
+	 * @throws ExecutionException
+	 *             if a filter failed.
+	 */
+	public void process(float[] x, float[] y, float[] z, float[] outX,
+			float[] outY, float[] outZ, int length, FilterFactory factory)
+			throws InterruptedException, ExecutionException
+	{
+		int warmUp = getWarmUpLength(factory.createFilters());
+
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, 2 * warmUp);
+		chunkSize = Math.max(chunkSize, length / (threads * CHUNKS_PER_THREAD)
+				+ 1);
+
+		ArrayList<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+		for (int start = 0; start < length; start += chunkSize)
+		{
+			int end = Math.min(start + chunkSize, length);
+
+			futures.add(executor.submit(new ChunkTask(x, y, z, outX, outY,
+					outZ, start, end, warmUp, factory)));
+		}
+
+		for (int i = 0; i < futures.size(); i++)
+		{
+			futures.get(i).get();
+		}
+	}
+
+	/**
+	 * Stop the threads. The processor can not be used afterwards.
+	 */
+	public void shutdown()
+	{
+		executor.shutdown();
+	}
+
+	/**
+	 * Get the warm-up length of filters applied in series.
+	 * 
+	 * @param filters
+	 *            the filters.
+	 * @return the number of measurements.
+	 */
+	private static int getWarmUpLength(BatchFilter[] filters)
+	{
+		int warmUp = 0;
+
+		for (int i = 0; i < filters.length; i++)
+		{
+			warmUp += filters[i].getWarmUpLength();
+		}
+
+		return warmUp;
+	}
+
+	/**
+	 * Filters a single chunk of a session.
+	 */
+	private static class ChunkTask implements Callable<Void>
+	{
+		private float[] x;
+		private float[] y;
+		private float[] z;
+		private float[] outX;
+		private float[] outY;
+		private float[] outZ;
+
+		private int start;
+		private int end;
+		private int warmUp;
+
+		private FilterFactory factory;
+
+		public ChunkTask(float[] x, float[] y, float[] z, float[] outX,
+				float[] outY, float[] outZ, int start, int end, int warmUp,
+				FilterFactory factory)
+		{
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.outX = outX;
+			this.outY = outY;
+			this.outZ = outZ;
+			this.start = start;
+			this.end = end;
+			this.warmUp = warmUp;
+			this.factory = factory;
+		}
+
+		@Override
+		public Void call() throws Exception
+		{
+			// The first chunk starts with the session, exactly like the
+			// sequential filter.
+			int from = Math.max(0, start - warmUp);
+			int length = end - from;
+			int skip = start - from;
+
+			float[] bx = new float[length];
+			float[] by = new float[length];
+			float[] bz = new float[length];
+
+			System.arraycopy(x, from, bx, 0, length);
+			System.arraycopy(y, from, by, 0, length);
+			System.arraycopy(z, from, bz, 0, length);
+
+			BatchFilter[] filters = factory.createFilters();
+
+			for (int i = 0; i < filters.length; i++)
+			{
+				filters[i].filterBatch(bx, by, bz, 0, length);
+			}
+
+			System.arraycopy(bx, skip, outX, start, end - start);
+			System.arraycopy(by, skip, outY, start, end - start);
+			System.arraycopy(bz, skip, outZ, start, end - start);
+
+			return null;
+		}
+	}
+}
@@ -0,0 +1,390 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+import com.kircherelectronics.androidlinearacceleration.filters.chain.FilterChain;
+import com.kircherelectronics.androidlinearacceleration.filters.chain.GravityRemovalStage;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Compares the linear acceleration of a device with a reference estimate from
+ * its own acceleration, one measurement at a time. The reference removes
+ * gravity with a low-pass filter. The comparison reports the error of the
+ * device, its bias, its lag behind the reference and its error while the
+ * acceleration is sustained, which is where the implementations differ the
+ * most.
+ * 
+ * Developer Note: Nothing of the session is kept but a short ring of each
+ * stream. The lag is found from the cross-correlation of the two streams
+ * over a bounded range of lags, accumulated as the measurements arrive and
+ * refined to a fraction of a sample with a parabola through its peak.
+ * The application logs at the rate of its display updates, 100 ms, rather
+ * than the sensor rate, so the lag of a log can only be told apart from no
+ * lag at all once it is about one sample period or more.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class ReferenceComparison
+{
+	// The time constant of the gravity estimation of the reference in
+	// seconds.
+	private static final float DEFAULT_TIME_CONSTANT = 1;
+
+	// The number of time constants skipped while the reference settles.
+	private static final int WARM_UP_TIME_CONSTANTS = 5;
+
+	// The largest lag that is searched in samples, either way.
+	private static final int MAX_LAG = 10;
+
+	// The time constant of the averages that find sustained acceleration in
+	// seconds.
+	private static final float SUSTAINED_TIME_CONSTANT = 1;
+
+	// The average linear acceleration that counts as sustained in m/s^2.
+	private static final float SUSTAINED_THRESHOLD = 1;
+
+	private static final double NS_TO_S = 1.0 / 1000000000.0;
+
+	// The stages of the reference, ending with the gravity estimation.
+	private FilterChain reference;
+
+	private long warmUpTime;
+
+	// The reference estimate of the current measurement.
+	private float[] referenceAcceleration = new float[3];
+
+	private long firstTimeStamp = -1;
+	private long lastTimeStamp = -1;
+
+	// The number of compared measurements and the time they span.
+	private long count = 0;
+	private long comparedStart = -1;
+
+	// The sums of the error of each axis and of the squared error.
+	private double[] errorSums = new double[3];
+	private double squaredErrorSum = 0;
+
+	// Averages of both streams that find sustained acceleration.
+	private double[] deviceAverage = new double[3];
+	private double[] referenceAverage = new double[3];
+
+	private long sustainedCount = 0;
+	private double sustainedSquaredErrorSum = 0;
+
+	// The most recent measurements of both streams for the correlation.
+	private float[][] referenceRing = new float[3][2 * MAX_LAG + 1];
+	private float[][] deviceRing = new float[3][2 * MAX_LAG + 1];
+
+	// The sums of the products of the streams at each lag, and of each
+	// stream, over the correlated measurements.
+	private double[] productSums = new double[2 * MAX_LAG + 1];
+	private double[] referenceSums = new double[3];
+	private double[] deviceSums = new double[3];
+	private long correlated = 0;
+
+	/**
+	 * Initialize a new ReferenceComparison object.
+	 */
+	public ReferenceComparison()
+	{
+		this(DEFAULT_TIME_CONSTANT);
+	}
+
+	/**
+	 * Initialize a new ReferenceComparison object.
+	 * 
+	 * @param timeConstant
+	 *            the time constant of the gravity estimation of the
+	 *            reference in seconds.
+	 */
+	public ReferenceComparison(float timeConstant)
+	{
+		reference = new FilterChain();
+		reference.addStage(new GravityRemovalStage(timeConstant));
+
+		warmUpTime = (long) (WARM_UP_TIME_CONSTANTS * timeConstant / NS_TO_S);
+	}
+
+	/**
+	 * Add a measurement of both streams.
+	 * 
+	 * @param acceleration
+	 *            the acceleration of the device, including gravity, in
+	 *            m/s^2.
+	 * @param linearAcceleration
+	 *            the linear acceleration reported by the device in m/s^2.
+	 * @param timeStamp
+	 *            the time of the measurement in nanoseconds.
+	 */
+	public void add(float[] acceleration, float[] linearAcceleration,
+			long timeStamp)
+	{
+		if (!reference.process(acceleration, timeStamp))
+		{
+			return;
+		}
+
+		System.arraycopy(reference.getOutput(), 0, referenceAcceleration, 0,
+				3);
+
+		if (firstTimeStamp < 0)
+		{
+			firstTimeStamp = timeStamp;
+		}
+
+		double dt = (lastTimeStamp < 0) ? 0 : (timeStamp - lastTimeStamp)
+				* NS_TO_S;
+
+		lastTimeStamp = timeStamp;
+
+		if (timeStamp - firstTimeStamp < warmUpTime)
+		{
+			return;
+		}
+
+		if (comparedStart < 0)
+		{
+			comparedStart = timeStamp;
+		}
+
+		// The weight of the new measurement in the averages.
+		double weight = dt / (SUSTAINED_TIME_CONSTANT + dt);
+
+		double squaredError = 0;
+		double deviceMagnitude = 0;
+		double referenceMagnitude = 0;
+
+		for (int i = 0; i < 3; i++)
+		{
+			double error = linearAcceleration[i] - referenceAcceleration[i];
+
+			errorSums[i] += error;
+			squaredError += error * error;
+
+			deviceAverage[i] += weight
+					* (linearAcceleration[i] - deviceAverage[i]);
+			referenceAverage[i] += weight
+					* (referenceAcceleration[i] - referenceAverage[i]);
+
+			deviceMagnitude += deviceAverage[i] * deviceAverage[i];
+			referenceMagnitude += referenceAverage[i] * referenceAverage[i];
+		}
+
+		squaredErrorSum += squaredError;
+
+		double threshold = SUSTAINED_THRESHOLD * SUSTAINED_THRESHOLD;
+
+		if (deviceMagnitude > threshold || referenceMagnitude > threshold)
+		{
+			sustainedSquaredErrorSum += squaredError;
+			sustainedCount++;
+		}
+
+		correlate(linearAcceleration);
+
+		count++;
+	}
+
+	/**
+	 * Get the filter chain of the reference. Stages, such as an
+	 * OutlierRejectStage, can be inserted ahead of the gravity estimation to
+	 * clean up the acceleration of the reference. Measurements the chain does
+	 * not produce an output for are not compared.
+	 * 
+	 * @return the chain.
+	 */
+	public FilterChain getReference()
+	{
+		return reference;
+	}
+
+	/**
+	 * Get the number of measurements that were compared. Measurements are
+	 * not compared while the reference settles.
+	 * 
+	 * @return the number of measurements.
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Get the root mean square of the length of the error vector.
+	 * 
+	 * @return the error in m/s^2.
+	 */
+	public double getRmse()
+	{
+		return (count > 0) ? Math.sqrt(squaredErrorSum / count) : Double.NaN;
+	}
+
+	/**
+	 * Get the mean error of an axis.
+	 * 
+	 * @param axis
+	 *            the axis, 0 to 2 for x to z.
+	 * @return the bias in m/s^2.
+	 */
+	public double getBias(int axis)
+	{
+		return (count > 0) ? errorSums[axis] / count : Double.NaN;
+	}
+
+	/**
+	 * Get the root mean square error while the acceleration is sustained.
+	 * 
+	 * @return the error in m/s^2, or NaN if the acceleration was never
+	 *         sustained.
+	 */
+	public double getSustainedRmse()
+	{
+		return (sustainedCount > 0) ? Math.sqrt(sustainedSquaredErrorSum
+				/ sustainedCount) : Double.NaN;
+	}
+
+	/**
+	 * Get the fraction of the compared measurements where the acceleration
+	 * was sustained.
+	 * 
+	 * @return the fraction from 0 to 1.
+	 */
+	public double getSustainedFraction()
+	{
+		return (count > 0) ? (double) sustainedCount / count : 0;
+	}
+
+	/**
+	 * Get the mean time between the compared measurements. A lag shorter than
+	 * this can not be resolved.
+	 * 
+	 * @return the sample period in seconds, or NaN if there are too few
+	 *         measurements.
+	 */
+	public double getSamplePeriod()
+	{
+		if (count < 2)
+		{
+			return Double.NaN;
+		}
+
+		return (lastTimeStamp - comparedStart) * NS_TO_S / (count - 1);
+	}
+
+	/**
+	 * Get the lag of the device behind the reference, from the peak of their
+	 * cross-correlation. The lag is interpolated between samples, but lags
+	 * shorter than the sample period are not resolved.
+	 * 
+	 * @return the lag in seconds, negative if the device leads, or NaN if
+	 *         there are too few measurements.
+	 */
+	public double getLag()
+	{
+		if (correlated < 2 || count < 2)
+		{
+			return Double.NaN;
+		}
+
+		double[] covariance = new double[productSums.length];
+
+		for (int k = 0; k < covariance.length; k++)
+		{
+			covariance[k] = productSums[k] / correlated;
+
+			for (int i = 0; i < 3; i++)
+			{
+				covariance[k] -= (referenceSums[i] / correlated)
+						* (deviceSums[i] / correlated);
+			}
+		}
+
+		int peak = 0;
+
+		for (int k = 1; k < covariance.length; k++)
+		{
+			if (covariance[k] > covariance[peak])
+			{
+				peak = k;
+			}
+		}
+
+		double offset = 0;
+
+		// Refine the peak with a parabola through it and its neighbors.
+		if (peak > 0 && peak < covariance.length - 1)
+		{
+			double left = covariance[peak - 1];
+			double right = covariance[peak + 1];
+			double curvature = left - 2 * covariance[peak] + right;
+
+			if (curvature < 0)
+			{
+				offset = 0.5 * (left - right) / curvature;
+			}
+		}
+
+		return (peak - MAX_LAG + offset) * getSamplePeriod();
+	}
+
+	/**
+	 * Accumulate the cross-correlation for the measurement MAX_LAG samples
+	 * ago, once the measurements MAX_LAG samples either side of it are
+	 * known. Lag k pairs the reference at that measurement with the device k
+	 * measurements later.
+	 */
+	private void correlate(float[] linearAcceleration)
+	{
+		int size = 2 * MAX_LAG + 1;
+		int slot = (int) (count % size);
+
+		for (int i = 0; i < 3; i++)
+		{
+			referenceRing[i][slot] = referenceAcceleration[i];
+			deviceRing[i][slot] = linearAcceleration[i];
+		}
+
+		if (count < size - 1)
+		{
+			return;
+		}
+
+		int center = (int) ((count - MAX_LAG) % size);
+
+		for (int k = -MAX_LAG; k <= MAX_LAG; k++)
+		{
+			int other = (center + k + size) % size;
+
+			double product = 0;
+
+			for (int i = 0; i < 3; i++)
+			{
+				product += referenceRing[i][center] * deviceRing[i][other];
+			}
+
+			productSums[k + MAX_LAG] += product;
+		}
+
+		for (int i = 0; i < 3; i++)
+		{
+			referenceSums[i] += referenceRing[i][center];
+			deviceSums[i] += deviceRing[i][center];
+		}
+
+		correlated++;
+	}
+}
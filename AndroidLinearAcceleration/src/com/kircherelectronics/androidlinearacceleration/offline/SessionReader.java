@@ -0,0 +1,64 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+import java.io.IOException;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Reads the samples of a recorded session in order, one frame of all
+ * channels at a time, so a session can be processed without holding it in
+ * memory.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface SessionReader
+{
+	/**
+	 * Get the number of channels.
+	 * 
+	 * @return the number of channels.
+	 */
+	public int getChannelCount();
+
+	/**
+	 * Get the time between two samples. Some sessions only know it once all
+	 * samples have been read.
+	 * 
+	 * @return the sample period in seconds.
+	 */
+	public float getSamplePeriod();
+
+	/**
+	 * Read the next frame.
+	 * 
+	 * @param values
+	 *            receives the value of each channel.
+	 * @return false if there are no more frames.
+	 * @throws IOException
+	 *             if the session could not be read.
+	 */
+	public boolean read(float[] values) throws IOException;
+
+	/**
+	 * Release the session.
+	 * 
+	 * @throws IOException
+	 *             if the session could not be closed.
+	 */
+	public void close() throws IOException;
+}
@@ -0,0 +1,118 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.kircherelectronics.androidlinearacceleration.history.MappedSummary;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Reads a session from the samples of its summary file. The file is mapped
+ * rather than read, and the samples are copied out a block at a time.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class SummarySessionReader implements SessionReader
+{
+	// The number of samples of each channel copied at a time.
+	private static final int BLOCK_SIZE = 4096;
+
+	private MappedSummary summary;
+
+	private int channelCount;
+	private int size;
+
+	// The current block of each channel.
+	private float[][] block;
+	private float[] unused;
+
+	// The first sample of the current block and the next sample to return.
+	private int blockStart = 0;
+	private int blockLength = 0;
+	private int position = 0;
+
+	/**
+	 * Initialize a new SummarySessionReader object.
+	 * 
+	 * @param file
+	 *            the summary file.
+	 * @throws IOException
+	 *             if the file could not be opened.
+	 */
+	public SummarySessionReader(File file) throws IOException
+	{
+		summary = new MappedSummary(file);
+
+		channelCount = summary.getChannelCount();
+		size = summary.getSize(0);
+
+		block = new float[channelCount][BLOCK_SIZE];
+		unused = new float[BLOCK_SIZE];
+	}
+
+	@Override
+	public int getChannelCount()
+	{
+		return channelCount;
+	}
+
+	@Override
+	public float getSamplePeriod()
+	{
+		return summary.getSamplePeriod();
+	}
+
+	@Override
+	public boolean read(float[] values) throws IOException
+	{
+		if (position >= size)
+		{
+			return false;
+		}
+
+		if (position >= blockStart + blockLength)
+		{
+			blockStart = position;
+			blockLength = Math.min(BLOCK_SIZE, size - position);
+
+			for (int i = 0; i < channelCount; i++)
+			{
+				summary.read(0, i, blockStart, blockLength, unused, unused,
+						block[i]);
+			}
+		}
+
+		int index = position - blockStart;
+
+		for (int i = 0; i < channelCount; i++)
+		{
+			values[i] = block[i][index];
+		}
+
+		position++;
+
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		summary.close();
+	}
+}
@@ -0,0 +1,952 @@
+package com.kircherelectronics.androidlinearacceleration.offline;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+import com.kircherelectronics.androidlinearacceleration.calibration.AccelerationCalibration;
+import com.kircherelectronics.androidlinearacceleration.calibration.CalibrationCollector;
+import com.kircherelectronics.androidlinearacceleration.calibration.EllipsoidFit;
+import com.kircherelectronics.androidlinearacceleration.filters.BatchFilter;
+import com.kircherelectronics.androidlinearacceleration.filters.LowPassFilter;
+import com.kircherelectronics.androidlinearacceleration.filters.MeanFilter;
+import com.kircherelectronics.androidlinearacceleration.filters.MedianFilter;
+import com.kircherelectronics.androidlinearacceleration.motion.MotionDetector;
+import com.kircherelectronics.androidlinearacceleration.motion.MotionObserver;
+import com.kircherelectronics.androidlinearacceleration.motion.VelocityIntegrator;
+import com.kircherelectronics.androidlinearacceleration.motion.VelocityObserver;
+import com.kircherelectronics.androidlinearacceleration.spectrum.LagEstimator;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Validates the motion detector, the velocity integrator, the Allan variance
+ * analyzer, the parallel filter processor, the reference comparison, the lag
+ * estimator and the ellipsoid calibration against synthetic sessions where
+ * the right answer is known.
+ * Each check prints its measurement next to what it should be, and the tool
+ * exits with a non-zero status if any check fails.
+ * 
+ * The tool can be run from a desktop, with commons-math on the class path:
+ * 
+ * <pre>
+ * java ValidationTool [directory for temporary files] [seed]
+ * </pre>
+ * 
+ * Developer Note: The sessions are generated with a seeded random number
+ * generator, so a failure can be reproduced. The motion detector session is
+ * also written as a log and replayed through the CsvSessionReader, the way
+ * a recorded session would be.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class ValidationTool
+{
+	// The acceleration of gravity in m/s^2. SensorManager is not available
+	// on the desktop.
+	private static final float GRAVITY = 9.80665f;
+
+	private static final double NS_TO_S = 1.0 / 1000000000.0;
+	private static final long S_TO_NS = 1000000000L;
+	private static final long MS_TO_NS = 1000000L;
+
+	// The sample period of the motion sessions in nanoseconds.
+	private static final long MOTION_SAMPLE_PERIOD = 10 * MS_TO_NS;
+
+	// The standard deviation of the sensor noise in m/s^2.
+	private static final double NOISE = 0.02;
+
+	// The motion of the motion detector session in seconds: a shake, a slow
+	// tilt and a short bump, separated by rest.
+	private static final double[][] MOTION_SEGMENTS = new double[][]
+	{
+	{ 2, 4 },
+	{ 6, 7 },
+	{ 9, 9.05 } };
+
+	// The length of the motion detector session in seconds.
+	private static final double MOTION_SESSION_LENGTH = 11;
+
+	// How late a transition may be detected after the motion starts or ends
+	// in seconds.
+	private static final double MAX_DETECTION_DELAY = 1;
+
+	private File directory;
+
+	private long seed;
+
+	private int passed = 0;
+	private int failed = 0;
+
+	/**
+	 * Initialize a new ValidationTool object.
+	 * 
+	 * @param directory
+	 *            the directory for temporary files.
+	 * @param seed
+	 *            the seed of the synthetic sessions.
+	 */
+	public ValidationTool(File directory, long seed)
+	{
+		this.directory = directory;
+		this.seed = seed;
+	}
+
+	/**
+	 * Run every check.
+	 * 
+	 * @return true if every check passed.
+	 * @throws Exception
+	 *             if a check could not be run.
+	 */
+	public boolean run() throws Exception
+	{
+		validateMotionDetector();
+		validateVelocityIntegrator();
+		validateAllanVariance();
+		validateParallelFilter();
+		validateReferenceComparison();
+		validateLagEstimator();
+		validateEllipsoidFit();
+
+		System.out.println(String.format(Locale.US, "%d of %d checks passed",
+				passed, passed + failed));
+
+		return failed == 0;
+	}
+
+	/**
+	 * The detector must report rest and motion once for each segment of the
+	 * synthetic session, identically when the session is replayed from a log,
+	 * and must not flicker on noise just under its threshold.
+	 */
+	private void validateMotionDetector() throws IOException
+	{
+		ArrayList<Long> transitions = new ArrayList<Long>();
+
+		MotionDetector detector = createDetector(transitions);
+
+		Random random = new Random(seed);
+
+		File log = new File(directory, "validation-motion.csv");
+		PrintWriter writer = new PrintWriter(log);
+
+		writer.print("Generation,Timestamp,AX,AY,AZ,");
+
+		float[] acceleration = new float[3];
+
+		int count = 0;
+
+		long end = (long) (MOTION_SESSION_LENGTH * S_TO_NS);
+
+		for (long t = 0; t < end; t += MOTION_SAMPLE_PERIOD)
+		{
+			getMotionSample(t * NS_TO_S, random, acceleration);
+
+			detector.add(acceleration[0], acceleration[1], acceleration[2], t);
+
+			writer.print("\n" + count++ + "," + t / MS_TO_NS + ","
+					+ acceleration[0] + "," + acceleration[1] + ","
+					+ acceleration[2] + ",");
+		}
+
+		writer.close();
+
+		// Rest, then motion and rest for each segment.
+		boolean expected = transitions.size() == 2 * MOTION_SEGMENTS.length
+				+ 1;
+
+		for (int i = 0; expected && i < transitions.size(); i++)
+		{
+			boolean stationary = transitions.get(i) > 0;
+			double time = Math.abs(transitions.get(i)) * NS_TO_S;
+
+			// Rest is expected at the start and after each segment, motion at
+			// the start of each segment.
+			double from = (i == 0) ? 0
+					: MOTION_SEGMENTS[(i - 1) / 2][(i + 1) % 2];
+
+			expected = (stationary == (i % 2 == 0)) && time >= from
+					&& time <= from + MAX_DETECTION_DELAY;
+		}
+
+		check("Motion detector transitions", expected,
+				describeTransitions(transitions));
+
+		ArrayList<Long> replayed = new ArrayList<Long>();
+
+		detector = createDetector(replayed);
+
+		CsvSessionReader reader = new CsvSessionReader(log);
+
+		try
+		{
+			float[] values = new float[reader.getChannelCount()];
+
+			while (reader.read(values))
+			{
+				detector.add(values[0], values[1], values[2],
+						reader.getTimeStamp());
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		log.delete();
+
+		check("Motion detector replayed from a log",
+				replayed.equals(transitions), describeTransitions(replayed));
+
+		ArrayList<Long> noise = new ArrayList<Long>();
+
+		detector = createDetector(noise);
+
+		// Three axes of noise at 75% of the variance threshold.
+		double sigma = Math.sqrt(0.75 * 0.005 / 3);
+
+		for (long t = 0; t < 600 * S_TO_NS; t += MOTION_SAMPLE_PERIOD)
+		{
+			detector.add((float) (sigma * random.nextGaussian()),
+					(float) (sigma * random.nextGaussian()),
+					(float) (GRAVITY + sigma * random.nextGaussian()), t);
+		}
+
+		check("Motion detector on noise under the threshold",
+				noise.size() == 1 && noise.get(0) > 0, noise.size()
+						+ " transitions in 10 minutes, expected 1 to rest");
+	}
+
+	/**
+	 * A 1 m/s^2 acceleration and braking with a bias must end close to the
+	 * true distance once the drift of the motion segment is corrected.
+	 */
+	private void validateVelocityIntegrator()
+	{
+		double[] corrected = integrateManeuver(4096);
+		double[] small = integrateManeuver(100);
+
+		// Accelerate for 2 s and brake for 2 s.
+		double truth = 4;
+
+		double error = Math.abs(corrected[0] - truth);
+
+		check("Velocity integrator distance", error < 0.1
+				&& error < Math.abs(corrected[1] - truth) / 4, String.format(
+				Locale.US, "%.3f m corrected, %.3f m before the correction, "
+						+ "expected %.1f m", corrected[0], corrected[1],
+				truth));
+
+		check("Velocity integrator with a small segment buffer",
+				Math.abs(small[0] - corrected[0]) < 0.01, String.format(
+						Locale.US, "%.3f m, expected %.3f m", small[0],
+						corrected[0]));
+	}
+
+	/**
+	 * White noise must give the expected velocity random walk, and the
+	 * deviation must match a direct overlapping Allan variance.
+	 */
+	private void validateAllanVariance() throws Exception
+	{
+		Random random = new Random(seed);
+
+		float samplePeriod = 0.01f;
+
+		float[][] hour = new float[1][360000];
+
+		for (int i = 0; i < hour[0].length; i++)
+		{
+			hour[0][i] = (float) (NOISE * random.nextGaussian());
+		}
+
+		AllanVarianceAnalyzer analyzer = new AllanVarianceAnalyzer(directory);
+
+		try
+		{
+			double vrw = analyzer.analyze(
+					new ArraySessionReader(hour, samplePeriod))[0]
+					.getVelocityRandomWalk();
+			double expected = NOISE * Math.sqrt(samplePeriod);
+
+			check("Allan velocity random walk", Math.abs(vrw - expected)
+					/ expected < 0.05, String.format(Locale.US,
+					"%.5f, expected %.5f", vrw, expected));
+
+			float[][] small = new float[1][500];
+
+			for (int i = 0; i < small[0].length; i++)
+			{
+				small[0][i] = (float) (3 + random.nextGaussian());
+			}
+
+			AllanDeviation deviation = analyzer.analyze(new ArraySessionReader(
+					small, 0.1f))[0];
+
+			double error = 0;
+
+			for (int i = 0; i < deviation.getTau().length; i++)
+			{
+				int m = (int) Math.round(deviation.getTau()[i] / 0.1f);
+
+				double direct = getAllanDeviation(small[0], m);
+
+				error = Math.max(error, Math.abs(deviation.getDeviation()[i]
+						- direct)
+						/ direct);
+			}
+
+			check("Allan deviation against a direct computation",
+					error < 1e-6, String.format(Locale.US,
+							"relative error %.1e", error));
+		}
+		finally
+		{
+			analyzer.shutdown();
+		}
+	}
+
+	/**
+	 * Filtering a session in chunks on several threads must give the output
+	 * of filtering it sequentially, to within what is left of the initial
+	 * state of the IIR filter after the warm-up.
+	 */
+	private void validateParallelFilter() throws Exception
+	{
+		Random random = new Random(seed);
+
+		final float samplePeriod = MOTION_SAMPLE_PERIOD * (float) NS_TO_S;
+
+		int length = 500000;
+
+		float[][] session = new float[3][length];
+
+		double range = 0;
+
+		for (int i = 0; i < length; i++)
+		{
+			for (int axis = 0; axis < 3; axis++)
+			{
+				session[axis][i] = (float) (getBroadbandSignal(axis, i
+						* samplePeriod) + NOISE * random.nextGaussian());
+
+				range = Math.max(range, Math.abs(session[axis][i]));
+			}
+		}
+
+		ParallelFilterProcessor.FilterFactory factory = new ParallelFilterProcessor.FilterFactory()
+		{
+			@Override
+			public BatchFilter[] createFilters()
+			{
+				LowPassFilter lowPass = new LowPassFilter(0.18f);
+				lowPass.setSamplePeriod(samplePeriod);
+
+				return new BatchFilter[]
+				{ new MedianFilter(), new MeanFilter(), lowPass };
+			}
+		};
+
+		float[][] sequential = new float[][]
+		{ session[0].clone(), session[1].clone(), session[2].clone() };
+
+		BatchFilter[] filters = factory.createFilters();
+
+		for (int i = 0; i < filters.length; i++)
+		{
+			filters[i].filterBatch(sequential[0], sequential[1],
+					sequential[2], 0, length);
+		}
+
+		float[][] parallel = new float[3][length];
+
+		ParallelFilterProcessor processor = new ParallelFilterProcessor(4);
+
+		try
+		{
+			processor.process(session[0], session[1], session[2],
+					parallel[0], parallel[1], parallel[2], length, factory);
+		}
+		finally
+		{
+			processor.shutdown();
+		}
+
+		double difference = 0;
+
+		for (int axis = 0; axis < 3; axis++)
+		{
+			for (int i = 0; i < length; i++)
+			{
+				difference = Math.max(difference,
+						Math.abs(parallel[axis][i] - sequential[axis][i]));
+			}
+		}
+
+		// The initial state decays to about one millionth of the range of
+		// the signal, doubled for the rounding of single precision.
+		double bound = 2 * 1e-6 * 2 * range;
+
+		check("Parallel filtering against sequential", difference < bound,
+				String.format(Locale.US, "%.1e m/s^2, expected under %.1e",
+						difference, bound));
+	}
+
+	/**
+	 * The lag of a delayed device stream behind the reference must be found
+	 * to within a fraction of the 100 ms sample period.
+	 */
+	private void validateReferenceComparison()
+	{
+		Random random = new Random(seed);
+
+		int length = 6000;
+		long samplePeriod = 100 * MS_TO_NS;
+
+		double[] linear = new double[length];
+
+		for (int i = 0; i < length; i++)
+		{
+			double s = i * 0.1;
+
+			linear[i] = 0.8 * Math.sin(2 * Math.PI * 0.3 * s) + 0.5
+					* Math.sin(2 * Math.PI * 0.11 * s + 1);
+		}
+
+		double worst = 0;
+
+		StringBuilder lags = new StringBuilder();
+
+		for (int delay = 0; delay <= 5; delay++)
+		{
+			ReferenceComparison comparison = new ReferenceComparison(20);
+
+			float[] acceleration = new float[3];
+			float[] device = new float[3];
+
+			for (int i = 0; i < length; i++)
+			{
+				acceleration[0] = (float) linear[i];
+				acceleration[2] = GRAVITY;
+
+				device[0] = (float) ((i >= delay ? linear[i - delay] : 0)
+						+ 0.05 + NOISE * random.nextGaussian());
+
+				comparison.add(acceleration, device, i * samplePeriod);
+			}
+
+			double lag = comparison.getLag();
+
+			worst = Math.max(worst, Math.abs(lag - delay * samplePeriod
+					* NS_TO_S));
+
+			lags.append(String.format(Locale.US, "%s%.0f", (delay > 0) ? ", "
+					: "", lag * 1000));
+		}
+
+		check("Reference comparison lag", worst < 0.02, "ms for delays of 0 "
+				+ "to 500 ms: " + lags);
+	}
+
+	/**
+	 * Delays between the streams must be estimated to within 2 ms from 50 Hz
+	 * streams with jittered time stamps, and windows at rest must be
+	 * rejected.
+	 */
+	private void validateLagEstimator()
+	{
+		double[] delays = new double[]
+		{ 0, 0.0123, 0.047, 0.08, 0.1337 };
+
+		double worst = 0;
+
+		for (int d = 0; d < delays.length; d++)
+		{
+			LagEstimator estimator = new LagEstimator();
+
+			Random random = new Random(seed);
+
+			float[] acceleration = new float[3];
+			float[] linear = new float[3];
+
+			for (double t = 0; t < 120; t += 0.02 + 0.001 * random
+					.nextGaussian())
+			{
+				for (int i = 0; i < 3; i++)
+				{
+					acceleration[i] = (float) (getBroadbandSignal(i, t)
+							+ ((i == 2) ? GRAVITY : 0) + NOISE
+							* random.nextGaussian());
+					linear[i] = (float) (getBroadbandSignal(i, t - delays[d])
+							+ NOISE * random.nextGaussian());
+				}
+
+				long timeStamp = (long) (t * S_TO_NS);
+
+				estimator.addAcceleration(acceleration, timeStamp);
+				estimator.addLinearAcceleration(linear, timeStamp
+						+ (long) (2 * MS_TO_NS * random.nextDouble()));
+			}
+
+			worst = Math.max(worst, Math.abs(estimator.getLag() - delays[d]));
+		}
+
+		check("Lag estimator", worst < 0.002, String.format(Locale.US,
+				"worst error %.2f ms for delays of 0 to 134 ms", worst * 1000));
+
+		LagEstimator estimator = new LagEstimator();
+
+		float[] rest = new float[]
+		{ 0, 0, GRAVITY };
+		float[] none = new float[3];
+
+		for (long i = 0; i < 10000; i++)
+		{
+			estimator.addAcceleration(rest, i * 20 * MS_TO_NS);
+			estimator.addLinearAcceleration(none, i * 20 * MS_TO_NS);
+		}
+
+		check("Lag estimator at rest", estimator.getEstimateCount() == 0
+				&& estimator.getRejectedCount() > 0, estimator
+				.getRejectedCount()
+				+ " windows rejected, "
+				+ estimator.getEstimateCount() + " estimates");
+	}
+
+	/**
+	 * As many orientations as the calibration collector measures, of an
+	 * accelerometer with bias, scale and cross-axis errors, must give a
+	 * correction that is accurate in every orientation, and nine orientations
+	 * must be rejected.
+	 */
+	private void validateEllipsoidFit()
+	{
+		double[][] matrix = new double[][]
+		{
+		{ 1.02, 0.01, -0.005 },
+		{ 0.008, 0.97, 0.012 },
+		{ -0.004, 0.006, 1.01 } };
+		double[] bias = new double[]
+		{ 0.25, -0.15, 0.3 };
+
+		Random random = new Random(seed);
+
+		EllipsoidFit fit = new EllipsoidFit(GRAVITY);
+
+		ArrayList<double[]> directions = new ArrayList<double[]>();
+
+		int target = CalibrationCollector.DEFAULT_TARGET;
+
+		while (directions.size() < target)
+		{
+			double[] direction = getDirection(random);
+
+			boolean separated = true;
+
+			// The calibration collector keeps orientations 30 degrees apart.
+			for (int i = 0; i < directions.size(); i++)
+			{
+				double[] other = directions.get(i);
+
+				separated &= (direction[0] * other[0] + direction[1]
+						* other[1] + direction[2] * other[2])
+						/ (GRAVITY * GRAVITY) < Math.cos(Math.toRadians(30));
+			}
+
+			if (separated)
+			{
+				directions.add(direction);
+				fit.add(getMisalignedSample(direction, matrix, bias, random,
+						0.005));
+			}
+		}
+
+		AccelerationCalibration calibration = fit.fit();
+
+		double worst = Double.NaN;
+		double worstUncorrected = 0;
+
+		if (calibration != null)
+		{
+			worst = 0;
+
+			for (int i = 0; i < 1000; i++)
+			{
+				float[] sample = getMisalignedSample(getDirection(random),
+						matrix, bias, random, 0);
+
+				worstUncorrected = Math.max(worstUncorrected,
+						Math.abs(getMagnitude(sample) - GRAVITY));
+
+				calibration.apply(sample);
+
+				worst = Math.max(worst, Math.abs(getMagnitude(sample)
+						- GRAVITY));
+			}
+		}
+
+		check("Ellipsoid calibration with " + target + " orientations",
+				worst < 0.05, String.format(Locale.US,
+						"worst magnitude error %.4f m/s^2, "
+								+ "%.3f m/s^2 uncorrected", worst,
+						worstUncorrected));
+
+		EllipsoidFit underdetermined = new EllipsoidFit(GRAVITY);
+
+		for (int i = 0; i < 9; i++)
+		{
+			underdetermined.add(getMisalignedSample(directions.get(i),
+					matrix, bias, random, 0.005));
+		}
+
+		check("Ellipsoid calibration with 9 orientations",
+				underdetermined.fit() == null, "expected no calibration");
+	}
+
+	/**
+	 * Print the outcome of a check.
+	 */
+	private void check(String name, boolean pass, String detail)
+	{
+		if (pass)
+		{
+			passed++;
+		}
+		else
+		{
+			failed++;
+		}
+
+		System.out.println((pass ? "PASS " : "FAIL ") + name + ": " + detail);
+	}
+
+	/**
+	 * Create a motion detector that records its transitions as time stamps,
+	 * positive for rest and negative for motion.
+	 */
+	private static MotionDetector createDetector(
+			final ArrayList<Long> transitions)
+	{
+		MotionDetector detector = new MotionDetector();
+
+		detector.registerMotionObserver(new MotionObserver()
+		{
+			@Override
+			public void onMotionChanged(boolean stationary, long timeStamp)
+			{
+				// Offset by one so a transition at zero keeps its sign.
+				transitions.add(stationary ? timeStamp + 1 : -timeStamp - 1);
+			}
+		});
+
+		return detector;
+	}
+
+	/**
+	 * Describe the transitions of a motion detector.
+	 */
+	private static String describeTransitions(ArrayList<Long> transitions)
+	{
+		StringBuilder description = new StringBuilder();
+
+		for (int i = 0; i < transitions.size(); i++)
+		{
+			long transition = transitions.get(i);
+
+			description.append(String.format(Locale.US, "%s%s %.2f s",
+					(i > 0) ? ", " : "", (transition > 0) ? "rest" : "motion",
+					(Math.abs(transition) - 1) * NS_TO_S));
+		}
+
+		return description.toString();
+	}
+
+	/**
+	 * Get a sample of the motion detector session.
+	 */
+	private static void getMotionSample(double s, Random random,
+			float[] acceleration)
+	{
+		double x = 0;
+
+		// Shake at 2 Hz.
+		if (s >= MOTION_SEGMENTS[0][0] && s < MOTION_SEGMENTS[0][1])
+		{
+			x = 2 * Math.sin(2 * Math.PI * 2 * s);
+		}
+
+		// Tilt at 30 degrees per second.
+		double angle = Math.toRadians(30 * Math.min(Math.max(s
+				- MOTION_SEGMENTS[1][0], 0), MOTION_SEGMENTS[1][1]
+				- MOTION_SEGMENTS[1][0]));
+
+		// A bump of 3 m/s^2.
+		if (s >= MOTION_SEGMENTS[2][0] && s < MOTION_SEGMENTS[2][1])
+		{
+			x += 3;
+		}
+
+		acceleration[0] = (float) (x + NOISE * random.nextGaussian());
+		acceleration[1] = (float) (GRAVITY * Math.sin(angle) + NOISE
+				* random.nextGaussian());
+		acceleration[2] = (float) (GRAVITY * Math.cos(angle) + NOISE
+				* random.nextGaussian());
+	}
+
+	/**
+	 * Integrate an acceleration and braking maneuver with a bias.
+	 * 
+	 * @param capacity
+	 *            the number of samples of a segment the integrator keeps.
+	 * @return the final distance and the largest distance before the drift
+	 *         was corrected in meters.
+	 */
+	private double[] integrateManeuver(int capacity)
+	{
+		VelocityIntegrator integrator = new VelocityIntegrator(capacity);
+
+		MotionDetector detector = new MotionDetector();
+		detector.registerMotionObserver(integrator);
+
+		final double[] distance = new double[1];
+
+		integrator.registerVelocityObserver(new VelocityObserver()
+		{
+			@Override
+			public void onVelocityChanged(float[] velocity,
+					float[] displacement, long timeStamp)
+			{
+				distance[0] = displacement[0];
+			}
+
+			@Override
+			public void onSegmentCorrected(long startTime, long endTime)
+			{
+			}
+		});
+
+		Random random = new Random(seed);
+
+		double bias = 0.05;
+		double uncorrected = 0;
+
+		float[] linear = new float[3];
+
+		for (long t = 0; t < 12 * S_TO_NS; t += 5 * MS_TO_NS
+				+ (random.nextInt(3) - 1) * MS_TO_NS / 5)
+		{
+			double s = t * NS_TO_S;
+
+			double a = (s >= 1 && s < 3) ? 1 : (s >= 3 && s < 5) ? -1 : 0;
+
+			// Vibration, so the detector sees motion for the whole maneuver.
+			if (s >= 1 && s < 5)
+			{
+				a += 0.3 * Math.sin(2 * Math.PI * 5 * s);
+			}
+
+			float measured = (float) (a + bias + NOISE * random.nextGaussian());
+
+			detector.add(measured, (float) (NOISE * random.nextGaussian()),
+					(float) (GRAVITY + NOISE * random.nextGaussian()), t);
+
+			linear[0] = measured;
+
+			integrator.onLinearAccelerationSensorChanged(linear, t);
+
+			if (s < 7)
+			{
+				uncorrected = Math.max(uncorrected, distance[0]);
+			}
+		}
+
+		return new double[]
+		{ distance[0], uncorrected };
+	}
+
+	/**
+	 * Get the overlapping Allan deviation of a cluster size directly from its
+	 * definition.
+	 */
+	private static double getAllanDeviation(float[] samples, int m)
+	{
+		double sum = 0;
+		int count = 0;
+
+		for (int k = 0; k + 2 * m <= samples.length; k++)
+		{
+			double first = 0;
+			double second = 0;
+
+			for (int j = 0; j < m; j++)
+			{
+				first += samples[k + j];
+				second += samples[k + m + j];
+			}
+
+			double difference = (second - first) / m;
+
+			sum += difference * difference;
+			count++;
+		}
+
+		return Math.sqrt(sum / (2 * count));
+	}
+
+	/**
+	 * Get a signal with a broad spectrum for an axis, so its correlation has
+	 * a single sharp peak.
+	 */
+	private static double getBroadbandSignal(int axis, double t)
+	{
+		double signal = 0;
+
+		for (int k = 1; k <= 12; k++)
+		{
+			signal += Math.sin(2 * Math.PI * (0.3 * k + axis * 0.11) * t + k
+					* 1.7 + axis)
+					/ k;
+		}
+
+		return signal;
+	}
+
+	/**
+	 * Get the direction of gravity in a random orientation.
+	 */
+	private static double[] getDirection(Random random)
+	{
+		double x = random.nextGaussian();
+		double y = random.nextGaussian();
+		double z = random.nextGaussian();
+
+		double scale = GRAVITY / Math.sqrt(x * x + y * y + z * z);
+
+		return new double[]
+		{ x * scale, y * scale, z * scale };
+	}
+
+	/**
+	 * Get the measurement of an accelerometer with bias, scale and cross-axis
+	 * errors.
+	 */
+	private static float[] getMisalignedSample(double[] direction,
+			double[][] matrix, double[] bias, Random random, double noise)
+	{
+		float[] sample = new float[3];
+
+		for (int i = 0; i < 3; i++)
+		{
+			double value = bias[i];
+
+			for (int j = 0; j < 3; j++)
+			{
+				value += matrix[i][j] * direction[j];
+			}
+
+			sample[i] = (float) (value + noise * random.nextGaussian());
+		}
+
+		return sample;
+	}
+
+	/**
+	 * Get the magnitude of a measurement.
+	 */
+	private static double getMagnitude(float[] sample)
+	{
+		return Math.sqrt(sample[0] * sample[0] + sample[1] * sample[1]
+				+ sample[2] * sample[2]);
+	}
+
+	/**
+	 * Reads a session from memory.
+	 */
+	private static class ArraySessionReader implements SessionReader
+	{
+		private float[][] channels;
+		private float samplePeriod;
+		private int position = 0;
+
+		public ArraySessionReader(float[][] channels, float samplePeriod)
+		{
+			this.channels = channels;
+			this.samplePeriod = samplePeriod;
+		}
+
+		@Override
+		public int getChannelCount()
+		{
+			return channels.length;
+		}
+
+		@Override
+		public float getSamplePeriod()
+		{
+			return samplePeriod;
+		}
+
+		@Override
+		public boolean read(float[] values)
+		{
+			if (position >= channels[0].length)
+			{
+				return false;
+			}
+
+			for (int i = 0; i < channels.length; i++)
+			{
+				values[i] = channels[i][position];
+			}
+
+			position++;
+
+			return true;
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+
+	/**
+	 * Run every check.
+	 * 
+	 * @param args
+	 *            optionally the directory for temporary files and the seed of
+	 *            the synthetic sessions.
+	 * @throws Exception
+	 *             if a check could not be run.
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		File directory = new File((args.length > 0) ? args[0]
+				: System.getProperty("java.io.tmpdir"));
+		long seed = (args.length > 1) ? Long.parseLong(args[1]) : 1;
+
+		if (!new ValidationTool(directory, seed).run())
+		{
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,218 @@
+package com.kircherelectronics.androidlinearacceleration.plot;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Reduces a long window of samples to two points per bucket so it can be
+ * drawn with a cost that depends on the width of the plot rather than the
+ * length of the window. The window is divided into buckets of equal duration,
+ * usually one per pixel, and each bucket is drawn as the minimum and maximum
+ * of the samples that fell into it, in the order they occurred. Peaks are
+ * never lost, unlike plain sub-sampling.
+ * 
+ * Developer Note: The decimator is incremental. Each sample only updates the
+ * minimum and maximum of the current bucket and replaces the two newest
+ * points in the SampleBuffer, so adding a sample is O(series) and the render
+ * thread never sees more than two points per bucket, no matter how long the
+ * window is.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class MinMaxDecimator
+{
+	// The decimated points, two for each bucket.
+	private SampleBuffer buffer;
+
+	// The duration of a bucket in nanoseconds.
+	private long bucketDuration;
+
+	// The time stamp at which the current bucket ends.
+	private long bucketEnd;
+
+	// Indicate if a bucket has been started.
+	private boolean bucketStarted = false;
+
+	// The extremes of the current bucket for each series.
+	private float[] min;
+	private float[] max;
+
+	// Indicate if the minimum of a series occurred before the maximum.
+	private boolean[] minFirst;
+
+	// The points of the current bucket in the order they occurred.
+	private float[] firstPoint;
+	private float[] secondPoint;
+
+	/**
+	 * Initialize a new MinMaxDecimator object.
+	 * 
+	 * @param buffer
+	 *            the buffer the points are written to. It holds two points
+	 *            for each bucket.
+	 * @param windowLength
+	 *            the duration of the plot window in nanoseconds.
+	 */
+	public MinMaxDecimator(SampleBuffer buffer, long windowLength)
+	{
+		this.buffer = buffer;
+
+		int seriesCount = buffer.getSeriesCount();
+
+		min = new float[seriesCount];
+		max = new float[seriesCount];
+		minFirst = new boolean[seriesCount];
+
+		firstPoint = new float[seriesCount];
+		secondPoint = new float[seriesCount];
+
+		setWindowLength(windowLength);
+	}
+
+	/**
+	 * Get the number of buckets in the plot window.
+	 * 
+	 * @return the number of buckets.
+	 */
+	public int getBucketCount()
+	{
+		return Math.max(1, buffer.getCapacity() / 2);
+	}
+
+	/**
+	 * Get the duration of a bucket.
+	 * 
+	 * @return the duration of a bucket in nanoseconds.
+	 */
+	public long getBucketDuration()
+	{
+		return bucketDuration;
+	}
+
+	/**
+	 * Set the duration of the plot window. This clears the buffer.
+	 * 
+	 * @param windowLength
+	 *            the duration of the plot window in nanoseconds.
+	 */
+	public void setWindowLength(long windowLength)
+	{
+		if (windowLength <= 0)
+		{
+			throw new IllegalArgumentException(
+					"Window length must be positive");
+		}
+
+		bucketDuration = Math.max(1, windowLength / getBucketCount());
+
+		reset();
+	}
+
+	/**
+	 * Add a sample to every series.
+	 * 
+	 * @param values
+	 *            one value for each series.
+	 * @param timeStamp
+	 *            the time stamp of the sample in nanoseconds.
+	 */
+	public void add(float[] values, long timeStamp)
+	{
+		if (!bucketStarted || timeStamp >= bucketEnd)
+		{
+			startBucket(values, timeStamp);
+
+			return;
+		}
+
+		for (int i = 0; i < min.length; i++)
+		{
+			float value = values[i];
+
+			if (value < min[i])
+			{
+				min[i] = value;
+				minFirst[i] = false;
+			}
+			else if (value > max[i])
+			{
+				max[i] = value;
+				minFirst[i] = true;
+			}
+
+			if (minFirst[i])
+			{
+				firstPoint[i] = min[i];
+				secondPoint[i] = max[i];
+			}
+			else
+			{
+				firstPoint[i] = max[i];
+				secondPoint[i] = min[i];
+			}
+		}
+
+		buffer.setNewest(firstPoint, secondPoint);
+	}
+
+	/**
+	 * Clear the buffer and start over.
+	 */
+	public void reset()
+	{
+		bucketStarted = false;
+
+		buffer.clear();
+	}
+
+	/**
+	 * Start a new bucket with a sample.
+	 * 
+	 * @param values
+	 *            one value for each series.
+	 * @param timeStamp
+	 *            the time stamp of the sample in nanoseconds.
+	 */
+	private void startBucket(float[] values, long timeStamp)
+	{
+		if (bucketStarted)
+		{
+			// Keep the buckets aligned. A gap in the samples is skipped
+			// rather than drawn as empty buckets.
+			bucketEnd += ((timeStamp - bucketEnd) / bucketDuration + 1)
+					* bucketDuration;
+		}
+		else
+		{
+			bucketEnd = timeStamp + bucketDuration;
+			bucketStarted = true;
+		}
+
+		for (int i = 0; i < min.length; i++)
+		{
+			min[i] = values[i];
+			max[i] = values[i];
+			minFirst[i] = true;
+		}
+
+		// Both points of a new bucket start at the first sample and are
+		// replaced as the bucket fills.
+		buffer.add(values, values);
+	}
+}
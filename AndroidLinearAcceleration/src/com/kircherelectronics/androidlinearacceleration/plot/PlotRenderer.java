@@ -0,0 +1,182 @@
+package com.kircherelectronics.androidlinearacceleration.plot;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.kircherelectronics.androidlinearacceleration.render.SurfaceRenderer;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Draws time series of the samples in a SampleBuffer on the render thread of
+ * a RenderSurfaceView. The samples are copied into a snapshot at the start of
+ * each frame and every series is drawn with a single drawLines() call from a
+ * preallocated point array, so drawing a frame allocates nothing.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class PlotRenderer implements SurfaceRenderer
+{
+	private static final int LINE_WIDTH = 2;
+
+	// The space between the plot and the edges of the surface in pixels.
+	private static final int PADDING = 15;
+
+	private SampleBuffer buffer;
+	private SampleBuffer.Snapshot snapshot;
+
+	private Paint[] seriesPaints;
+	private Paint axisPaint;
+
+	// The line segments of a series, four coordinates per segment.
+	private float[] points;
+
+	// The range of the plot, written by the UI thread.
+	private volatile float maxRange = 10;
+	private volatile float minRange = -10;
+
+	private int width;
+	private int height;
+
+	/**
+	 * Initialize a new PlotRenderer object.
+	 * 
+	 * @param buffer
+	 *            the samples to draw.
+	 * @param colors
+	 *            the color of each series.
+	 */
+	public PlotRenderer(SampleBuffer buffer, int[] colors)
+	{
+		this.buffer = buffer;
+
+		snapshot = new SampleBuffer.Snapshot(buffer);
+		points = new float[Math.max(0, buffer.getCapacity() - 1) * 4];
+
+		seriesPaints = new Paint[buffer.getSeriesCount()];
+
+		for (int i = 0; i < seriesPaints.length; i++)
+		{
+			seriesPaints[i] = new Paint();
+			seriesPaints[i].setAntiAlias(true);
+			seriesPaints[i].setStyle(Paint.Style.STROKE);
+			seriesPaints[i].setColor(colors[i]);
+			seriesPaints[i].setStrokeWidth(LINE_WIDTH);
+		}
+
+		axisPaint = new Paint();
+		axisPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+		axisPaint.setColor(Color.rgb(119, 119, 119));
+		axisPaint.setStrokeWidth(2);
+	}
+
+	/**
+	 * Set the max range of the plot.
+	 * 
+	 * @param maxRange
+	 *            The maximum range of the plot.
+	 */
+	public void setMaxRange(float maxRange)
+	{
+		this.maxRange = maxRange;
+	}
+
+	/**
+	 * Set the min range of the plot.
+	 * 
+	 * @param minRange
+	 *            The minimum range of the plot.
+	 */
+	public void setMinRange(float minRange)
+	{
+		this.minRange = minRange;
+	}
+
+	@Override
+	public void onSurfaceChanged(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	public void onDrawFrame(Canvas canvas)
+	{
+		buffer.snapshot(snapshot);
+
+		canvas.drawColor(Color.BLACK);
+
+		float left = PADDING;
+		float top = PADDING;
+		float plotWidth = width - 2 * PADDING;
+		float plotHeight = height - 2 * PADDING;
+
+		float max = maxRange;
+		float min = minRange;
+
+		float yScale = plotHeight / (max - min);
+
+		canvas.clipRect(left, top, left + plotWidth, top + plotHeight);
+
+		// Draw the origin of the range.
+		float origin = top + (max - 0) * yScale;
+		canvas.drawLine(left, origin, left + plotWidth, origin, axisPaint);
+
+		int count = snapshot.count;
+
+		if (count < 2)
+		{
+			return;
+		}
+
+		float xScale = plotWidth / (buffer.getCapacity() - 1);
+
+		// Right align the samples so the newest sample is always at the
+		// right edge of the plot.
+		float xOffset = left + (buffer.getCapacity() - count) * xScale;
+
+		for (int s = 0; s < snapshot.samples.length; s++)
+		{
+			float[] samples = snapshot.samples[s];
+
+			int p = 0;
+
+			float x0 = xOffset;
+			float y0 = top + (max - samples[0]) * yScale;
+
+			for (int i = 1; i < count; i++)
+			{
+				float x1 = xOffset + i * xScale;
+				float y1 = top + (max - samples[i]) * yScale;
+
+				points[p++] = x0;
+				points[p++] = y0;
+				points[p++] = x1;
+				points[p++] = y1;
+
+				x0 = x1;
+				y0 = y1;
+			}
+
+			canvas.drawLines(points, 0, p, seriesPaints[s]);
+		}
+	}
+}
@@ -0,0 +1,278 @@
+package com.kircherelectronics.androidlinearacceleration.plot;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Hands the most recent samples of several series from the thread that
+ * receives them to a render thread. The producer writes into a primitive ring
+ * buffer, and the render thread copies the ring into its own snapshot at the
+ * start of a frame. The lock is only held for the copy, so the render thread
+ * draws from its snapshot while the producer keeps writing, and neither side
+ * allocates memory.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class SampleBuffer
+{
+	/**
+	 * The samples of all of the series in chronological order, owned by the
+	 * render thread.
+	 */
+	public static class Snapshot
+	{
+		// samples[series][i] is the i-th oldest sample of a series.
+		public final float[][] samples;
+
+		// The number of samples in each series.
+		public int count;
+
+		// The version of the buffer the snapshot was taken from.
+		public long version = -1;
+
+		/**
+		 * Create a snapshot for a buffer.
+		 * 
+		 * @param buffer
+		 *            the buffer the snapshot is taken from.
+		 */
+		public Snapshot(SampleBuffer buffer)
+		{
+			samples = new float[buffer.getSeriesCount()][buffer.getCapacity()];
+		}
+	}
+
+	private final Object lock = new Object();
+
+	private final int seriesCount;
+	private final int capacity;
+
+	// Guarded by lock.
+	private final float[][] ring;
+	private int head = 0;
+	private int count = 0;
+	private long version = 0;
+
+	/**
+	 * Initialize a new SampleBuffer object.
+	 * 
+	 * @param seriesCount
+	 *            the number of series.
+	 * @param capacity
+	 *            the number of samples kept for each series.
+	 */
+	public SampleBuffer(int seriesCount, int capacity)
+	{
+		this.seriesCount = seriesCount;
+		this.capacity = capacity;
+
+		ring = new float[seriesCount][capacity];
+	}
+
+	/**
+	 * Get the number of series.
+	 * 
+	 * @return the number of series.
+	 */
+	public int getSeriesCount()
+	{
+		return seriesCount;
+	}
+
+	/**
+	 * Get the number of samples kept for each series.
+	 * 
+	 * @return the capacity.
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Add a sample to every series.
+	 * 
+	 * @param values
+	 *            one value for each series.
+	 */
+	public void add(float[] values)
+	{
+		synchronized (lock)
+		{
+			append(values);
+
+			version++;
+		}
+	}
+
+	/**
+	 * Add two samples to every series. A snapshot either has both samples
+	 * or neither.
+	 * 
+	 * @param older
+	 *            one value for each series of the first sample.
+	 * @param newest
+	 *            one value for each series of the second sample.
+	 */
+	public void add(float[] older, float[] newest)
+	{
+		synchronized (lock)
+		{
+			append(older);
+			append(newest);
+
+			version++;
+		}
+	}
+
+	/**
+	 * Replace a sample that has already been added to every series.
+	 * 
+	 * @param age
+	 *            the position of the sample counting back from the newest
+	 *            sample, which is 0.
+	 * @param values
+	 *            one value for each series.
+	 */
+	public void set(int age, float[] values)
+	{
+		synchronized (lock)
+		{
+			replace(age, values);
+
+			version++;
+		}
+	}
+
+	/**
+	 * Replace the two newest samples of every series. A snapshot either has
+	 * both replacements or neither.
+	 * 
+	 * @param older
+	 *            one value for each series of the second newest sample.
+	 * @param newest
+	 *            one value for each series of the newest sample.
+	 */
+	public void setNewest(float[] older, float[] newest)
+	{
+		synchronized (lock)
+		{
+			replace(1, older);
+			replace(0, newest);
+
+			version++;
+		}
+	}
+
+	/**
+	 * Remove all of the samples.
+	 */
+	public void clear()
+	{
+		synchronized (lock)
+		{
+			head = 0;
+			count = 0;
+			version++;
+		}
+	}
+
+	/**
+	 * Add a sample to every series. The lock must be held.
+	 * 
+	 * @param values
+	 *            one value for each series.
+	 */
+	private void append(float[] values)
+	{
+		int tail = (head + count) % capacity;
+
+		for (int i = 0; i < seriesCount; i++)
+		{
+			ring[i][tail] = values[i];
+		}
+
+		if (count == capacity)
+		{
+			head = (head + 1) % capacity;
+		}
+		else
+		{
+			count++;
+		}
+	}
+
+	/**
+	 * Replace a sample of every series. The lock must be held.
+	 * 
+	 * @param age
+	 *            the position of the sample counting back from the newest
+	 *            sample, which is 0.
+	 * @param values
+	 *            one value for each series.
+	 */
+	private void replace(int age, float[] values)
+	{
+		if (age < 0 || age >= count)
+		{
+			throw new IndexOutOfBoundsException("Age " + age + " with "
+					+ count + " samples");
+		}
+
+		int index = (head + count - 1 - age) % capacity;
+
+		for (int i = 0; i < seriesCount; i++)
+		{
+			ring[i][index] = values[i];
+		}
+	}
+
+	/**
+	 * Copy the samples into a snapshot if they have changed since the
+	 * snapshot was taken.
+	 * 
+	 * @param snapshot
+	 *            the snapshot.
+	 * @return true if the snapshot was updated.
+	 */
+	public boolean snapshot(Snapshot snapshot)
+	{
+		synchronized (lock)
+		{
+			if (snapshot.version == version)
+			{
+				return false;
+			}
+
+			int first = Math.min(count, capacity - head);
+
+			for (int i = 0; i < seriesCount; i++)
+			{
+				System.arraycopy(ring[i], head, snapshot.samples[i], 0, first);
+				System.arraycopy(ring[i], 0, snapshot.samples[i], first, count
+						- first);
+			}
+
+			snapshot.count = count;
+			snapshot.version = version;
+
+			return true;
+		}
+	}
+}
@@ -25,4 +25,5 @@ public class PrefUtils
 	public final static String SENSOR_FREQUENCY_SLOW = "Slow";
 	public final static String SENSOR_FREQUENCY_MEDIUM = "Medium";
 	public final static String SENSOR_FREQUENCY_FAST = "Fast";
+	public final static String ACCELERATION_CALIBRATION_PREF = "acceleration_calibration_";
 }
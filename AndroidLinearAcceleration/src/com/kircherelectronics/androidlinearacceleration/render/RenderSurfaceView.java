@@ -0,0 +1,318 @@
+package com.kircherelectronics.androidlinearacceleration.render;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.util.Log;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import com.kircherelectronics.androidlinearacceleration.statistics.WindowedStatistics;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * A SurfaceView that draws a SurfaceRenderer on its own render thread, so
+ * drawing does not compete with layout and input on the UI thread. Frames are
+ * only drawn when they are requested, and posting a frame blocks the render
+ * thread until the display has consumed the previous one, so the frame rate
+ * never exceeds the refresh rate of the display.
+ * 
+ * SurfaceView is used rather than TextureView because it works on every
+ * Android version we support and does not need a hardware accelerated
+ * window.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class RenderSurfaceView extends SurfaceView implements
+		SurfaceHolder.Callback
+{
+	private static final String tag = RenderSurfaceView.class.getSimpleName();
+
+	// The number of frames in the frame time statistics.
+	private static final int FRAME_STATISTICS_SIZE = 120;
+
+	private RenderThread renderThread;
+
+	private SurfaceRenderer renderer;
+
+	// Frame times in milliseconds, guarded by itself.
+	private WindowedStatistics frameStatistics;
+
+	/**
+	 * Create a new instance.
+	 * 
+	 * @param context
+	 */
+	public RenderSurfaceView(Context context)
+	{
+		super(context);
+		init();
+	}
+
+	/**
+	 * Create a new instance.
+	 * 
+	 * @param context
+	 * @param attrs
+	 */
+	public RenderSurfaceView(Context context, AttributeSet attrs)
+	{
+		super(context, attrs);
+		init();
+	}
+
+	/**
+	 * Create a new instance.
+	 * 
+	 * @param context
+	 * @param attrs
+	 * @param defStyle
+	 */
+	public RenderSurfaceView(Context context, AttributeSet attrs, int defStyle)
+	{
+		super(context, attrs, defStyle);
+		init();
+	}
+
+	/**
+	 * Set the renderer that draws the frames. This must be set before the
+	 * surface is created.
+	 * 
+	 * @param renderer
+	 *            the renderer.
+	 */
+	public void setRenderer(SurfaceRenderer renderer)
+	{
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Request that a frame is drawn. Any number of requests before the render
+	 * thread picks them up result in a single frame. This can be called from
+	 * any thread.
+	 */
+	public void requestRender()
+	{
+		RenderThread thread = renderThread;
+
+		if (thread != null)
+		{
+			thread.requestRender();
+		}
+	}
+
+	/**
+	 * Get the average time to draw and post a frame over the most recent
+	 * frames.
+	 * 
+	 * @return the average frame time in milliseconds.
+	 */
+	public float getAverageFrameTime()
+	{
+		synchronized (frameStatistics)
+		{
+			return (float) frameStatistics.getMean();
+		}
+	}
+
+	/**
+	 * Get the longest time to draw and post a frame over the most recent
+	 * frames.
+	 * 
+	 * @return the longest frame time in milliseconds.
+	 */
+	public float getMaxFrameTime()
+	{
+		synchronized (frameStatistics)
+		{
+			return (float) frameStatistics.getMax();
+		}
+	}
+
+	@Override
+	public void surfaceCreated(SurfaceHolder holder)
+	{
+		renderThread = new RenderThread(holder);
+		renderThread.start();
+	}
+
+	@Override
+	public void surfaceChanged(SurfaceHolder holder, int format, int width,
+			int height)
+	{
+		renderThread.setSize(width, height);
+	}
+
+	@Override
+	public void surfaceDestroyed(SurfaceHolder holder)
+	{
+		// The surface must not be touched once this returns, so wait for the
+		// render thread to finish its frame.
+		RenderThread thread = renderThread;
+		renderThread = null;
+
+		thread.quit();
+
+		try
+		{
+			thread.join();
+		}
+		catch (InterruptedException e)
+		{
+			Log.w(tag, "Interrupted while stopping the render thread");
+		}
+	}
+
+	/**
+	 * Initialize the members of the instance.
+	 */
+	private void init()
+	{
+		frameStatistics = new WindowedStatistics(FRAME_STATISTICS_SIZE);
+
+		getHolder().addCallback(this);
+	}
+
+	/**
+	 * Draws the frames of the renderer when they are requested.
+	 */
+	private class RenderThread extends Thread
+	{
+		private final SurfaceHolder holder;
+
+		private final Object lock = new Object();
+
+		// Guarded by lock.
+		private boolean running = true;
+		private boolean renderRequested = true;
+		private boolean sizeChanged = false;
+		private int width;
+		private int height;
+
+		public RenderThread(SurfaceHolder holder)
+		{
+			super("RenderThread");
+
+			this.holder = holder;
+		}
+
+		public void requestRender()
+		{
+			synchronized (lock)
+			{
+				renderRequested = true;
+				lock.notify();
+			}
+		}
+
+		public void setSize(int width, int height)
+		{
+			synchronized (lock)
+			{
+				this.width = width;
+				this.height = height;
+
+				sizeChanged = true;
+				renderRequested = true;
+				lock.notify();
+			}
+		}
+
+		public void quit()
+		{
+			synchronized (lock)
+			{
+				running = false;
+				lock.notify();
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			while (true)
+			{
+				boolean resize;
+				int w;
+				int h;
+
+				synchronized (lock)
+				{
+					while (running && !renderRequested)
+					{
+						try
+						{
+							lock.wait();
+						}
+						catch (InterruptedException e)
+						{
+							return;
+						}
+					}
+
+					if (!running)
+					{
+						return;
+					}
+
+					renderRequested = false;
+
+					resize = sizeChanged;
+					sizeChanged = false;
+					w = width;
+					h = height;
+				}
+
+				if (renderer == null)
+				{
+					continue;
+				}
+
+				if (resize)
+				{
+					renderer.onSurfaceChanged(w, h);
+				}
+
+				long start = System.nanoTime();
+
+				Canvas canvas = holder.lockCanvas();
+
+				if (canvas != null)
+				{
+					try
+					{
+						renderer.onDrawFrame(canvas);
+					}
+					finally
+					{
+						holder.unlockCanvasAndPost(canvas);
+					}
+
+					synchronized (frameStatistics)
+					{
+						frameStatistics
+								.add((System.nanoTime() - start) / 1000000.0);
+					}
+				}
+			}
+		}
+	}
+}
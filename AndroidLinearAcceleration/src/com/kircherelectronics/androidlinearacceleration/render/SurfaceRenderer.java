@@ -0,0 +1,52 @@
+package com.kircherelectronics.androidlinearacceleration.render;
+
+import android.graphics.Canvas;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * An interface for classes that draw on the render thread of a
+ * RenderSurfaceView. Implementations must only draw from data they own on the
+ * render thread, for instance a snapshot taken at the start of the frame, and
+ * must not touch views.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface SurfaceRenderer
+{
+	/**
+	 * Notify the renderer that the size of the surface has changed. Called on
+	 * the render thread before the next frame.
+	 * 
+	 * @param width
+	 *            the width of the surface in pixels.
+	 * @param height
+	 *            the height of the surface in pixels.
+	 */
+	public void onSurfaceChanged(int width, int height);
+
+	/**
+	 * Draw a frame. Called on the render thread.
+	 * 
+	 * @param canvas
+	 *            the canvas of the surface.
+	 */
+	public void onDrawFrame(Canvas canvas);
+}
@@ -5,13 +5,20 @@ import java.util.ArrayList;
 import org.apache.commons.math3.geometry.euclidean.threed.Rotation;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.SharedPreferences;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.SystemClock;
 
+import com.kircherelectronics.androidlinearacceleration.calibration.AccelerationCalibration;
+import com.kircherelectronics.androidlinearacceleration.prefs.PrefUtils;
 import com.kircherelectronics.androidlinearacceleration.sensor.observer.AccelerationSensorObserver;
+import com.kircherelectronics.androidlinearacceleration.statistics.LatencyHistogram;
 
 /*
  * Copyright 2013, Kaleb Kircher - Boki Software, Kircher Electronics
@@ -43,7 +50,10 @@ public class AccelerationSensor implements SensorEventListener
 	/*
 	 * Developer Note: Quaternions are used for the internal representations of
 	 * the rotations which prevents the polar anomalies associated with Gimbal
-	 * lock when using Euler angles for the rotations.
+	 * lock when using Euler angles for the rotations. The composite rotation
+	 * is converted to a matrix of primitives once, so rotating a measurement
+	 * is a few multiply-adds and does not allocate. The matrix is replaced
+	 * rather than changed, so it can be set from any thread.
 	 */
 	
 	private static final String tag = AccelerationSensor.class.getSimpleName();
@@ -63,9 +73,23 @@ public class AccelerationSensor implements SensorEventListener
 	// sensor event.
 	private float[] acceleration = new float[3];
 
+	// The correction of the bias, scale and cross-axis errors of the
+	// accelerometer.
+	private AccelerationCalibration calibration;
+
 	// The time stamp of the most recent Sensor Event.
 	private long timeStamp = 0;
 
+	// The time stamps of Sensor Events are on the elapsed realtime clock,
+	// which can only be read from Jelly Bean MR1.
+	private boolean latencySupported = Build.VERSION.SDK_INT
+			>= Build.VERSION_CODES.JELLY_BEAN_MR1;
+
+	// The latencies from the time stamp of a Sensor Event to its delivery and
+	// to the return of the last observer.
+	private LatencyHistogram deliveryLatency = new LatencyHistogram();
+	private LatencyHistogram completionLatency = new LatencyHistogram();
+
 	// Quaternion data structures to rotate a matrix from the absolute Android
 	// orientation to the orientation that the device is actually in. This is
 	// needed because the the device sensors orientation is fixed in hardware.
@@ -76,13 +100,13 @@ public class AccelerationSensor implements SensorEventListener
 	private Rotation xQuaternion;
 	private Rotation rotationQuaternion;
 
+	// The row major matrix that rotates the measurements into the vehicle
+	// frame in Vehicle Mode.
+	private volatile float[] vehicleRotation;
+
 	// We need the SensorManager to register for Sensor Events.
 	private SensorManager sensorManager;
 
-	// The vectors that will be rotated when the application is in Vehicle Mode.
-	private Vector3D vIn;
-	private Vector3D vOut;
-
 	/**
 	 * Initialize the state.
 	 * 
@@ -100,6 +124,8 @@ public class AccelerationSensor implements SensorEventListener
 
 		observersAcceleration = new ArrayList<AccelerationSensorObserver>();
 
+		readCalibration();
+
 		sensorManager = (SensorManager) this.context
 				.getSystemService(Context.SENSOR_SERVICE);
 	}
@@ -162,20 +188,87 @@ public class AccelerationSensor implements SensorEventListener
 	{
 		if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER)
 		{
+			long receiveTime = latencySupported ? getElapsedRealtimeNanos() : 0;
+
 			System.arraycopy(event.values, 0, acceleration, 0,
 					event.values.length);
 
 			timeStamp = event.timestamp;
 
+			// Correct the accelerometer in its own frame, before any
+			// rotation.
+			calibration.apply(acceleration);
+
 			if (vehicleMode)
 			{
-				acceleration = quaternionToDeviceVehicleMode(acceleration);
+				rotateToVehicle(acceleration);
 			}
 
 			notifyAccelerationObserver();
+
+			if (latencySupported)
+			{
+				deliveryLatency.record(receiveTime - timeStamp);
+				completionLatency.record(getElapsedRealtimeNanos() - timeStamp);
+			}
 		}
 	}
 
+	/**
+	 * Get the latencies from the time stamps of the Sensor Events to their
+	 * delivery to this sensor. Nothing is recorded before Jelly Bean MR1.
+	 * 
+	 * @return the latencies.
+	 */
+	public LatencyHistogram getDeliveryLatency()
+	{
+		return deliveryLatency;
+	}
+
+	/**
+	 * Get the latencies from the time stamps of the Sensor Events to the
+	 * return of the last observer. Nothing is recorded before Jelly Bean MR1.
+	 * 
+	 * @return the latencies.
+	 */
+	public LatencyHistogram getCompletionLatency()
+	{
+		return completionLatency;
+	}
+
+	/**
+	 * Forget the recorded latencies.
+	 */
+	public void resetLatency()
+	{
+		deliveryLatency.reset();
+		completionLatency.reset();
+	}
+
+	/**
+	 * Get the correction that is applied to the accelerometer.
+	 * 
+	 * @return the correction.
+	 */
+	public AccelerationCalibration getCalibration()
+	{
+		return calibration;
+	}
+
+	/**
+	 * Set the correction that is applied to the accelerometer and save it to
+	 * the preferences.
+	 * 
+	 * @param calibration
+	 *            the correction.
+	 */
+	public void setCalibration(AccelerationCalibration calibration)
+	{
+		this.calibration = calibration;
+
+		writeCalibration();
+	}
+
 	/**
 	 * Vehicle mode occurs when the device is put into the landscape
 	 * orientation. On Android phones, the positive Y-Axis of the sensors faces
@@ -190,6 +283,43 @@ public class AccelerationSensor implements SensorEventListener
 		this.vehicleMode = vehicleMode;
 	}
 
+	/**
+	 * Indicate if the application is in vehicle mode.
+	 * 
+	 * @return true if in vehicle mode.
+	 */
+	public boolean isVehicleMode()
+	{
+		return vehicleMode;
+	}
+
+	/**
+	 * Set the rotation into the vehicle frame that is used in vehicle mode,
+	 * for a device that is mounted at an arbitrary angle. This replaces the
+	 * rotation for the landscape orientation.
+	 * 
+	 * @param matrix
+	 *            the row major 3x3 rotation matrix.
+	 */
+	public void setVehicleRotation(float[] matrix)
+	{
+		float[] rotation = new float[9];
+
+		System.arraycopy(matrix, 0, rotation, 0, 9);
+
+		vehicleRotation = rotation;
+	}
+
+	/**
+	 * Get the rotation into the vehicle frame that is used in vehicle mode.
+	 * 
+	 * @return the row major 3x3 rotation matrix.
+	 */
+	public float[] getVehicleRotation()
+	{
+		return vehicleRotation.clone();
+	}
+
 	/**
 	 * To avoid anomalies at the poles with Euler angles and Gimbal lock,
 	 * quaternions are used instead.
@@ -209,6 +339,88 @@ public class AccelerationSensor implements SensorEventListener
 
 		// Create the composite rotation.
 		rotationQuaternion = yQuaternion.applyTo(xQuaternion);
+
+		double[][] matrix = rotationQuaternion.getMatrix();
+
+		vehicleRotation = new float[9];
+
+		for (int i = 0; i < 3; i++)
+		{
+			for (int j = 0; j < 3; j++)
+			{
+				vehicleRotation[i * 3 + j] = (float) matrix[i][j];
+			}
+		}
+	}
+
+	/**
+	 * Read the correction from the preferences.
+	 */
+	private void readCalibration()
+	{
+		SharedPreferences prefs = context.getSharedPreferences(
+				PrefUtils.SENSOR_PREFS, Context.MODE_PRIVATE);
+
+		if (!prefs.contains(PrefUtils.ACCELERATION_CALIBRATION_PREF + 0))
+		{
+			calibration = AccelerationCalibration.IDENTITY;
+
+			return;
+		}
+
+		float[] matrix = new float[9];
+		float[] offset = new float[3];
+
+		for (int i = 0; i < matrix.length; i++)
+		{
+			matrix[i] = prefs.getFloat(PrefUtils.ACCELERATION_CALIBRATION_PREF
+					+ i, 0);
+		}
+
+		for (int i = 0; i < offset.length; i++)
+		{
+			offset[i] = prefs.getFloat(PrefUtils.ACCELERATION_CALIBRATION_PREF
+					+ (matrix.length + i), 0);
+		}
+
+		calibration = new AccelerationCalibration(matrix, offset);
+	}
+
+	/**
+	 * Write the correction to the preferences.
+	 */
+	private void writeCalibration()
+	{
+		SharedPreferences.Editor editor = context.getSharedPreferences(
+				PrefUtils.SENSOR_PREFS, Context.MODE_PRIVATE).edit();
+
+		float[] matrix = calibration.getMatrix();
+		float[] offset = calibration.getOffset();
+
+		for (int i = 0; i < matrix.length; i++)
+		{
+			editor.putFloat(PrefUtils.ACCELERATION_CALIBRATION_PREF + i,
+					matrix[i]);
+		}
+
+		for (int i = 0; i < offset.length; i++)
+		{
+			editor.putFloat(PrefUtils.ACCELERATION_CALIBRATION_PREF
+					+ (matrix.length + i), offset[i]);
+		}
+
+		editor.commit();
+	}
+
+	/**
+	 * Read the clock that the time stamps of Sensor Events are on.
+	 * 
+	 * @return the elapsed realtime in nanoseconds.
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+	private static long getElapsedRealtimeNanos()
+	{
+		return SystemClock.elapsedRealtimeNanos();
 	}
 
 	/**
@@ -224,29 +436,30 @@ public class AccelerationSensor implements SensorEventListener
 
 	/**
 	 * Orient the measurements from the absolute Android device rotation into
-	 * the current device orientation. Note that the rotation is different based
-	 * on the current rotation of the device relative to the absolute Android
-	 * rotation. Do not confuse this with a rotation into absolute earth frame,
-	 * or the NED orientation that the algorithm assumes.
+	 * the vehicle frame. Note that the rotation is different based on how the
+	 * device is mounted relative to the vehicle. Do not confuse this with a
+	 * rotation into absolute earth frame, or the NED orientation that the
+	 * algorithm assumes.
 	 * 
 	 * @param measurements
 	 *            the measurements referenced to the absolute Android
-	 *            orientation.
-	 * @return the measurements referenced to the current device rotation.
+	 *            orientation, which are rotated in place.
 	 * 
 	 * @see http 
 	 *      ://developer.android.com/reference/android/hardware/SensorEvent.html
 	 *      #values
 	 */
-	private float[] quaternionToDeviceVehicleMode(float[] matrix)
+	private void rotateToVehicle(float[] measurements)
 	{
+		// Read the matrix once, in case it is replaced meanwhile.
+		float[] matrix = vehicleRotation;
 
-		vIn = new Vector3D(matrix[0], matrix[1], matrix[2]);
-		vOut = rotationQuaternion.applyTo(vIn);
-
-		float[] rotation =
-		{ (float) vOut.getX(), (float) vOut.getY(), (float) vOut.getZ() };
+		float x = measurements[0];
+		float y = measurements[1];
+		float z = measurements[2];
 
-		return rotation;
+		measurements[0] = matrix[0] * x + matrix[1] * y + matrix[2] * z;
+		measurements[1] = matrix[3] * x + matrix[4] * y + matrix[5] * z;
+		measurements[2] = matrix[6] * x + matrix[7] * y + matrix[8] * z;
 	}
 }
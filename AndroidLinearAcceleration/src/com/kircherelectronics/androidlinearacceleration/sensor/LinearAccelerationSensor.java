@@ -5,14 +5,19 @@ import java.util.ArrayList;
 import org.apache.commons.math3.geometry.euclidean.threed.Rotation;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.os.Build;
+import android.os.SystemClock;
 
-import com.kircherelectronics.androidlinearacceleration.sensor.observer.AccelerationSensorObserver;
+import com.kircherelectronics.androidlinearacceleration.filters.chain.FilterChain;
+import com.kircherelectronics.androidlinearacceleration.filters.chain.RotationStage;
 import com.kircherelectronics.androidlinearacceleration.sensor.observer.LinearAccelerationSensorObserver;
+import com.kircherelectronics.androidlinearacceleration.statistics.LatencyHistogram;
 
 /*
  * Copyright 2013, Kaleb Kircher - Boki Software, Kircher Electronics
@@ -44,7 +49,16 @@ public class LinearAccelerationSensor implements SensorEventListener
 	/*
 	 * Developer Note: Quaternions are used for the internal representations of
 	 * the rotations which prevents the polar anomalies associated with Gimbal
-	 * lock when using Euler angles for the rotations.
+	 * lock when using Euler angles for the rotations. The composite rotation
+	 * is converted to a matrix of primitives once, so rotating a measurement
+	 * is a few multiply-adds and does not allocate.
+	 * 
+	 * Every measurement goes through a FilterChain before it reaches the
+	 * observers, the same chain that recorded sessions are filtered with
+	 * offline. In vehicle mode the chain ends with the rotation into the
+	 * vehicle frame. The chain is not thread safe, so stages must be added and
+	 * removed on the thread the sensor events are delivered on, the main
+	 * thread. The rotation itself can be set from any thread.
 	 */
 	
 	private static final String tag = LinearAccelerationSensor.class.getSimpleName();
@@ -67,6 +81,16 @@ public class LinearAccelerationSensor implements SensorEventListener
 	// The time stamp of the most recent Sensor Event.
 	private long timeStamp = 0;
 
+	// The time stamps of Sensor Events are on the elapsed realtime clock,
+	// which can only be read from Jelly Bean MR1.
+	private boolean latencySupported = Build.VERSION.SDK_INT
+			>= Build.VERSION_CODES.JELLY_BEAN_MR1;
+
+	// The latencies from the time stamp of a Sensor Event to its delivery and
+	// to the return of the last observer.
+	private LatencyHistogram deliveryLatency = new LatencyHistogram();
+	private LatencyHistogram completionLatency = new LatencyHistogram();
+
 	// Quaternion data structures to rotate a matrix from the absolute Android
 	// orientation to the orientation that the device is actually in. This is
 	// needed because the the device sensors orientation is fixed in hardware.
@@ -77,13 +101,15 @@ public class LinearAccelerationSensor implements SensorEventListener
 	private Rotation xQuaternion;
 	private Rotation rotationQuaternion;
 
+	// Rotates the measurements into the vehicle frame in Vehicle Mode.
+	private RotationStage vehicleRotation;
+
+	// The stages every measurement goes through before it is delivered.
+	private FilterChain filterChain;
+
 	// We need the SensorManager to register for Sensor Events.
 	private SensorManager sensorManager;
 
-	// The vectors that will be rotated when the application is in Vehicle Mode.
-	private Vector3D vIn;
-	private Vector3D vOut;
-
 	/**
 	 * Initialize the state.
 	 * 
@@ -96,6 +122,8 @@ public class LinearAccelerationSensor implements SensorEventListener
 
 		this.context = context;
 
+		filterChain = new FilterChain();
+
 		// initEulerRotations();
 		initQuaternionRotations();
 
@@ -137,7 +165,7 @@ public class LinearAccelerationSensor implements SensorEventListener
 	 * @param observer
 	 *            The observer to be removed.
 	 */
-	public void removeAccelerationObserver(AccelerationSensorObserver observer)
+	public void removeAccelerationObserver(LinearAccelerationSensorObserver observer)
 	{
 		int i = observersAcceleration.indexOf(observer);
 		if (i >= 0)
@@ -163,20 +191,62 @@ public class LinearAccelerationSensor implements SensorEventListener
 	{
 		if (event.sensor.getType() == Sensor.TYPE_LINEAR_ACCELERATION)
 		{
+			long receiveTime = latencySupported ? getElapsedRealtimeNanos() : 0;
+
 			System.arraycopy(event.values, 0, linearAcceleration, 0,
 					event.values.length);
 
-			timeStamp = event.timestamp;
-
-			if (vehicleMode)
+			if (!filterChain.process(linearAcceleration, event.timestamp))
 			{
-				linearAcceleration = quaternionToDeviceVehicleMode(linearAcceleration);
+				return;
 			}
 
+			System.arraycopy(filterChain.getOutput(), 0, linearAcceleration,
+					0, 3);
+
+			timeStamp = filterChain.getTimeStamp();
+
 			notifyAccelerationObserver();
+
+			if (latencySupported)
+			{
+				deliveryLatency.record(receiveTime - timeStamp);
+				completionLatency.record(getElapsedRealtimeNanos() - timeStamp);
+			}
 		}
 	}
 
+	/**
+	 * Get the latencies from the time stamps of the Sensor Events to their
+	 * delivery to this sensor. Nothing is recorded before Jelly Bean MR1.
+	 * 
+	 * @return the latencies.
+	 */
+	public LatencyHistogram getDeliveryLatency()
+	{
+		return deliveryLatency;
+	}
+
+	/**
+	 * Get the latencies from the time stamps of the Sensor Events to the
+	 * return of the last observer. Nothing is recorded before Jelly Bean MR1.
+	 * 
+	 * @return the latencies.
+	 */
+	public LatencyHistogram getCompletionLatency()
+	{
+		return completionLatency;
+	}
+
+	/**
+	 * Forget the recorded latencies.
+	 */
+	public void resetLatency()
+	{
+		deliveryLatency.reset();
+		completionLatency.reset();
+	}
+
 	/**
 	 * Vehicle mode occurs when the device is put into the landscape
 	 * orientation. On Android phones, the positive Y-Axis of the sensors faces
@@ -188,9 +258,62 @@ public class LinearAccelerationSensor implements SensorEventListener
 	 */
 	public void setVehicleMode(boolean vehicleMode)
 	{
+		if (vehicleMode && !this.vehicleMode)
+		{
+			filterChain.addStage(vehicleRotation);
+		}
+		else if (!vehicleMode)
+		{
+			filterChain.removeStage(vehicleRotation);
+		}
+
 		this.vehicleMode = vehicleMode;
 	}
 
+	/**
+	 * Indicate if the application is in vehicle mode.
+	 * 
+	 * @return true if in vehicle mode.
+	 */
+	public boolean isVehicleMode()
+	{
+		return vehicleMode;
+	}
+
+	/**
+	 * Set the rotation into the vehicle frame that is used in vehicle mode,
+	 * for a device that is mounted at an arbitrary angle. This replaces the
+	 * rotation for the landscape orientation.
+	 * 
+	 * @param matrix
+	 *            the row major 3x3 rotation matrix.
+	 */
+	public void setVehicleRotation(float[] matrix)
+	{
+		vehicleRotation.setRotationMatrix(matrix);
+	}
+
+	/**
+	 * Get the rotation into the vehicle frame that is used in vehicle mode.
+	 * 
+	 * @return the row major 3x3 rotation matrix.
+	 */
+	public float[] getVehicleRotation()
+	{
+		return vehicleRotation.getRotationMatrix();
+	}
+
+	/**
+	 * Get the chain the measurements go through before they are delivered.
+	 * Stages may only be added or removed on the main thread.
+	 * 
+	 * @return the filter chain.
+	 */
+	public FilterChain getFilterChain()
+	{
+		return filterChain;
+	}
+
 	/**
 	 * To avoid anomalies at the poles with Euler angles and Gimbal lock,
 	 * quaternions are used instead.
@@ -210,6 +333,31 @@ public class LinearAccelerationSensor implements SensorEventListener
 
 		// Create the composite rotation.
 		rotationQuaternion = yQuaternion.applyTo(xQuaternion);
+
+		double[][] matrix = rotationQuaternion.getMatrix();
+
+		float[] vehicleMatrix = new float[9];
+
+		for (int i = 0; i < 3; i++)
+		{
+			for (int j = 0; j < 3; j++)
+			{
+				vehicleMatrix[i * 3 + j] = (float) matrix[i][j];
+			}
+		}
+
+		vehicleRotation = new RotationStage(vehicleMatrix);
+	}
+
+	/**
+	 * Read the clock that the time stamps of Sensor Events are on.
+	 * 
+	 * @return the elapsed realtime in nanoseconds.
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+	private static long getElapsedRealtimeNanos()
+	{
+		return SystemClock.elapsedRealtimeNanos();
 	}
 
 	/**
@@ -222,32 +370,4 @@ public class LinearAccelerationSensor implements SensorEventListener
 			a.onLinearAccelerationSensorChanged(this.linearAcceleration, this.timeStamp);
 		}
 	}
-
-	/**
-	 * Orient the measurements from the absolute Android device rotation into
-	 * the current device orientation. Note that the rotation is different based
-	 * on the current rotation of the device relative to the absolute Android
-	 * rotation. Do not confuse this with a rotation into absolute earth frame,
-	 * or the NED orientation that the algorithm assumes.
-	 * 
-	 * @param measurements
-	 *            the measurements referenced to the absolute Android
-	 *            orientation.
-	 * @return the measurements referenced to the current device rotation.
-	 * 
-	 * @see http 
-	 *      ://developer.android.com/reference/android/hardware/SensorEvent.html
-	 *      #values
-	 */
-	private float[] quaternionToDeviceVehicleMode(float[] matrix)
-	{
-
-		vIn = new Vector3D(matrix[0], matrix[1], matrix[2]);
-		vOut = rotationQuaternion.applyTo(vIn);
-
-		float[] rotation =
-		{ (float) vOut.getX(), (float) vOut.getY(), (float) vOut.getZ() };
-
-		return rotation;
-	}
 }
@@ -0,0 +1,473 @@
+package com.kircherelectronics.androidlinearacceleration.spectrum;
+
+import com.kircherelectronics.androidlinearacceleration.sensor.observer.AccelerationSensorObserver;
+import com.kircherelectronics.androidlinearacceleration.sensor.observer.LinearAccelerationSensorObserver;
+import com.kircherelectronics.androidlinearacceleration.statistics.RunningStatistics;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Estimates how far the linear acceleration of a device lags behind its
+ * acceleration. Windows of both streams are resampled onto a common time
+ * base, differenced so that gravity drops out, and cross-correlated with an
+ * FFT. The peak of the correlation is refined to a fraction of a sample with
+ * a parabola through its neighbors. Windows without enough motion or
+ * without a clear peak are discarded, and the accepted lags are summarized
+ * as the latency of the device.
+ * 
+ * Developer Note: The estimator is registered with both sensors and keeps a
+ * ring of each stream. A window is only correlated once per estimate
+ * period, so it can run live at a low duty cycle; offline, measurements can
+ * be added directly with the time stamps of a log. All buffers are
+ * allocated with the instance and an estimate does not allocate.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class LagEstimator implements AccelerationSensorObserver,
+		LinearAccelerationSensorObserver
+{
+	// The number of samples in a window.
+	private static final int DEFAULT_WINDOW_SIZE = 256;
+
+	// The time between two estimates in nanoseconds.
+	private static final long DEFAULT_ESTIMATE_PERIOD = 5000000000L;
+
+	// The smallest normalized correlation of an accepted window.
+	private static final float MIN_CORRELATION = 0.5f;
+
+	// The smallest mean square of the differenced linear acceleration of an
+	// accepted window in (m/s^2)^2, so windows at rest are ignored.
+	private static final float MIN_ENERGY = 1e-4f;
+
+	// How quickly the estimate of the sample period follows changes.
+	private static final float SAMPLE_PERIOD_ALPHA = 0.05f;
+
+	private static final double NS_TO_S = 1.0 / 1000000000.0;
+
+	private int windowSize;
+
+	// The largest lag that is searched in samples, either way.
+	private int maxLag;
+
+	private long estimatePeriod;
+
+	// The rings of both streams, sized to cover a window at twice the
+	// sample rate of the acceleration.
+	private int ringSize;
+
+	private long[] accelerationTimes;
+	private float[] accelerationValues;
+	private int accelerationHead = 0;
+	private int accelerationCount = 0;
+
+	private long[] linearTimes;
+	private float[] linearValues;
+	private int linearHead = 0;
+	private int linearCount = 0;
+
+	// The estimated time between acceleration samples in nanoseconds.
+	private double samplePeriod = 0;
+
+	private long lastEstimateTime = 0;
+
+	// The resampled windows of one axis and the zero padded, differenced
+	// windows that are correlated.
+	private float[] accelerationWindow;
+	private float[] linearWindow;
+	private float[] accelerationPadded;
+	private float[] linearPadded;
+
+	private RealFft fft;
+
+	// The spectra of one axis and the cross spectrum summed over the axes.
+	private float[] accelerationRe;
+	private float[] accelerationIm;
+	private float[] linearRe;
+	private float[] linearIm;
+	private float[] crossRe;
+	private float[] crossIm;
+
+	private float[] correlation;
+
+	// The accepted lags in seconds.
+	private RunningStatistics lags;
+
+	private long rejectedCount = 0;
+
+	/**
+	 * Initialize a new LagEstimator object.
+	 */
+	public LagEstimator()
+	{
+		this(DEFAULT_WINDOW_SIZE, DEFAULT_ESTIMATE_PERIOD);
+	}
+
+	/**
+	 * Initialize a new LagEstimator object.
+	 * 
+	 * @param windowSize
+	 *            the number of samples in a window, a power of two.
+	 * @param estimatePeriod
+	 *            the time between two estimates in nanoseconds, or 0 to
+	 *            estimate as often as a new window is available.
+	 */
+	public LagEstimator(int windowSize, long estimatePeriod)
+	{
+		this.windowSize = windowSize;
+		this.estimatePeriod = estimatePeriod;
+
+		maxLag = windowSize / 4;
+
+		ringSize = 2 * windowSize;
+
+		accelerationTimes = new long[ringSize];
+		accelerationValues = new float[ringSize * 3];
+		linearTimes = new long[ringSize];
+		linearValues = new float[ringSize * 3];
+
+		accelerationWindow = new float[windowSize];
+		linearWindow = new float[windowSize];
+
+		// Zero padding to twice the window keeps the correlation linear
+		// rather than circular.
+		fft = new RealFft(2 * windowSize);
+
+		accelerationPadded = new float[2 * windowSize];
+		linearPadded = new float[2 * windowSize];
+
+		int bins = fft.getBinCount();
+
+		accelerationRe = new float[bins];
+		accelerationIm = new float[bins];
+		linearRe = new float[bins];
+		linearIm = new float[bins];
+		crossRe = new float[bins];
+		crossIm = new float[bins];
+
+		correlation = new float[2 * windowSize];
+
+		lags = new RunningStatistics();
+	}
+
+	@Override
+	public void onAccelerationSensorChanged(float[] acceleration,
+			long timeStamp)
+	{
+		addAcceleration(acceleration, timeStamp);
+	}
+
+	@Override
+	public void onLinearAccelerationSensorChanged(float[] linearAcceleration,
+			long timeStamp)
+	{
+		addLinearAcceleration(linearAcceleration, timeStamp);
+	}
+
+	/**
+	 * Add a measurement of the acceleration, including gravity.
+	 * 
+	 * @param acceleration
+	 *            the acceleration (x, y, z) in m/s^2.
+	 * @param timeStamp
+	 *            the time of the measurement in nanoseconds.
+	 */
+	public void addAcceleration(float[] acceleration, long timeStamp)
+	{
+		if (accelerationCount > 0)
+		{
+			long last = accelerationTimes[(accelerationHead - 1 + ringSize)
+					% ringSize];
+
+			if (timeStamp <= last)
+			{
+				return;
+			}
+
+			double period = timeStamp - last;
+
+			samplePeriod = (samplePeriod == 0) ? period : samplePeriod
+					+ SAMPLE_PERIOD_ALPHA * (period - samplePeriod);
+		}
+
+		accelerationTimes[accelerationHead] = timeStamp;
+		System.arraycopy(acceleration, 0, accelerationValues,
+				accelerationHead * 3, 3);
+
+		accelerationHead = (accelerationHead + 1) % ringSize;
+		accelerationCount = Math.min(accelerationCount + 1, ringSize);
+	}
+
+	/**
+	 * Add a measurement of the linear acceleration. An estimate is made if
+	 * it is due and both streams cover a window.
+	 * 
+	 * @param linearAcceleration
+	 *            the linear acceleration (x, y, z) in m/s^2.
+	 * @param timeStamp
+	 *            the time of the measurement in nanoseconds.
+	 */
+	public void addLinearAcceleration(float[] linearAcceleration,
+			long timeStamp)
+	{
+		if (linearCount > 0
+				&& timeStamp <= linearTimes[(linearHead - 1 + ringSize)
+						% ringSize])
+		{
+			return;
+		}
+
+		linearTimes[linearHead] = timeStamp;
+		System.arraycopy(linearAcceleration, 0, linearValues,
+				linearHead * 3, 3);
+
+		linearHead = (linearHead + 1) % ringSize;
+		linearCount = Math.min(linearCount + 1, ringSize);
+
+		if (timeStamp - lastEstimateTime >= estimatePeriod)
+		{
+			if (estimate())
+			{
+				lastEstimateTime = timeStamp;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of accepted windows.
+	 * 
+	 * @return the number of windows.
+	 */
+	public long getEstimateCount()
+	{
+		return lags.getCount();
+	}
+
+	/**
+	 * Get the number of windows that were discarded for too little motion or
+	 * an unclear peak.
+	 * 
+	 * @return the number of windows.
+	 */
+	public long getRejectedCount()
+	{
+		return rejectedCount;
+	}
+
+	/**
+	 * Get the mean lag of the linear acceleration behind the acceleration.
+	 * 
+	 * @return the lag in seconds, or NaN if no window was accepted.
+	 */
+	public double getLag()
+	{
+		return (lags.getCount() > 0) ? lags.getMean() : Double.NaN;
+	}
+
+	/**
+	 * Get the standard deviation of the lags of the accepted windows.
+	 * 
+	 * @return the standard deviation in seconds.
+	 */
+	public double getLagStandardDeviation()
+	{
+		return lags.getStandardDeviation();
+	}
+
+	/**
+	 * Forget all measurements and estimates.
+	 */
+	public void reset()
+	{
+		accelerationHead = 0;
+		accelerationCount = 0;
+		linearHead = 0;
+		linearCount = 0;
+
+		samplePeriod = 0;
+		lastEstimateTime = 0;
+
+		lags.reset();
+		rejectedCount = 0;
+	}
+
+	/**
+	 * Correlate the most recent window of both streams.
+	 * 
+	 * @return true if both streams covered a window.
+	 */
+	private boolean estimate()
+	{
+		if (samplePeriod == 0 || accelerationCount < 2 || linearCount < 2)
+		{
+			return false;
+		}
+
+		long end = Math.min(newest(accelerationTimes, accelerationHead),
+				newest(linearTimes, linearHead));
+		double start = end - (windowSize - 1) * samplePeriod;
+
+		if (start < oldest(accelerationTimes, accelerationHead,
+				accelerationCount)
+				|| start < oldest(linearTimes, linearHead, linearCount))
+		{
+			return false;
+		}
+
+		for (int k = 0; k < crossRe.length; k++)
+		{
+			crossRe[k] = 0;
+			crossIm[k] = 0;
+		}
+
+		double accelerationEnergy = 0;
+		double linearEnergy = 0;
+
+		for (int axis = 0; axis < 3; axis++)
+		{
+			resample(accelerationTimes, accelerationValues, accelerationHead,
+					accelerationCount, axis, start, accelerationWindow);
+			resample(linearTimes, linearValues, linearHead, linearCount,
+					axis, start, linearWindow);
+
+			// Differencing removes gravity and its slow changes.
+			for (int i = 0; i < windowSize - 1; i++)
+			{
+				accelerationPadded[i] = accelerationWindow[i + 1]
+						- accelerationWindow[i];
+				linearPadded[i] = linearWindow[i + 1] - linearWindow[i];
+
+				accelerationEnergy += accelerationPadded[i]
+						* accelerationPadded[i];
+				linearEnergy += linearPadded[i] * linearPadded[i];
+			}
+
+			for (int i = windowSize - 1; i < accelerationPadded.length; i++)
+			{
+				accelerationPadded[i] = 0;
+				linearPadded[i] = 0;
+			}
+
+			fft.transform(accelerationPadded, accelerationRe, accelerationIm);
+			fft.transform(linearPadded, linearRe, linearIm);
+
+			// The conjugate of the acceleration times the linear
+			// acceleration, so lag k pairs the acceleration with the linear
+			// acceleration k samples later.
+			for (int k = 0; k < crossRe.length; k++)
+			{
+				crossRe[k] += accelerationRe[k] * linearRe[k]
+						+ accelerationIm[k] * linearIm[k];
+				crossIm[k] += accelerationRe[k] * linearIm[k]
+						- accelerationIm[k] * linearRe[k];
+			}
+		}
+
+		if (linearEnergy / (3 * (windowSize - 1)) < MIN_ENERGY)
+		{
+			rejectedCount++;
+			return true;
+		}
+
+		fft.inverse(crossRe, crossIm, correlation);
+
+		int size = correlation.length;
+
+		int peak = 0;
+
+		for (int k = -maxLag; k <= maxLag; k++)
+		{
+			if (correlation[(k + size) % size] > correlation[(peak + size)
+					% size])
+			{
+				peak = k;
+			}
+		}
+
+		float peakValue = correlation[(peak + size) % size];
+
+		if (peakValue < MIN_CORRELATION
+				* Math.sqrt(accelerationEnergy * linearEnergy))
+		{
+			rejectedCount++;
+			return true;
+		}
+
+		double offset = 0;
+
+		// Refine the peak with a parabola through it and its neighbors.
+		if (peak > -maxLag && peak < maxLag)
+		{
+			double left = correlation[(peak - 1 + size) % size];
+			double right = correlation[(peak + 1 + size) % size];
+			double curvature = left - 2 * peakValue + right;
+
+			if (curvature < 0)
+			{
+				offset = 0.5 * (left - right) / curvature;
+			}
+		}
+
+		lags.add((peak + offset) * samplePeriod * NS_TO_S);
+
+		return true;
+	}
+
+	/**
+	 * Resample one axis of a ring onto the window by linear interpolation.
+	 */
+	private void resample(long[] times, float[] values, int head, int count,
+			int axis, double start, float[] window)
+	{
+		int first = (head - count + ringSize) % ringSize;
+
+		// The newer of the two samples that bracket the current time.
+		int j = 1;
+
+		for (int i = 0; i < windowSize; i++)
+		{
+			double t = start + i * samplePeriod;
+
+			while (j < count - 1 && times[(first + j) % ringSize] < t)
+			{
+				j++;
+			}
+
+			int b = (first + j) % ringSize;
+			int a = (first + j - 1) % ringSize;
+
+			double fraction = (t - times[a]) / (double) (times[b] - times[a]);
+
+			fraction = Math.max(0, Math.min(1, fraction));
+
+			window[i] = (float) (values[a * 3 + axis] + fraction
+					* (values[b * 3 + axis] - values[a * 3 + axis]));
+		}
+	}
+
+	private long newest(long[] times, int head)
+	{
+		return times[(head - 1 + ringSize) % ringSize];
+	}
+
+	private long oldest(long[] times, int head, int count)
+	{
+		return times[(head - count + ringSize) % ringSize];
+	}
+}
@@ -0,0 +1,296 @@
+package com.kircherelectronics.androidlinearacceleration.spectrum;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * A fast Fourier transform of real valued input. The N real samples are
+ * packed into N/2 complex values, transformed with an iterative radix-2 FFT
+ * and then split into the N/2 + 1 bins of the real spectrum, which is about
+ * twice as fast as a complex transform of the same size.
+ * 
+ * Developer Note: The bit reversal permutation and all of the twiddle
+ * factors are computed once in the constructor, and the transform works in
+ * a workspace allocated with the instance, so transforming never allocates
+ * memory. An instance is not thread safe.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class RealFft
+{
+	// The number of real samples and the size of the complex transform.
+	private int size;
+	private int half;
+
+	// The index of each complex value after the bit reversal permutation.
+	private int[] bitReverse;
+
+	// The twiddle factors of the complex transform, e^(-2 pi i k / half).
+	private float[] cos;
+	private float[] sin;
+
+	// The twiddle factors of the split into the real spectrum,
+	// e^(-2 pi i k / size).
+	private float[] splitCos;
+	private float[] splitSin;
+
+	// The workspace of the complex transform.
+	private float[] re;
+	private float[] im;
+
+	/**
+	 * Initialize a new RealFft object.
+	 * 
+	 * @param size
+	 *            the number of real samples, a power of two of at least 4.
+	 */
+	public RealFft(int size)
+	{
+		if (size < 4 || (size & (size - 1)) != 0)
+		{
+			throw new IllegalArgumentException(
+					"Size must be a power of two of at least 4: " + size);
+		}
+
+		this.size = size;
+		this.half = size / 2;
+
+		bitReverse = new int[half];
+
+		int bits = Integer.numberOfTrailingZeros(half);
+
+		for (int i = 0; i < half; i++)
+		{
+			bitReverse[i] = Integer.reverse(i) >>> (32 - bits);
+		}
+
+		cos = new float[half / 2];
+		sin = new float[half / 2];
+
+		for (int k = 0; k < half / 2; k++)
+		{
+			double angle = -2 * Math.PI * k / half;
+
+			cos[k] = (float) Math.cos(angle);
+			sin[k] = (float) Math.sin(angle);
+		}
+
+		splitCos = new float[half + 1];
+		splitSin = new float[half + 1];
+
+		for (int k = 0; k <= half; k++)
+		{
+			double angle = 2 * Math.PI * k / size;
+
+			splitCos[k] = (float) Math.cos(angle);
+			splitSin[k] = (float) Math.sin(angle);
+		}
+
+		re = new float[half];
+		im = new float[half];
+	}
+
+	/**
+	 * Get the number of real samples.
+	 * 
+	 * @return the size of the transform.
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Get the number of bins of the spectrum, from 0 Hz to the Nyquist
+	 * frequency.
+	 * 
+	 * @return the number of bins.
+	 */
+	public int getBinCount()
+	{
+		return half + 1;
+	}
+
+	/**
+	 * Transform real samples into their spectrum.
+	 * 
+	 * @param input
+	 *            the samples, which are not changed.
+	 * @param outputRe
+	 *            receives the real part of each bin.
+	 * @param outputIm
+	 *            receives the imaginary part of each bin.
+	 */
+	public void transform(float[] input, float[] outputRe, float[] outputIm)
+	{
+		pack(input);
+		transformComplex();
+
+		for (int k = 0; k <= half; k++)
+		{
+			int a = (k == half) ? 0 : k;
+			int b = (k == 0) ? 0 : half - k;
+
+			// The transforms of the even and odd samples.
+			float evenRe = (re[a] + re[b]) * 0.5f;
+			float evenIm = (im[a] - im[b]) * 0.5f;
+			float oddRe = (im[a] + im[b]) * 0.5f;
+			float oddIm = (re[b] - re[a]) * 0.5f;
+
+			float c = splitCos[k];
+			float s = splitSin[k];
+
+			outputRe[k] = evenRe + c * oddRe + s * oddIm;
+			outputIm[k] = evenIm + c * oddIm - s * oddRe;
+		}
+	}
+
+	/**
+	 * Compute the power of each bin of the spectrum of real samples.
+	 * 
+	 * @param input
+	 *            the samples, which are not changed.
+	 * @param power
+	 *            receives the squared magnitude of each bin.
+	 */
+	public void powerSpectrum(float[] input, float[] power)
+	{
+		pack(input);
+		transformComplex();
+
+		for (int k = 0; k <= half; k++)
+		{
+			int a = (k == half) ? 0 : k;
+			int b = (k == 0) ? 0 : half - k;
+
+			float evenRe = (re[a] + re[b]) * 0.5f;
+			float evenIm = (im[a] - im[b]) * 0.5f;
+			float oddRe = (im[a] + im[b]) * 0.5f;
+			float oddIm = (re[b] - re[a]) * 0.5f;
+
+			float c = splitCos[k];
+			float s = splitSin[k];
+
+			float binRe = evenRe + c * oddRe + s * oddIm;
+			float binIm = evenIm + c * oddIm - s * oddRe;
+
+			power[k] = binRe * binRe + binIm * binIm;
+		}
+	}
+
+	/**
+	 * Transform a spectrum back into real samples. This is the inverse of
+	 * transform(), including the scale.
+	 * 
+	 * @param inputRe
+	 *            the real part of each bin, which is not changed.
+	 * @param inputIm
+	 *            the imaginary part of each bin, which is not changed.
+	 * @param output
+	 *            receives the samples.
+	 */
+	public void inverse(float[] inputRe, float[] inputIm, float[] output)
+	{
+		for (int k = 0; k < half; k++)
+		{
+			int b = half - k;
+
+			// Undo the split into the transforms of the even and odd
+			// samples.
+			float evenRe = (inputRe[k] + inputRe[b]) * 0.5f;
+			float evenIm = (inputIm[k] - inputIm[b]) * 0.5f;
+			float diffRe = (inputRe[k] - inputRe[b]) * 0.5f;
+			float diffIm = (inputIm[k] + inputIm[b]) * 0.5f;
+
+			float c = splitCos[k];
+			float s = splitSin[k];
+
+			float oddRe = diffRe * c - diffIm * s;
+			float oddIm = diffRe * s + diffIm * c;
+
+			// Pack them as even + i odd, conjugated so the forward
+			// transform computes the inverse.
+			int j = bitReverse[k];
+
+			re[j] = evenRe - oddIm;
+			im[j] = -(evenIm + oddRe);
+		}
+
+		transformComplex();
+
+		float scale = 1f / half;
+
+		for (int i = 0; i < half; i++)
+		{
+			output[2 * i] = re[i] * scale;
+			output[2 * i + 1] = -im[i] * scale;
+		}
+	}
+
+	/**
+	 * Pack the even samples into the real part and the odd samples into the
+	 * imaginary part of the workspace, in bit reversed order.
+	 * 
+	 * @param input
+	 *            the samples.
+	 */
+	private void pack(float[] input)
+	{
+		for (int i = 0; i < half; i++)
+		{
+			int j = bitReverse[i];
+
+			re[j] = input[2 * i];
+			im[j] = input[2 * i + 1];
+		}
+	}
+
+	/**
+	 * Run the butterflies of the complex transform on the workspace, which
+	 * is already in bit reversed order.
+	 */
+	private void transformComplex()
+	{
+		for (int length = 2; length <= half; length <<= 1)
+		{
+			int step = half / length;
+			int span = length >> 1;
+
+			for (int start = 0; start < half; start += length)
+			{
+				for (int k = 0; k < span; k++)
+				{
+					float c = cos[k * step];
+					float s = sin[k * step];
+
+					int i = start + k;
+					int j = i + span;
+
+					float tRe = re[j] * c - im[j] * s;
+					float tIm = re[j] * s + im[j] * c;
+
+					re[j] = re[i] - tRe;
+					im[j] = im[i] - tIm;
+					re[i] += tRe;
+					im[i] += tIm;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,322 @@
+package com.kircherelectronics.androidlinearacceleration.spectrum;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.kircherelectronics.androidlinearacceleration.render.SurfaceRenderer;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Draws a waterfall of spectra on a render thread, oldest on the left and
+ * newest on the right, with low frequencies at the bottom.
+ * 
+ * Developer Note: Each spectrum is written once, as a single column of a
+ * bitmap that is addressed as a ring. The bitmap is never scrolled or
+ * redrawn; a frame draws the part after the newest column and then the
+ * part up to it, so the cost of a frame does not depend on how much
+ * history is shown. Levels are mapped to colors through a palette that is
+ * computed once.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class SpectrogramRenderer implements SurfaceRenderer
+{
+	// The space between the plot and the edges of the surface in pixels.
+	private static final int PADDING = 15;
+
+	// The number of colors in the palette.
+	private static final int PALETTE_SIZE = 256;
+
+	// The colors the palette is interpolated between, from the lowest level
+	// to the highest.
+	private static final int[] PALETTE_STOPS =
+	{ Color.rgb(0, 0, 0), Color.rgb(40, 0, 100), Color.rgb(180, 20, 80),
+			Color.rgb(250, 130, 0), Color.rgb(255, 255, 160) };
+
+	// The most columns that can wait for the render thread.
+	private static final int PENDING_CAPACITY = 16;
+
+	private int binCount;
+
+	private int[] palette;
+
+	private final Object lock = new Object();
+
+	// Columns of pixels that have not been written to the bitmap yet,
+	// guarded by lock.
+	private int[][] pending;
+	private int pendingStart = 0;
+	private int pendingCount = 0;
+
+	// The number of columns to show, guarded by lock.
+	private int columnCount;
+
+	// The level of the first and last colors of the palette in decibels.
+	private volatile float minDecibels = -80;
+	private volatile float maxDecibels = 20;
+
+	// The waterfall, owned by the render thread.
+	private Bitmap bitmap;
+
+	// The column of the bitmap that the next spectrum is written to, which
+	// is also the oldest column.
+	private int writeColumn = 0;
+
+	private Paint bitmapPaint;
+
+	// The parts of the bitmap and the surface of the two blits.
+	private Rect olderSource = new Rect();
+	private Rect newerSource = new Rect();
+	private RectF olderDestination = new RectF();
+	private RectF newerDestination = new RectF();
+
+	private int width;
+	private int height;
+
+	/**
+	 * Initialize a new SpectrogramRenderer object.
+	 * 
+	 * @param binCount
+	 *            the number of bins of a spectrum.
+	 * @param columnCount
+	 *            the number of spectra to show.
+	 */
+	public SpectrogramRenderer(int binCount, int columnCount)
+	{
+		this.binCount = binCount;
+		this.columnCount = Math.max(1, columnCount);
+
+		pending = new int[PENDING_CAPACITY][binCount];
+
+		palette = createPalette(PALETTE_SIZE, PALETTE_STOPS);
+
+		bitmapPaint = new Paint();
+		bitmapPaint.setFilterBitmap(false);
+	}
+
+	/**
+	 * Add the newest spectrum. This can be called from any thread and does
+	 * not allocate. If the render thread falls behind, the oldest spectra
+	 * that have not been drawn are dropped.
+	 * 
+	 * @param spectrum
+	 *            the level of each bin in decibels.
+	 */
+	public void addSpectrum(float[] spectrum)
+	{
+		float min = minDecibels;
+		float scale = (PALETTE_SIZE - 1) / (maxDecibels - min);
+
+		synchronized (lock)
+		{
+			if (pendingCount == PENDING_CAPACITY)
+			{
+				pendingStart = (pendingStart + 1) % PENDING_CAPACITY;
+				pendingCount--;
+			}
+
+			int[] column = pending[(pendingStart + pendingCount)
+					% PENDING_CAPACITY];
+
+			// The first row of the bitmap is the highest frequency.
+			for (int i = 0, row = binCount - 1; i < binCount; i++, row--)
+			{
+				int index = (int) ((spectrum[i] - min) * scale);
+
+				if (index < 0)
+				{
+					index = 0;
+				}
+				else if (index >= PALETTE_SIZE)
+				{
+					index = PALETTE_SIZE - 1;
+				}
+
+				column[row] = palette[index];
+			}
+
+			pendingCount++;
+		}
+	}
+
+	/**
+	 * Set the number of spectra to show. Changing it clears the waterfall.
+	 * 
+	 * @param columnCount
+	 *            the number of spectra.
+	 */
+	public void setColumnCount(int columnCount)
+	{
+		synchronized (lock)
+		{
+			this.columnCount = Math.max(1, columnCount);
+		}
+	}
+
+	/**
+	 * Get the number of spectra that are shown.
+	 * 
+	 * @return the number of spectra.
+	 */
+	public int getColumnCount()
+	{
+		synchronized (lock)
+		{
+			return columnCount;
+		}
+	}
+
+	/**
+	 * Set the levels of the first and last colors. Spectra that have already
+	 * been added keep their colors.
+	 * 
+	 * @param minDecibels
+	 *            the level of the first color.
+	 * @param maxDecibels
+	 *            the level of the last color.
+	 */
+	public void setRange(float minDecibels, float maxDecibels)
+	{
+		this.minDecibels = minDecibels;
+		this.maxDecibels = maxDecibels;
+	}
+
+	@Override
+	public void onSurfaceChanged(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+	}
+
+	@Override
+	public void onDrawFrame(Canvas canvas)
+	{
+		synchronized (lock)
+		{
+			if (bitmap == null || bitmap.getWidth() != columnCount)
+			{
+				createBitmap(columnCount);
+			}
+
+			while (pendingCount > 0)
+			{
+				bitmap.setPixels(pending[pendingStart], 0, 1, writeColumn, 0,
+						1, binCount);
+
+				writeColumn = (writeColumn + 1) % columnCount;
+
+				pendingStart = (pendingStart + 1) % PENDING_CAPACITY;
+				pendingCount--;
+			}
+		}
+
+		canvas.drawColor(Color.BLACK);
+
+		int columns = bitmap.getWidth();
+
+		float left = PADDING;
+		float top = PADDING;
+		float right = width - PADDING;
+		float bottom = height - PADDING;
+
+		// The columns from the oldest to the end of the bitmap are drawn on
+		// the left, and the columns from the start of the bitmap to the
+		// newest on the right.
+		float split = left + (right - left) * (columns - writeColumn)
+				/ columns;
+
+		olderSource.set(writeColumn, 0, columns, binCount);
+		olderDestination.set(left, top, split, bottom);
+
+		canvas.drawBitmap(bitmap, olderSource, olderDestination, bitmapPaint);
+
+		if (writeColumn > 0)
+		{
+			newerSource.set(0, 0, writeColumn, binCount);
+			newerDestination.set(split, top, right, bottom);
+
+			canvas.drawBitmap(bitmap, newerSource, newerDestination,
+					bitmapPaint);
+		}
+	}
+
+	/**
+	 * Replace the bitmap with an empty one.
+	 * 
+	 * @param columns
+	 *            the number of columns of the bitmap.
+	 */
+	private void createBitmap(int columns)
+	{
+		if (bitmap != null)
+		{
+			bitmap.recycle();
+		}
+
+		bitmap = Bitmap.createBitmap(columns, binCount, Bitmap.Config.ARGB_8888);
+		bitmap.eraseColor(palette[0]);
+
+		writeColumn = 0;
+	}
+
+	/**
+	 * Create a palette that blends evenly between the given colors.
+	 * 
+	 * @param size
+	 *            the number of colors.
+	 * @param stops
+	 *            the colors to blend between, at least two.
+	 * @return the palette.
+	 */
+	private static int[] createPalette(int size, int[] stops)
+	{
+		int[] palette = new int[size];
+
+		int segments = stops.length - 1;
+
+		for (int i = 0; i < size; i++)
+		{
+			float position = (float) i * segments / (size - 1);
+
+			int segment = Math.min((int) position, segments - 1);
+			float fraction = position - segment;
+
+			int from = stops[segment];
+			int to = stops[segment + 1];
+
+			palette[i] = Color.rgb(blend(Color.red(from), Color.red(to),
+					fraction), blend(Color.green(from), Color.green(to),
+					fraction), blend(Color.blue(from), Color.blue(to),
+					fraction));
+		}
+
+		return palette;
+	}
+
+	private static int blend(int from, int to, float fraction)
+	{
+		return Math.round(from + (to - from) * fraction);
+	}
+}
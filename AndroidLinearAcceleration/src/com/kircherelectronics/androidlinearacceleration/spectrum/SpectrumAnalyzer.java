@@ -0,0 +1,235 @@
+package com.kircherelectronics.androidlinearacceleration.spectrum;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Computes the spectrum of a stream of samples. The most recent frame of
+ * samples is windowed and transformed every time a hop of new samples has
+ * arrived, so consecutive frames overlap. The spectrum is the one-sided
+ * power spectrum in decibels, normalized by the gain of the window so a tone
+ * reads as its mean square whichever window is used.
+ * 
+ * Developer Note: The samples are kept in a primitive ring buffer and all of
+ * the frames are computed in a workspace allocated with the instance, so
+ * adding samples never allocates memory.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class SpectrumAnalyzer
+{
+	// The power of an empty bin, so the logarithm stays finite.
+	private static final float POWER_FLOOR = 1e-12f;
+
+	private RealFft fft;
+
+	private int size;
+
+	// The number of new samples between two frames.
+	private int hop;
+
+	private float[] window;
+
+	// The scale from the power of a bin to the mean square of a tone.
+	private float powerScale;
+
+	// The most recent samples, oldest at head once the ring is full.
+	private float[] ring;
+	private int head = 0;
+	private int count = 0;
+
+	// The samples since the most recent frame.
+	private int samplesSinceFrame = 0;
+
+	// The workspace of a frame.
+	private float[] frame;
+	private float[] power;
+
+	// The spectrum of the most recent frame in decibels.
+	private float[] spectrum;
+
+	// The number of frames that have been computed.
+	private long frameCount = 0;
+
+	/**
+	 * Initialize a new SpectrumAnalyzer object.
+	 * 
+	 * @param size
+	 *            the number of samples in a frame, a power of two.
+	 * @param overlap
+	 *            the fraction of a frame that is shared with the previous
+	 *            frame, from 0 up to but not including 1.
+	 * @param windowFunction
+	 *            the window applied to each frame.
+	 */
+	public SpectrumAnalyzer(int size, float overlap,
+			WindowFunction windowFunction)
+	{
+		if (overlap < 0 || overlap >= 1)
+		{
+			throw new IllegalArgumentException("Overlap must be in [0, 1): "
+					+ overlap);
+		}
+
+		fft = new RealFft(size);
+
+		this.size = size;
+		this.hop = Math.max(1, Math.round(size * (1 - overlap)));
+
+		window = windowFunction.create(size);
+
+		float gain = 0;
+
+		for (int i = 0; i < size; i++)
+		{
+			gain += window[i];
+		}
+
+		// Double the bins to fold in the negative frequencies.
+		powerScale = 2 / (gain * gain);
+
+		ring = new float[size];
+		frame = new float[size];
+		power = new float[fft.getBinCount()];
+		spectrum = new float[fft.getBinCount()];
+	}
+
+	/**
+	 * Add a sample.
+	 * 
+	 * @param sample
+	 *            the sample.
+	 * @return true if a new spectrum has been computed.
+	 */
+	public boolean add(float sample)
+	{
+		ring[(head + count) % size] = sample;
+
+		if (count == size)
+		{
+			head = (head + 1) % size;
+		}
+		else
+		{
+			count++;
+		}
+
+		samplesSinceFrame++;
+
+		if (count < size || samplesSinceFrame < hop)
+		{
+			return false;
+		}
+
+		samplesSinceFrame = 0;
+
+		computeFrame();
+
+		return true;
+	}
+
+	/**
+	 * Remove all of the samples.
+	 */
+	public void reset()
+	{
+		head = 0;
+		count = 0;
+		samplesSinceFrame = 0;
+	}
+
+	/**
+	 * Get the spectrum of the most recent frame. The array is reused for
+	 * every frame.
+	 * 
+	 * @return the level of each bin in decibels.
+	 */
+	public float[] getSpectrum()
+	{
+		return spectrum;
+	}
+
+	/**
+	 * Get the number of bins of the spectrum.
+	 * 
+	 * @return the number of bins.
+	 */
+	public int getBinCount()
+	{
+		return spectrum.length;
+	}
+
+	/**
+	 * Get the number of samples in a frame.
+	 * 
+	 * @return the size of a frame.
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	/**
+	 * Get the number of new samples between two frames.
+	 * 
+	 * @return the hop size.
+	 */
+	public int getHop()
+	{
+		return hop;
+	}
+
+	/**
+	 * Get the number of frames that have been computed.
+	 * 
+	 * @return the number of frames.
+	 */
+	public long getFrameCount()
+	{
+		return frameCount;
+	}
+
+	/**
+	 * Window and transform the most recent frame.
+	 */
+	private void computeFrame()
+	{
+		int first = size - head;
+
+		for (int i = 0; i < first; i++)
+		{
+			frame[i] = ring[head + i] * window[i];
+		}
+
+		for (int i = first; i < size; i++)
+		{
+			frame[i] = ring[i - first] * window[i];
+		}
+
+		fft.powerSpectrum(frame, power);
+
+		for (int i = 0; i < power.length; i++)
+		{
+			spectrum[i] = (float) (10 * Math.log10(power[i] * powerScale
+					+ POWER_FLOOR));
+		}
+
+		frameCount++;
+	}
+}
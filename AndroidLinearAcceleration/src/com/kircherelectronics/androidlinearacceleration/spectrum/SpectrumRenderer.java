@@ -0,0 +1,305 @@
+package com.kircherelectronics.androidlinearacceleration.spectrum;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import com.kircherelectronics.androidlinearacceleration.render.SurfaceRenderer;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Draws the spectra of several series from 0 Hz to the Nyquist frequency on a
+ * render thread. When there are more bins than pixels, each column of pixels
+ * shows the loudest of its bins so narrow peaks are never lost.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class SpectrumRenderer implements SurfaceRenderer
+{
+	private static final int LINE_WIDTH = 2;
+
+	// The space between the plot and the edges of the surface in pixels.
+	private static final int PADDING = 15;
+
+	// The space between the horizontal grid lines in decibels.
+	private static final float GRID_STEP = 20;
+
+	private static final float TEXT_SIZE = 20;
+
+	private int binCount;
+
+	private final Object lock = new Object();
+
+	// The newest spectra, written by the thread that computes them and
+	// guarded by lock.
+	private float[][] spectra;
+
+	// The spectra drawn in the current frame, owned by the render thread.
+	private float[][] frameSpectra;
+
+	private Paint[] seriesPaints;
+	private Paint axisPaint;
+	private Paint textPaint;
+
+	// The line segments of a series, four coordinates per segment.
+	private float[] points = new float[0];
+
+	// The range of the plot in decibels, written by the UI thread.
+	private volatile float maxDecibels = 20;
+	private volatile float minDecibels = -80;
+
+	// The sample rate of the series in Hz.
+	private volatile float sampleRate = 0;
+
+	// The label of the Nyquist frequency and the frequency it shows.
+	private String nyquistLabel = "";
+	private int nyquistLabelFrequency = -1;
+
+	private int width;
+	private int height;
+
+	/**
+	 * Initialize a new SpectrumRenderer object.
+	 * 
+	 * @param binCount
+	 *            the number of bins of a spectrum.
+	 * @param colors
+	 *            the color of each series.
+	 */
+	public SpectrumRenderer(int binCount, int[] colors)
+	{
+		this.binCount = binCount;
+
+		spectra = new float[colors.length][binCount];
+		frameSpectra = new float[colors.length][binCount];
+
+		for (int i = 0; i < colors.length; i++)
+		{
+			for (int j = 0; j < binCount; j++)
+			{
+				spectra[i][j] = -Float.MAX_VALUE;
+			}
+		}
+
+		seriesPaints = new Paint[colors.length];
+
+		for (int i = 0; i < seriesPaints.length; i++)
+		{
+			seriesPaints[i] = new Paint();
+			seriesPaints[i].setAntiAlias(true);
+			seriesPaints[i].setStyle(Paint.Style.STROKE);
+			seriesPaints[i].setColor(colors[i]);
+			seriesPaints[i].setStrokeWidth(LINE_WIDTH);
+		}
+
+		axisPaint = new Paint();
+		axisPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+		axisPaint.setColor(Color.rgb(119, 119, 119));
+		axisPaint.setStrokeWidth(1);
+
+		textPaint = new Paint();
+		textPaint.setAntiAlias(true);
+		textPaint.setColor(Color.rgb(119, 119, 119));
+		textPaint.setTextSize(TEXT_SIZE);
+	}
+
+	/**
+	 * Set the newest spectrum of a series. This can be called from any
+	 * thread.
+	 * 
+	 * @param series
+	 *            the series.
+	 * @param spectrum
+	 *            the level of each bin in decibels.
+	 */
+	public void setSpectrum(int series, float[] spectrum)
+	{
+		synchronized (lock)
+		{
+			System.arraycopy(spectrum, 0, spectra[series], 0, binCount);
+		}
+	}
+
+	/**
+	 * Set the sample rate of the series, which sets the frequency of the
+	 * last bin.
+	 * 
+	 * @param sampleRate
+	 *            the sample rate in Hz.
+	 */
+	public void setSampleRate(float sampleRate)
+	{
+		this.sampleRate = sampleRate;
+	}
+
+	/**
+	 * Set the range of the plot.
+	 * 
+	 * @param minDecibels
+	 *            the level at the bottom of the plot.
+	 * @param maxDecibels
+	 *            the level at the top of the plot.
+	 */
+	public void setRange(float minDecibels, float maxDecibels)
+	{
+		this.minDecibels = minDecibels;
+		this.maxDecibels = maxDecibels;
+	}
+
+	@Override
+	public void onSurfaceChanged(int width, int height)
+	{
+		this.width = width;
+		this.height = height;
+
+		points = new float[Math.max(1, width) * 4];
+	}
+
+	@Override
+	public void onDrawFrame(Canvas canvas)
+	{
+		synchronized (lock)
+		{
+			for (int i = 0; i < spectra.length; i++)
+			{
+				System.arraycopy(spectra[i], 0, frameSpectra[i], 0, binCount);
+			}
+		}
+
+		canvas.drawColor(Color.BLACK);
+
+		float left = PADDING;
+		float top = PADDING;
+		float plotWidth = width - 2 * PADDING;
+		float plotHeight = height - 2 * PADDING - TEXT_SIZE;
+
+		float max = maxDecibels;
+		float min = minDecibels;
+
+		float yScale = plotHeight / (max - min);
+
+		// Draw the grid lines and the frequency labels.
+		float firstLevel = (float) Math.ceil(min / GRID_STEP) * GRID_STEP;
+
+		for (float level = firstLevel; level <= max; level += GRID_STEP)
+		{
+			float y = top + (max - level) * yScale;
+			canvas.drawLine(left, y, left + plotWidth, y, axisPaint);
+		}
+
+		updateNyquistLabel();
+
+		float labelY = top + plotHeight + TEXT_SIZE;
+
+		textPaint.setTextAlign(Paint.Align.LEFT);
+		canvas.drawText("0 Hz", left, labelY, textPaint);
+
+		textPaint.setTextAlign(Paint.Align.RIGHT);
+		canvas.drawText(nyquistLabel, left + plotWidth, labelY, textPaint);
+
+		int columns = Math.min(binCount, (int) plotWidth);
+
+		if (columns < 2)
+		{
+			return;
+		}
+
+		canvas.save();
+		canvas.clipRect(left, top, left + plotWidth, top + plotHeight);
+
+		float xScale = plotWidth / (columns - 1);
+
+		for (int s = 0; s < frameSpectra.length; s++)
+		{
+			float[] spectrum = frameSpectra[s];
+
+			int p = 0;
+
+			float x0 = left;
+			float y0 = top + (max - getColumnLevel(spectrum, 0, columns))
+					* yScale;
+
+			for (int c = 1; c < columns; c++)
+			{
+				float x1 = left + c * xScale;
+				float y1 = top + (max - getColumnLevel(spectrum, c, columns))
+						* yScale;
+
+				points[p++] = x0;
+				points[p++] = y0;
+				points[p++] = x1;
+				points[p++] = y1;
+
+				x0 = x1;
+				y0 = y1;
+			}
+
+			canvas.drawLines(points, 0, p, seriesPaints[s]);
+		}
+
+		canvas.restore();
+	}
+
+	/**
+	 * Get the loudest level of the bins shown in a column.
+	 * 
+	 * @param spectrum
+	 *            the spectrum.
+	 * @param column
+	 *            the column.
+	 * @param columns
+	 *            the number of columns.
+	 * @return the level in decibels.
+	 */
+	private float getColumnLevel(float[] spectrum, int column, int columns)
+	{
+		int first = (int) ((long) column * binCount / columns);
+		int last = (int) ((long) (column + 1) * binCount / columns);
+
+		float level = spectrum[first];
+
+		for (int i = first + 1; i < last; i++)
+		{
+			if (spectrum[i] > level)
+			{
+				level = spectrum[i];
+			}
+		}
+
+		// Keep empty spectra finite so they can be drawn below the plot.
+		return Math.max(level, minDecibels - 1);
+	}
+
+	/**
+	 * Update the label of the Nyquist frequency when it changes by at least
+	 * 1 Hz, so the label is not rebuilt every frame.
+	 */
+	private void updateNyquistLabel()
+	{
+		int frequency = Math.round(sampleRate / 2);
+
+		if (frequency != nyquistLabelFrequency)
+		{
+			nyquistLabelFrequency = frequency;
+			nyquistLabel = frequency + " Hz";
+		}
+	}
+}
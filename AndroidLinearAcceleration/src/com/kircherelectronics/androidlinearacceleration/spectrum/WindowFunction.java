@@ -0,0 +1,68 @@
+package com.kircherelectronics.androidlinearacceleration.spectrum;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013-2014, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * The window functions that can be applied to a frame of samples before it
+ * is transformed, to reduce the leakage of strong frequencies into the bins
+ * around them.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public enum WindowFunction
+{
+	// Good frequency resolution with moderate leakage.
+	HANN,
+
+	// Less leakage than Hann at the cost of a wider main lobe.
+	BLACKMAN;
+
+	/**
+	 * Compute the coefficients of the window.
+	 * 
+	 * @param size
+	 *            the number of samples in a frame.
+	 * @return the coefficient of each sample.
+	 */
+	public float[] create(int size)
+	{
+		float[] window = new float[size];
+
+		for (int i = 0; i < size; i++)
+		{
+			// A periodic window, so frames that overlap add up evenly.
+			double phase = 2 * Math.PI * i / size;
+
+			switch (this)
+			{
+			case HANN:
+				window[i] = (float) (0.5 - 0.5 * Math.cos(phase));
+				break;
+
+			case BLACKMAN:
+				window[i] = (float) (0.42 - 0.5 * Math.cos(phase) + 0.08 * Math
+						.cos(2 * phase));
+				break;
+			}
+		}
+
+		return window;
+	}
+}
@@ -0,0 +1,137 @@
+package com.kircherelectronics.androidlinearacceleration.statistics;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Summarizes three axis acceleration measurements per axis and for the
+ * magnitude of the acceleration, either over the whole session or over a
+ * sliding window of the most recent measurements.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class AccelerationStatistics
+{
+	public static final int X_AXIS = 0;
+	public static final int Y_AXIS = 1;
+	public static final int Z_AXIS = 2;
+	public static final int MAGNITUDE = 3;
+
+	private Statistics[] statistics = new Statistics[4];
+
+	/**
+	 * Initialize a new AccelerationStatistics object that summarizes the
+	 * whole session.
+	 */
+	public AccelerationStatistics()
+	{
+		for (int i = 0; i < statistics.length; i++)
+		{
+			statistics[i] = new RunningStatistics();
+		}
+	}
+
+	/**
+	 * Initialize a new AccelerationStatistics object that summarizes a sliding
+	 * window.
+	 * 
+	 * @param windowSize
+	 *            the number of measurements in the window.
+	 */
+	public AccelerationStatistics(int windowSize)
+	{
+		for (int i = 0; i < statistics.length; i++)
+		{
+			statistics[i] = new WindowedStatistics(windowSize);
+		}
+	}
+
+	/**
+	 * Add a measurement.
+	 * 
+	 * @param acceleration
+	 *            the acceleration values (x, y, z).
+	 */
+	public void add(float[] acceleration)
+	{
+		add(acceleration[0], acceleration[1], acceleration[2]);
+	}
+
+	/**
+	 * Add a measurement.
+	 * 
+	 * @param x
+	 *            the x-axis.
+	 * @param y
+	 *            the y-axis.
+	 * @param z
+	 *            the z-axis.
+	 */
+	public void add(float x, float y, float z)
+	{
+		statistics[X_AXIS].add(x);
+		statistics[Y_AXIS].add(y);
+		statistics[Z_AXIS].add(z);
+		statistics[MAGNITUDE].add(Math.sqrt(x * x + y * y + z * z));
+	}
+
+	/**
+	 * Merge another session summary into this one. Only summaries of whole
+	 * sessions can be merged.
+	 * 
+	 * @param other
+	 *            the other summary.
+	 */
+	public void merge(AccelerationStatistics other)
+	{
+		for (int i = 0; i < statistics.length; i++)
+		{
+			if (!(statistics[i] instanceof RunningStatistics)
+					|| !(other.statistics[i] instanceof RunningStatistics))
+			{
+				throw new IllegalStateException(
+						"Only session statistics can be merged.");
+			}
+
+			((RunningStatistics) statistics[i])
+					.merge((RunningStatistics) other.statistics[i]);
+		}
+	}
+
+	/**
+	 * Get the summary of an axis or of the magnitude.
+	 * 
+	 * @param axis
+	 *            X_AXIS, Y_AXIS, Z_AXIS or MAGNITUDE.
+	 * @return the summary.
+	 */
+	public Statistics get(int axis)
+	{
+		return statistics[axis];
+	}
+
+	/**
+	 * Remove all of the measurements.
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < statistics.length; i++)
+		{
+			statistics[i].reset();
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package com.kircherelectronics.androidlinearacceleration.statistics;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Counts latencies in buckets that grow with the latency, in the manner of
+ * HdrHistogram. Each power of two is split into a fixed number of linear
+ * sub-buckets, so every recorded latency is kept to within a fixed relative
+ * precision from microseconds up to a minute in a small, fixed array.
+ * Percentiles are read back as the upper bound of their bucket, and the
+ * largest latency is kept exactly.
+ * 
+ * Developer Note: Recording does not allocate or lock, so it can be done
+ * from a sensor callback. The histogram is not thread safe; it is meant to
+ * be recorded and read on the thread that sensor events are delivered on.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ * @see http://hdrhistogram.github.io/HdrHistogram/
+ */
+public class LatencyHistogram
+{
+	// The resolution of the histogram is 2^UNIT_BITS nanoseconds, about a
+	// microsecond.
+	private static final int UNIT_BITS = 10;
+
+	// Each power of two is split into 2^(SUB_BUCKET_BITS - 1) sub-buckets,
+	// which keeps the relative precision to better than 2%.
+	private static final int SUB_BUCKET_BITS = 7;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+	// The largest latency that is told apart is 2^HIGHEST_BITS units, about
+	// 70 seconds. Longer latencies are counted in the last bucket.
+	private static final int HIGHEST_BITS = 36;
+
+	private static final int BUCKET_COUNT = HIGHEST_BITS - SUB_BUCKET_BITS
+			+ 1;
+
+	private long[] counts = new long[(BUCKET_COUNT + 1)
+			* SUB_BUCKET_HALF_COUNT];
+
+	private long count;
+
+	// Latencies below zero mean the time stamps of the events are not on the
+	// clock they are compared to. They are counted in the first bucket.
+	private long negativeCount;
+
+	private long max;
+
+	/**
+	 * Initialize a new LatencyHistogram object.
+	 */
+	public LatencyHistogram()
+	{
+		reset();
+	}
+
+	/**
+	 * Record a latency.
+	 * 
+	 * @param latency
+	 *            the latency in nanoseconds.
+	 */
+	public void record(long latency)
+	{
+		if (latency < 0)
+		{
+			negativeCount++;
+		}
+
+		if (latency > max)
+		{
+			max = latency;
+		}
+
+		counts[getIndex(Math.max(0, latency) >>> UNIT_BITS)]++;
+
+		count++;
+	}
+
+	/**
+	 * Get the number of recorded latencies.
+	 * 
+	 * @return the number of latencies.
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Get the number of recorded latencies that were below zero.
+	 * 
+	 * @return the number of latencies.
+	 */
+	public long getNegativeCount()
+	{
+		return negativeCount;
+	}
+
+	/**
+	 * Get the largest recorded latency.
+	 * 
+	 * @return the latency in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * Get the latency that the given percentage of the recorded latencies
+	 * does not exceed.
+	 * 
+	 * @param percentile
+	 *            the percentage, from 0 to 100.
+	 * @return the latency in nanoseconds, or 0 if nothing was recorded.
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		long target = Math.max(1,
+				(long) Math.ceil(percentile / 100.0 * count));
+
+		long total = 0;
+
+		for (int i = 0; i < counts.length; i++)
+		{
+			total += counts[i];
+
+			if (total >= target)
+			{
+				// The upper bound of the bucket, but never above the
+				// largest latency that was actually seen.
+				return Math.min(getHighestValue(i), max);
+			}
+		}
+
+		return max;
+	}
+
+	/**
+	 * Add the counts of another histogram to this one.
+	 * 
+	 * @param other
+	 *            the other histogram.
+	 */
+	public void add(LatencyHistogram other)
+	{
+		for (int i = 0; i < counts.length; i++)
+		{
+			counts[i] += other.counts[i];
+		}
+
+		count += other.count;
+		negativeCount += other.negativeCount;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Forget all recorded latencies.
+	 */
+	public void reset()
+	{
+		for (int i = 0; i < counts.length; i++)
+		{
+			counts[i] = 0;
+		}
+
+		count = 0;
+		negativeCount = 0;
+		max = 0;
+	}
+
+	/**
+	 * Get the index of the bucket that holds a value.
+	 * 
+	 * @param value
+	 *            the value in units.
+	 * @return the index.
+	 */
+	private static int getIndex(long value)
+	{
+		if (value >= (1L << HIGHEST_BITS))
+		{
+			value = (1L << HIGHEST_BITS) - 1;
+		}
+
+		// The power of two of the value, with all values below the first
+		// sub-bucket count in the first bucket.
+		int bucket = 63 - Long.numberOfLeadingZeros(value
+				| (SUB_BUCKET_COUNT - 1)) - (SUB_BUCKET_BITS - 1);
+
+		int subBucket = (int) (value >>> bucket);
+
+		return ((bucket + 1) << (SUB_BUCKET_BITS - 1)) + subBucket
+				- SUB_BUCKET_HALF_COUNT;
+	}
+
+	/**
+	 * Get the largest value that falls into a bucket.
+	 * 
+	 * @param index
+	 *            the index of the bucket.
+	 * @return the value in nanoseconds.
+	 */
+	private static long getHighestValue(int index)
+	{
+		int bucket = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+		int subBucket = (index & (SUB_BUCKET_HALF_COUNT - 1))
+				+ SUB_BUCKET_HALF_COUNT;
+
+		if (bucket < 0)
+		{
+			bucket = 0;
+			subBucket = index;
+		}
+
+		return (((long) subBucket + 1 << bucket) << UNIT_BITS) - 1;
+	}
+}
@@ -0,0 +1,170 @@
+package com.kircherelectronics.androidlinearacceleration.statistics;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Summarizes every measurement of a stream with Welford's algorithm, which
+ * stays numerically stable over long sessions where the naive sum of squares
+ * loses all precision. Partial summaries of a session, for instance from
+ * threads filtering different chunks, can be merged into one.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ * @see http://en.wikipedia.org/wiki/Algorithms_for_calculating_variance
+ */
+public class RunningStatistics implements Statistics
+{
+	private long count;
+
+	private double mean;
+
+	// The sum of the squared differences from the mean.
+	private double m2;
+
+	// The mean of the squared measurements.
+	private double meanSquare;
+
+	private double min;
+	private double max;
+
+	/**
+	 * Initialize a new RunningStatistics object.
+	 */
+	public RunningStatistics()
+	{
+		reset();
+	}
+
+	@Override
+	public void add(double value)
+	{
+		count++;
+
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+
+		meanSquare += (value * value - meanSquare) / count;
+
+		if (value < min)
+		{
+			min = value;
+		}
+		if (value > max)
+		{
+			max = value;
+		}
+	}
+
+	/**
+	 * Merge another summary into this one. The result is the same as if all
+	 * of the measurements of the other summary had been added to this one.
+	 * 
+	 * @param other
+	 *            the other summary.
+	 */
+	public void merge(RunningStatistics other)
+	{
+		if (other.count == 0)
+		{
+			return;
+		}
+
+		if (count == 0)
+		{
+			count = other.count;
+			mean = other.mean;
+			m2 = other.m2;
+			meanSquare = other.meanSquare;
+			min = other.min;
+			max = other.max;
+
+			return;
+		}
+
+		long total = count + other.count;
+
+		double delta = other.mean - mean;
+
+		mean += delta * other.count / total;
+		m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+		meanSquare += (other.meanSquare - meanSquare) * other.count / total;
+
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+
+		count = total;
+	}
+
+	@Override
+	public long getCount()
+	{
+		return count;
+	}
+
+	@Override
+	public double getMean()
+	{
+		return mean;
+	}
+
+	@Override
+	public double getVariance()
+	{
+		if (count < 2)
+		{
+			return 0;
+		}
+
+		return m2 / (count - 1);
+	}
+
+	@Override
+	public double getStandardDeviation()
+	{
+		return Math.sqrt(getVariance());
+	}
+
+	@Override
+	public double getRms()
+	{
+		return Math.sqrt(meanSquare);
+	}
+
+	@Override
+	public double getMin()
+	{
+		return min;
+	}
+
+	@Override
+	public double getMax()
+	{
+		return max;
+	}
+
+	@Override
+	public void reset()
+	{
+		count = 0;
+		mean = 0;
+		m2 = 0;
+		meanSquare = 0;
+		min = Double.POSITIVE_INFINITY;
+		max = Double.NEGATIVE_INFINITY;
+	}
+}
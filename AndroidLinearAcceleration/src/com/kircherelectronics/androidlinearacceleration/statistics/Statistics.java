@@ -0,0 +1,90 @@
+package com.kircherelectronics.androidlinearacceleration.statistics;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A streaming statistics interface. Classes that summarize a stream of
+ * measurements should do so with this interface so the cumulative and the
+ * sliding window summaries can be used interchangeably.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface Statistics
+{
+	/**
+	 * Add a measurement.
+	 * 
+	 * @param value
+	 *            the measurement.
+	 */
+	public void add(double value);
+
+	/**
+	 * Get the number of measurements.
+	 * 
+	 * @return the number of measurements.
+	 */
+	public long getCount();
+
+	/**
+	 * Get the mean of the measurements.
+	 * 
+	 * @return the mean.
+	 */
+	public double getMean();
+
+	/**
+	 * Get the sample variance of the measurements.
+	 * 
+	 * @return the variance.
+	 */
+	public double getVariance();
+
+	/**
+	 * Get the sample standard deviation of the measurements.
+	 * 
+	 * @return the standard deviation.
+	 */
+	public double getStandardDeviation();
+
+	/**
+	 * Get the root mean square of the measurements.
+	 * 
+	 * @return the root mean square.
+	 */
+	public double getRms();
+
+	/**
+	 * Get the smallest measurement.
+	 * 
+	 * @return the smallest measurement.
+	 */
+	public double getMin();
+
+	/**
+	 * Get the largest measurement.
+	 * 
+	 * @return the largest measurement.
+	 */
+	public double getMax();
+
+	/**
+	 * Remove all of the measurements.
+	 */
+	public void reset();
+}
@@ -0,0 +1,243 @@
+package com.kircherelectronics.androidlinearacceleration.statistics;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Summarizes the most recent measurements of a stream in a sliding window.
+ * The mean and variance are updated with Welford's algorithm as measurements
+ * enter and leave the window, and the minimum and maximum are tracked with
+ * monotonic queues, so every update is constant time and allocates nothing.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class WindowedStatistics implements Statistics
+{
+	private int windowSize;
+
+	// The measurements in the window in arrival order.
+	private double[] window;
+
+	// The total number of measurements added.
+	private long added;
+
+	private int count;
+
+	private double mean;
+
+	// The sum of the squared differences from the mean.
+	private double m2;
+
+	// The sum of the squared measurements.
+	private double sumSquares;
+
+	// Monotonic queues of the indices of the candidates for the minimum and
+	// maximum of the window.
+	private long[] minQueue;
+	private int minHead;
+	private int minSize;
+
+	private long[] maxQueue;
+	private int maxHead;
+	private int maxSize;
+
+	/**
+	 * Initialize a new WindowedStatistics object.
+	 * 
+	 * @param windowSize
+	 *            the number of measurements in the window.
+	 */
+	public WindowedStatistics(int windowSize)
+	{
+		this.windowSize = windowSize;
+
+		window = new double[windowSize];
+		minQueue = new long[windowSize];
+		maxQueue = new long[windowSize];
+
+		reset();
+	}
+
+	/**
+	 * Get the number of measurements in the window.
+	 * 
+	 * @return the size of the window.
+	 */
+	public int getWindowSize()
+	{
+		return windowSize;
+	}
+
+	@Override
+	public void add(double value)
+	{
+		int slot = (int) (added % windowSize);
+
+		if (count == windowSize)
+		{
+			// Remove the oldest measurement.
+			double old = window[slot];
+
+			count--;
+
+			if (count == 0)
+			{
+				mean = 0;
+				m2 = 0;
+			}
+			else
+			{
+				double delta = old - mean;
+				mean -= delta / count;
+				m2 -= delta * (old - mean);
+			}
+
+			sumSquares -= old * old;
+		}
+
+		window[slot] = value;
+
+		count++;
+
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+
+		sumSquares += value * value;
+
+		long index = added++;
+		long expired = added - windowSize;
+
+		// Drop the candidates that left the window or can never be the
+		// minimum again.
+		if (minSize > 0 && minQueue[minHead] < expired)
+		{
+			minHead = (minHead + 1) % windowSize;
+			minSize--;
+		}
+		while (minSize > 0
+				&& valueAt(minQueue[(minHead + minSize - 1) % windowSize]) >= value)
+		{
+			minSize--;
+		}
+		minQueue[(minHead + minSize) % windowSize] = index;
+		minSize++;
+
+		if (maxSize > 0 && maxQueue[maxHead] < expired)
+		{
+			maxHead = (maxHead + 1) % windowSize;
+			maxSize--;
+		}
+		while (maxSize > 0
+				&& valueAt(maxQueue[(maxHead + maxSize - 1) % windowSize]) <= value)
+		{
+			maxSize--;
+		}
+		maxQueue[(maxHead + maxSize) % windowSize] = index;
+		maxSize++;
+	}
+
+	@Override
+	public long getCount()
+	{
+		return count;
+	}
+
+	@Override
+	public double getMean()
+	{
+		return mean;
+	}
+
+	@Override
+	public double getVariance()
+	{
+		if (count < 2)
+		{
+			return 0;
+		}
+
+		// Removing measurements can leave a tiny negative residue.
+		return Math.max(0, m2) / (count - 1);
+	}
+
+	@Override
+	public double getStandardDeviation()
+	{
+		return Math.sqrt(getVariance());
+	}
+
+	@Override
+	public double getRms()
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		return Math.sqrt(Math.max(0, sumSquares) / count);
+	}
+
+	@Override
+	public double getMin()
+	{
+		if (minSize == 0)
+		{
+			return Double.POSITIVE_INFINITY;
+		}
+
+		return valueAt(minQueue[minHead]);
+	}
+
+	@Override
+	public double getMax()
+	{
+		if (maxSize == 0)
+		{
+			return Double.NEGATIVE_INFINITY;
+		}
+
+		return valueAt(maxQueue[maxHead]);
+	}
+
+	@Override
+	public void reset()
+	{
+		added = 0;
+		count = 0;
+		mean = 0;
+		m2 = 0;
+		sumSquares = 0;
+
+		minHead = 0;
+		minSize = 0;
+		maxHead = 0;
+		maxSize = 0;
+	}
+
+	/**
+	 * Get a measurement in the window.
+	 * 
+	 * @param index
+	 *            the index of the measurement in the stream.
+	 * @return the measurement.
+	 */
+	private double valueAt(long index)
+	{
+		return window[(int) (index % windowSize)];
+	}
+}
@@ -0,0 +1,367 @@
+package com.kircherelectronics.androidlinearacceleration.trigger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import android.util.Log;
+
+import com.kircherelectronics.androidlinearacceleration.sensor.observer.LinearAccelerationSensorObserver;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Keeps the most recent seconds of linear acceleration at full rate and saves
+ * the window around every shock to its own file. Nothing else is written, so
+ * the recorder can run for days in a fixed amount of memory.
+ * 
+ * Developer Note: The measurements go into a ring of primitive arrays that is
+ * sized once for the whole window at the highest sample rate we expect. When
+ * the trigger fires, the recorder keeps filling the ring until the
+ * post-trigger time has passed and only then copies the window out. The copy
+ * is written to a file on a background thread so the sensor thread never
+ * waits for storage. The trigger is not tested while a window is being
+ * captured, so a shock and its ringing make a single file. Above the highest
+ * expected sample rate the ring holds less than the pre-trigger time, and
+ * a warning is logged with the time that was kept.
+ * 
+ * The recorder only sees the measurements it is given. Hosted by an
+ * activity, as it is now, it captures only while the activity is visible;
+ * capturing in the background would need it to be hosted by a foreground
+ * service with its own sensor registration.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class BlackBoxRecorder implements LinearAccelerationSensorObserver
+{
+	private static final String tag = BlackBoxRecorder.class.getSimpleName();
+
+	// The time saved before and after a shock in nanoseconds.
+	private static final long DEFAULT_PRE_TRIGGER_TIME = 2000000000L;
+	private static final long DEFAULT_POST_TRIGGER_TIME = 3000000000L;
+
+	// The highest sample rate the ring holds a whole window for in Hz.
+	private static final int MAX_SAMPLE_RATE = 500;
+
+	private static final double NS_TO_S = 1.0 / 1000000000.0;
+
+	private ArrayList<ShockObserver> observers;
+
+	private ShockTrigger trigger;
+
+	private File directory;
+
+	private long preTriggerTime;
+	private long postTriggerTime;
+
+	// The most recent measurements, the newest just before head.
+	private int capacity;
+	private long[] times;
+	private float[] values;
+	private int head = 0;
+	private int size = 0;
+
+	// The time of the shock being captured, or -1 if there is none.
+	private long triggerTime = -1;
+
+	// Writes the captured windows.
+	private ExecutorService writer;
+
+	/**
+	 * Initialize a new BlackBoxRecorder object that saves 2 seconds before
+	 * and 3 seconds after each shock.
+	 * 
+	 * @param trigger
+	 *            decides when a shock happens.
+	 * @param directory
+	 *            the directory the windows are saved to.
+	 */
+	public BlackBoxRecorder(ShockTrigger trigger, File directory)
+	{
+		this(trigger, directory, DEFAULT_PRE_TRIGGER_TIME,
+				DEFAULT_POST_TRIGGER_TIME);
+	}
+
+	/**
+	 * Initialize a new BlackBoxRecorder object.
+	 * 
+	 * @param trigger
+	 *            decides when a shock happens.
+	 * @param directory
+	 *            the directory the windows are saved to.
+	 * @param preTriggerTime
+	 *            the time saved before a shock in nanoseconds.
+	 * @param postTriggerTime
+	 *            the time saved after a shock in nanoseconds.
+	 */
+	public BlackBoxRecorder(ShockTrigger trigger, File directory,
+			long preTriggerTime, long postTriggerTime)
+	{
+		this.trigger = trigger;
+		this.directory = directory;
+		this.preTriggerTime = preTriggerTime;
+		this.postTriggerTime = postTriggerTime;
+
+		observers = new ArrayList<ShockObserver>();
+
+		capacity = (int) Math.ceil((preTriggerTime + postTriggerTime)
+				* NS_TO_S * MAX_SAMPLE_RATE) + 1;
+
+		times = new long[capacity];
+		values = new float[capacity * 3];
+
+		writer = Executors.newSingleThreadExecutor();
+	}
+
+	/**
+	 * Register for saved shocks.
+	 * 
+	 * @param observer
+	 *            The observer to be registered.
+	 */
+	public void registerShockObserver(ShockObserver observer)
+	{
+		// Only register the observer if it is not already registered.
+		int i = observers.indexOf(observer);
+		if (i == -1)
+		{
+			observers.add(observer);
+		}
+	}
+
+	/**
+	 * Remove an observer of saved shocks.
+	 * 
+	 * @param observer
+	 *            The observer to be removed.
+	 */
+	public void removeShockObserver(ShockObserver observer)
+	{
+		int i = observers.indexOf(observer);
+		if (i >= 0)
+		{
+			observers.remove(i);
+		}
+	}
+
+	/**
+	 * Indicate if the window around a shock is being captured.
+	 * 
+	 * @return true if a shock has fired and its window is not complete.
+	 */
+	public boolean isCapturing()
+	{
+		return triggerTime >= 0;
+	}
+
+	@Override
+	public void onLinearAccelerationSensorChanged(float[] linearAcceleration,
+			long timeStamp)
+	{
+		times[head] = timeStamp;
+		values[head * 3] = linearAcceleration[0];
+		values[head * 3 + 1] = linearAcceleration[1];
+		values[head * 3 + 2] = linearAcceleration[2];
+
+		head = (head + 1) % capacity;
+		size = Math.min(size + 1, capacity);
+
+		if (triggerTime >= 0)
+		{
+			if (timeStamp - triggerTime >= postTriggerTime)
+			{
+				capture();
+
+				triggerTime = -1;
+				trigger.reset();
+			}
+		}
+		else if (trigger.test(linearAcceleration, timeStamp))
+		{
+			triggerTime = timeStamp;
+		}
+	}
+
+	/**
+	 * Forget the measurements and any shock being captured. Windows that are
+	 * already being written are still saved.
+	 */
+	public void reset()
+	{
+		head = 0;
+		size = 0;
+		triggerTime = -1;
+
+		trigger.reset();
+	}
+
+	/**
+	 * Save the window around a shock that is still being captured, with as
+	 * much of the post-trigger time as has been measured. Call this before
+	 * the measurements stop, or the shock is lost.
+	 */
+	public void flush()
+	{
+		if (triggerTime >= 0)
+		{
+			capture();
+
+			triggerTime = -1;
+			trigger.reset();
+		}
+	}
+
+	/**
+	 * Stop the writer thread once the windows that are already captured have
+	 * been saved. The recorder can not be used afterwards.
+	 */
+	public void shutdown()
+	{
+		writer.shutdown();
+	}
+
+	/**
+	 * Copy the window around the current shock out of the ring and save it
+	 * in the background.
+	 */
+	private void capture()
+	{
+		long start = triggerTime - preTriggerTime;
+
+		// Count the measurements in the window, from the newest back.
+		int count = 0;
+
+		while (count < size
+				&& times[(head - 1 - count + capacity) % capacity] >= start)
+		{
+			count++;
+		}
+
+		// A full ring that does not reach back to the start of the window
+		// means the sensor is faster than the ring was sized for.
+		if (count == capacity && times[head] > start)
+		{
+			long kept = Math.max(0, triggerTime - times[head]);
+
+			Log.w(tag, "Only " + kept * NS_TO_S + " s of the "
+					+ preTriggerTime * NS_TO_S
+					+ " s before the shock were kept, the sample rate is above "
+					+ MAX_SAMPLE_RATE + " Hz");
+		}
+
+		long[] windowTimes = new long[count];
+		float[] windowValues = new float[count * 3];
+
+		int first = (head - count + capacity) % capacity;
+
+		for (int i = 0; i < count; i++)
+		{
+			int slot = (first + i) % capacity;
+
+			windowTimes[i] = times[slot];
+
+			System.arraycopy(values, slot * 3, windowValues, i * 3, 3);
+		}
+
+		writer.execute(new WriteTask(triggerTime, windowTimes, windowValues));
+	}
+
+	/**
+	 * Get a file name for a shock that happened now.
+	 * 
+	 * @return the file name.
+	 */
+	private static String getFileName()
+	{
+		Calendar c = Calendar.getInstance();
+
+		return "Shock-" + c.get(Calendar.YEAR) + "-"
+				+ (c.get(Calendar.MONTH) + 1) + "-"
+				+ c.get(Calendar.DAY_OF_MONTH) + "-"
+				+ c.get(Calendar.HOUR_OF_DAY) + "-" + c.get(Calendar.MINUTE)
+				+ "-" + c.get(Calendar.SECOND) + "-"
+				+ c.get(Calendar.MILLISECOND) + ".csv";
+	}
+
+	/**
+	 * Saves a captured window.
+	 */
+	private class WriteTask implements Runnable
+	{
+		private long triggerTime;
+		private long[] times;
+		private float[] values;
+
+		public WriteTask(long triggerTime, long[] times, float[] values)
+		{
+			this.triggerTime = triggerTime;
+			this.times = times;
+			this.values = values;
+		}
+
+		@Override
+		public void run()
+		{
+			File file = new File(directory, getFileName());
+
+			try
+			{
+				if (!directory.exists())
+				{
+					directory.mkdirs();
+				}
+
+				BufferedWriter out = new BufferedWriter(new FileWriter(file));
+
+				try
+				{
+					// Times are in seconds from the shock.
+					out.write("Time,lAX,lAY,lAZ,");
+
+					for (int i = 0; i < times.length; i++)
+					{
+						out.newLine();
+						out.write((times[i] - triggerTime) * NS_TO_S + ","
+								+ values[i * 3] + "," + values[i * 3 + 1]
+								+ "," + values[i * 3 + 2] + ",");
+					}
+				}
+				finally
+				{
+					out.close();
+				}
+			}
+			catch (IOException e)
+			{
+				Log.e(tag, "Could not save the shock to " + file, e);
+
+				file = null;
+			}
+
+			for (int i = 0; i < observers.size(); i++)
+			{
+				observers.get(i).onShockSaved(file, triggerTime);
+			}
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.kircherelectronics.androidlinearacceleration.trigger;
+
+import java.io.File;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * An observer of a BlackBoxRecorder. Classes that need to know when a shock
+ * has been saved should do so with this interface.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public interface ShockObserver
+{
+	/**
+	 * Notify observers when the window around a shock has been saved. This is
+	 * called on the thread that writes the file.
+	 * 
+	 * @param file
+	 *            the file the window was saved to, or null if it could not
+	 *            be written.
+	 * @param timeStamp
+	 *            the time of the shock in nanoseconds.
+	 */
+	public void onShockSaved(File file, long timeStamp);
+}
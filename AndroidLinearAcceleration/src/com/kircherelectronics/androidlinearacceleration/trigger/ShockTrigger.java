@@ -0,0 +1,127 @@
+package com.kircherelectronics.androidlinearacceleration.trigger;
+
+/*
+ * Copyright 2013, Kircher Electronics
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Decides when a shock happens from a stream of acceleration. A shock is a
+ * level above a threshold or a change faster than a slope threshold, on the
+ * magnitude of the acceleration or on a single axis.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class ShockTrigger
+{
+	/**
+	 * The value of the acceleration that is tested.
+	 */
+	public enum Source
+	{
+		MAGNITUDE, X_AXIS, Y_AXIS, Z_AXIS
+	}
+
+	private static final double NS_TO_S = 1.0 / 1000000000.0;
+
+	private Source source;
+
+	// The level that fires the trigger in m/s^2, or 0 to disable it.
+	private float levelThreshold;
+
+	// The slope that fires the trigger in m/s^3, or 0 to disable it.
+	private float slopeThreshold;
+
+	// The previous value and its time.
+	private float lastValue = 0;
+	private long lastTimeStamp = 0;
+
+	/**
+	 * Initialize a new ShockTrigger object.
+	 * 
+	 * @param source
+	 *            the value that is tested.
+	 * @param levelThreshold
+	 *            the absolute level that fires the trigger in m/s^2, or 0 to
+	 *            test only the slope.
+	 * @param slopeThreshold
+	 *            the absolute slope that fires the trigger in m/s^3, or 0 to
+	 *            test only the level.
+	 */
+	public ShockTrigger(Source source, float levelThreshold,
+			float slopeThreshold)
+	{
+		this.source = source;
+		this.levelThreshold = levelThreshold;
+		this.slopeThreshold = slopeThreshold;
+	}
+
+	/**
+	 * Test a measurement.
+	 * 
+	 * @param acceleration
+	 *            the acceleration (x, y, z) in m/s^2.
+	 * @param timeStamp
+	 *            the time of the measurement in nanoseconds.
+	 * @return true if the measurement fires the trigger.
+	 */
+	public boolean test(float[] acceleration, long timeStamp)
+	{
+		float value = getValue(acceleration);
+
+		boolean fired = levelThreshold > 0
+				&& Math.abs(value) >= levelThreshold;
+
+		if (slopeThreshold > 0 && lastTimeStamp != 0
+				&& timeStamp > lastTimeStamp)
+		{
+			double slope = (value - lastValue)
+					/ ((timeStamp - lastTimeStamp) * NS_TO_S);
+
+			fired |= Math.abs(slope) >= slopeThreshold;
+		}
+
+		lastValue = value;
+		lastTimeStamp = timeStamp;
+
+		return fired;
+	}
+
+	/**
+	 * Forget the previous measurement.
+	 */
+	public void reset()
+	{
+		lastValue = 0;
+		lastTimeStamp = 0;
+	}
+
+	private float getValue(float[] acceleration)
+	{
+		switch (source)
+		{
+		case X_AXIS:
+			return acceleration[0];
+		case Y_AXIS:
+			return acceleration[1];
+		case Z_AXIS:
+			return acceleration[2];
+		default:
+			return (float) Math.sqrt(acceleration[0] * acceleration[0]
+					+ acceleration[1] * acceleration[1] + acceleration[2]
+					* acceleration[2]);
+		}
+	}
+}
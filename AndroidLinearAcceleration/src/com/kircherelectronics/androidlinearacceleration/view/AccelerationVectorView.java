@@ -4,6 +4,7 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Path.FillType;
@@ -93,6 +94,17 @@ public final class AccelerationVectorView extends View
 	private static final String tag = AccelerationVectorView.class
 			.getSimpleName();
 
+	// The space the strokes and anti-aliasing can cover outside the lines,
+	// relative to the width of the view.
+	private static final float STROKE_MARGIN = 0.01f;
+
+	// The length of an arrow line on each axis at full magnitude.
+	private static final float ARROW_SIZE = 0.05f;
+
+	// Scales the vector from the 40% length of an axis back to a magnitude
+	// of 1.
+	private static final float MAGNITUDE_SCALE = 2.5f;
+
 	// holds the cached static part
 	private Bitmap background;
 
@@ -106,6 +118,20 @@ public final class AccelerationVectorView extends View
 
 	private RectF rimRect;
 
+	// The arrows of the axes, which are drawn into the background.
+	private Path xArrowPath;
+	private Path yArrowPath;
+
+	// The arrow of the vector with its tip at the origin, pointing up, at a
+	// magnitude of 1.
+	private Path vectorArrowPath;
+
+	// The arrow of the vector where it is drawn in the current frame.
+	private Path vectorArrowFramePath;
+
+	// Moves the arrow of the vector to the tip of the vector.
+	private Matrix vectorArrowMatrix;
+
 	private float x;
 	private float y;
 
@@ -158,6 +184,8 @@ public final class AccelerationVectorView extends View
 	 */
 	public void updatePoint(float x, float y)
 	{
+		float oldX = this.x;
+		float oldY = this.y;
 
 		// Bound the y-axis to +/- the gravity of earth
 		if (x > SensorManager.GRAVITY_EARTH)
@@ -185,7 +213,46 @@ public final class AccelerationVectorView extends View
 		// Normalize y to 1 and then scale to half the length of the y-axis.
 		this.y = (y / SensorManager.GRAVITY_EARTH) * 0.4f;
 
-		this.invalidate();
+		// Only redraw where the vector was and where it is now.
+		float scale = (float) getWidth();
+
+		float oldExtent = getArrowExtent(oldX, oldY) + STROKE_MARGIN;
+		float extent = getArrowExtent(this.x, this.y) + STROKE_MARGIN;
+
+		float centerX = rimRect.centerX();
+		float centerY = rimRect.centerY();
+
+		float left = Math.min(Math.min(centerX, centerX - oldX) - oldExtent,
+				Math.min(centerX, centerX - this.x) - extent);
+		float top = Math.min(Math.min(centerY, centerY + oldY) - oldExtent,
+				Math.min(centerY, centerY + this.y) - extent);
+		float right = Math.max(Math.max(centerX, centerX - oldX) + oldExtent,
+				Math.max(centerX, centerX - this.x) + extent);
+		float bottom = Math.max(
+				Math.max(centerY, centerY + oldY) + oldExtent,
+				Math.max(centerY, centerY + this.y) + extent);
+
+		RenderScheduler.getInstance().requestRender(this,
+				(int) (left * scale), (int) (top * scale),
+				(int) Math.ceil(right * scale),
+				(int) Math.ceil(bottom * scale));
+	}
+
+	/**
+	 * Get how far the arrow of a vector can reach from its tip.
+	 * 
+	 * @param x
+	 *            the x-axis of the vector.
+	 * @param y
+	 *            the y-axis of the vector.
+	 * @return the reach of the arrow.
+	 */
+	private float getArrowExtent(float x, float y)
+	{
+		// The arrow lines are ARROW_SIZE long on each axis, scaled by the
+		// normalized magnitude of the vector.
+		return ARROW_SIZE * 1.415f * (float) Math.sqrt(x * x + y * y)
+				* MAGNITUDE_SCALE;
 	}
 
 	/**
@@ -235,6 +302,36 @@ public final class AccelerationVectorView extends View
 
 		backgroundPaint = new Paint();
 		backgroundPaint.setFilterBitmap(true);
+
+		// The Y axis arrow
+		yArrowPath = new Path();
+		yArrowPath.setFillType(FillType.EVEN_ODD);
+
+		yArrowPath.moveTo(rimRect.centerX() - 0.002f, rimRect.top);
+		yArrowPath.lineTo(rimRect.centerX() + 0.05f, rimRect.top + 0.05f);
+		yArrowPath.moveTo(rimRect.centerX() + 0.002f, rimRect.top);
+		yArrowPath.lineTo(rimRect.centerX() - 0.05f, rimRect.top + 0.05f);
+
+		// The X axis arrow
+		xArrowPath = new Path();
+		xArrowPath.setFillType(FillType.EVEN_ODD);
+
+		xArrowPath.moveTo(rimRect.right, rimRect.centerY() + 0.002f);
+		xArrowPath.lineTo(rimRect.right - 0.05f, rimRect.centerY() - 0.05f);
+		xArrowPath.moveTo(rimRect.right, rimRect.centerY() - 0.002f);
+		xArrowPath.lineTo(rimRect.right - 0.05f, rimRect.centerY() + 0.05f);
+
+		// The vector arrow, which is scaled, rotated and moved to the tip of
+		// the vector every frame.
+		vectorArrowPath = new Path();
+
+		vectorArrowPath.moveTo(0.002f, 0);
+		vectorArrowPath.lineTo(-ARROW_SIZE, ARROW_SIZE);
+		vectorArrowPath.moveTo(-0.002f, 0);
+		vectorArrowPath.lineTo(ARROW_SIZE, ARROW_SIZE);
+
+		vectorArrowFramePath = new Path();
+		vectorArrowMatrix = new Matrix();
 	}
 
 	/**
@@ -302,28 +399,10 @@ public final class AccelerationVectorView extends View
 				rimRect.centerY(), axisPaint);
 
 		// Draw the Y axis arrow
-		Path yArrowPath = new Path();
-		yArrowPath.setFillType(FillType.EVEN_ODD);
-
-		yArrowPath.moveTo(rimRect.centerX() - 0.002f, rimRect.top);
-		yArrowPath.lineTo(rimRect.centerX() + 0.05f, rimRect.top + 0.05f);
-		yArrowPath.moveTo(rimRect.centerX() + 0.002f, rimRect.top);
-		yArrowPath.lineTo(rimRect.centerX() - 0.05f, rimRect.top + 0.05f);
-
 		canvas.drawPath(yArrowPath, axisPaint);
 
-		// Draw the Y axis arrow
-		Path xArrowPath = new Path();
-		xArrowPath.setFillType(FillType.EVEN_ODD);
-
-		xArrowPath.moveTo(rimRect.right, rimRect.centerY() + 0.002f);
-		xArrowPath.lineTo(rimRect.right - 0.05f, rimRect.centerY() - 0.05f);
-
-		xArrowPath.moveTo(rimRect.right, rimRect.centerY() - 0.002f);
-		xArrowPath.lineTo(rimRect.right - 0.05f, rimRect.centerY() + 0.05f);
-
+		// Draw the X axis arrow
 		canvas.drawPath(xArrowPath, axisPaint);
-
 	}
 
 	/**
@@ -361,37 +440,39 @@ public final class AccelerationVectorView extends View
 
 	private void drawVectorLength(Canvas canvas)
 	{
+		float centerX = rimRect.centerX();
+		float centerY = rimRect.centerY();
+
+		// The tip of the vector.
+		float tipX = centerX - this.x;
+		float tipY = centerY + this.y;
+
 		// Draw the vector.
-		canvas.drawLine(rimRect.centerX(), rimRect.centerY(), rimRect.centerX()
-				- this.x, rimRect.centerY() + this.y, vectorPaint);
-
-		// Use the magnitude of the acceleration to determine the size of the
-		// vectors arrow. We have to scale it up by 250% because we had
-		// initially scaled it down by by 40% and we want to normalize to 1.
-		float magnitude = (float) Math.sqrt(Math.pow(this.x, 2)
-				+ Math.pow(this.y, 2)) * 2.5f;
-
-		// Rotate the canvas so the arrows rotate with the vector. Note we have
-		// to rotate by 90 degrees so 0 degrees is pointing in the positive Y
-		// axis. We also change the rotation from counter clockwise to clockwise
-		// with a negative out front. Also, note the atan2 produces a range from
-		// 0 to 180 degrees and 0 to -180 degrees. I add 360 degrees and then
-		// take mod 360 so the range is 0 to 360 degrees.
-		canvas.rotate(
-				(float) -((Math.toDegrees(Math.atan2(this.y, this.x)) + 450) % 360),
-				rimRect.centerX() - this.x, rimRect.centerY() + this.y);
-
-		// Draw the vector arrows. Note that the length of the arrows are scaled
-		// by the magnitude.
-		canvas.drawLine(rimRect.centerX() - this.x + 0.002f, rimRect.centerY()
-				+ this.y, rimRect.centerX() - this.x - (0.05f * magnitude),
-				rimRect.centerY() + this.y + (0.05f * magnitude), vectorPaint);
-
-		canvas.drawLine(rimRect.centerX() - this.x - 0.002f, rimRect.centerY()
-				+ this.y, rimRect.centerX() - this.x + (0.05f * magnitude),
-				rimRect.centerY() + this.y + (0.05f * magnitude), vectorPaint);
+		canvas.drawLine(centerX, centerY, tipX, tipY, vectorPaint);
 
-		canvas.restore();
+		float length = (float) Math.sqrt(this.x * this.x + this.y * this.y);
+
+		if (length < 1e-6f)
+		{
+			return;
+		}
+
+		// Rotate the arrow from pointing up, which is (0, -1), to the
+		// direction of the vector, which is (-x, y) / length. The sine and
+		// cosine of that rotation come straight from the vector, so no
+		// trigonometry is needed. The size of the arrow is scaled by the
+		// normalized magnitude of the vector.
+		float sin = -this.x / length;
+		float cos = -this.y / length;
+		float magnitude = length * MAGNITUDE_SCALE;
+
+		vectorArrowMatrix.setSinCos(sin, cos);
+		vectorArrowMatrix.preScale(magnitude, magnitude);
+		vectorArrowMatrix.postTranslate(tipX, tipY);
+
+		vectorArrowPath.transform(vectorArrowMatrix, vectorArrowFramePath);
+
+		canvas.drawPath(vectorArrowFramePath, vectorPaint);
 	}
 
 	private void drawAxisLength(Canvas canvas)
@@ -0,0 +1,386 @@
+package com.kircherelectronics.androidlinearacceleration.view;
+
+import java.util.ArrayList;
+
+import android.annotation.TargetApi;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+
+/*
+ * Low-Pass Linear Acceleration
+ * Copyright (C) 2013, Kaleb Kircher - Kircher Engineering, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/**
+ * Coalesces redraw requests from sensor driven views so each view is redrawn
+ * at most once per display frame. Views latch their most recent measurement
+ * and request a render instead of invalidating themselves, so the cost of
+ * drawing is bounded by the refresh rate of the display instead of the
+ * delivery rate of the sensor.
+ * 
+ * On Android 4.1 and later the frames are driven by the Choreographer and
+ * line up with vsync. On older devices a Handler approximates a 60Hz frame
+ * rate.
+ * 
+ * Views can also request that only part of them is redrawn. The parts
+ * requested before a frame are combined, so a view that moves a small
+ * primitive only repaints the pixels the primitive covered and now covers.
+ * 
+ * The number of requests coalesced into each redraw is counted per view, so
+ * a fast sensor driving one view does not hide a slow one driving another.
+ * The counts hold a reference to each view until resetStatistics() is
+ * called, which activities do when they are paused.
+ * 
+ * The scheduler must only be used from the UI thread.
+ * 
+ * @author Kaleb
+ * @version %I%, %G%
+ */
+public class RenderScheduler implements Runnable
+{
+	// The frame period used when the Choreographer is not available.
+	private static final long FRAME_PERIOD_MS = 16;
+
+	private static RenderScheduler instance;
+
+	// Indicates a frame has been requested but has not happened yet.
+	private boolean framePending = false;
+
+	// The total number of frames.
+	private long totalFrames = 0;
+
+	// The total number of pixels redrawn and the total number of pixels of
+	// the views that were redrawn.
+	private long totalDirtyPixels = 0;
+	private long totalViewPixels = 0;
+
+	// The views waiting to be redrawn.
+	private ArrayList<View> dirtyViews;
+
+	// The part of each view waiting to be redrawn. The rectangles are reused
+	// from frame to frame.
+	private ArrayList<Rect> dirtyRects;
+
+	// The views that have requested a render since the statistics were
+	// reset, and the render requests of each.
+	private ArrayList<View> requestingViews;
+	private ArrayList<RequestStatistics> requestStatistics;
+
+	private Handler handler;
+
+	private FrameCallback frameCallback;
+
+	/**
+	 * Get the scheduler of the UI thread.
+	 * 
+	 * @return the scheduler.
+	 */
+	public static RenderScheduler getInstance()
+	{
+		if (instance == null)
+		{
+			instance = new RenderScheduler();
+		}
+
+		return instance;
+	}
+
+	private RenderScheduler()
+	{
+		dirtyViews = new ArrayList<View>();
+		dirtyRects = new ArrayList<Rect>();
+
+		requestingViews = new ArrayList<View>();
+		requestStatistics = new ArrayList<RequestStatistics>();
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+		{
+			frameCallback = new FrameCallback();
+		}
+		else
+		{
+			handler = new Handler(Looper.getMainLooper());
+		}
+	}
+
+	/**
+	 * Request that a view is redrawn on the next frame. Any number of requests
+	 * before the frame result in a single redraw.
+	 * 
+	 * @param view
+	 *            the view.
+	 */
+	public void requestRender(View view)
+	{
+		requestRender(view, 0, 0, view.getWidth(), view.getHeight());
+	}
+
+	/**
+	 * Request that part of a view is redrawn on the next frame. The parts
+	 * requested before the frame are combined into a single redraw.
+	 * 
+	 * @param view
+	 *            the view.
+	 * @param left
+	 *            the left edge of the part in pixels.
+	 * @param top
+	 *            the top edge of the part in pixels.
+	 * @param right
+	 *            the right edge of the part in pixels.
+	 * @param bottom
+	 *            the bottom edge of the part in pixels.
+	 */
+	public void requestRender(View view, int left, int top, int right,
+			int bottom)
+	{
+		getRequestStatistics(view).pendingRequests++;
+
+		int index = dirtyViews.indexOf(view);
+
+		if (index == -1)
+		{
+			index = dirtyViews.size();
+			dirtyViews.add(view);
+
+			if (dirtyRects.size() == index)
+			{
+				dirtyRects.add(new Rect());
+			}
+
+			dirtyRects.get(index).set(left, top, right, bottom);
+		}
+		else
+		{
+			dirtyRects.get(index).union(left, top, right, bottom);
+		}
+
+		if (!framePending)
+		{
+			framePending = true;
+
+			if (frameCallback != null)
+			{
+				frameCallback.post();
+			}
+			else
+			{
+				handler.postDelayed(this, FRAME_PERIOD_MS);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of render requests of a view that were coalesced into
+	 * its most recent redraw.
+	 * 
+	 * @param view
+	 *            the view.
+	 * @return the number of render requests.
+	 */
+	public int getLastFrameRequests(View view)
+	{
+		int index = requestingViews.indexOf(view);
+
+		if (index == -1)
+		{
+			return 0;
+		}
+
+		return requestStatistics.get(index).lastFrameRequests;
+	}
+
+	/**
+	 * Get the average number of render requests of a view that were
+	 * coalesced into each of its redraws.
+	 * 
+	 * @param view
+	 *            the view.
+	 * @return the average number of render requests per redraw.
+	 */
+	public float getAverageFrameRequests(View view)
+	{
+		int index = requestingViews.indexOf(view);
+
+		if (index == -1 || requestStatistics.get(index).totalFrames == 0)
+		{
+			return 0;
+		}
+
+		RequestStatistics statistics = requestStatistics.get(index);
+
+		return (float) statistics.totalRequests / statistics.totalFrames;
+	}
+
+	/**
+	 * Get the number of frames that have been rendered.
+	 * 
+	 * @return the number of frames.
+	 */
+	public long getFrameCount()
+	{
+		return totalFrames;
+	}
+
+	/**
+	 * Get the number of times a view has been redrawn.
+	 * 
+	 * @param view
+	 *            the view.
+	 * @return the number of redraws.
+	 */
+	public long getFrameCount(View view)
+	{
+		int index = requestingViews.indexOf(view);
+
+		if (index == -1)
+		{
+			return 0;
+		}
+
+		return requestStatistics.get(index).totalFrames;
+	}
+
+	/**
+	 * Get the fraction of the pixels of the redrawn views that were actually
+	 * redrawn. This is 1 when views are always redrawn completely.
+	 * 
+	 * @return the fraction of the pixels that were redrawn.
+	 */
+	public float getDirtyFraction()
+	{
+		if (totalViewPixels == 0)
+		{
+			return 0;
+		}
+
+		return (float) totalDirtyPixels / totalViewPixels;
+	}
+
+	/**
+	 * Reset the coalescing statistics.
+	 */
+	public void resetStatistics()
+	{
+		totalFrames = 0;
+
+		requestingViews.clear();
+		requestStatistics.clear();
+
+		totalDirtyPixels = 0;
+		totalViewPixels = 0;
+	}
+
+	/**
+	 * Redraw the views that requested a render since the previous frame.
+	 */
+	@Override
+	public void run()
+	{
+		framePending = false;
+
+		totalFrames++;
+
+		for (int i = 0; i < dirtyViews.size(); i++)
+		{
+			View view = dirtyViews.get(i);
+			Rect dirty = dirtyRects.get(i);
+
+			RequestStatistics statistics = getRequestStatistics(view);
+			statistics.lastFrameRequests = statistics.pendingRequests;
+			statistics.totalRequests += statistics.pendingRequests;
+			statistics.totalFrames++;
+			statistics.pendingRequests = 0;
+
+			int width = view.getWidth();
+			int height = view.getHeight();
+
+			totalViewPixels += (long) width * height;
+
+			// Only redraw the part that is inside the view.
+			if (dirty.intersect(0, 0, width, height))
+			{
+				totalDirtyPixels += (long) dirty.width() * dirty.height();
+
+				view.invalidate(dirty.left, dirty.top, dirty.right,
+						dirty.bottom);
+			}
+		}
+
+		dirtyViews.clear();
+	}
+
+	/**
+	 * Get the render request statistics of a view, adding the view if it has
+	 * not requested a render since the statistics were reset.
+	 * 
+	 * @param view
+	 *            the view.
+	 * @return the statistics.
+	 */
+	private RequestStatistics getRequestStatistics(View view)
+	{
+		int index = requestingViews.indexOf(view);
+
+		if (index == -1)
+		{
+			index = requestingViews.size();
+
+			requestingViews.add(view);
+			requestStatistics.add(new RequestStatistics());
+		}
+
+		return requestStatistics.get(index);
+	}
+
+	/**
+	 * The render requests of a single view.
+	 */
+	private static class RequestStatistics
+	{
+		// The number of render requests since the previous redraw.
+		private int pendingRequests = 0;
+
+		// The number of render requests in the most recent redraw.
+		private int lastFrameRequests = 0;
+
+		// The total number of render requests and redraws.
+		private long totalRequests = 0;
+		private long totalFrames = 0;
+	}
+
+	/**
+	 * Runs the frames on vsync. This is kept in its own class so the
+	 * Choreographer is never loaded on devices that do not have it.
+	 */
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+	private class FrameCallback implements Choreographer.FrameCallback
+	{
+		public void post()
+		{
+			Choreographer.getInstance().postFrameCallback(this);
+		}
+
+		@Override
+		public void doFrame(long frameTimeNanos)
+		{
+			RenderScheduler.this.run();
+		}
+	}
+}